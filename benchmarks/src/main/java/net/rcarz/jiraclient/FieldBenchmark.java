@@ -0,0 +1,157 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The Field helpers every resource goes through: resource arrays, date
+ * parsing and converting values for updates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldBenchmark {
+
+    private static final int TIMESTAMPS = 100000;
+
+    private JSONArray comments;
+    private JSONArray workLogs;
+    private JSONArray components;
+    private String[] timestamps;
+    private String[] dates;
+    private JSONObject editmeta;
+    private Map<String, Object> updates;
+
+    @Setup
+    public void setup() {
+        comments = Fixtures.issueArray("comment.comments");
+        workLogs = Fixtures.issueArray("worklog.worklogs");
+        components = Fixtures.issueArray("components");
+        editmeta = Fixtures.json(Fixtures.EDIT_META);
+
+        Random random = new Random(42);
+        SimpleDateFormat dateTime = new SimpleDateFormat(Field.DATETIME_FORMAT);
+        SimpleDateFormat date = new SimpleDateFormat(Field.DATE_FORMAT);
+        String[] zones = {"UTC", "Europe/London", "America/New_York", "Asia/Tokyo", "Australia/Adelaide"};
+        timestamps = new String[TIMESTAMPS];
+        dates = new String[TIMESTAMPS];
+
+        for (int i = 0; i < TIMESTAMPS; i++) {
+            Date d = new Date(1262304000000L + (long)(random.nextDouble() * 400000000000L));
+            dateTime.setTimeZone(TimeZone.getTimeZone(zones[i % zones.length]));
+            timestamps[i] = dateTime.format(d);
+            dates[i] = date.format(d);
+        }
+
+        List<String> componentNames = new ArrayList<String>();
+        componentNames.add("Account Management");
+        componentNames.add("User Management");
+
+        updates = new LinkedHashMap<String, Object>();
+        updates.put("summary", "Maintain Company Details");
+        updates.put("description", "Customers need to change their company details without calling support.");
+        updates.put("labels", Arrays.asList("billing", "customer-facing", "q4"));
+        updates.put("components", componentNames);
+        updates.put("fixVersions", Arrays.asList("1.0", "1.1"));
+        updates.put("priority", "Critical");
+        updates.put("assignee", "anna");
+        updates.put("duedate", new Date(1388534400000L));
+        updates.put("customfield_10300", 5.0);
+        updates.put("customfield_10302", "Payments");
+    }
+
+    @Benchmark
+    public List<Comment> getResourceArrayComments() {
+        return Field.getResourceArray(Comment.class, comments, null);
+    }
+
+    @Benchmark
+    public List<WorkLog> getResourceArrayWorkLogs() {
+        return Field.getResourceArray(WorkLog.class, workLogs, null);
+    }
+
+    @Benchmark
+    public List<Component> getResourceArrayComponents() {
+        return Field.getResourceArray(Component.class, components, null);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TIMESTAMPS)
+    public void getDateTime(Blackhole bh) {
+        for (String s : timestamps)
+            bh.consume(Field.getDateTime(s));
+    }
+
+    /**
+     * What getDateTime used to do: a new SimpleDateFormat per value.
+     */
+    @Benchmark
+    @OperationsPerInvocation(TIMESTAMPS)
+    public void getDateTimeSimpleDateFormat(Blackhole bh) throws ParseException {
+        for (String s : timestamps)
+            bh.consume(new SimpleDateFormat(Field.DATETIME_FORMAT).parse(s));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TIMESTAMPS)
+    public void getDate(Blackhole bh) {
+        for (String s : dates)
+            bh.consume(Field.getDate(s));
+    }
+
+    /**
+     * Converts the values of a typical issue update.
+     */
+    @Benchmark
+    public void toJson(Blackhole bh) throws JiraException {
+        for (Map.Entry<String, Object> update : updates.entrySet())
+            bh.consume(Field.toJson(update.getKey(), update.getValue(), editmeta));
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+
+/**
+ * Loads the recorded JSON payloads the benchmarks run against and scales
+ * them up to the sizes seen on large instances.
+ *
+ * issue-all.json is an issue read with fields=*all and expand=changelog,
+ * issue-narrow.json the same issue with fields=summary,status,assignee,updated
+ * and editmeta.json the edit metadata of its project.
+ */
+public final class Fixtures {
+
+    public static final String ISSUE_ALL = "issue-all.json";
+    public static final String ISSUE_NARROW = "issue-narrow.json";
+    public static final String EDIT_META = "editmeta.json";
+
+    private Fixtures() { }
+
+    /**
+     * Reads a fixture as text.
+     *
+     * @param name Fixture file name
+     */
+    public static String text(String name) {
+        InputStream is = Fixtures.class.getResourceAsStream("/fixtures/" + name);
+        if (is == null)
+            throw new IllegalArgumentException("No fixture named " + name);
+
+        StringBuilder result = new StringBuilder();
+        char[] buf = new char[8192];
+
+        try {
+            Reader reader = new InputStreamReader(is, "UTF-8");
+            try {
+                int n;
+                while ((n = reader.read(buf)) != -1)
+                    result.append(buf, 0, n);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to read fixture " + name, ex);
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Reads a fixture as a JSON object.
+     *
+     * @param name Fixture file name
+     */
+    public static JSONObject json(String name) {
+        return (JSONObject)JSONSerializer.toJSON(text(name));
+    }
+
+    /**
+     * Builds a search result page by copying an issue with fresh ids and
+     * keys.
+     *
+     * @param name Issue fixture file name
+     * @param size Issues in the page
+     */
+    public static JSONObject searchPage(String name, int size) {
+        JSONObject issue = json(name);
+        JSONArray issues = new JSONArray();
+
+        for (int i = 0; i < size; i++) {
+            JSONObject copy = JSONObject.fromObject(issue);
+            copy.put("id", String.valueOf(20000 + i));
+            copy.put("key", "FILTA-" + (1000 + i));
+            copy.put("self", "https://brainbubble.atlassian.net/rest/api/2/issue/" + (20000 + i));
+            issues.add(copy);
+        }
+
+        JSONObject page = new JSONObject();
+        page.put("startAt", 0);
+        page.put("maxResults", size);
+        page.put("total", size);
+        page.put("issues", issues);
+        return page;
+    }
+
+    /**
+     * Gets one array field of the full issue, e.g. "components", or
+     * "comment.comments" for a nested array.
+     */
+    public static JSONArray issueArray(String path) {
+        Object node = json(ISSUE_ALL).getJSONObject("fields");
+
+        for (String part : path.split("\\."))
+            node = ((JSONObject)node).get(part);
+
+        return (JSONArray)node;
+    }
+
+    /**
+     * Gets the changelog histories of the full issue.
+     */
+    public static JSONArray histories() {
+        return json(ISSUE_ALL).getJSONObject("changelog").getJSONArray("histories");
+    }
+}
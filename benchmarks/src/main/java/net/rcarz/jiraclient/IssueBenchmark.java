@@ -0,0 +1,116 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Issue deserialisation of one search page, for narrow projections and
+ * fields=*all, with eager and lazy issue fields.
+ *
+ * A full issue is about 90KB of JSON, so pages are kept small by default;
+ * run with -p pageSize=50 for the size of a default search page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IssueBenchmark {
+
+    @Param({"narrow", "all"})
+    public String payload;
+
+    @Param({"false", "true"})
+    public boolean lazy;
+
+    @Param({"10"})
+    public int pageSize;
+
+    private RestClient restClient;
+    private JSONArray issues;
+    private String pageText;
+
+    @Setup
+    public void setup() {
+        restClient = new RestClient(null, URI.create("https://brainbubble.atlassian.net"));
+        restClient.setLazyIssueFields(lazy);
+
+        JSONObject page = Fixtures.searchPage(
+            payload.equals("all") ? Fixtures.ISSUE_ALL : Fixtures.ISSUE_NARROW, pageSize);
+        issues = page.getJSONArray("issues");
+        pageText = page.toString();
+    }
+
+    /**
+     * Builds the issues of an already parsed page, as the search iterator
+     * does.
+     */
+    @Benchmark
+    public void deserialise(Blackhole bh) {
+        for (int i = 0; i < issues.size(); i++)
+            bh.consume(new Issue(restClient, issues.getJSONObject(i)));
+    }
+
+    /**
+     * Builds the issues and reads the fields of a typical report, which is
+     * where lazy issues pay for what they skipped.
+     */
+    @Benchmark
+    public void deserialiseAndRead(Blackhole bh) {
+        for (int i = 0; i < issues.size(); i++) {
+            Issue issue = new Issue(restClient, issues.getJSONObject(i));
+            bh.consume(issue.getSummary());
+            bh.consume(issue.getStatus());
+            bh.consume(issue.getAssignee());
+            bh.consume(issue.getUpdatedDate());
+        }
+    }
+
+    /**
+     * Parses the page text and builds the issues.
+     */
+    @Benchmark
+    public void parseAndDeserialise(Blackhole bh) {
+        JSONArray parsed = ((JSONObject)JSONSerializer.toJSON(pageText)).getJSONArray("issues");
+
+        for (int i = 0; i < parsed.size(); i++)
+            bh.consume(new Issue(restClient, parsed.getJSONObject(i)));
+    }
+}
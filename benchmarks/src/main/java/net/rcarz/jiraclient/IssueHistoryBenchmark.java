@@ -0,0 +1,81 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONArray;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing and filtering the changelog of an issue with 30 histories.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IssueHistoryBenchmark {
+
+    private JSONArray histories;
+    private List<IssueHistory> parsed;
+    private ChangeLogFilter filter;
+
+    @Setup
+    public void setup() {
+        histories = Fixtures.histories();
+        parsed = parse();
+        filter = new ChangeLogFilter().fields("status", "assignee");
+    }
+
+    private List<IssueHistory> parse() {
+        List<IssueHistory> result = new ArrayList<IssueHistory>(histories.size());
+
+        for (int i = 0; i < histories.size(); i++)
+            result.add(new IssueHistory(null, histories.getJSONObject(i)));
+
+        return result;
+    }
+
+    @Benchmark
+    public List<IssueHistory> parseHistories() {
+        return parse();
+    }
+
+    @Benchmark
+    public void filterHistories(Blackhole bh) {
+        for (IssueHistory record : filter.filter(parsed))
+            bh.consume(record);
+    }
+}
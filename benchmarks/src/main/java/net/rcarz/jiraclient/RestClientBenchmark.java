@@ -0,0 +1,80 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building request URIs and naming them for metrics, which happens once
+ * per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestClientBenchmark {
+
+    private RestClient restClient;
+    private Map<String, String> searchParams;
+
+    @Setup
+    public void setup() {
+        restClient = new RestClient(null, URI.create("https://jira.example.com/jira"));
+
+        searchParams = new HashMap<String, String>();
+        searchParams.put("jql", "project = FILTA AND updated >= \"2013/10/01 00:00\" ORDER BY updated ASC");
+        searchParams.put("fields", "summary,status,assignee,updated");
+        searchParams.put("expand", "changelog");
+        searchParams.put("startAt", "150");
+        searchParams.put("maxResults", "50");
+    }
+
+    @Benchmark
+    public URI buildURI() throws URISyntaxException {
+        return restClient.buildURI("/rest/api/2/issue/FILTA-43");
+    }
+
+    @Benchmark
+    public URI buildURIWithParams() throws URISyntaxException {
+        return restClient.buildURI("/rest/api/2/search", searchParams);
+    }
+
+    @Benchmark
+    public String endpointTemplate() {
+        return RequestEvent.template("/rest/api/2/issue/FILTA-43/comment/10500");
+    }
+}
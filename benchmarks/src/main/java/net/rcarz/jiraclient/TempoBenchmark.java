@@ -0,0 +1,104 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Removing duplicate Tempo work logs with the fingerprint index and with a
+ * pairwise isDuplicate scan. About a tenth of the work logs are duplicates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TempoBenchmark {
+
+    @Param({"1000", "5000"})
+    public int workLogs;
+
+    private List<TempoWorkLog> input;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        input = new ArrayList<TempoWorkLog>(workLogs);
+
+        for (int i = 0; i < workLogs; i++) {
+            int source = i % 10 == 9 ? random.nextInt(i) : i;
+
+            JSONObject author = new JSONObject();
+            author.put("self", "https://jira.example.com/rest/api/2/user?username=user" + source % 50);
+            author.put("name", "user" + source % 50);
+
+            JSONObject json = new JSONObject();
+            json.put("id", 100000 + i);
+            json.put("self", "https://jira.example.com/rest/tempo-timesheets/3/worklogs/" + (100000 + i));
+            json.put("timeSpentSeconds", 900 * (1 + source % 16));
+            json.put("dateStarted", String.format("2016-%02d-%02dT00:00:00.000", 1 + source % 12, 1 + source % 28));
+            json.put("comment", "Worked on FILTA-" + source);
+            json.put("author", author);
+            input.add(new TempoWorkLog(null, json));
+        }
+
+        Collections.shuffle(input, random);
+    }
+
+    @Benchmark
+    public List<TempoWorkLog> distinctIndexed() {
+        return TempoWorkLogIndex.distinct(input);
+    }
+
+    @Benchmark
+    public List<TempoWorkLog> distinctPairwise() {
+        List<TempoWorkLog> result = new ArrayList<TempoWorkLog>();
+
+        outer:
+        for (TempoWorkLog candidate : input) {
+            for (TempoWorkLog kept : result) {
+                if (kept.isDuplicate(candidate))
+                    continue outer;
+            }
+            result.add(candidate);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONObject;
+
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading responses over a loopback connection: a page of ten full
+ * issues through RestClient.get, and attachment downloads streamed to a
+ * sink.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferBenchmark {
+
+    private static final int BLOCK_SIZE = 65536;
+
+    private HttpServer server;
+    private DefaultHttpClient httpClient;
+    private RestClient restClient;
+    private URI base;
+
+    /**
+     * An attachment of the given size.
+     */
+    @State(Scope.Benchmark)
+    public static class Download {
+
+        @Param({"1048576", "16777216"})
+        public int attachmentSize;
+
+        private Attachment attachment;
+
+        @Setup
+        public void setup(TransferBenchmark transfer) {
+            JSONObject json = new JSONObject();
+            json.put("id", "11000");
+            json.put("filename", "dump.bin");
+            json.put("size", attachmentSize);
+            json.put("content", transfer.base + "/secure/attachment/" + attachmentSize + "/dump.bin");
+            attachment = new Attachment(transfer.restClient, json);
+        }
+    }
+
+    private static final OutputStream SINK = new OutputStream() {
+        @Override
+        public void write(int b) { }
+
+        @Override
+        public void write(byte[] b, int off, int len) { }
+    };
+
+    private static HttpHandler serving(final byte[] body, final String contentType) {
+        return new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().set("Content-Type", contentType);
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        };
+    }
+
+    /**
+     * Serves /secure/attachment/{size}/... as that many random bytes.
+     */
+    private static HttpHandler attachments() {
+        final byte[] block = new byte[BLOCK_SIZE];
+        new Random(42).nextBytes(block);
+
+        return new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String[] path = exchange.getRequestURI().getPath().split("/");
+                long size = Long.parseLong(path[3]);
+
+                exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+                exchange.sendResponseHeaders(200, size);
+                OutputStream out = exchange.getResponseBody();
+
+                for (long left = size; left > 0; left -= BLOCK_SIZE)
+                    out.write(block, 0, (int)Math.min(BLOCK_SIZE, left));
+
+                out.close();
+            }
+        };
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        byte[] page = Fixtures.searchPage(Fixtures.ISSUE_ALL, 10).toString().getBytes("UTF-8");
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/rest/api/2/search", serving(page, "application/json;charset=UTF-8"));
+        server.createContext("/secure/attachment/", attachments());
+        server.start();
+
+        base = URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+        httpClient = new DefaultHttpClient(new PoolingClientConnectionManager());
+        restClient = new RestClient(httpClient, base);
+    }
+
+    @TearDown
+    public void tearDown() {
+        httpClient.getConnectionManager().shutdown();
+        server.stop(0);
+    }
+
+    @Benchmark
+    public JSON searchPage() throws Exception {
+        return restClient.get("/rest/api/2/search");
+    }
+
+    @Benchmark
+    public long downloadAttachment(Download download) throws JiraException {
+        return download.attachment.downloadTo(SINK);
+    }
+}
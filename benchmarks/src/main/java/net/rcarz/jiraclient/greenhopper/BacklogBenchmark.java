@@ -0,0 +1,101 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient.greenhopper;
+
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading the backlog of a large board. Half of the issues are spread
+ * over the sprints and the rest stay in the backlog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BacklogBenchmark {
+
+    @Param({"1000", "10000"})
+    public int issues;
+
+    @Param({"20"})
+    public int sprints;
+
+    private JSONObject json;
+
+    @Setup
+    public void setup() {
+        JSONArray issueArray = new JSONArray();
+        for (int i = 0; i < issues; i++) {
+            JSONObject issue = new JSONObject();
+            issue.put("id", 10000 + i);
+            issue.put("key", "FILTA-" + (1000 + i));
+            issue.put("summary", "Issue " + i);
+            issue.put("typeName", "Story");
+            issue.put("statusName", "To Do");
+            issue.put("hidden", false);
+            issueArray.add(issue);
+        }
+
+        int perSprint = issues / 2 / sprints;
+        JSONArray sprintArray = new JSONArray();
+        for (int s = 0; s < sprints; s++) {
+            JSONArray ids = new JSONArray();
+            for (int i = 0; i < perSprint; i++)
+                ids.add(10000 + s * perSprint + i);
+
+            JSONObject sprint = new JSONObject();
+            sprint.put("id", 100 + s);
+            sprint.put("name", "Sprint " + (s + 1));
+            sprint.put("state", s == 0 ? "ACTIVE" : "FUTURE");
+            sprint.put("issuesIds", ids);
+            sprintArray.add(sprint);
+        }
+
+        json = new JSONObject();
+        json.put("issues", issueArray);
+        json.put("sprints", sprintArray);
+        json.put("rankCustomFieldId", 10004);
+        json.put("canManageSprints", true);
+        json.put("maxIssuesExceeded", false);
+        json.put("queryResultLimit", 2147483647);
+    }
+
+    @Benchmark
+    public Backlog load() {
+        return new Backlog(null, json);
+    }
+}
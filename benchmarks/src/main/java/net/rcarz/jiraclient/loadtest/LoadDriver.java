@@ -0,0 +1,391 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient.loadtest;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.rcarz.jiraclient.JiraClient;
+import net.rcarz.jiraclient.JiraException;
+import net.rcarz.jiraclient.LatencyHistogram;
+import net.rcarz.jiraclient.RetryPolicy;
+import net.rcarz.jiraclient.util.DaemonThreadFactory;
+
+/**
+ * Runs a workload against a JIRA server at increasing concurrency and
+ * reports throughput and latency percentiles.
+ *
+ * Each run builds a JiraClient with as many pooled connections as there are
+ * workers, warms up, then counts every operation started in the measurement
+ * window.
+ *
+ * Run main() to load-test the stand-in server, e.g.
+ * <pre>
+ * java -cp target/benchmarks.jar net.rcarz.jiraclient.loadtest.LoadDriver \
+ *     --workload search --concurrency 1,4,16 --latency 20 --jitter 10 --throttle-rate 0.01
+ * </pre>
+ */
+public class LoadDriver {
+
+    private final URI uri;
+    private long warmup = TimeUnit.SECONDS.toNanos(2);
+    private long duration = TimeUnit.SECONDS.toNanos(10);
+    private boolean retries = false;
+
+    /**
+     * Creates a driver.
+     *
+     * @param uri Base URI of the server under test
+     */
+    public LoadDriver(URI uri) {
+        this.uri = uri;
+    }
+
+    /**
+     * Sets how long each run warms up before measuring.
+     */
+    public LoadDriver warmup(long time, TimeUnit unit) {
+        if (time < 0)
+            throw new IllegalArgumentException("time must not be negative");
+
+        this.warmup = unit.toNanos(time);
+        return this;
+    }
+
+    /**
+     * Sets how long each run is measured.
+     */
+    public LoadDriver duration(long time, TimeUnit unit) {
+        if (time <= 0)
+            throw new IllegalArgumentException("time must be positive");
+
+        this.duration = unit.toNanos(time);
+        return this;
+    }
+
+    /**
+     * Makes the clients retry failed idempotent requests with the default
+     * {@link RetryPolicy}.
+     */
+    public LoadDriver retries(boolean retries) {
+        this.retries = retries;
+        return this;
+    }
+
+    /**
+     * Configures the client of a run. Override to test other client
+     * settings.
+     *
+     * @param concurrency Number of workers sharing the client
+     */
+    protected JiraClient.Builder builder(int concurrency) {
+        JiraClient.Builder builder = new JiraClient.Builder(uri.toString())
+            .maxConnectionsPerRoute(concurrency)
+            .maxConnectionsTotal(concurrency);
+
+        if (retries)
+            builder.retryPolicy(new RetryPolicy());
+
+        return builder;
+    }
+
+    /**
+     * Runs a workload at each concurrency level in turn.
+     */
+    public List<Result> run(Workload workload, int... concurrencyLevels)
+        throws JiraException, InterruptedException {
+
+        List<Result> results = new ArrayList<Result>();
+        for (int concurrency : concurrencyLevels)
+            results.add(run(workload, concurrency));
+        return results;
+    }
+
+    /**
+     * Runs a workload with the given number of workers.
+     */
+    public Result run(final Workload workload, final int concurrency)
+        throws JiraException, InterruptedException {
+
+        if (concurrency <= 0)
+            throw new IllegalArgumentException("concurrency must be positive");
+
+        final JiraClient client = builder(concurrency).build();
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong operations = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicReference<Exception> firstError = new AtomicReference<Exception>();
+
+        final long measureFrom = System.nanoTime() + warmup;
+        final long measureTo = measureFrom + duration;
+
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency, new DaemonThreadFactory("jira-load"));
+        List<Future<?>> workers = new ArrayList<Future<?>>();
+
+        try {
+            for (int w = 0; w < concurrency; w++) {
+                final int worker = w;
+
+                workers.add(pool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        int iteration = worker;
+                        long begin;
+
+                        while ((begin = System.nanoTime()) < measureTo) {
+                            boolean failed = false;
+
+                            try {
+                                workload.run(client, iteration);
+                            } catch (Exception ex) {
+                                failed = true;
+                                firstError.compareAndSet(null, ex);
+                            }
+
+                            if (begin >= measureFrom) {
+                                latency.record(System.nanoTime() - begin);
+                                operations.incrementAndGet();
+                                if (failed)
+                                    errors.incrementAndGet();
+                            }
+
+                            iteration += concurrency;
+                        }
+                    }
+                }));
+            }
+
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (ExecutionException ex) {
+                    throw new IllegalStateException("Load worker failed", ex.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            client.close();
+        }
+
+        return new Result(workload.getName(), concurrency, operations.get(), errors.get(),
+            duration, latency.snapshot(), firstError.get());
+    }
+
+    /**
+     * The outcome of one run.
+     */
+    public static final class Result {
+        private final String workload;
+        private final int concurrency;
+        private final long operations;
+        private final long errors;
+        private final long duration;
+        private final LatencyHistogram.Snapshot latency;
+        private final Exception firstError;
+
+        private Result(String workload, int concurrency, long operations, long errors, long duration,
+                       LatencyHistogram.Snapshot latency, Exception firstError) {
+
+            this.workload = workload;
+            this.concurrency = concurrency;
+            this.operations = operations;
+            this.errors = errors;
+            this.duration = duration;
+            this.latency = latency;
+            this.firstError = firstError;
+        }
+
+        public String getWorkload() {
+            return workload;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        /**
+         * Gets the number of operations started in the measurement window,
+         * failed ones included.
+         */
+        public long getOperations() {
+            return operations;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * Gets the operations per second.
+         */
+        public double getThroughput() {
+            return operations * 1e9 / duration;
+        }
+
+        /**
+         * Gets the operation latencies in nanoseconds.
+         */
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+
+        /**
+         * Gets the first error of the run, warm-up included.
+         *
+         * @return the exception or null if every operation succeeded
+         */
+        public Exception getFirstError() {
+            return firstError;
+        }
+
+        static String header() {
+            return String.format("%-12s %6s %10s %9s %9s %9s %8s",
+                "workload", "conc", "ops/s", "p50 ms", "p99 ms", "max ms", "errors");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-12s %6d %10.1f %9.2f %9.2f %9.2f %8d",
+                workload, concurrency, getThroughput(),
+                latency.getPercentile(50) / 1e6, latency.getPercentile(99) / 1e6,
+                latency.getMax() / 1e6, errors);
+        }
+    }
+
+    /**
+     * Starts a stand-in server, unless --url points elsewhere, and runs the
+     * workloads at each concurrency level.
+     *
+     * <pre>
+     * --workload      issue, search, search*all, create, backlog, tempo or all (all)
+     * --concurrency   comma-separated worker counts (1,2,4,8,16)
+     * --duration      seconds measured per run (10)
+     * --warmup        seconds of warm-up per run (2)
+     * --issues        issues in the synthetic project (1000)
+     * --latency       stand-in latency in milliseconds (0)
+     * --jitter        stand-in jitter in milliseconds (0)
+     * --error-rate    share of requests answered with 500 (0)
+     * --throttle-rate share of requests answered with 429 (0)
+     * --retry         retry failed idempotent requests
+     * --url           server to test instead of the stand-in
+     * </pre>
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<String, String>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--"))
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+
+            String name = args[i].substring(2);
+            if (name.equals("retry"))
+                options.put(name, "true");
+            else if (i + 1 < args.length)
+                options.put(name, args[++i]);
+            else
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+        }
+
+        SyntheticData data = new SyntheticData("LOAD", integer(options, "issues", 1000), 50);
+        StandInServer server = null;
+        URI uri;
+
+        if (options.containsKey("url")) {
+            uri = URI.create(options.get("url"));
+        } else {
+            server = new StandInServer(data)
+                .latency(integer(options, "latency", 0), integer(options, "jitter", 0), TimeUnit.MILLISECONDS)
+                .errorRate(decimal(options, "error-rate", 0))
+                .throttleRate(decimal(options, "throttle-rate", 0), 1);
+            server.start();
+            uri = server.getURI();
+        }
+
+        String[] levels = (options.containsKey("concurrency") ? options.get("concurrency") : "1,2,4,8,16").split(",");
+        int[] concurrency = new int[levels.length];
+        for (int i = 0; i < levels.length; i++)
+            concurrency[i] = Integer.parseInt(levels[i].trim());
+
+        LoadDriver driver = new LoadDriver(uri)
+            .warmup(integer(options, "warmup", 2), TimeUnit.SECONDS)
+            .duration(integer(options, "duration", 10), TimeUnit.SECONDS)
+            .retries(options.containsKey("retry"));
+
+        System.out.println(Result.header());
+
+        try {
+            for (Workload workload : workloads(data, options.containsKey("workload") ? options.get("workload") : "all")) {
+                for (int level : concurrency) {
+                    Result result = driver.run(workload, level);
+                    System.out.println(result);
+
+                    if (result.getFirstError() != null && result.getErrors() == result.getOperations())
+                        System.out.println("  every operation failed: " + result.getFirstError());
+                }
+            }
+        } finally {
+            if (server != null) {
+                System.out.println("stand-in: " + server.getRequestCount() + " requests, " +
+                    server.getErrorCount() + " injected errors, " + server.getThrottledCount() + " throttled");
+                server.stop();
+            }
+        }
+    }
+
+    private static List<Workload> workloads(SyntheticData data, String name) {
+        List<Workload> all = new ArrayList<Workload>();
+        all.add(Workload.getIssue(data));
+        all.add(Workload.search(data));
+        all.add(Workload.searchAll(data));
+        all.add(Workload.createIssue(data));
+        all.add(Workload.backlog(data));
+        all.add(Workload.tempoWorkLogs(data));
+
+        if (name.equals("all"))
+            return all;
+
+        for (Workload workload : all) {
+            if (workload.getName().equals(name)) {
+                List<Workload> result = new ArrayList<Workload>();
+                result.add(workload);
+                return result;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown workload " + name);
+    }
+
+    private static int integer(Map<String, String> options, String name, int defaultValue) {
+        return options.containsKey(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+    }
+
+    private static double decimal(Map<String, String> options, String name, double defaultValue) {
+        return options.containsKey(name) ? Double.parseDouble(options.get(name)) : defaultValue;
+    }
+}
@@ -0,0 +1,396 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import net.rcarz.jiraclient.util.DaemonThreadFactory;
+
+/**
+ * An in-process HTTP server that answers the REST, GreenHopper and Tempo
+ * calls the client makes, from {@link SyntheticData}.
+ *
+ * Served endpoints:
+ * <ul>
+ * <li>GET /rest/api/{rev}/search</li>
+ * <li>GET /rest/api/{rev}/issue/{key}</li>
+ * <li>GET /rest/api/{rev}/issue/createmeta</li>
+ * <li>POST /rest/api/{rev}/issue</li>
+ * <li>GET /rest/greenhopper/1.0/rapidview/{id}</li>
+ * <li>GET /rest/greenhopper/1.0/xboard/plan/backlog/data</li>
+ * <li>GET /rest/tempo-timesheets/3/worklogs</li>
+ * </ul>
+ *
+ * Every response can be delayed by a fixed latency plus random jitter, and
+ * a share of requests can be answered with 500 or with 429 and a
+ * Retry-After header instead.
+ */
+public class StandInServer {
+
+    private static final Pattern API = Pattern.compile("/rest/api/[^/]+/(.*)");
+    private static final Pattern ISSUE = Pattern.compile("issue/([^/]+)");
+    private static final Pattern RAPID_VIEW = Pattern.compile("/rest/greenhopper/1\\.0/rapidview/(\\d+)");
+    private static final String BACKLOG = "/rest/greenhopper/1.0/xboard/plan/backlog/data";
+    private static final Pattern TEMPO_WORKLOGS = Pattern.compile("/rest/tempo-timesheets/[^/]+/worklogs/?");
+
+    private final SyntheticData data;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private volatile long latency = 0;
+    private volatile long jitter = 0;
+    private volatile double errorRate = 0;
+    private volatile double throttleRate = 0;
+    private volatile int retryAfter = 1;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    /**
+     * Creates a server on a free loopback port. Call {@link #start()} to
+     * begin serving.
+     *
+     * @param data Data to serve
+     */
+    public StandInServer(SyntheticData data) throws IOException {
+        this(data, 0);
+    }
+
+    /**
+     * Creates a server on a loopback port.
+     *
+     * @param data Data to serve
+     * @param port Port or 0 for a free one
+     */
+    public StandInServer(SyntheticData data, int port) throws IOException {
+        this.data = data;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.executor = Executors.newCachedThreadPool(new DaemonThreadFactory("jira-standin"));
+
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    serve(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Gets the base URI to point a client at.
+     */
+    public URI getURI() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    public SyntheticData getData() {
+        return data;
+    }
+
+    /**
+     * Delays every response.
+     *
+     * @param latency Fixed delay
+     * @param jitter Largest random delay added on top
+     * @param unit Unit of both delays
+     */
+    public StandInServer latency(long latency, long jitter, TimeUnit unit) {
+        if (latency < 0 || jitter < 0)
+            throw new IllegalArgumentException("latency and jitter must not be negative");
+
+        this.latency = unit.toMicros(latency);
+        this.jitter = unit.toMicros(jitter);
+        return this;
+    }
+
+    /**
+     * Answers a share of requests with 500 Internal Server Error.
+     *
+     * @param rate Share between 0 and 1
+     */
+    public StandInServer errorRate(double rate) {
+        if (rate < 0 || rate > 1)
+            throw new IllegalArgumentException("rate must be between 0 and 1");
+
+        this.errorRate = rate;
+        return this;
+    }
+
+    /**
+     * Answers a share of requests with 429 Too Many Requests.
+     *
+     * @param rate Share between 0 and 1
+     * @param retryAfter Seconds sent in the Retry-After header
+     */
+    public StandInServer throttleRate(double rate, int retryAfter) {
+        if (rate < 0 || rate > 1)
+            throw new IllegalArgumentException("rate must be between 0 and 1");
+        if (retryAfter < 0)
+            throw new IllegalArgumentException("retryAfter must not be negative");
+
+        this.throttleRate = rate;
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    /**
+     * Gets the number of requests received.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Gets the number of injected 500 responses.
+     */
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    /**
+     * Gets the number of injected 429 responses.
+     */
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        drain(exchange.getRequestBody());
+
+        if (!delay()) {
+            respond(exchange, 503, error("Server is shutting down"));
+            return;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (throttleRate > 0 && random.nextDouble() < throttleRate) {
+            throttled.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfter));
+            respond(exchange, 429, error("Rate limit exceeded"));
+            return;
+        }
+
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            errors.incrementAndGet();
+            respond(exchange, 500, error("Injected failure"));
+            return;
+        }
+
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> params = params(exchange.getRequestURI().getRawQuery());
+
+        try {
+            route(exchange, method, path, params);
+        } catch (IllegalArgumentException ex) {
+            respond(exchange, 400, error(ex.getMessage()));
+        }
+    }
+
+    private void route(HttpExchange exchange, String method, String path, Map<String, String> params)
+        throws IOException {
+
+        Matcher m = API.matcher(path);
+        if (m.matches()) {
+            String resource = m.group(1);
+
+            if (resource.equals("search") && method.equals("GET")) {
+                respond(exchange, 200, data.search(
+                    integer(params.get("startAt"), 0),
+                    integer(params.get("maxResults"), 50),
+                    allFields(params.get("fields")),
+                    expands(params.get("expand"), "changelog")));
+                return;
+            }
+
+            if (resource.equals("issue/createmeta") && method.equals("GET")) {
+                respond(exchange, 200, data.createMeta());
+                return;
+            }
+
+            if ((resource.equals("issue") || resource.equals("issue/")) && method.equals("POST")) {
+                respond(exchange, 201, data.create());
+                return;
+            }
+
+            Matcher issue = ISSUE.matcher(resource);
+            if (issue.matches() && method.equals("GET")) {
+                String body = data.issue(issue.group(1), allFields(params.get("fields")),
+                    expands(params.get("expand"), "changelog"));
+
+                if (body != null)
+                    respond(exchange, 200, body);
+                else
+                    respond(exchange, 404, error("Issue Does Not Exist"));
+                return;
+            }
+        }
+
+        m = RAPID_VIEW.matcher(path);
+        if (m.matches() && method.equals("GET")) {
+            respond(exchange, 200, data.rapidView(Integer.parseInt(m.group(1))));
+            return;
+        }
+
+        if (path.equals(BACKLOG) && method.equals("GET")) {
+            respond(exchange, 200, data.backlog());
+            return;
+        }
+
+        if (TEMPO_WORKLOGS.matcher(path).matches() && method.equals("GET")) {
+            respond(exchange, 200, data.workLogs(
+                params.get("username"), date(params.get("dateFrom")), date(params.get("dateTo"))));
+            return;
+        }
+
+        respond(exchange, 404, error("No stand-in for " + method + " " + path));
+    }
+
+    /**
+     * Waits for the configured latency.
+     *
+     * @return false if interrupted
+     */
+    private boolean delay() {
+        long micros = latency;
+        if (jitter > 0)
+            micros += ThreadLocalRandom.current().nextLong(jitter + 1);
+        if (micros == 0)
+            return true;
+
+        try {
+            TimeUnit.MICROSECONDS.sleep(micros);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buf = new byte[8192];
+        while (in.read(buf) != -1)
+            ;
+        in.close();
+    }
+
+    private static String error(String message) {
+        return "{\"errorMessages\":[\"" + message.replace("\"", "'") + "\"],\"errors\":{}}";
+    }
+
+    private static Map<String, String> params(String query) throws UnsupportedEncodingException {
+        Map<String, String> result = new HashMap<String, String>();
+        if (query == null)
+            return result;
+
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0)
+                result.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+                    URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+        }
+
+        return result;
+    }
+
+    private static int integer(String value, int defaultValue) {
+        if (value == null)
+            return defaultValue;
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Not a number: " + value);
+        }
+    }
+
+    /**
+     * Narrow field lists get the narrow fixture, anything else all fields.
+     */
+    private static boolean allFields(String fields) {
+        return fields == null || fields.contains("*all") || fields.contains("*navigable");
+    }
+
+    private static boolean expands(String expand, String name) {
+        return expand != null && expand.contains(name);
+    }
+
+    private static Date date(String value) {
+        if (value == null)
+            throw new IllegalArgumentException("dateFrom and dateTo are required");
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        try {
+            return format.parse(value);
+        } catch (ParseException ex) {
+            throw new IllegalArgumentException("Not a date: " + value);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient.loadtest;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.rcarz.jiraclient.Fixtures;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Generates the JIRA data the stand-in server hands out: one project with
+ * a fixed number of issues, one board and Tempo work logs for a set of
+ * users.
+ *
+ * Issues are copies of the recorded fixtures with their own keys. The
+ * payloads are built from pre-serialised templates, so the server spends
+ * as little time as possible producing them.
+ */
+public class SyntheticData {
+
+    private static final String TEMPLATE_KEY = "FILTA-43";
+    private static final String TEMPLATE_ID = "10742";
+    private static final int FIRST_ID = 100000;
+
+    private final String project;
+    private final int issueCount;
+    private final int users;
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final String fullIssue;
+    private final String fullIssueWithChangelog;
+    private final String narrowIssue;
+    private final String createMeta;
+    private final String backlog;
+
+    /**
+     * Creates the data set.
+     *
+     * @param project Project key
+     * @param issueCount Number of issues in the project
+     * @param users Number of users that log work
+     */
+    public SyntheticData(String project, int issueCount, int users) {
+        if (issueCount <= 0 || users <= 0)
+            throw new IllegalArgumentException("issueCount and users must be positive");
+
+        this.project = project;
+        this.issueCount = issueCount;
+        this.users = users;
+
+        JSONObject full = Fixtures.json(Fixtures.ISSUE_ALL);
+        fullIssueWithChangelog = full.toString();
+        full.remove("changelog");
+        fullIssue = full.toString();
+        narrowIssue = Fixtures.json(Fixtures.ISSUE_NARROW).toString();
+        createMeta = buildCreateMeta();
+        backlog = buildBacklog();
+    }
+
+    public String getProject() {
+        return project;
+    }
+
+    public int getIssueCount() {
+        return issueCount;
+    }
+
+    /**
+     * Gets the number of issues in the project, created ones included.
+     */
+    public int getTotal() {
+        return issueCount + created.get();
+    }
+
+    /**
+     * Gets the name of a user that logs work.
+     */
+    public String getUser(int i) {
+        return "user" + Math.abs(i % users);
+    }
+
+    /**
+     * Gets an issue.
+     *
+     * @param key Issue key
+     * @param all Whether to include all fields rather than a narrow set
+     * @param changelog Whether to include the changelog
+     *
+     * @return the issue as JSON or null if there's no such issue
+     */
+    public String issue(String key, boolean all, boolean changelog) {
+        int number = number(key);
+        if (number < 1 || number > getTotal())
+            return null;
+
+        return issue(number, all, changelog);
+    }
+
+    private String issue(int number, boolean all, boolean changelog) {
+        String template = !all ? narrowIssue : changelog ? fullIssueWithChangelog : fullIssue;
+
+        return template
+            .replace(TEMPLATE_KEY, project + "-" + number)
+            .replace(TEMPLATE_ID, String.valueOf(FIRST_ID + number));
+    }
+
+    /**
+     * Gets a page of search results over all issues.
+     */
+    public String search(int startAt, int maxResults, boolean all, boolean changelog) {
+        int total = getTotal();
+        int start = Math.max(0, startAt);
+        int end = Math.min(total, start + Math.max(0, maxResults));
+        StringBuilder result = new StringBuilder();
+
+        result.append("{\"startAt\":").append(start)
+            .append(",\"maxResults\":").append(maxResults)
+            .append(",\"total\":").append(total)
+            .append(",\"issues\":[");
+
+        for (int i = start; i < end; i++) {
+            if (i > start)
+                result.append(',');
+            result.append(issue(i + 1, all, changelog));
+        }
+
+        return result.append("]}").toString();
+    }
+
+    /**
+     * Adds an issue.
+     *
+     * @return the new issue as returned by POST /issue
+     */
+    public String create() {
+        int number = issueCount + created.incrementAndGet();
+
+        JSONObject result = new JSONObject();
+        result.put("id", String.valueOf(FIRST_ID + number));
+        result.put("key", project + "-" + number);
+        result.put("self", "/rest/api/2/issue/" + (FIRST_ID + number));
+        return result.toString();
+    }
+
+    public String createMeta() {
+        return createMeta;
+    }
+
+    public String rapidView(int id) {
+        JSONObject result = new JSONObject();
+        result.put("id", id);
+        result.put("name", project + " board");
+        result.put("canEdit", true);
+        result.put("sprintSupportEnabled", true);
+        return result.toString();
+    }
+
+    public String backlog() {
+        return backlog;
+    }
+
+    /**
+     * Gets the Tempo work logs of a user: one on every weekday of the
+     * period, against a different issue each day.
+     *
+     * @param username User name
+     * @param from First day (yyyy-MM-dd)
+     * @param to Last day (yyyy-MM-dd)
+     */
+    public String workLogs(String username, Date from, Date to) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'09:00:00.000+0000");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Calendar day = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        day.setTime(from);
+
+        int userHash = username.hashCode() & 0xffff;
+        JSONArray result = new JSONArray();
+
+        while (!day.getTime().after(to)) {
+            int weekday = day.get(Calendar.DAY_OF_WEEK);
+
+            if (weekday != Calendar.SATURDAY && weekday != Calendar.SUNDAY) {
+                int dayNumber = (int)(day.getTimeInMillis() / 86400000L);
+                int id = userHash * 100000 + dayNumber % 100000;
+
+                JSONObject author = new JSONObject();
+                author.put("self", "/rest/api/2/user?username=" + username);
+                author.put("name", username);
+                author.put("displayName", username);
+
+                JSONObject workLog = new JSONObject();
+                workLog.put("id", id);
+                workLog.put("self", "/rest/tempo-timesheets/3/worklogs/" + id);
+                workLog.put("timeSpentSeconds", 3600 * (1 + (userHash + dayNumber) % 8));
+                workLog.put("dateStarted", format.format(day.getTime()));
+                workLog.put("comment", "Worked on " + project + "-" + (1 + (userHash + dayNumber) % issueCount));
+                workLog.put("author", author);
+                result.add(workLog);
+            }
+
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+
+        return result.toString();
+    }
+
+    private int number(String key) {
+        if (key == null || !key.startsWith(project + "-"))
+            return -1;
+
+        try {
+            return Integer.parseInt(key.substring(project.length() + 1));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private String buildCreateMeta() {
+        JSONObject fields = Fixtures.json(Fixtures.EDIT_META);
+        fields.put("project", field("Project", "project", "project"));
+        fields.put("issuetype", field("Issue Type", "issuetype", "issuetype"));
+
+        JSONObject issueType = new JSONObject();
+        issueType.put("id", "1");
+        issueType.put("name", "Bug");
+        issueType.put("fields", fields);
+
+        JSONArray issueTypes = new JSONArray();
+        issueTypes.add(issueType);
+
+        JSONObject meta = new JSONObject();
+        meta.put("id", "10501");
+        meta.put("key", project);
+        meta.put("name", project);
+        meta.put("issuetypes", issueTypes);
+
+        JSONArray projects = new JSONArray();
+        projects.add(meta);
+
+        JSONObject result = new JSONObject();
+        result.put("projects", projects);
+        return result.toString();
+    }
+
+    private static JSONObject field(String name, String type, String system) {
+        JSONObject schema = new JSONObject();
+        schema.put("type", type);
+        schema.put("system", system);
+
+        JSONObject result = new JSONObject();
+        result.put("required", true);
+        result.put("name", name);
+        result.put("schema", schema);
+        return result;
+    }
+
+    /**
+     * Builds a backlog of all issues, with a third of them spread over ten
+     * sprints.
+     */
+    private String buildBacklog() {
+        JSONArray issues = new JSONArray();
+        for (int i = 1; i <= issueCount; i++) {
+            JSONObject issue = new JSONObject();
+            issue.put("id", FIRST_ID + i);
+            issue.put("key", project + "-" + i);
+            issue.put("summary", "Issue " + i);
+            issue.put("typeName", "Story");
+            issue.put("statusName", "To Do");
+            issues.add(issue);
+        }
+
+        int sprintCount = 10;
+        int perSprint = Math.max(1, issueCount / 3 / sprintCount);
+        JSONArray sprints = new JSONArray();
+
+        for (int s = 0; s < sprintCount; s++) {
+            JSONArray ids = new JSONArray();
+            for (int i = 0; i < perSprint && s * perSprint + i < issueCount; i++)
+                ids.add(FIRST_ID + 1 + s * perSprint + i);
+
+            JSONObject sprint = new JSONObject();
+            sprint.put("id", 100 + s);
+            sprint.put("name", "Sprint " + (s + 1));
+            sprint.put("state", s == 0 ? "ACTIVE" : "FUTURE");
+            sprint.put("issuesIds", ids);
+            sprints.add(sprint);
+        }
+
+        JSONObject result = new JSONObject();
+        result.put("issues", issues);
+        result.put("sprints", sprints);
+        result.put("rankCustomFieldId", 10004);
+        result.put("canManageSprints", true);
+        result.put("maxIssuesExceeded", false);
+        return result.toString();
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient.loadtest;
+
+import net.rcarz.jiraclient.Field;
+import net.rcarz.jiraclient.JiraClient;
+import net.rcarz.jiraclient.Tempo;
+import net.rcarz.jiraclient.greenhopper.GreenHopperClient;
+
+/**
+ * One operation the load driver repeats, typically a single JiraClient
+ * call.
+ */
+public abstract class Workload {
+
+    private final String name;
+
+    protected Workload(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Runs the operation once.
+     *
+     * @param client Client shared by all workers
+     * @param iteration Running number of the operation, unique per run
+     *
+     * @throws Exception when the operation fails
+     */
+    public abstract void run(JiraClient client, int iteration) throws Exception;
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Reads issues by key with all fields.
+     */
+    public static Workload getIssue(final SyntheticData data) {
+        return new Workload("issue") {
+            @Override
+            public void run(JiraClient client, int iteration) throws Exception {
+                client.getIssue(data.getProject() + "-" + (1 + iteration % data.getIssueCount()));
+            }
+        };
+    }
+
+    /**
+     * Searches the project for a page of 50 issues with a narrow field list.
+     */
+    public static Workload search(final SyntheticData data) {
+        return new Workload("search") {
+            @Override
+            public void run(JiraClient client, int iteration) throws Exception {
+                client.searchIssues("project = " + data.getProject(), "summary,status,assignee,updated", 50);
+            }
+        };
+    }
+
+    /**
+     * Searches the project for a page of 20 issues with all fields.
+     */
+    public static Workload searchAll(final SyntheticData data) {
+        return new Workload("search*all") {
+            @Override
+            public void run(JiraClient client, int iteration) throws Exception {
+                client.searchIssues("project = " + data.getProject(), "*all", 20);
+            }
+        };
+    }
+
+    /**
+     * Creates issues, which reads the create metadata, posts the issue and
+     * reads it back.
+     */
+    public static Workload createIssue(final SyntheticData data) {
+        return new Workload("create") {
+            @Override
+            public void run(JiraClient client, int iteration) throws Exception {
+                client.createIssue(data.getProject(), "Bug")
+                    .field(Field.SUMMARY, "Load test issue " + iteration)
+                    .execute();
+            }
+        };
+    }
+
+    /**
+     * Loads the board and its backlog.
+     */
+    public static Workload backlog(SyntheticData data) {
+        return new Workload("backlog") {
+            @Override
+            public void run(JiraClient client, int iteration) throws Exception {
+                new GreenHopperClient(client).getRapidView(1).getBacklogData();
+            }
+        };
+    }
+
+    /**
+     * Reads a month of Tempo work logs of one user.
+     */
+    public static Workload tempoWorkLogs(final SyntheticData data) {
+        return new Workload("tempo") {
+            @Override
+            public void run(JiraClient client, int iteration) throws Exception {
+                Tempo.getWorklogs(client.getRestClient(), "2016-01-01", "2016-01-31", data.getUser(iteration));
+            }
+        };
+    }
+}
@@ -0,0 +1,360 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.rcarz.jiraclient.util.DaemonThreadFactory;
+import net.sf.json.JSON;
+
+/**
+ * An asynchronous front end for a JIRA client, backed by bounded thread
+ * pools.
+ *
+ * Every call returns immediately with a Future. The requests themselves
+ * are the usual blocking calls, run on a fixed thread pool per remote
+ * host, so each request in flight occupies a thread. The pool size caps
+ * how many requests are in flight against that host at any time; further
+ * requests queue until a thread is free. Exceptions are reported through {@link Future#get()} as
+ * the cause of the ExecutionException.
+ */
+public class AsyncJiraClient {
+
+    public static final int DEFAULT_MAX_CONCURRENCY_PER_HOST = 8;
+
+    private final RestClient restclient;
+    private final int maxConcurrencyPerHost;
+    private final ConcurrentMap<String, ExecutorService> executors =
+        new ConcurrentHashMap<String, ExecutorService>();
+    private volatile boolean shutdown = false;
+
+    /**
+     * Creates an asynchronous client with the default per-host limit.
+     *
+     * @param jira JIRA client to send requests through
+     */
+    public AsyncJiraClient(JiraClient jira) {
+        this(jira, DEFAULT_MAX_CONCURRENCY_PER_HOST);
+    }
+
+    /**
+     * Creates an asynchronous client.
+     *
+     * @param jira JIRA client to send requests through
+     * @param maxConcurrencyPerHost Maximum number of requests in flight
+     * against a single host
+     */
+    public AsyncJiraClient(JiraClient jira, int maxConcurrencyPerHost) {
+        this(jira.getRestClient(), maxConcurrencyPerHost);
+    }
+
+    /**
+     * Creates an asynchronous client.
+     *
+     * @param restclient REST client to send requests through
+     * @param maxConcurrencyPerHost Maximum number of requests in flight
+     * against a single host
+     */
+    public AsyncJiraClient(RestClient restclient, int maxConcurrencyPerHost) {
+        if (maxConcurrencyPerHost <= 0)
+            throw new IllegalArgumentException("maxConcurrencyPerHost must be positive");
+
+        this.restclient = restclient;
+        this.maxConcurrencyPerHost = maxConcurrencyPerHost;
+    }
+
+    private <T> Future<T> submit(String host, Callable<T> task) {
+        if (shutdown)
+            throw new IllegalStateException("Client has been shut down");
+
+        ExecutorService executor = executors.get(host);
+
+        if (executor == null) {
+            ExecutorService created = Executors.newFixedThreadPool(
+                maxConcurrencyPerHost, new DaemonThreadFactory("jira-async-" + host));
+            executor = executors.putIfAbsent(host, created);
+
+            if (executor == null)
+                executor = created;
+            else
+                created.shutdown();
+        }
+
+        return executor.submit(task);
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        return submit(hostOf(null), task);
+    }
+
+    private String hostOf(URI uri) {
+        URI target = uri != null && uri.getHost() != null ? uri : restclient.getBaseURI();
+        return target != null && target.getHost() != null ?
+            target.getHost() + ":" + target.getPort() : "default";
+    }
+
+    /**
+     * Executes an HTTP GET with the given URI.
+     *
+     * @param uri Full URI of the remote endpoint
+     *
+     * @return the JSON-encoded result or null when there's no content returned
+     */
+    public Future<JSON> get(final URI uri) {
+        return submit(hostOf(uri), new Callable<JSON>() {
+            public JSON call() throws Exception {
+                return restclient.get(uri);
+            }
+        });
+    }
+
+    /**
+     * Executes an HTTP GET with the given path.
+     *
+     * @param path Path to be appended to the base URI
+     * @param params Map of key value pairs
+     *
+     * @return the JSON-encoded result or null when there's no content returned
+     *
+     * @throws URISyntaxException when an error occurred appending the path to the URI
+     */
+    public Future<JSON> get(String path, Map<String, String> params) throws URISyntaxException {
+        return get(restclient.buildURI(path, params));
+    }
+
+    /**
+     * Executes an HTTP GET with the given path.
+     *
+     * @param path Path to be appended to the base URI
+     *
+     * @return the JSON-encoded result or null when there's no content returned
+     *
+     * @throws URISyntaxException when an error occurred appending the path to the URI
+     */
+    public Future<JSON> get(String path) throws URISyntaxException {
+        return get(path, null);
+    }
+
+    /**
+     * Executes an HTTP POST with the given URI and payload.
+     *
+     * @param uri Full URI of the remote endpoint
+     * @param payload JSON-encoded data to send to the remote service
+     *
+     * @return the JSON-encoded result or null when there's no content returned
+     */
+    public Future<JSON> post(final URI uri, final JSON payload) {
+        return submit(hostOf(uri), new Callable<JSON>() {
+            public JSON call() throws Exception {
+                return restclient.post(uri, payload);
+            }
+        });
+    }
+
+    /**
+     * Executes an HTTP POST with the given path and payload.
+     *
+     * @param path Path to be appended to the base URI
+     * @param payload JSON-encoded data to send to the remote service
+     *
+     * @return the JSON-encoded result or null when there's no content returned
+     *
+     * @throws URISyntaxException when an error occurred appending the path to the URI
+     */
+    public Future<JSON> post(String path, JSON payload) throws URISyntaxException {
+        return post(restclient.buildURI(path), payload);
+    }
+
+    /**
+     * Executes an HTTP PUT with the given URI and payload.
+     *
+     * @param uri Full URI of the remote endpoint
+     * @param payload JSON-encoded data to send to the remote service
+     *
+     * @return the JSON-encoded result or null when there's no content returned
+     */
+    public Future<JSON> put(final URI uri, final JSON payload) {
+        return submit(hostOf(uri), new Callable<JSON>() {
+            public JSON call() throws Exception {
+                return restclient.put(uri, payload);
+            }
+        });
+    }
+
+    /**
+     * Executes an HTTP PUT with the given path and payload.
+     *
+     * @param path Path to be appended to the base URI
+     * @param payload JSON-encoded data to send to the remote service
+     *
+     * @return the JSON-encoded result or null when there's no content returned
+     *
+     * @throws URISyntaxException when an error occurred appending the path to the URI
+     */
+    public Future<JSON> put(String path, JSON payload) throws URISyntaxException {
+        return put(restclient.buildURI(path), payload);
+    }
+
+    /**
+     * Executes an HTTP DELETE with the given URI.
+     *
+     * @param uri Full URI of the remote endpoint
+     *
+     * @return the JSON-encoded result or null when there's no content returned
+     */
+    public Future<JSON> delete(final URI uri) {
+        return submit(hostOf(uri), new Callable<JSON>() {
+            public JSON call() throws Exception {
+                return restclient.delete(uri);
+            }
+        });
+    }
+
+    /**
+     * Executes an HTTP DELETE with the given path.
+     *
+     * @param path Path to be appended to the base URI
+     *
+     * @return the JSON-encoded result or null when there's no content returned
+     *
+     * @throws URISyntaxException when an error occurred appending the path to the URI
+     */
+    public Future<JSON> delete(String path) throws URISyntaxException {
+        return delete(restclient.buildURI(path));
+    }
+
+    /**
+     * Retrieves the issue with the given key.
+     *
+     * @param key Issue key (PROJECT-123)
+     *
+     * @return a future issue instance (issue includes all navigable fields)
+     */
+    public Future<Issue> getIssue(final String key) {
+        return submit(new Callable<Issue>() {
+            public Issue call() throws JiraException {
+                return Issue.get(restclient, key);
+            }
+        });
+    }
+
+    /**
+     * Retrieves the issue with the given key.
+     *
+     * @param key Issue key (PROJECT-123)
+     * @param includedFields Specifies which issue fields will be included in
+     * the result
+     *
+     * @return a future issue instance
+     */
+    public Future<Issue> getIssue(final String key, final String includedFields) {
+        return submit(new Callable<Issue>() {
+            public Issue call() throws JiraException {
+                return Issue.get(restclient, key, includedFields);
+            }
+        });
+    }
+
+    /**
+     * Search for issues with the given query.
+     *
+     * @param jql JQL statement
+     *
+     * @return a future search result (issues include all navigable fields)
+     */
+    public Future<Issue.SearchResult> searchIssues(String jql) {
+        return searchIssues(jql, null, null, null, null);
+    }
+
+    /**
+     * Search for issues with the given query. Only the first page is
+     * retrieved asynchronously; iterating past it fetches the following
+     * pages on the calling thread.
+     *
+     * @param jql JQL statement
+     * @param includedFields Specifies which issue fields will be included in
+     * the result
+     * @param expandFields Specifies with issue fields should be expanded
+     * @param maxResults if non-<code>null</code>, defines the page size
+     * @param startAt if non-<code>null</code>, defines the first issue to
+     * return
+     *
+     * @return a future search result
+     */
+    public Future<Issue.SearchResult> searchIssues(final String jql, final String includedFields,
+            final String expandFields, final Integer maxResults, final Integer startAt) {
+
+        return submit(new Callable<Issue.SearchResult>() {
+            public Issue.SearchResult call() throws JiraException {
+                return Issue.search(restclient, jql, includedFields, expandFields,
+                    maxResults, startAt);
+            }
+        });
+    }
+
+    /**
+     * Retrieves all work logs of the given issue.
+     *
+     * @param issue Issue to get the work logs of
+     *
+     * @return the future list of work logs
+     */
+    public Future<List<WorkLog>> getAllWorkLogs(final Issue issue) {
+        return submit(new Callable<List<WorkLog>>() {
+            public List<WorkLog> call() throws JiraException {
+                return issue.getAllWorkLogs();
+            }
+        });
+    }
+
+    /**
+     * Retrieves the remote links of the given issue.
+     *
+     * @param issue Issue to get the remote links of
+     *
+     * @return the future list of remote links
+     */
+    public Future<List<RemoteLink>> getRemoteLinks(final Issue issue) {
+        return submit(new Callable<List<RemoteLink>>() {
+            public List<RemoteLink> call() throws JiraException {
+                return issue.getRemoteLinks();
+            }
+        });
+    }
+
+    /**
+     * Stops accepting requests. Requests already submitted still complete.
+     */
+    public void shutdown() {
+        shutdown = true;
+
+        for (ExecutorService executor : executors.values())
+            executor.shutdown();
+    }
+}
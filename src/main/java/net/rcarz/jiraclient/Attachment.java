@@ -22,6 +22,15 @@ package net.rcarz.jiraclient;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.Date;
 import java.util.Map;
 
@@ -30,7 +39,10 @@ import net.sf.json.JSONObject;
 
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.StatusLine;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
 
 /**
  * Represents an issue attachment.
@@ -97,6 +109,24 @@ public class Attachment extends Resource {
         return new Attachment(restclient, (JSONObject)result);
     }
     
+    /**
+     * Receives download or upload progress.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called after each block is transferred. A download to a file is
+         * also reported once before the first block, from where it starts.
+         *
+         * @param transferred Bytes transferred so far; for a resumed
+         * download this includes the part kept from an earlier attempt
+         * @param total Expected number of bytes or -1 if unknown
+         */
+        void progress(long transferred, long total);
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     /**
      * Downloads attachment to byte array
      *
@@ -106,26 +136,226 @@ public class Attachment extends Resource {
      */
     public byte[] download() 
     	throws JiraException{
-    	ByteArrayOutputStream bos = new ByteArrayOutputStream();
-    	try{
-        	HttpGet get = new HttpGet(content);
-        	HttpResponse response = restclient.getHttpClient().execute(get);
-        	HttpEntity entity = response.getEntity();
-        	if (entity != null) {
-        	    InputStream inputStream = entity.getContent();
-        	    int next = inputStream.read();
-        	    while (next > -1) {
-        	        bos.write(next);
-        	        next = inputStream.read();
-        	    }
-        	    bos.flush();
-        	}
-    	}catch(IOException e){
-    		  throw new JiraException(String.format("Failed downloading attachment from %s: %s", this.content, e.getMessage()));
-    	}
+    	ByteArrayOutputStream bos = new ByteArrayOutputStream(size > 0 ? size : BUFFER_SIZE);
+    	downloadTo(bos);
     	return bos.toByteArray();
     }
 
+    /**
+     * Streams the attachment to the given output stream. The stream is
+     * neither flushed nor closed.
+     *
+     * @param out Stream to write the attachment to
+     *
+     * @return the number of bytes written
+     *
+     * @throws JiraException when the download fails
+     */
+    public long downloadTo(OutputStream out) throws JiraException {
+        return downloadTo(out, null, null);
+    }
+
+    /**
+     * Streams the attachment to the given output stream. The stream is
+     * neither flushed nor closed.
+     *
+     * @param out Stream to write the attachment to
+     * @param listener Progress listener or null
+     * @param digest Digest to update with the content (e.g. SHA-256) or null
+     *
+     * @return the number of bytes written
+     *
+     * @throws JiraException when the download fails
+     */
+    public long downloadTo(OutputStream out, ProgressListener listener, MessageDigest digest)
+        throws JiraException {
+
+        HttpGet get = new HttpGet(content);
+
+        try {
+            HttpResponse response = restclient.executeRaw(get);
+            checkStatus(response, HttpStatus.SC_OK);
+
+            HttpEntity entity = response.getEntity();
+            if (entity == null)
+                return 0;
+
+            long total = entity.getContentLength() >= 0 ? entity.getContentLength() : size;
+            InputStream in = entity.getContent();
+
+            try {
+                byte[] buf = new byte[BUFFER_SIZE];
+                long transferred = 0;
+                int n;
+
+                while ((n = in.read(buf)) != -1) {
+                    out.write(buf, 0, n);
+                    if (digest != null)
+                        digest.update(buf, 0, n);
+
+                    transferred += n;
+                    if (listener != null)
+                        listener.progress(transferred, total);
+                }
+
+                return transferred;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            get.abort();
+            throw new JiraException(String.format("Failed downloading attachment from %s: %s", this.content, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Downloads the attachment to a file, replacing it if it exists.
+     *
+     * @param file File to write
+     *
+     * @return the size of the file
+     *
+     * @throws JiraException when the download fails
+     */
+    public long downloadTo(Path file) throws JiraException {
+        return downloadTo(file, false, null, null);
+    }
+
+    /**
+     * Downloads the attachment to a file through a file channel.
+     *
+     * When resume is set and the file already exists, only the missing part
+     * is requested with a Range header and appended. If the server ignores
+     * the range, or rejects it because the file is longer than the
+     * attachment, the whole attachment is downloaded again.
+     *
+     * @param file File to write
+     * @param resume Whether to continue a partial download
+     * @param listener Progress listener or null
+     * @param digest Digest to update with the whole content or null
+     *
+     * @return the size of the file
+     *
+     * @throws JiraException when the download fails
+     */
+    public long downloadTo(Path file, boolean resume, ProgressListener listener, MessageDigest digest)
+        throws JiraException {
+
+        HttpGet get = new HttpGet(content);
+        FileChannel channel = null;
+
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+            long offset = resume ? channel.size() : 0;
+
+            if (offset > 0)
+                get.addHeader("Range", "bytes=" + offset + "-");
+
+            HttpResponse response = restclient.executeRaw(get);
+            int status = response.getStatusLine().getStatusCode();
+
+            if (offset > 0 && status == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+                EntityUtils.consume(response.getEntity());
+
+                if (size <= 0 || offset == size) {
+                    /* the file is already complete */
+                    if (digest != null)
+                        updateDigest(digest, channel, offset);
+                    return offset;
+                }
+
+                /* the file doesn't match the attachment, start over */
+                channel.truncate(0);
+                return downloadTo(file, false, listener, digest);
+            }
+
+            if (offset > 0 && status == HttpStatus.SC_PARTIAL_CONTENT) {
+                if (digest != null)
+                    updateDigest(digest, channel, offset);
+            } else {
+                checkStatus(response, HttpStatus.SC_OK);
+                offset = 0;
+            }
+
+            channel.truncate(offset);
+            channel.position(offset);
+
+            HttpEntity entity = response.getEntity();
+            if (entity == null)
+                return offset;
+
+            long total = entity.getContentLength() >= 0 ? offset + entity.getContentLength() : size;
+            InputStream in = entity.getContent();
+
+            if (listener != null)
+                listener.progress(offset, total);
+
+            try {
+                ReadableByteChannel source = Channels.newChannel(
+                    digest != null ? new DigestInputStream(in, digest) : in);
+                long position = offset;
+                long n;
+
+                while ((n = channel.transferFrom(source, position, BUFFER_SIZE)) > 0) {
+                    position += n;
+                    if (listener != null)
+                        listener.progress(position, total);
+                }
+
+                return position;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            get.abort();
+            throw new JiraException(String.format("Failed downloading attachment from %s to %s: %s", this.content, file, e.getMessage()), e);
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    /* the transfer result stands */
+                }
+            }
+        }
+    }
+
+    private void checkStatus(HttpResponse response, int expected) throws IOException, JiraException {
+        StatusLine sl = response.getStatusLine();
+
+        if (sl.getStatusCode() != expected) {
+            String body = response.getEntity() != null ? EntityUtils.toString(response.getEntity()) : "";
+            throw new JiraException("Failed downloading attachment from " + content,
+                new RestException(sl.getReasonPhrase(), sl.getStatusCode(), body));
+        }
+    }
+
+    /**
+     * Feeds the part of the file kept from an earlier attempt to the digest,
+     * so a resumed download is checksummed as a whole.
+     */
+    private static void updateDigest(MessageDigest digest, FileChannel channel, long length)
+        throws IOException {
+
+        ByteBuffer buf = ByteBuffer.allocate((int)Math.min(length, BUFFER_SIZE));
+        long position = 0;
+        long end = length;
+
+        while (position < end) {
+            buf.clear();
+            buf.limit((int)Math.min(buf.capacity(), end - position));
+
+            int n = channel.read(buf, position);
+            if (n < 0)
+                throw new IOException("File is shorter than expected");
+
+            buf.flip();
+            digest.update(buf);
+            position += n;
+        }
+    }
+
     @Override
     public String toString() {
         return getContentUrl();
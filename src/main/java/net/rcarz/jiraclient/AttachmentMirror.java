@@ -0,0 +1,397 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.rcarz.jiraclient.util.DaemonThreadFactory;
+
+/**
+ * Copies the attachments of every issue matching a JQL query into a local
+ * directory, downloading several attachments at once.
+ *
+ * Attachments are stored as &lt;issue key&gt;/&lt;attachment id&gt;-&lt;file name&gt;.
+ * Completed downloads are recorded in a manifest in the target directory,
+ * with their attachment ID, size and path. The manifest decides what is
+ * skipped: an attachment is only considered present when its manifest
+ * entry matches the current size and path and the file is still there
+ * with that size. Running the mirror again therefore only fetches what's
+ * new or changed, and a file that was not written by the mirror is
+ * replaced even if its size happens to match. Downloads are written to a
+ * .part file first and resumed with a range request if a run is
+ * interrupted.
+ */
+public class AttachmentMirror {
+
+    public static final String MANIFEST_NAME = ".attachment-manifest";
+    public static final int DEFAULT_CONCURRENCY = 4;
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * Outcome of a mirror run.
+     */
+    public static final class Result {
+        private final int downloaded;
+        private final int skipped;
+        private final List<String> failures;
+        private final long bytes;
+        private final long elapsedMillis;
+
+        Result(int downloaded, int skipped, List<String> failures, long bytes, long elapsedMillis) {
+            this.downloaded = downloaded;
+            this.skipped = skipped;
+            this.failures = Collections.unmodifiableList(failures);
+            this.bytes = bytes;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * Gets the number of attachments downloaded in this run.
+         */
+        public int getDownloaded() {
+            return downloaded;
+        }
+
+        /**
+         * Gets the number of attachments that were already present.
+         */
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Gets a message per attachment that failed to download.
+         */
+        public List<String> getFailures() {
+            return failures;
+        }
+
+        /**
+         * Gets the number of bytes transferred in this run.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * Gets the transfer rate of this run.
+         *
+         * @return megabytes (10^6 bytes) per second
+         */
+        public double getMegabytesPerSecond() {
+            return elapsedMillis > 0 ? bytes / 1000.0 / elapsedMillis : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d downloaded, %d skipped, %d failed, %.1f MB/s",
+                downloaded, skipped, failures.size(), getMegabytesPerSecond());
+        }
+    }
+
+    private final RestClient restclient;
+    private final File targetDir;
+    private final File manifestFile;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    /**
+     * A completed download as recorded in the manifest.
+     */
+    private static final class ManifestEntry {
+        final long size;
+        final String path;
+
+        ManifestEntry(long size, String path) {
+            this.size = size;
+            this.path = path;
+        }
+    }
+
+    private Map<String, ManifestEntry> manifest = null;
+    private Writer manifestWriter = null;
+
+    /**
+     * Creates an attachment mirror.
+     *
+     * @param restclient REST client instance
+     * @param targetDir Directory to store attachments in
+     */
+    public AttachmentMirror(RestClient restclient, File targetDir) {
+        this.restclient = restclient;
+        this.targetDir = targetDir;
+        this.manifestFile = new File(targetDir, MANIFEST_NAME);
+    }
+
+    /**
+     * Sets how many attachments are downloaded at once.
+     *
+     * @param concurrency Number of parallel downloads
+     *
+     * @return this
+     */
+    public AttachmentMirror concurrency(int concurrency) {
+        if (concurrency <= 0)
+            throw new IllegalArgumentException("concurrency must be positive");
+
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Sets how many issues are requested per search page.
+     *
+     * @param pageSize Search page size
+     *
+     * @return this
+     */
+    public AttachmentMirror pageSize(int pageSize) {
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("pageSize must be positive");
+
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Downloads the attachments of all issues matching the query.
+     *
+     * Failed downloads don't stop the run; they're reported in the result
+     * and retried on the next run.
+     *
+     * @param jql JQL query selecting the issues
+     *
+     * @return counts, failures and throughput of the run
+     *
+     * @throws JiraException when the search or the manifest fails
+     */
+    public synchronized Result mirror(String jql) throws JiraException {
+        long started = System.currentTimeMillis();
+        final AtomicInteger downloaded = new AtomicInteger();
+        final AtomicLong bytes = new AtomicLong();
+        final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+        int skipped = 0;
+
+        if (!targetDir.isDirectory() && !targetDir.mkdirs())
+            throw new JiraException("Failed to create " + targetDir);
+
+        openManifest();
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+            concurrency, new DaemonThreadFactory("jira-attachment-mirror"));
+        final Semaphore slots = new Semaphore(concurrency * 2);
+
+        try {
+            Iterator<Issue> issues = Issue.search(
+                restclient, jql, Field.ATTACHMENT, null, pageSize, null, 1).iterator();
+
+            while (issues.hasNext()) {
+                Issue issue = issues.next();
+
+                for (final Attachment attachment : issue.getAttachments()) {
+                    final File file = fileFor(issue.getKey(), attachment);
+
+                    if (isPresent(attachment, file)) {
+                        skipped++;
+                        continue;
+                    }
+
+                    slots.acquireUninterruptibly();
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            try {
+                                bytes.addAndGet(download(attachment, file));
+                                downloaded.incrementAndGet();
+                            } catch (Exception ex) {
+                                failures.add(attachment.getId() + " (" + file + "): " + ex.getMessage());
+                            } finally {
+                                slots.release();
+                            }
+                        }
+                    });
+                }
+            }
+        } catch (RuntimeException ex) {
+            /* the issue iterator can only report a failed page unchecked */
+            if (ex.getCause() instanceof JiraException)
+                throw new JiraException("Failed to search for issues", ex.getCause());
+
+            throw ex;
+        } finally {
+            executor.shutdown();
+
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.MINUTES))
+                    ;
+            } catch (InterruptedException ex) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+
+            closeManifest();
+        }
+
+        return new Result(downloaded.get(), skipped, new ArrayList<String>(failures), bytes.get(),
+            System.currentTimeMillis() - started);
+    }
+
+    private File fileFor(String issueKey, Attachment attachment) {
+        String name = attachment.getId() + "-" + attachment.getFileName();
+        return new File(new File(targetDir, sanitise(issueKey)), sanitise(name));
+    }
+
+    private static String sanitise(String name) {
+        return name.replaceAll("[\\\\/:*?\"<>|\\x00-\\x1f]", "_");
+    }
+
+    /**
+     * Checks for a complete copy: the manifest must list the attachment
+     * with its current size at this path, and the file must still have
+     * that size.
+     */
+    private boolean isPresent(Attachment attachment, File file) {
+        ManifestEntry recorded = manifest.get(attachment.getId());
+
+        return recorded != null &&
+            recorded.size == attachment.getSize() &&
+            recorded.path.equals(relativePath(file)) &&
+            file.isFile() && file.length() == recorded.size;
+    }
+
+    private String relativePath(File file) {
+        return targetDir.toURI().relativize(file.toURI()).getPath();
+    }
+
+    private long download(Attachment attachment, File file) throws JiraException {
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory())
+            throw new JiraException("Failed to create " + dir);
+
+        File part = new File(dir, file.getName() + ".part");
+        TransferCounter counter = new TransferCounter();
+        attachment.downloadTo(part.toPath(), true, counter, null);
+
+        if (!part.renameTo(file)) {
+            file.delete();
+            if (!part.renameTo(file))
+                throw new JiraException("Failed to rename " + part + " to " + file);
+        }
+
+        record(attachment, file);
+        return counter.getCount();
+    }
+
+    /**
+     * Counts the bytes received, whether the download was resumed or
+     * started over because the server ignored the range.
+     */
+    private static final class TransferCounter implements Attachment.ProgressListener {
+        private long start = -1;
+        private long position = 0;
+
+        public void progress(long transferred, long total) {
+            if (start < 0)
+                start = transferred;
+            position = transferred;
+        }
+
+        long getCount() {
+            return start < 0 ? 0 : position - start;
+        }
+    }
+
+    private void openManifest() throws JiraException {
+        manifest = new ConcurrentHashMap<String, ManifestEntry>();
+
+        try {
+            if (manifestFile.isFile()) {
+                BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(manifestFile), "UTF-8"));
+
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.split("\t", 3);
+                        if (parts.length == 3)
+                            manifest.put(parts[0], new ManifestEntry(Long.parseLong(parts[1]), parts[2]));
+                    }
+                } finally {
+                    reader.close();
+                }
+            }
+
+            manifestWriter = new OutputStreamWriter(new FileOutputStream(manifestFile, true), "UTF-8");
+        } catch (IOException ex) {
+            throw new JiraException("Failed to open manifest " + manifestFile, ex);
+        } catch (NumberFormatException ex) {
+            throw new JiraException("Manifest " + manifestFile + " is corrupt", ex);
+        }
+    }
+
+    /**
+     * Appends a completed attachment to the manifest.
+     */
+    private void record(Attachment attachment, File file) throws JiraException {
+        synchronized (manifestFile) {
+            try {
+                String path = relativePath(file);
+                manifestWriter.write(attachment.getId() + "\t" + attachment.getSize() + "\t" + path + "\n");
+                manifestWriter.flush();
+                manifest.put(attachment.getId(), new ManifestEntry(attachment.getSize(), path));
+            } catch (IOException ex) {
+                throw new JiraException("Failed to update manifest " + manifestFile, ex);
+            }
+        }
+    }
+
+    private void closeManifest() {
+        try {
+            if (manifestWriter != null)
+                manifestWriter.close();
+        } catch (IOException ex) {
+            /* every line was flushed when written */
+        }
+
+        manifestWriter = null;
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.rcarz.jiraclient.util.DaemonThreadFactory;
+
+/**
+ * Runs tasks on a fixed pool and hands their results over as they
+ * complete, on the calling thread. At most twice as many tasks as there
+ * are threads are outstanding, so results are delivered while the tasks
+ * are still being produced and memory stays bounded on long runs.
+ */
+final class BoundedCompletion {
+
+    /**
+     * Receives the results on the thread that called run.
+     */
+    interface Sink<T> {
+
+        /**
+         * Called once per completed task, in completion order.
+         *
+         * @param result The task's result
+         *
+         * @throws JiraException to abort the run
+         */
+        void accept(T result) throws JiraException;
+    }
+
+    private BoundedCompletion() { }
+
+    /**
+     * Runs the tasks and waits for all of them.
+     *
+     * @param tasks Tasks to run, taken lazily as earlier ones complete
+     * @param concurrency Number of threads
+     * @param threadName Prefix of the thread names
+     * @param sink Receives the results
+     *
+     * @throws JiraException when the sink fails
+     * @throws InterruptedException when interrupted while waiting
+     * @throws ExecutionException when a task throws
+     */
+    static <T> void run(Iterator<Callable<T>> tasks, int concurrency, String threadName, Sink<T> sink)
+            throws JiraException, InterruptedException, ExecutionException {
+
+        ExecutorService pool = Executors.newFixedThreadPool(
+            concurrency, new DaemonThreadFactory(threadName));
+        CompletionService<T> completed = new ExecutorCompletionService<T>(pool);
+        int pending = 0;
+
+        try {
+            while (tasks.hasNext()) {
+                if (pending >= concurrency * 2) {
+                    sink.accept(completed.take().get());
+                    pending--;
+                }
+
+                completed.submit(tasks.next());
+                pending++;
+            }
+
+            for (; pending > 0; pending--)
+                sink.accept(completed.take().get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Selects issue history records and the changes within them.
+ *
+ * Record predicates (author and time window) decide whether a record is
+ * looked at; change predicates (field and from/to values) decide which of
+ * its changes are kept. Records left without changes are dropped. All
+ * predicates that are set must match.
+ *
+ * Filtering an iterator or iterable is lazy: records are examined as the
+ * result is consumed, so large histories can be filtered without holding
+ * them in memory. A record whose changes all match is passed on as is;
+ * otherwise a copy with the matching changes is returned.
+ */
+public class ChangeLogFilter {
+
+    private Set<String> fields = null;
+    private Set<String> authors = null;
+    private Date since = null;
+    private Date until = null;
+    private Set<String> fromValues = null;
+    private Set<String> toValues = null;
+
+    /**
+     * Keeps only changes to the given fields.
+     *
+     * @param fields Field names as reported in the changelog (status,
+     * assignee, ...)
+     *
+     * @return this
+     */
+    public ChangeLogFilter fields(String... fields) {
+        return fields(Arrays.asList(fields));
+    }
+
+    /**
+     * Keeps only changes to the given fields.
+     *
+     * @param fields Field names as reported in the changelog
+     *
+     * @return this
+     */
+    public ChangeLogFilter fields(Collection<String> fields) {
+        this.fields = new HashSet<String>(fields);
+        return this;
+    }
+
+    /**
+     * Keeps only records made by one of the given users.
+     *
+     * @param usernames User names
+     *
+     * @return this
+     */
+    public ChangeLogFilter authors(String... usernames) {
+        this.authors = new HashSet<String>(Arrays.asList(usernames));
+        return this;
+    }
+
+    /**
+     * Keeps only records created at or after the given time.
+     *
+     * @param since Start of the window, inclusive
+     *
+     * @return this
+     */
+    public ChangeLogFilter since(Date since) {
+        this.since = since;
+        return this;
+    }
+
+    /**
+     * Keeps only records created before the given time.
+     *
+     * @param until End of the window, exclusive
+     *
+     * @return this
+     */
+    public ChangeLogFilter until(Date until) {
+        this.until = until;
+        return this;
+    }
+
+    /**
+     * Keeps only changes from one of the given values. A value matches
+     * either the raw value or its display string.
+     *
+     * @param values Previous values
+     *
+     * @return this
+     */
+    public ChangeLogFilter from(String... values) {
+        this.fromValues = new HashSet<String>(Arrays.asList(values));
+        return this;
+    }
+
+    /**
+     * Keeps only changes to one of the given values. A value matches
+     * either the raw value or its display string.
+     *
+     * @param values New values
+     *
+     * @return this
+     */
+    public ChangeLogFilter to(String... values) {
+        this.toValues = new HashSet<String>(Arrays.asList(values));
+        return this;
+    }
+
+    /**
+     * Checks the record predicates.
+     *
+     * @param record History record
+     *
+     * @return true if the author and creation time match
+     */
+    public boolean matches(IssueHistory record) {
+        if (authors != null) {
+            User user = record.getUser();
+            if (user == null || !authors.contains(user.getName()))
+                return false;
+        }
+
+        Date created = record.getCreated();
+        if (since != null && (created == null || created.before(since)))
+            return false;
+        if (until != null && (created == null || !created.before(until)))
+            return false;
+
+        return true;
+    }
+
+    /**
+     * Checks the change predicates.
+     *
+     * @param item A change within a history record
+     *
+     * @return true if the field and values match
+     */
+    public boolean matches(IssueHistoryItem item) {
+        if (fields != null && !fields.contains(item.getField()))
+            return false;
+        if (fromValues != null && !fromValues.contains(item.getFrom())
+                && !fromValues.contains(item.getFromStr()))
+            return false;
+        if (toValues != null && !toValues.contains(item.getTo())
+                && !toValues.contains(item.getToStr()))
+            return false;
+
+        return true;
+    }
+
+    /**
+     * Applies the filter to a single record.
+     *
+     * @param record History record
+     *
+     * @return the record, a copy holding the matching changes, or null if
+     * nothing matches
+     */
+    public IssueHistory apply(IssueHistory record) {
+        if (!matches(record))
+            return null;
+
+        if (fields == null && fromValues == null && toValues == null)
+            return record;
+
+        List<IssueHistoryItem> changes = record.getChanges();
+        ArrayList<IssueHistoryItem> kept = null;
+
+        for (int i = 0; i < changes.size(); i++) {
+            IssueHistoryItem item = changes.get(i);
+
+            if (matches(item)) {
+                if (kept != null)
+                    kept.add(item);
+            } else if (kept == null) {
+                kept = new ArrayList<IssueHistoryItem>(changes.subList(0, i));
+            }
+        }
+
+        if (kept == null)
+            return changes.isEmpty() ? null : record;
+
+        return kept.isEmpty() ? null : new IssueHistory(record, kept);
+    }
+
+    /**
+     * Filters records as they are read from the given iterator.
+     *
+     * @param records History records
+     *
+     * @return an iterator over the matching records
+     */
+    public Iterator<IssueHistory> filter(final Iterator<IssueHistory> records) {
+        return new Iterator<IssueHistory>() {
+            private IssueHistory next = null;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && records.hasNext())
+                    next = apply(records.next());
+
+                return next != null;
+            }
+
+            @Override
+            public IssueHistory next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                IssueHistory result = next;
+                next = null;
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Filters records lazily each time the result is iterated.
+     *
+     * @param records History records
+     *
+     * @return an iterable over the matching records
+     */
+    public Iterable<IssueHistory> filter(final Iterable<IssueHistory> records) {
+        return new Iterable<IssueHistory>() {
+            @Override
+            public Iterator<IssueHistory> iterator() {
+                return filter(records.iterator());
+            }
+        };
+    }
+}
@@ -0,0 +1,311 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONObject;
+
+/**
+ * Incrementally reads the change history of a project.
+ *
+ * Each run searches for issues updated since the project's watermark and
+ * passes the history records created after it to a listener, oldest first
+ * per issue. Once every record has been delivered the watermark moves to
+ * the newest record seen and is saved to the watermark store, so the next
+ * run, even in a new process, only reads what changed in between.
+ *
+ * Records may become visible to the search some time after they were
+ * created, so the watermark never moves past the start of the run less
+ * the overlap. Records delivered after the watermark are remembered by
+ * ID and not delivered again by the next run of the same instance. Issues
+ * are paged in order of creation, which doesn't change when an issue is
+ * updated during the run.
+ *
+ * Delivery is at-least-once: if a run fails or the listener throws, the
+ * watermark isn't advanced and the next run delivers the same records
+ * again. A new instance may deliver records from the overlap once more.
+ */
+public class ChangeLogSync {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final long DEFAULT_OVERLAP = TimeUnit.MINUTES.toMillis(5);
+
+    private static final String JQL_DATE_FORMAT = "yyyy/MM/dd HH:mm";
+
+    /**
+     * Receives the history records found by a sync.
+     */
+    public interface Listener {
+
+        /**
+         * Called for every new history record.
+         *
+         * @param issue The issue the record belongs to; only its key, id
+         * and updated date are populated
+         * @param history The history record
+         *
+         * @throws Exception to abort the run without moving the watermark
+         */
+        void onHistory(Issue issue, IssueHistory history) throws Exception;
+    }
+
+    /**
+     * Outcome of a sync run.
+     */
+    public static final class Result {
+        private final int issues;
+        private final int histories;
+        private final Date watermark;
+
+        Result(int issues, int histories, Date watermark) {
+            this.issues = issues;
+            this.histories = histories;
+            this.watermark = watermark;
+        }
+
+        /**
+         * Gets the number of updated issues that were examined.
+         */
+        public int getIssues() {
+            return issues;
+        }
+
+        /**
+         * Gets the number of history records passed to the listener.
+         */
+        public int getHistories() {
+            return histories;
+        }
+
+        /**
+         * Gets the watermark stored at the end of the run.
+         *
+         * @return the watermark or null if nothing has been synced yet
+         */
+        public Date getWatermark() {
+            return watermark;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d issues, %d histories, watermark %s", issues, histories, watermark);
+        }
+    }
+
+    private final RestClient restclient;
+    private final WatermarkStore store;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private long overlap = DEFAULT_OVERLAP;
+    private TimeZone timeZone = TimeZone.getDefault();
+
+    /* per project, the records delivered after the watermark, by ID */
+    private final Map<String, Map<String, Date>> recent = new HashMap<String, Map<String, Date>>();
+
+    /**
+     * Creates a changelog sync.
+     *
+     * @param restclient REST client instance
+     * @param store Where watermarks are kept between runs
+     */
+    public ChangeLogSync(RestClient restclient, WatermarkStore store) {
+        this.restclient = restclient;
+        this.store = store;
+    }
+
+    /**
+     * Sets how many issues are requested per search page.
+     *
+     * @param pageSize Search page size
+     *
+     * @return this
+     */
+    public ChangeLogSync pageSize(int pageSize) {
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("pageSize must be positive");
+
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Sets how far before the watermark the search starts.
+     *
+     * The search index is updated asynchronously and JQL dates have minute
+     * precision, so the search reaches back a little; records at or before
+     * the watermark are filtered out again. The overlap is also the margin
+     * kept between the watermark and the start of a run.
+     *
+     * @param overlap Overlap duration
+     * @param unit Unit of the overlap
+     *
+     * @return this
+     */
+    public ChangeLogSync overlap(long overlap, TimeUnit unit) {
+        if (overlap < 0)
+            throw new IllegalArgumentException("overlap must not be negative");
+
+        this.overlap = unit.toMillis(overlap);
+        return this;
+    }
+
+    /**
+     * Sets the time zone JQL dates are written in. This must match the
+     * time zone of the JIRA user the client logs in as.
+     *
+     * @param timeZone Time zone of the JIRA user
+     *
+     * @return this
+     */
+    public ChangeLogSync timeZone(TimeZone timeZone) {
+        this.timeZone = timeZone;
+        return this;
+    }
+
+    /**
+     * Delivers the history records of the given project created since the
+     * last run.
+     *
+     * @param project Project key, also used as the watermark key
+     * @param listener Receives the new records
+     *
+     * @return counts and the new watermark
+     *
+     * @throws JiraException when reading from JIRA, the listener or the
+     * watermark store fails
+     */
+    public synchronized Result sync(String project, Listener listener) throws JiraException {
+        Date watermark;
+
+        try {
+            watermark = store.getWatermark(project);
+        } catch (Exception ex) {
+            throw new JiraException("Failed to read the watermark of " + project, ex);
+        }
+
+        long started = now();
+        Map<String, Date> delivered = recent.containsKey(project) ?
+            new HashMap<String, Date>(recent.get(project)) : new HashMap<String, Date>();
+
+        String jql = buildJql(project, watermark);
+        Iterator<Issue> it = Issue.search(restclient, jql, Field.UPDATED_DATE,
+            Field.CHANGE_LOG, pageSize, null, 1).iterator();
+        long newest = watermark != null ? watermark.getTime() : Long.MIN_VALUE;
+        int issues = 0;
+        int histories = 0;
+
+        while (it.hasNext()) {
+            Issue issue = it.next();
+            issues++;
+
+            Object changelog = issue.getChangeLogJson();
+            if (!(changelog instanceof JSONObject) || ((JSONObject) changelog).isNullObject())
+                continue;
+
+            List<IssueHistory> records;
+
+            try {
+                records = JiraClient.readChangeLog(restclient, issue.getId(),
+                    (JSONObject) changelog, JiraClient.DEFAULT_CHANGELOG_CONCURRENCY);
+            } catch (Exception ex) {
+                throw new JiraException("Failed to read the changelog of " + issue.getKey(), ex);
+            }
+
+            for (IssueHistory history : records) {
+                Date created = history.getCreated();
+
+                if (watermark != null && (created == null || !created.after(watermark)))
+                    continue;
+                if (history.getId() != null && delivered.containsKey(history.getId()))
+                    continue;
+
+                try {
+                    listener.onHistory(issue, history);
+                } catch (Exception ex) {
+                    throw new JiraException("Listener failed on " + issue.getKey(), ex);
+                }
+
+                histories++;
+                if (history.getId() != null)
+                    delivered.put(history.getId(), created);
+                if (created != null && created.getTime() > newest)
+                    newest = created.getTime();
+            }
+        }
+
+        newest = Math.min(newest, started - overlap);
+        if (newest != Long.MIN_VALUE && (watermark == null || newest > watermark.getTime())) {
+            watermark = new Date(newest);
+
+            try {
+                store.setWatermark(project, watermark);
+            } catch (Exception ex) {
+                throw new JiraException("Failed to save the watermark of " + project, ex);
+            }
+        }
+
+        /* only records after the watermark can be seen again */
+        Iterator<Date> dates = delivered.values().iterator();
+        while (dates.hasNext()) {
+            Date created = dates.next();
+            if (watermark != null && (created == null || !created.after(watermark)))
+                dates.remove();
+        }
+        recent.put(project, delivered);
+
+        return new Result(issues, histories, watermark);
+    }
+
+    /**
+     * Gets the current time. Overridable for testing.
+     *
+     * @return milliseconds since the epoch
+     */
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Builds the search for issues updated since the watermark, in an order
+     * that issues don't move in while they are paged through.
+     */
+    String buildJql(String project, Date watermark) {
+        StringBuilder jql = new StringBuilder("project = \"")
+            .append(project.replace("\\", "\\\\").replace("\"", "\\\""))
+            .append('"');
+
+        if (watermark != null) {
+            SimpleDateFormat df = new SimpleDateFormat(JQL_DATE_FORMAT);
+            df.setTimeZone(timeZone);
+            jql.append(" AND updated >= \"")
+                .append(df.format(new Date(watermark.getTime() - overlap)))
+                .append('"');
+        }
+
+        return jql.append(" ORDER BY created ASC").toString();
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops sending requests to an endpoint that keeps failing.
+ *
+ * The breaker opens after a number of consecutive failures and rejects
+ * requests for a while. Then a single trial request is let through: if
+ * it succeeds the breaker closes, otherwise it opens again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+    private long openCount = 0;
+
+    /**
+     * Creates a circuit breaker.
+     *
+     * @param failureThreshold Consecutive failures that open the breaker
+     * @param openDuration How long the breaker rejects requests once open
+     * @param unit Unit of the open duration
+     */
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+        if (failureThreshold <= 0)
+            throw new IllegalArgumentException("failureThreshold must be positive");
+
+        this.failureThreshold = failureThreshold;
+        this.openMillis = unit.toMillis(openDuration);
+    }
+
+    /**
+     * Checks whether a request may be sent now. When this returns true the
+     * caller must report the outcome with recordSuccess or recordFailure.
+     *
+     * @return false while the breaker is open
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && now() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+
+        if (state == State.CLOSED)
+            return true;
+
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Reports a request that reached a healthy server.
+     */
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * Reports a request that failed because of the server or the network.
+     */
+    public synchronized void recordFailure() {
+        failures++;
+
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = now();
+            trialInFlight = false;
+            openCount++;
+        }
+    }
+
+    /**
+     * Reports a request that ended without telling anything about the
+     * server, for example because the caller was interrupted.
+     */
+    public synchronized void release() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && now() - openedAt >= openMillis)
+            return State.HALF_OPEN;
+
+        return state;
+    }
+
+    /**
+     * Gets how often the breaker has opened.
+     */
+    public synchronized long getOpenCount() {
+        return openCount;
+    }
+
+    /**
+     * Current time in milliseconds.
+     */
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+}
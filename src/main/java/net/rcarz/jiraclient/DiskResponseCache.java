@@ -0,0 +1,264 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import net.rcarz.jiraclient.util.Logger;
+
+/**
+ * A response cache that keeps each response in a file, so that validators
+ * survive restarts. It is bounded by the total size of the stored bodies and
+ * evicts the least recently used responses first.
+ *
+ * The directory should be dedicated to the cache; files that don't look
+ * like cache entries are left alone.
+ */
+public class DiskResponseCache extends ResponseCache {
+
+    private static final String SUFFIX = ".cache";
+    private final static Logger LOGGER = Logger.getLogger(DiskResponseCache.class);
+
+    private final File dir;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> index =
+        new LinkedHashMap<String, Long>(16, 0.75f, true);
+    private long size = 0;
+
+    /**
+     * Creates a cache in the given directory, picking up entries stored by
+     * an earlier instance.
+     *
+     * @param dir Cache directory, created if missing
+     * @param maxBytes Maximum total size of the stored bodies
+     *
+     * @throws IOException when the directory can't be created
+     */
+    public DiskResponseCache(File dir, long maxBytes) throws IOException {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("maxBytes must be positive");
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Failed to create cache directory " + dir);
+
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        load();
+    }
+
+    private void load() {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+
+        List<File> stored = new ArrayList<File>();
+        for (File f : files) {
+            if (f.getName().endsWith(SUFFIX))
+                stored.add(f);
+        }
+
+        /* oldest first, so the access order matches the last run */
+        Collections.sort(stored, new Comparator<File>() {
+            public int compare(File a, File b) {
+                long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+            }
+        });
+
+        for (File f : stored) {
+            try {
+                StoredEntry se = read(f);
+                if (fileFor(se.key).equals(f)) {
+                    index.put(se.key, se.entry.getSize());
+                    size += se.entry.getSize();
+                }
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Discarding unreadable cache file " + f + ": " + ex.getMessage());
+                f.delete();
+            }
+        }
+
+        evict();
+    }
+
+    public synchronized Entry get(String key) {
+        if (!index.containsKey(key))
+            return null;
+
+        File f = fileFor(key);
+
+        try {
+            StoredEntry se = read(f);
+            f.setLastModified(System.currentTimeMillis());
+            return se.entry;
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Discarding unreadable cache file " + f + ": " + ex.getMessage());
+            remove(key);
+            return null;
+        }
+    }
+
+    public synchronized void put(String key, Entry entry) {
+        remove(key);
+
+        if (entry.getSize() > maxBytes)
+            return;
+
+        File f = fileFor(key);
+        File tmp = new File(dir, f.getName() + ".tmp");
+
+        try {
+            write(tmp, key, entry);
+            if (!tmp.renameTo(f)) {
+                f.delete();
+                if (!tmp.renameTo(f))
+                    throw new IOException("Failed to rename " + tmp + " to " + f);
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Failed to store cache file " + f + ": " + ex.getMessage());
+            tmp.delete();
+            return;
+        }
+
+        index.put(key, entry.getSize());
+        size += entry.getSize();
+        evict();
+    }
+
+    public synchronized void remove(String key) {
+        Long old = index.remove(key);
+
+        if (old != null) {
+            size -= old;
+            fileFor(key).delete();
+        }
+    }
+
+    public synchronized void clear() {
+        for (String key : new ArrayList<String>(index.keySet()))
+            remove(key);
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getEntryCount() {
+        return index.size();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+
+        while (size > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            size -= eldest.getValue();
+            fileFor(eldest.getKey()).delete();
+            it.remove();
+        }
+    }
+
+    private File fileFor(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+            StringBuilder name = new StringBuilder(digest.length * 2 + SUFFIX.length());
+
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16));
+                name.append(Character.forDigit(b & 0xf, 16));
+            }
+
+            return new File(dir, name.append(SUFFIX).toString());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class StoredEntry {
+        final String key;
+        final Entry entry;
+
+        StoredEntry(String key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+
+    private static void write(File f, String key, Entry entry) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(f)));
+
+        try {
+            byte[] body = entry.getBody().getBytes("UTF-8");
+            out.writeUTF(key);
+            writeNullable(out, entry.getETag());
+            writeNullable(out, entry.getLastModified());
+            out.writeInt(body.length);
+            out.write(body);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static StoredEntry read(File f) throws IOException {
+        DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(f)));
+
+        try {
+            String key = in.readUTF();
+            String etag = readNullable(in);
+            String lastModified = readNullable(in);
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+
+            return new StoredEntry(key, new Entry(etag, lastModified, new String(body, "UTF-8")));
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null)
+            out.writeUTF(s);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -22,14 +22,13 @@ package net.rcarz.jiraclient;
 import java.lang.Iterable;
 import java.lang.UnsupportedOperationException;
 import java.sql.Timestamp;
-import java.text.ParsePosition;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import net.rcarz.jiraclient.util.DateCodec;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 import net.sf.json.JSONNull;
@@ -152,8 +151,8 @@ public final class Field {
     public static final String TRANSITION_TO_STATUS = "to";
     public static final String STARTED = "started";
 
-    public static final String DATE_FORMAT = "yyyy-MM-dd";
-    public static final String DATETIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+    public static final String DATE_FORMAT = DateCodec.DATE_FORMAT;
+    public static final String DATETIME_FORMAT = DateCodec.DATETIME_FORMAT;
     public static final String DATETIME_FORMAT_TEMPO = "yyyy-MM-dd'T'HH:mm:ss.SSSZ"; //"YYYY-MM-ddT00:00:00.000+0000";
 
     private Field() { }
@@ -235,10 +234,8 @@ public final class Field {
     public static Date getDate(Object d) {
         Date result = null;
 
-        if (d instanceof String) {
-            SimpleDateFormat df = new SimpleDateFormat(DATE_FORMAT);
-            result = df.parse((String)d, new ParsePosition(0));
-        }
+        if (d instanceof String)
+            result = DateCodec.parseDate((String)d);
 
         return result;
     }
@@ -253,10 +250,8 @@ public final class Field {
     public static Date getDateTime(Object d) {
         Date result = null;
 
-        if (d instanceof String) {
-            SimpleDateFormat df = new SimpleDateFormat(DATETIME_FORMAT);
-            result = df.parse((String)d, new ParsePosition(0));
-        }
+        if (d instanceof String)
+            result = DateCodec.parseDateTime((String)d);
 
         return result;
     }
@@ -271,10 +266,8 @@ public final class Field {
     public static Date getTempoDateTime(Object d) {
         Date result = null;
 
-        if (d instanceof String) {
-            SimpleDateFormat df = new SimpleDateFormat(DATETIME_FORMAT_TEMPO);
-            result = df.parse((String)d, new ParsePosition(0));
-        }
+        if (d instanceof String)
+            result = DateCodec.parseDateTime((String)d);
 
         return result;
     }
@@ -337,6 +330,173 @@ public final class Field {
         return result;
     }
 
+    private static volatile Map<Class<?>, ResourceFactory<?>> resourceFactories =
+        new HashMap<Class<?>, ResourceFactory<?>>();
+
+    static {
+        register(Attachment.class, new ResourceFactory<Attachment>() {
+            public Attachment create(RestClient restclient, JSONObject json) {
+                return new Attachment(restclient, json);
+            }
+        });
+        register(ChangeLog.class, new ResourceFactory<ChangeLog>() {
+            public ChangeLog create(RestClient restclient, JSONObject json) {
+                return new ChangeLog(restclient, json);
+            }
+        });
+        register(ChangeLogEntry.class, new ResourceFactory<ChangeLogEntry>() {
+            public ChangeLogEntry create(RestClient restclient, JSONObject json) {
+                return new ChangeLogEntry(restclient, json);
+            }
+        });
+        register(ChangeLogItem.class, new ResourceFactory<ChangeLogItem>() {
+            public ChangeLogItem create(RestClient restclient, JSONObject json) {
+                return new ChangeLogItem(restclient, json);
+            }
+        });
+        register(Comment.class, new ResourceFactory<Comment>() {
+            public Comment create(RestClient restclient, JSONObject json) {
+                return new Comment(restclient, json);
+            }
+        });
+        register(Component.class, new ResourceFactory<Component>() {
+            public Component create(RestClient restclient, JSONObject json) {
+                return new Component(restclient, json);
+            }
+        });
+        register(CustomFieldOption.class, new ResourceFactory<CustomFieldOption>() {
+            public CustomFieldOption create(RestClient restclient, JSONObject json) {
+                return new CustomFieldOption(restclient, json);
+            }
+        });
+        register(Issue.class, new ResourceFactory<Issue>() {
+            public Issue create(RestClient restclient, JSONObject json) {
+                return new Issue(restclient, json);
+            }
+        });
+        register(IssueLink.class, new ResourceFactory<IssueLink>() {
+            public IssueLink create(RestClient restclient, JSONObject json) {
+                return new IssueLink(restclient, json);
+            }
+        });
+        register(IssueType.class, new ResourceFactory<IssueType>() {
+            public IssueType create(RestClient restclient, JSONObject json) {
+                return new IssueType(restclient, json);
+            }
+        });
+        register(LinkType.class, new ResourceFactory<LinkType>() {
+            public LinkType create(RestClient restclient, JSONObject json) {
+                return new LinkType(restclient, json);
+            }
+        });
+        register(Priority.class, new ResourceFactory<Priority>() {
+            public Priority create(RestClient restclient, JSONObject json) {
+                return new Priority(restclient, json);
+            }
+        });
+        register(Project.class, new ResourceFactory<Project>() {
+            public Project create(RestClient restclient, JSONObject json) {
+                return new Project(restclient, json);
+            }
+        });
+        register(RemoteLink.class, new ResourceFactory<RemoteLink>() {
+            public RemoteLink create(RestClient restclient, JSONObject json) {
+                return new RemoteLink(restclient, json);
+            }
+        });
+        register(Resolution.class, new ResourceFactory<Resolution>() {
+            public Resolution create(RestClient restclient, JSONObject json) {
+                return new Resolution(restclient, json);
+            }
+        });
+        register(Status.class, new ResourceFactory<Status>() {
+            public Status create(RestClient restclient, JSONObject json) {
+                return new Status(restclient, json);
+            }
+        });
+        register(Transition.class, new ResourceFactory<Transition>() {
+            public Transition create(RestClient restclient, JSONObject json) {
+                return new Transition(restclient, json);
+            }
+        });
+        register(User.class, new ResourceFactory<User>() {
+            public User create(RestClient restclient, JSONObject json) {
+                return new User(restclient, json);
+            }
+        });
+        register(Version.class, new ResourceFactory<Version>() {
+            public Version create(RestClient restclient, JSONObject json) {
+                return new Version(restclient, json);
+            }
+        });
+        register(Votes.class, new ResourceFactory<Votes>() {
+            public Votes create(RestClient restclient, JSONObject json) {
+                return new Votes(restclient, json);
+            }
+        });
+        register(Watches.class, new ResourceFactory<Watches>() {
+            public Watches create(RestClient restclient, JSONObject json) {
+                return new Watches(restclient, json);
+            }
+        });
+        register(WorkLog.class, new ResourceFactory<WorkLog>() {
+            public WorkLog create(RestClient restclient, JSONObject json) {
+                return new WorkLog(restclient, json);
+            }
+        });
+        register(TempoAuthor.class, new ResourceFactory<TempoAuthor>() {
+            public TempoAuthor create(RestClient restclient, JSONObject json) {
+                return new TempoAuthor(restclient, json);
+            }
+        });
+        register(TempoWorkLog.class, new ResourceFactory<TempoWorkLog>() {
+            public TempoWorkLog create(RestClient restclient, JSONObject json) {
+                return new TempoWorkLog(restclient, json);
+            }
+        });
+    }
+
+    private static synchronized <T> void register(Class<T> type, ResourceFactory<? extends T> factory) {
+        Map<Class<?>, ResourceFactory<?>> copy =
+            new HashMap<Class<?>, ResourceFactory<?>>(resourceFactories);
+        copy.put(type, factory);
+        resourceFactories = copy;
+    }
+
+    /**
+     * Registers the factory used to deserialise a resource type, replacing
+     * any existing one. Use this to support custom resource types in
+     * getResource() and getResourceArray().
+     *
+     * @param type Resource data type
+     * @param factory Factory creating instances of type
+     */
+    public static <T> void registerResourceFactory(Class<T> type, ResourceFactory<? extends T> factory) {
+        if (type == null || factory == null)
+            throw new NullPointerException("type and factory may not be null");
+
+        register(type, factory);
+    }
+
+    /**
+     * Gets the factory registered for a resource type.
+     *
+     * @param type Resource data type
+     *
+     * @return the factory or null if the type is unknown
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ResourceFactory<T> getResourceFactory(Class<T> type) {
+        return (ResourceFactory<T>)resourceFactories.get(type);
+    }
+
+    private static <T> T create(ResourceFactory<T> factory, Object r, RestClient restclient) {
+        if (factory != null && r instanceof JSONObject && !((JSONObject)r).isNullObject())
+            return factory.create(restclient, (JSONObject)r);
+
+        return null;
+    }
+
     /**
      * Gets a JIRA resource from the given object.
      *
@@ -349,56 +509,7 @@ public final class Field {
     public static <T extends Resource> T getResource(
         Class<T> type, Object r, RestClient restclient) {
 
-        T result = null;
-
-        if (r instanceof JSONObject && !((JSONObject)r).isNullObject()) {
-            if (type == Attachment.class)
-                result = (T)new Attachment(restclient, (JSONObject)r);
-            else if (type == ChangeLog.class)
-                result = (T)new ChangeLog(restclient, (JSONObject)r);
-            else if (type == ChangeLogEntry.class)
-                result = (T)new ChangeLogEntry(restclient, (JSONObject)r);
-            else if (type == ChangeLogItem.class)
-                result = (T)new ChangeLogItem(restclient, (JSONObject)r);
-            else if (type == Comment.class)
-                result = (T)new Comment(restclient, (JSONObject)r);
-            else if (type == Component.class)
-                result = (T)new Component(restclient, (JSONObject)r);
-            else if (type == CustomFieldOption.class)
-                result = (T)new CustomFieldOption(restclient, (JSONObject)r);
-            else if (type == Issue.class)
-                result = (T)new Issue(restclient, (JSONObject)r);
-            else if (type == IssueLink.class)
-                result = (T)new IssueLink(restclient, (JSONObject)r);
-            else if (type == IssueType.class)
-                result = (T)new IssueType(restclient, (JSONObject)r);
-            else if (type == LinkType.class)
-                result = (T)new LinkType(restclient, (JSONObject)r);
-            else if (type == Priority.class)
-                result = (T)new Priority(restclient, (JSONObject)r);
-            else if (type == Project.class)
-                result = (T)new Project(restclient, (JSONObject)r);
-            else if (type == RemoteLink.class)
-                result = (T)new RemoteLink(restclient, (JSONObject)r);
-            else if (type == Resolution.class)
-                result = (T)new Resolution(restclient, (JSONObject)r);
-            else if (type == Status.class)
-                result = (T)new Status(restclient, (JSONObject)r);
-            else if (type == Transition.class)
-                result = (T)new Transition(restclient, (JSONObject)r);
-            else if (type == User.class)
-                result = (T)new User(restclient, (JSONObject)r);
-            else if (type == Version.class)
-                result = (T)new Version(restclient, (JSONObject)r);
-            else if (type == Votes.class)
-                result = (T)new Votes(restclient, (JSONObject)r);
-            else if (type == Watches.class)
-                result = (T)new Watches(restclient, (JSONObject)r);
-            else if (type == WorkLog.class)
-                result = (T)new WorkLog(restclient, (JSONObject)r);
-        }
-
-        return result;
+        return create(getResourceFactory(type), r, restclient);
     }
 
     /**
@@ -413,16 +524,7 @@ public final class Field {
     public static <T extends TempoResource> T getTempoResource(
             Class<T> type, Object r, RestClient restclient) {
 
-        T result = null;
-
-        if (r instanceof JSONObject && !((JSONObject)r).isNullObject()) {
-            if (type == TempoAuthor.class)
-                result = (T)new TempoAuthor(restclient, (JSONObject)r);
-            else if (type == TempoWorkLog.class)
-                result = (T)new TempoWorkLog(restclient, (JSONObject)r);
-        }
-
-        return result;
+        return create(getResourceFactory(type), r, restclient);
     }
 
     /**
@@ -476,8 +578,10 @@ public final class Field {
         List<T> results = new ArrayList<T>();
 
         if (ra instanceof JSONArray) {
+            ResourceFactory<T> factory = getResourceFactory(type);
+
             for (Object v : (JSONArray)ra) {
-                T item = getResource(type, v, restclient);
+                T item = create(factory, v, restclient);
                 if (item != null)
                     results.add(item);
             }
@@ -501,8 +605,10 @@ public final class Field {
         List<T> results = new ArrayList<T>();
 
         if (ra instanceof JSONArray) {
+            ResourceFactory<T> factory = getResourceFactory(type);
+
             for (Object v : (JSONArray)ra) {
-                T item = getTempoResource(type, v, restclient);
+                T item = create(factory, v, restclient);
                 if (item != null)
                     results.add(item);
             }
@@ -575,11 +681,10 @@ public final class Field {
             return (Date)value;
 
         String dateStr = value.toString();
-        SimpleDateFormat df = new SimpleDateFormat(DATE_FORMAT);
-        if (dateStr.length() > DATE_FORMAT.length()) {
-            df = new SimpleDateFormat(DATETIME_FORMAT);
-        }
-        return df.parse(dateStr, new ParsePosition(0));
+        if (dateStr.length() > DATE_FORMAT.length())
+            return DateCodec.parseDateTime(dateStr);
+
+        return DateCodec.parseDate(dateStr);
     }
 
     /**
@@ -674,16 +779,14 @@ public final class Field {
             if (d == null)
                 throw new JiraException("Field '" + name + "' expects a date value or format is invalid");
 
-            SimpleDateFormat df = new SimpleDateFormat(DATE_FORMAT);
-            return df.format(d);
+            return DateCodec.formatDate(d);
         } else if (m.type.equals("datetime")) {
             if (value == null)
                 return JSONNull.getInstance();
             else if (!(value instanceof Timestamp))
                 throw new JiraException("Field '" + name + "' expects a Timestamp value");
 
-            SimpleDateFormat df = new SimpleDateFormat(DATETIME_FORMAT);
-            return df.format(value);
+            return DateCodec.formatDateTime((Timestamp)value);
         } else if (m.type.equals("issuetype") || m.type.equals("priority") ||
                 m.type.equals("user") || m.type.equals("resolution")) {
             JSONObject json = new JSONObject();
@@ -0,0 +1,128 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.Properties;
+
+/**
+ * Watermark store backed by a properties file.
+ *
+ * Each key maps to a timestamp in milliseconds since the epoch. The file
+ * is rewritten through a temporary file and a rename, so a crash while
+ * saving leaves the previous watermarks intact.
+ */
+public class FileWatermarkStore implements WatermarkStore {
+
+    private final File file;
+    private Properties watermarks = null;
+
+    /**
+     * Creates a watermark store.
+     *
+     * @param file Properties file holding the watermarks; created on the
+     * first update if it doesn't exist
+     */
+    public FileWatermarkStore(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized Date getWatermark(String key) throws IOException {
+        String value = load().getProperty(key);
+
+        if (value == null)
+            return null;
+
+        try {
+            return new Date(Long.parseLong(value));
+        } catch (NumberFormatException ex) {
+            throw new IOException("Malformed watermark for " + key + " in " + file, ex);
+        }
+    }
+
+    @Override
+    public synchronized void setWatermark(String key, Date watermark) throws IOException {
+        Properties updated = new Properties();
+        updated.putAll(load());
+
+        if (watermark == null)
+            updated.remove(key);
+        else
+            updated.setProperty(key, String.valueOf(watermark.getTime()));
+
+        save(updated);
+        watermarks = updated;
+    }
+
+    private Properties load() throws IOException {
+        if (watermarks != null)
+            return watermarks;
+
+        Properties props = new Properties();
+        if (file.isFile()) {
+            InputStream in = new FileInputStream(file);
+            try {
+                props.load(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        watermarks = props;
+        return props;
+    }
+
+    private void save(Properties props) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Failed to create " + dir);
+
+        File tmp = new File(dir, file.getName() + ".tmp");
+
+        try {
+            OutputStream out = new FileOutputStream(tmp);
+            try {
+                props.store(out, "jira-client sync watermarks");
+                out.flush();
+            } finally {
+                out.close();
+            }
+
+            if (!tmp.renameTo(file)) {
+                file.delete();
+                if (!tmp.renameTo(file))
+                    throw new IOException("Failed to rename " + tmp + " to " + file);
+            }
+        } finally {
+            tmp.delete();
+        }
+    }
+}
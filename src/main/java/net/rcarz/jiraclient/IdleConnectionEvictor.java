@@ -0,0 +1,78 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.ClientConnectionManager;
+
+/**
+ * Periodically closes expired and idle pooled connections, so that a
+ * connection the server has already dropped isn't handed out.
+ */
+class IdleConnectionEvictor extends Thread {
+
+    private final ClientConnectionManager connManager;
+    private final long idleTimeout;
+    private volatile boolean shutdown = false;
+
+    /**
+     * Creates the evictor.
+     *
+     * @param connManager Connection manager to clean up
+     * @param idleTimeout Milliseconds a connection may be idle
+     */
+    IdleConnectionEvictor(ClientConnectionManager connManager, long idleTimeout) {
+        super("jira-idle-connection-evictor");
+        setDaemon(true);
+
+        this.connManager = connManager;
+        this.idleTimeout = idleTimeout;
+    }
+
+    @Override
+    public void run() {
+        long interval = Math.max(100, Math.min(idleTimeout / 2, 5000));
+
+        try {
+            while (!shutdown) {
+                synchronized (this) {
+                    wait(interval);
+                }
+
+                connManager.closeExpiredConnections();
+                connManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException ex) {
+            /* stop */
+        }
+    }
+
+    /**
+     * Stops the evictor.
+     */
+    public void shutdown() {
+        shutdown = true;
+
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+}
@@ -22,12 +22,25 @@ package net.rcarz.jiraclient;
 import java.io.File;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Path;
 import java.net.URISyntaxException;
 import java.util.*;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.rcarz.jiraclient.util.DaemonThreadFactory;
 import net.sf.json.JSON;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+import org.apache.http.entity.mime.MultipartEntity;
 import org.joda.time.DateTime;
 
 /**
@@ -93,20 +106,7 @@ public class Issue extends Resource {
          * @throws JiraException when the create fails
          */
         private Issue executeCreate(String includedFields) throws JiraException {
-            JSONObject fieldmap = new JSONObject();
-
-            if (fields.size() == 0) {
-                throw new JiraException("No fields were given for create");
-            }
-
-            for (Map.Entry<String, Object> ent : fields.entrySet()) {
-                Object newval = Field.toJson(ent.getKey(), ent.getValue(), createmeta);
-                fieldmap.put(ent.getKey(), newval);
-            }
-
-            JSONObject req = new JSONObject();
-            req.put("fields", fieldmap);
-
+            JSONObject req = toRequest();
             JSON result = null;
 
             try {
@@ -127,6 +127,30 @@ public class Issue extends Resource {
             }
         }
 
+        /**
+         * Builds the create request payload.
+         *
+         * @return a JSON object with the encoded fields
+         *
+         * @throws JiraException when there are no fields or a value is bad
+         */
+        JSONObject toRequest() throws JiraException {
+            JSONObject fieldmap = new JSONObject();
+
+            if (fields.size() == 0) {
+                throw new JiraException("No fields were given for create");
+            }
+
+            for (Map.Entry<String, Object> ent : fields.entrySet()) {
+                Object newval = Field.toJson(ent.getKey(), ent.getValue(), createmeta);
+                fieldmap.put(ent.getKey(), newval);
+            }
+
+            JSONObject req = new JSONObject();
+            req.put("fields", fieldmap);
+            return req;
+        }
+
         /**
          * Appends a field to the update action.
          *
@@ -479,6 +503,12 @@ public class Issue extends Resource {
             } catch (Exception ex) {
                 throw new JiraException("Failed to transition issue " + key, ex);
             }
+
+            /* metadata is cached by status, so the old one mustn't be used
+             * to look up transitions again; null until the next refresh if
+             * the target status isn't known */
+            load(LAZY_STATUS);
+            status = trans.getToStatus();
         }
 
         /**
@@ -532,6 +562,14 @@ public class Issue extends Resource {
 	/**
      * Iterates over all issues in the query by getting the next page of
      * issues when the iterator reaches the last of the current page.
+     *
+     * When prefetching is enabled, the first page tells us the total and the
+     * page size, and up to <code>prefetch</code> of the following pages are
+     * requested in the background while the caller consumes the current one.
+     * Pages are handed out in order, and no more than <code>prefetch</code>
+     * pages are ever buffered ahead of the caller. A caller may stop
+     * iterating early: the pages in flight complete and the prefetch
+     * threads exit once idle.
      */
     private static class IssueIterator implements Iterator<Issue> {
     	private Iterator<Issue> currentPage;
@@ -544,18 +582,28 @@ public class Issue extends Resource {
 		private Integer startAt;
 		private List<Issue> issues;
 		private int total;
+		private int prefetch;
+		private int nextStartAt;
+		private ExecutorService executor;
+		private Queue<Future<Page>> pending = new LinkedList<Future<Page>>();
 		
         public IssueIterator(RestClient restclient, String jql,
                 String includedFields, String expandFields, Integer maxResults, Integer startAt)
                         throws JiraException {
+			this(restclient, jql, includedFields, expandFields, maxResults, startAt, 0);
+		}
+
+		public IssueIterator(RestClient restclient, String jql,
+				String includedFields, String expandFields, Integer maxResults, Integer startAt,
+				int prefetch) throws JiraException {
 			this.restclient = restclient;
 			this.jql = jql;
 			this.includedFields = includedFields;
 			this.expandFields = expandFields;
 			this.maxResults = maxResults;
 			this.startAt = startAt;
+			this.prefetch = prefetch;
         }
-    	
 
 		public boolean hasNext() {
 			if (nextIssue != null) {
@@ -564,12 +612,12 @@ public class Issue extends Resource {
 			try {
 				nextIssue = getNextIssue();
 			} catch (JiraException e) {
+				shutdown();
 				throw new RuntimeException(e);
 			}
 			return nextIssue != null;
 		}
 
-
 		public Issue next() {
 			if (! hasNext()) {
 				throw new NoSuchElementException();
@@ -579,8 +627,6 @@ public class Issue extends Resource {
 			return result;
 		}
 
-
-
 		public void remove() {
 			throw new UnsupportedOperationException("Method remove() not support for class " + this.getClass().getName());
 		}
@@ -593,18 +639,8 @@ public class Issue extends Resource {
 		 * @throws JiraException
 		 */
 		private Issue getNextIssue() throws JiraException {
-			// first call
-			if (currentPage == null) {
-				currentPage = getNextIssues().iterator();
-				if (currentPage == null) {
-					return null;
-				} else {
-					return currentPage.next();
-				}
-			}
-			
-			// check if we need to get the next set of issues
-			if (! currentPage.hasNext()) {
+			// first call, or check if we need to get the next set of issues
+			if (currentPage == null || ! currentPage.hasNext()) {
 				currentPage = getNextIssues().iterator();
 			}
 
@@ -625,38 +661,132 @@ public class Issue extends Resource {
 		 * @throws JiraException
 		 */
 		private List<Issue> getNextIssues() throws JiraException {
-			if (issues == null) {
-				startAt = Integer.valueOf(0);
+			boolean first = issues == null;
+			Page page;
+
+			if (first) {
+				page = fetchPage(restclient, jql, includedFields, expandFields, maxResults, 0);
+			} else if (prefetch > 0 && maxResults > 0) {
+				page = takePage();
 			} else {
-				startAt = startAt + issues.size();
+				page = fetchPage(restclient, jql, includedFields, expandFields, maxResults,
+						startAt + issues.size());
 			}
 
-	        JSON result = null;
-
-	        try {
-	            URI searchUri = createSearchURI(restclient, jql, includedFields,
-						expandFields, maxResults, startAt);
-	            result = restclient.get(searchUri);
-	        } catch (Exception ex) {
-	            throw new JiraException("Failed to search issues", ex);
-	        }
+			this.startAt = page.startAt;
+			this.maxResults = page.maxResults;
+			this.total = page.total;
+			this.issues = page.issues;
 
-	        if (!(result instanceof JSONObject)) {
-	            throw new JiraException("JSON payload is malformed");
+			if (first && prefetch > 0 && maxResults > 0) {
+				nextStartAt = startAt + issues.size();
+				schedulePages();
 	        }
 
-    		
-			Map map = (Map) result;
-	
-			this.startAt = Field.getInteger(map.get("startAt"));
-			this.maxResults = Field.getInteger(map.get("maxResults"));
-	    	this.total = Field.getInteger(map.get("total"));
-	    	this.issues = Field.getResourceArray(Issue.class, map.get("issues"), restclient);
 	    	return issues;
 		}
 
+		/**
+		 * Tops up the pipeline with requests for the pages following the
+		 * ones already in flight.
+		 */
+		private void schedulePages() {
+			final Integer pageSize = maxResults;
+
+			while (pending.size() < prefetch && nextStartAt < total) {
+				if (executor == null) {
+					/* idle threads exit, so an abandoned iterator leaks nothing */
+					ThreadPoolExecutor pool = new ThreadPoolExecutor(prefetch, prefetch,
+						1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+						new DaemonThreadFactory("jira-search-prefetch"));
+					pool.allowCoreThreadTimeOut(true);
+					executor = pool;
+				}
+
+				final int pageStart = nextStartAt;
+				pending.add(executor.submit(new Callable<Page>() {
+					public Page call() throws JiraException {
+						return fetchPage(restclient, jql, includedFields, expandFields,
+								pageSize, pageStart);
+					}
+				}));
+
+				nextStartAt += pageSize;
+			}
+		}
+
+		/**
+		 * Waits for the oldest page in flight and schedules the next one.
+		 */
+		private Page takePage() throws JiraException {
+			Future<Page> next = pending.poll();
+
+			if (next == null) {
+				shutdown();
+				return new Page(startAt + issues.size(), maxResults, total, new ArrayList<Issue>());
+			}
+
+			try {
+				Page page = next.get();
+				schedulePages();
+
+				if (pending.isEmpty())
+					shutdown();
+
+				return page;
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new JiraException("Interrupted while waiting for search results", ex);
+			} catch (ExecutionException ex) {
+				if (ex.getCause() instanceof JiraException)
+					throw (JiraException) ex.getCause();
+
+				throw new JiraException("Failed to search issues", ex.getCause());
+			}
+		}
+
+		private void shutdown() {
+			if (executor != null) {
+				for (Future<Page> f : pending)
+					f.cancel(true);
+
+				pending.clear();
+				executor.shutdownNow();
+				executor = null;
+			}
+		}
     }
     
+    /**
+     * One page of search results.
+     */
+    private static final class Page {
+        final int startAt;
+        final int maxResults;
+        final int total;
+        final List<Issue> issues;
+
+        Page(int startAt, int maxResults, int total, List<Issue> issues) {
+            this.startAt = startAt;
+            this.maxResults = maxResults;
+            this.total = total;
+            this.issues = issues;
+        }
+    }
+
+    private static Page fetchPage(RestClient restclient, String jql, String includedFields,
+            String expandFields, Integer maxResults, int startAt) throws JiraException {
+
+        Map map = (Map) executeSearch(restclient, jql, includedFields, expandFields,
+                maxResults, startAt);
+
+        return new Page(
+                Field.getInteger(map.get("startAt")),
+                Field.getInteger(map.get("maxResults")),
+                Field.getInteger(map.get("total")),
+                Field.getResourceArray(Issue.class, map.get("issues"), restclient));
+    }
+
     /**
      * Issue search results structure.
      */
@@ -674,15 +804,28 @@ public class Issue extends Resource {
 
 	    public SearchResult(RestClient restclient, String jql,
 	            String includedFields, String expandFields, Integer maxResults, Integer startAt) throws JiraException {
+			this(restclient, jql, includedFields, expandFields, maxResults, startAt, 0);
+		}
+
+		/**
+		 * Runs the search and fetches up to <code>prefetch</code> pages ahead
+		 * of the iterator.
+		 *
+		 * @param prefetch maximum number of pages in flight, or zero to fetch
+		 * pages one at a time as the iterator reaches them
+		 */
+		public SearchResult(RestClient restclient, String jql,
+				String includedFields, String expandFields, Integer maxResults, Integer startAt,
+				int prefetch) throws JiraException {
 			this.restclient = restclient;
 			this.jql = jql;
 			this.includedFields = includedFields;
 			this.expandFields = expandFields;
-			initSearchResult(maxResults, start);
+			initSearchResult(maxResults, start, prefetch);
         }
         
-        private void initSearchResult(Integer maxResults, Integer start) throws JiraException {
-        	this.issueIterator = new IssueIterator(restclient, jql, includedFields, expandFields, maxResults, startAt);
+		private void initSearchResult(Integer maxResults, Integer start, int prefetch) throws JiraException {
+			this.issueIterator = new IssueIterator(restclient, jql, includedFields, expandFields, maxResults, startAt, prefetch);
         	this.issueIterator.hasNext();
         	this.max = issueIterator.maxResults;
         	this.start = issueIterator.startAt;
@@ -700,28 +843,122 @@ public class Issue extends Resource {
         }
     }
 
+    /**
+     * Outcome of creating one issue in a bulk create.
+     */
+    public static final class BulkCreateResult {
+        private final int index;
+        private final String id;
+        private final String key;
+        private Issue issue;
+        private final String error;
+
+        BulkCreateResult(int index, String id, String key) {
+            this.index = index;
+            this.id = id;
+            this.key = key;
+            this.error = null;
+        }
+
+        BulkCreateResult(int index, String error) {
+            this.index = index;
+            this.id = null;
+            this.key = null;
+            this.error = error;
+        }
+
+        /**
+         * Position of the issue in the list passed to the bulk create.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * Internal JIRA ID of the created issue or null on failure.
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Key of the created issue or null on failure.
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * The created issue, or null on failure or when the issues weren't
+         * re-read after creation.
+         */
+        public Issue getIssue() {
+            return issue;
+        }
+
+        /**
+         * Reason the issue wasn't created or null on success.
+         */
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return isSuccess() ? index + ": " + key : index + ": " + error;
+        }
+    }
+
     public static final class NewAttachment {
 
         private final String filename;
         private final Object content;
+        private final long length;
 
         public NewAttachment(File content) {
             this(content.getName(), content);
         }
 
-        public NewAttachment(String filename, File content) {
+        public NewAttachment(Path content) {
+            this(content.toFile());
+        }
+
+        public NewAttachment(String filename, Path content) {
+            this(filename, content.toFile());
+        }
+
+        /**
+         * Creates an attachment streamed from the given input. With a known
+         * length the upload has a Content-Length, otherwise it's chunked.
+         *
+         * @param filename File name in JIRA
+         * @param content Stream to upload, closed after the upload
+         * @param length Number of bytes in the stream or -1 if unknown
+         */
+        public NewAttachment(String filename, InputStream content, long length) {
             this.filename = requireFilename(filename);
             this.content = requireContent(content);
+            this.length = length < 0 ? -1 : length;
         }
 
-        public NewAttachment(String filename, InputStream content) {
+        public NewAttachment(String filename, File content) {
             this.filename = requireFilename(filename);
             this.content = requireContent(content);
+            this.length = content.length();
+        }
+
+        public NewAttachment(String filename, InputStream content) {
+            this(filename, content, -1);
         }
 
         public NewAttachment(String filename, byte[] content) {
             this.filename = requireFilename(filename);
             this.content = requireContent(content);
+            this.length = content.length;
         }
 
         String getFilename() {
@@ -732,6 +969,15 @@ public class Issue extends Resource {
             return content;
         }
 
+        /**
+         * Gets the size of the content.
+         *
+         * @return the length in bytes or -1 if unknown
+         */
+        long getLength() {
+            return length;
+        }
+
         private static String requireFilename(String filename) {
             if (filename == null) {
                 throw new NullPointerException("filename may not be null");
@@ -785,6 +1031,37 @@ public class Issue extends Resource {
     private Date createdDate = null;
     private Date updatedDate = null;
 
+    /* lazily materialised fields, one bit per field */
+    private static final int LAZY_ASSIGNEE = 1 << 0;
+    private static final int LAZY_ATTACHMENTS = 1 << 1;
+    private static final int LAZY_CHANGE_LOG = 1 << 2;
+    private static final int LAZY_COMMENTS = 1 << 3;
+    private static final int LAZY_COMPONENTS = 1 << 4;
+    private static final int LAZY_DUE_DATE = 1 << 5;
+    private static final int LAZY_FIX_VERSIONS = 1 << 6;
+    private static final int LAZY_ISSUE_LINKS = 1 << 7;
+    private static final int LAZY_ISSUE_TYPE = 1 << 8;
+    private static final int LAZY_LABELS = 1 << 9;
+    private static final int LAZY_PARENT = 1 << 10;
+    private static final int LAZY_PRIORITY = 1 << 11;
+    private static final int LAZY_PROJECT = 1 << 12;
+    private static final int LAZY_REPORTER = 1 << 13;
+    private static final int LAZY_RESOLUTION = 1 << 14;
+    private static final int LAZY_RESOLUTION_DATE = 1 << 15;
+    private static final int LAZY_STATUS = 1 << 16;
+    private static final int LAZY_SUBTASKS = 1 << 17;
+    private static final int LAZY_TIME_TRACKING = 1 << 18;
+    private static final int LAZY_VERSIONS = 1 << 19;
+    private static final int LAZY_VOTES = 1 << 20;
+    private static final int LAZY_WATCHES = 1 << 21;
+    private static final int LAZY_WORK_LOGS = 1 << 22;
+    private static final int LAZY_CREATED_DATE = 1 << 23;
+    private static final int LAZY_UPDATED_DATE = 1 << 24;
+    private static final int LAZY_ALL = (1 << 25) - 1;
+
+    private Object changeLogJson = null;
+    private volatile int loaded = LAZY_ALL;
+
     /**
      * Creates an issue from a JSON payload.
      *
@@ -798,7 +1075,7 @@ public class Issue extends Resource {
             deserialise(json);
     }
 
-    private void deserialise(JSONObject json) {
+    private synchronized void deserialise(JSONObject json) {
         Map map = json;
 
         id = Field.getString(map.get("id"));
@@ -806,36 +1083,118 @@ public class Issue extends Resource {
         key = Field.getString(map.get("key"));
 
         fields = (Map)map.get("fields");
+        changeLogJson = map.get(Field.CHANGE_LOG);
 
-        assignee = Field.getResource(User.class, fields.get(Field.ASSIGNEE), restclient);
-        attachments = Field.getResourceArray(Attachment.class, fields.get(Field.ATTACHMENT), restclient);
-        changeLog = Field.getResource(ChangeLog.class, map.get(Field.CHANGE_LOG), restclient);
-        comments = Field.getComments(fields.get(Field.COMMENT), restclient);
-        components = Field.getResourceArray(Component.class, fields.get(Field.COMPONENTS), restclient);
         description = Field.getString(fields.get(Field.DESCRIPTION));
-        dueDate = Field.getDate(fields.get(Field.DUE_DATE));
-        fixVersions = Field.getResourceArray(Version.class, fields.get(Field.FIX_VERSIONS), restclient);
-        issueLinks = Field.getResourceArray(IssueLink.class, fields.get(Field.ISSUE_LINKS), restclient);
-        issueType = Field.getResource(IssueType.class, fields.get(Field.ISSUE_TYPE), restclient);
-        labels = Field.getStringArray(fields.get(Field.LABELS));
-        parent = Field.getResource(Issue.class, fields.get(Field.PARENT), restclient);
-        priority = Field.getResource(Priority.class, fields.get(Field.PRIORITY), restclient);
-        project = Field.getResource(Project.class, fields.get(Field.PROJECT), restclient);
-        reporter = Field.getResource(User.class, fields.get(Field.REPORTER), restclient);
-        resolution = Field.getResource(Resolution.class, fields.get(Field.RESOLUTION), restclient);
-        resolutionDate = Field.getDateTime(fields.get(Field.RESOLUTION_DATE));
-        status = Field.getResource(Status.class, fields.get(Field.STATUS), restclient);
-        subtasks = Field.getResourceArray(Issue.class, fields.get(Field.SUBTASKS), restclient);
         summary = Field.getString(fields.get(Field.SUMMARY));
-        timeTracking = Field.getTimeTracking(fields.get(Field.TIME_TRACKING));
-        versions = Field.getResourceArray(Version.class, fields.get(Field.VERSIONS), restclient);
-        votes = Field.getResource(Votes.class, fields.get(Field.VOTES), restclient);
-        watches = Field.getResource(Watches.class, fields.get(Field.WATCHES), restclient);
-        workLogs = Field.getWorkLogs(fields.get(Field.WORKLOG), restclient);
         timeEstimate = Field.getInteger(fields.get(Field.TIME_ESTIMATE));
         timeSpent = Field.getInteger(fields.get(Field.TIME_SPENT));
-        createdDate = Field.getDateTime(fields.get(Field.CREATED_DATE));
-        updatedDate = Field.getDateTime(fields.get(Field.UPDATED_DATE));
+
+        loaded = 0;
+
+        if (restclient == null || !restclient.isLazyIssueFields()) {
+            for (int bit = 1; bit <= LAZY_ALL; bit <<= 1)
+                materialise(bit);
+
+            loaded = LAZY_ALL;
+        }
+    }
+
+    /**
+     * Builds a field from the retained JSON the first time it's read.
+     *
+     * @param bit The field's LAZY_* bit
+     */
+    private void load(int bit) {
+        if ((loaded & bit) != 0)
+            return;
+
+        synchronized (this) {
+            if ((loaded & bit) == 0) {
+                materialise(bit);
+                loaded |= bit;
+            }
+        }
+    }
+
+    private void materialise(int bit) {
+        switch (bit) {
+            case LAZY_ASSIGNEE:
+                assignee = Field.getResource(User.class, fields.get(Field.ASSIGNEE), restclient);
+                break;
+            case LAZY_ATTACHMENTS:
+                attachments = Field.getResourceArray(Attachment.class, fields.get(Field.ATTACHMENT), restclient);
+                break;
+            case LAZY_CHANGE_LOG:
+                changeLog = Field.getResource(ChangeLog.class, changeLogJson, restclient);
+                break;
+            case LAZY_COMMENTS:
+                comments = Field.getComments(fields.get(Field.COMMENT), restclient);
+                break;
+            case LAZY_COMPONENTS:
+                components = Field.getResourceArray(Component.class, fields.get(Field.COMPONENTS), restclient);
+                break;
+            case LAZY_DUE_DATE:
+                dueDate = Field.getDate(fields.get(Field.DUE_DATE));
+                break;
+            case LAZY_FIX_VERSIONS:
+                fixVersions = Field.getResourceArray(Version.class, fields.get(Field.FIX_VERSIONS), restclient);
+                break;
+            case LAZY_ISSUE_LINKS:
+                issueLinks = Field.getResourceArray(IssueLink.class, fields.get(Field.ISSUE_LINKS), restclient);
+                break;
+            case LAZY_ISSUE_TYPE:
+                issueType = Field.getResource(IssueType.class, fields.get(Field.ISSUE_TYPE), restclient);
+                break;
+            case LAZY_LABELS:
+                labels = Field.getStringArray(fields.get(Field.LABELS));
+                break;
+            case LAZY_PARENT:
+                parent = Field.getResource(Issue.class, fields.get(Field.PARENT), restclient);
+                break;
+            case LAZY_PRIORITY:
+                priority = Field.getResource(Priority.class, fields.get(Field.PRIORITY), restclient);
+                break;
+            case LAZY_PROJECT:
+                project = Field.getResource(Project.class, fields.get(Field.PROJECT), restclient);
+                break;
+            case LAZY_REPORTER:
+                reporter = Field.getResource(User.class, fields.get(Field.REPORTER), restclient);
+                break;
+            case LAZY_RESOLUTION:
+                resolution = Field.getResource(Resolution.class, fields.get(Field.RESOLUTION), restclient);
+                break;
+            case LAZY_RESOLUTION_DATE:
+                resolutionDate = Field.getDateTime(fields.get(Field.RESOLUTION_DATE));
+                break;
+            case LAZY_STATUS:
+                status = Field.getResource(Status.class, fields.get(Field.STATUS), restclient);
+                break;
+            case LAZY_SUBTASKS:
+                subtasks = Field.getResourceArray(Issue.class, fields.get(Field.SUBTASKS), restclient);
+                break;
+            case LAZY_TIME_TRACKING:
+                timeTracking = Field.getTimeTracking(fields.get(Field.TIME_TRACKING));
+                break;
+            case LAZY_VERSIONS:
+                versions = Field.getResourceArray(Version.class, fields.get(Field.VERSIONS), restclient);
+                break;
+            case LAZY_VOTES:
+                votes = Field.getResource(Votes.class, fields.get(Field.VOTES), restclient);
+                break;
+            case LAZY_WATCHES:
+                watches = Field.getResource(Watches.class, fields.get(Field.WATCHES), restclient);
+                break;
+            case LAZY_WORK_LOGS:
+                workLogs = Field.getWorkLogs(fields.get(Field.WORKLOG), restclient);
+                break;
+            case LAZY_CREATED_DATE:
+                createdDate = Field.getDateTime(fields.get(Field.CREATED_DATE));
+                break;
+            case LAZY_UPDATED_DATE:
+                updatedDate = Field.getDateTime(fields.get(Field.UPDATED_DATE));
+                break;
+        }
     }
 
     private static String getRestUri(String key) {
@@ -845,6 +1204,16 @@ public class Issue extends Resource {
     public static JSONObject getCreateMetadata(
         RestClient restclient, String project, String issueType) throws JiraException {
 
+        MetadataCache cache = restclient.getMetadataCache();
+        MetadataCache.Key cacheKey = new MetadataCache.Key(
+            MetadataCache.Key.CREATE_META, project, issueType, null);
+
+        if (cache != null) {
+            JSONObject cached = (JSONObject)cache.get(cacheKey);
+            if (cached != null)
+                return cached;
+        }
+
         final String pval = project;
         final String itval = issueType;
         JSON result = null;
@@ -880,10 +1249,38 @@ public class Issue extends Resource {
             throw new JiraException("Project '"+ project + "'  or issue type '" + issueType + 
                     "' missing from create metadata. Do you have enough permissions?");
 
-        return projects.get(0).getIssueTypes().get(0).getFields();
+        JSONObject fields = projects.get(0).getIssueTypes().get(0).getFields();
+
+        if (cache != null)
+            cache.put(cacheKey, fields);
+
+        return fields;
+    }
+
+    /**
+     * Builds the metadata cache key for this issue.
+     *
+     * @return a key or null if the project, issue type or status is unknown
+     */
+    private MetadataCache.Key getMetadataKey(String kind) {
+        if (getProject() == null || getIssueType() == null || getStatus() == null)
+            return null;
+
+        return new MetadataCache.Key(kind, getProject().getKey(), getIssueType().getName(),
+            getStatus().getId());
     }
 
     private JSONObject getEditMetadata() throws JiraException {
+        MetadataCache cache = restclient.getMetadataCache();
+        MetadataCache.Key cacheKey = cache != null ?
+            getMetadataKey(MetadataCache.Key.EDIT_META) : null;
+
+        if (cacheKey != null) {
+            JSONObject cached = (JSONObject)cache.get(cacheKey);
+            if (cached != null)
+                return cached;
+        }
+
         JSON result = null;
 
         try {
@@ -901,10 +1298,25 @@ public class Issue extends Resource {
                 !(jo.get("fields") instanceof JSONObject))
             throw new JiraException("Edit metadata is malformed");
 
-        return (JSONObject)jo.get("fields");
+        JSONObject fields = (JSONObject)jo.get("fields");
+
+        if (cacheKey != null)
+            cache.put(cacheKey, fields);
+
+        return fields;
     }
 
     public List<Transition> getTransitions() throws JiraException {
+        MetadataCache cache = restclient.getMetadataCache();
+        MetadataCache.Key cacheKey = cache != null ?
+            getMetadataKey(MetadataCache.Key.TRANSITIONS) : null;
+
+        if (cacheKey != null) {
+            List<Transition> cached = (List<Transition>)cache.get(cacheKey);
+            if (cached != null)
+                return new ArrayList<Transition>(cached);
+        }
+
         JSON result = null;
 
         try {
@@ -931,6 +1343,9 @@ public class Issue extends Resource {
             trans.add(new Transition(restclient, ob));
         }
 
+        if (cacheKey != null)
+            cache.put(cacheKey, Collections.unmodifiableList(new ArrayList<Transition>(trans)));
+
         return trans;
     }
 
@@ -998,6 +1413,138 @@ public class Issue extends Resource {
         }
     }
 
+    /**
+     * Adds attachments to this issue, streaming each one and reporting the
+     * bytes of the upload as they're sent.
+     *
+     * @param listener Receives the bytes sent so far and the total, or -1
+     * as the total when a stream of unknown length is included
+     * @param attachments the attachments to add
+     *
+     * @throws JiraException when the attachments creation fails
+     */
+    public void addAttachments(Attachment.ProgressListener listener, NewAttachment... attachments)
+        throws JiraException {
+
+        if (attachments == null) {
+            throw new NullPointerException("attachments may not be null");
+        }
+        if (attachments.length == 0) {
+            return;
+        }
+        try {
+            restclient.post(getRestUri(key) + "/attachments", listener, attachments);
+        } catch (Exception ex) {
+            throw new JiraException("Failed add attachment to issue " + key, ex);
+        }
+    }
+
+    /**
+     * Uploads attachments to several issues at once.
+     *
+     * Each issue's attachments are sent as one request, and up to
+     * concurrency requests run in parallel. A failed issue doesn't stop the
+     * others.
+     *
+     * @param restclient REST client instance
+     * @param attachments Attachments to add, by issue key
+     * @param concurrency Maximum number of uploads in flight
+     * @param listener Receives the bytes sent across all uploads and their
+     * total, or -1 as the total when a length is unknown; may be null
+     *
+     * @return the failures by issue key, empty when every upload succeeded
+     *
+     * @throws JiraException when the uploads are interrupted
+     */
+    public static Map<String, JiraException> addAttachments(final RestClient restclient,
+            Map<String, List<NewAttachment>> attachments, int concurrency,
+            final Attachment.ProgressListener listener) throws JiraException {
+
+        if (concurrency <= 0)
+            throw new IllegalArgumentException("concurrency must be positive");
+
+        final Map<String, JiraException> failures =
+            Collections.synchronizedMap(new LinkedHashMap<String, JiraException>());
+        Map<String, MultipartEntity> entities = new LinkedHashMap<String, MultipartEntity>();
+
+        /* the total counts the multipart framing, like the bytes sent */
+        long sum = 0;
+        for (Map.Entry<String, List<NewAttachment>> entry : attachments.entrySet()) {
+            MultipartEntity entity;
+
+            try {
+                entity = RestClient.multipart(entry.getValue().toArray(new NewAttachment[0]));
+            } catch (IllegalArgumentException ex) {
+                failures.put(entry.getKey(),
+                    new JiraException("Failed add attachment to issue " + entry.getKey(), ex));
+                continue;
+            }
+
+            entities.put(entry.getKey(), entity);
+            if (sum < 0 || entity.getContentLength() < 0)
+                sum = -1;
+            else
+                sum += entity.getContentLength();
+        }
+
+        final long total = sum;
+        final AtomicLong sent = new AtomicLong();
+        List<Callable<Void>> uploads = new ArrayList<Callable<Void>>();
+
+        for (Map.Entry<String, MultipartEntity> entry : entities.entrySet()) {
+            final String issueKey = entry.getKey();
+            final MultipartEntity entity = entry.getValue();
+
+            uploads.add(new Callable<Void>() {
+                public Void call() {
+                    Attachment.ProgressListener counter = null;
+
+                    if (listener != null) {
+                        counter = new Attachment.ProgressListener() {
+                            private long reported = 0;
+
+                            public void progress(long transferred, long requestTotal) {
+                                listener.progress(sent.addAndGet(transferred - reported), total);
+                                reported = transferred;
+                            }
+                        };
+                    }
+
+                    try {
+                        restclient.post(getRestUri(issueKey) + "/attachments", counter, entity);
+                    } catch (Exception ex) {
+                        failures.put(issueKey, new JiraException("Failed add attachment to issue " + issueKey, ex));
+                    }
+
+                    return null;
+                }
+            });
+        }
+
+        if (!uploads.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(concurrency, uploads.size()), new DaemonThreadFactory("jira-attachment-upload"));
+
+            try {
+                executor.invokeAll(uploads);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new JiraException("Interrupted while uploading attachments", ex);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        /* in input order */
+        Map<String, JiraException> ordered = new LinkedHashMap<String, JiraException>();
+        for (String issueKey : attachments.keySet()) {
+            if (failures.containsKey(issueKey))
+                ordered.put(issueKey, failures.get(issueKey));
+        }
+
+        return ordered;
+    }
+
     /**
 	 * Removes an attachments.
 	 *
@@ -1157,6 +1704,249 @@ public class Issue extends Resource {
             .field(Field.ISSUE_TYPE, issueType);
     }
 
+    /**
+     * Creates many issues through the bulk create endpoint.
+     *
+     * The issues are sent in chunks, and chunks may be sent concurrently. A
+     * bad field value or a server-side validation error only fails that
+     * issue: the result list has one entry per input issue, in input order,
+     * that says whether the issue was created.
+     *
+     * @param restclient REST client instance
+     * @param issues Issues to create, built with {@link #create}
+     * @param includedFields Fields to retrieve when re-reading the created
+     * issues, or null for all fields
+     * @param fetch Re-read the created issues (one search per chunk)
+     * @param chunkSize Number of issues per request
+     * @param concurrency Number of chunks sent at the same time
+     *
+     * @return one result per input issue
+     *
+     * @throws JiraException when the bulk create is interrupted
+     */
+    public static List<BulkCreateResult> createBulk(final RestClient restclient,
+            List<FluentCreate> issues, final String includedFields, final boolean fetch,
+            int chunkSize, int concurrency) throws JiraException {
+
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("chunkSize must be positive");
+        if (concurrency <= 0)
+            throw new IllegalArgumentException("concurrency must be positive");
+
+        List<BulkCreateResult> results = new ArrayList<BulkCreateResult>(issues.size());
+        List<Callable<List<BulkCreateResult>>> chunks =
+            new ArrayList<Callable<List<BulkCreateResult>>>();
+
+        for (int start = 0; start < issues.size(); start += chunkSize) {
+            final int first = start;
+            final List<FluentCreate> chunk =
+                issues.subList(start, Math.min(issues.size(), start + chunkSize));
+
+            chunks.add(new Callable<List<BulkCreateResult>>() {
+                public List<BulkCreateResult> call() {
+                    return createChunk(restclient, chunk, first, includedFields, fetch);
+                }
+            });
+        }
+
+        if (concurrency == 1 || chunks.size() <= 1) {
+            for (Callable<List<BulkCreateResult>> chunk : chunks) {
+                try {
+                    results.addAll(chunk.call());
+                } catch (Exception ex) {
+                    throw new JiraException("Failed to create issues", ex);
+                }
+            }
+
+            return results;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.min(concurrency, chunks.size()), new DaemonThreadFactory("jira-bulk-create"));
+
+        try {
+            for (Future<List<BulkCreateResult>> f : executor.invokeAll(chunks))
+                results.addAll(f.get());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while creating issues", ex);
+        } catch (ExecutionException ex) {
+            throw new JiraException("Failed to create issues", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return results;
+    }
+
+    /**
+     * Sends one chunk to the bulk create endpoint. Never throws: failures
+     * are reported per issue.
+     */
+    private static List<BulkCreateResult> createChunk(RestClient restclient,
+            List<FluentCreate> chunk, int first, String includedFields, boolean fetch) {
+
+        BulkCreateResult[] results = new BulkCreateResult[chunk.size()];
+        List<Integer> sent = new ArrayList<Integer>(chunk.size());
+        JSONArray updates = new JSONArray();
+
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                updates.add(chunk.get(i).toRequest());
+                sent.add(i);
+            } catch (Exception ex) {
+                results[i] = new BulkCreateResult(first + i, ex.getMessage());
+            }
+        }
+
+        if (!sent.isEmpty()) {
+            JSONObject req = new JSONObject();
+            req.put("issueUpdates", updates);
+
+            JSON result = null;
+            String failure = null;
+
+            try {
+                result = restclient.post(getRestUri("bulk"), req);
+            } catch (RestException ex) {
+                /* JIRA answers 400 with the usual body when every issue fails */
+                if (ex.getHttpStatusCode() == 400) {
+                    try {
+                        result = JSONSerializer.toJSON(ex.getHttpResult());
+                    } catch (Exception parseEx) {
+                        failure = ex.getMessage();
+                    }
+
+                    /* a request JIRA rejected as a whole has only errorMessages */
+                    if (result instanceof JSONObject && !isBulkBody((JSONObject)result))
+                        failure = errorMessage(ex);
+                } else {
+                    failure = errorMessage(ex);
+                }
+            } catch (Exception ex) {
+                failure = ex.getMessage() != null ? ex.getMessage() : ex.toString();
+            }
+
+            if (failure == null && !(result instanceof JSONObject))
+                failure = "Unexpected result on bulk create";
+
+            if (failure != null) {
+                for (int i : sent)
+                    results[i] = new BulkCreateResult(first + i, failure);
+            } else {
+                readBulkResult((JSONObject)result, sent, results, first);
+            }
+        }
+
+        List<BulkCreateResult> list = Arrays.asList(results);
+
+        if (fetch)
+            fetchCreated(restclient, list, includedFields);
+
+        return list;
+    }
+
+    /**
+     * Describes a failed request by its status and the JIRA error messages,
+     * falling back to the exception message when the body has none.
+     */
+    private static String errorMessage(RestException ex) {
+        try {
+            JSON body = JSONSerializer.toJSON(ex.getHttpResult());
+
+            if (body instanceof JSONObject) {
+                Object messages = ((JSONObject)body).get("errorMessages");
+
+                if (messages instanceof JSONArray && !((JSONArray)messages).isEmpty())
+                    return ex.getHttpStatusCode() + " " + ((JSONArray)messages).join(", ", true);
+            }
+        } catch (Exception parseEx) {
+            /* not JSON, use the raw message */
+        }
+
+        return ex.getMessage();
+    }
+
+    private static boolean isBulkBody(JSONObject result) {
+        return result.get("issues") instanceof JSONArray || result.get("errors") instanceof JSONArray;
+    }
+
+    private static void readBulkResult(JSONObject result, List<Integer> sent,
+            BulkCreateResult[] results, int first) {
+
+        /* failedElementNumber is the position in the request */
+        Map<Integer, String> errors = new HashMap<Integer, String>();
+        Object errorArray = result.get("errors");
+
+        if (errorArray instanceof JSONArray) {
+            for (Object e : (JSONArray)errorArray) {
+                if (!(e instanceof JSONObject))
+                    continue;
+
+                Map error = (Map)e;
+                errors.put(Field.getInteger(error.get("failedElementNumber")),
+                    String.valueOf(error.get("elementErrors")));
+            }
+        }
+
+        /* created issues are listed in request order, skipping failures */
+        Object issueArray = result.get("issues");
+        JSONArray created = issueArray instanceof JSONArray ? (JSONArray)issueArray : new JSONArray();
+        int next = 0;
+
+        for (int n = 0; n < sent.size(); n++) {
+            int i = sent.get(n);
+
+            if (errors.containsKey(n)) {
+                results[i] = new BulkCreateResult(first + i, errors.get(n));
+            } else if (next < created.size() && created.get(next) instanceof JSONObject) {
+                Map issue = (Map)created.get(next++);
+                results[i] = new BulkCreateResult(first + i,
+                    Field.getString(issue.get("id")), Field.getString(issue.get("key")));
+            } else {
+                results[i] = new BulkCreateResult(first + i, "Missing from bulk create result");
+            }
+        }
+    }
+
+    /**
+     * Re-reads the issues created by a chunk with a single search.
+     */
+    private static void fetchCreated(RestClient restclient, List<BulkCreateResult> results,
+            String includedFields) {
+
+        Map<String, BulkCreateResult> byKey = new HashMap<String, BulkCreateResult>();
+
+        for (BulkCreateResult r : results) {
+            if (r.isSuccess())
+                byKey.put(r.getKey(), r);
+        }
+
+        if (byKey.isEmpty())
+            return;
+
+        StringBuilder jql = new StringBuilder("key in (");
+        for (String key : byKey.keySet()) {
+            if (jql.length() > 8)
+                jql.append(',');
+            jql.append(key);
+        }
+        jql.append(')');
+
+        try {
+            Map map = (Map)executeSearch(restclient, jql.toString(),
+                includedFields != null ? includedFields : "*all", null, byKey.size(), null);
+
+            for (Issue issue : Field.getResourceArray(Issue.class, map.get("issues"), restclient)) {
+                BulkCreateResult r = byKey.get(issue.getKey());
+                if (r != null)
+                    r.issue = issue;
+            }
+        } catch (JiraException ex) {
+            /* the issues exist, callers can still use the keys */
+        }
+    }
+
     /**
      * Creates a new sub-task.
      *
@@ -1347,9 +2137,43 @@ public class Issue extends Resource {
             String includedFields, String expandFields, Integer maxResults, Integer startAt)
                     throws JiraException {
 
-		SearchResult sr = new SearchResult(restclient, jql, includedFields, expandFields, maxResults, startAt);
+        return search(restclient, jql, includedFields, expandFields, maxResults, startAt, 0);
+    }
 
-        return sr;
+    /**
+     * Search for issues with the given query and fetch the following pages
+     * in the background while the results are being iterated.
+     *
+     * @param restclient REST client instance
+     *
+     * @param jql JQL statement
+     *
+     * @param includedFields Specifies which issue fields will be included in
+     * the result.
+     *
+     * @param expandFields fields to expand when obtaining the issue
+     *
+     * @param maxResults if non-<code>null</code>, defines the page size
+     *
+     * @param startAt if non-<code>null</code>, defines the first issue to
+     * return
+     *
+     * @param prefetch maximum number of pages requested ahead of the
+     * iterator, or zero to request each page when the iterator reaches it
+     *
+     * @return a search result structure with results
+     *
+     * @throws JiraException when the search fails
+     */
+    public static SearchResult search(RestClient restclient, String jql,
+            String includedFields, String expandFields, Integer maxResults, Integer startAt,
+            int prefetch) throws JiraException {
+
+        if (prefetch < 0)
+            throw new IllegalArgumentException("prefetch may not be negative");
+
+        return new SearchResult(restclient, jql, includedFields, expandFields, maxResults,
+                startAt, prefetch);
     }
 
 	private static JSON executeSearch(RestClient restclient, String jql,
@@ -1550,26 +2374,39 @@ public class Issue extends Resource {
     }
 
     public ChangeLog getChangeLog() {
+        load(LAZY_CHANGE_LOG);
         return changeLog;
     }
 
+    /**
+     * Gets the changelog as received, for callers that need the paging
+     * details or build IssueHistory records from it.
+     */
+    Object getChangeLogJson() {
+        return changeLogJson;
+    }
+
     public String getKey() {
         return key;
     }
 
     public User getAssignee() {
+        load(LAZY_ASSIGNEE);
         return assignee;
     }
 
     public List<Attachment> getAttachments() {
+        load(LAZY_ATTACHMENTS);
         return attachments;
     }
 
     public List<Comment> getComments() {
+        load(LAZY_COMMENTS);
         return comments;
     }
 
     public List<Component> getComponents() {
+        load(LAZY_COMPONENTS);
         return components;
     }
 
@@ -1578,38 +2415,47 @@ public class Issue extends Resource {
     }
 
     public Date getDueDate() {
+        load(LAZY_DUE_DATE);
         return dueDate;
     }
 
     public List<Version> getFixVersions() {
+        load(LAZY_FIX_VERSIONS);
         return fixVersions;
     }
 
     public List<IssueLink> getIssueLinks() {
+        load(LAZY_ISSUE_LINKS);
         return issueLinks;
     }
 
     public IssueType getIssueType() {
+        load(LAZY_ISSUE_TYPE);
         return issueType;
     }
 
     public List<String> getLabels() {
+        load(LAZY_LABELS);
         return labels;
     }
 
     public Issue getParent() {
+        load(LAZY_PARENT);
         return parent;
     }
 
     public Priority getPriority() {
+        load(LAZY_PRIORITY);
         return priority;
     }
 
     public Project getProject() {
+        load(LAZY_PROJECT);
         return project;
     }
 
     public User getReporter() {
+        load(LAZY_REPORTER);
         return reporter;
     }
     
@@ -1628,18 +2474,22 @@ public class Issue extends Resource {
     }
 
     public Resolution getResolution() {
+        load(LAZY_RESOLUTION);
         return resolution;
     }
 
     public Date getResolutionDate() {
+        load(LAZY_RESOLUTION_DATE);
         return resolutionDate;
     }
 
     public Status getStatus() {
+        load(LAZY_STATUS);
         return status;
     }
 
     public List<Issue> getSubtasks() {
+        load(LAZY_SUBTASKS);
         return subtasks;
     }
 
@@ -1648,37 +2498,46 @@ public class Issue extends Resource {
     }
 
     public TimeTracking getTimeTracking() {
+        load(LAZY_TIME_TRACKING);
         return timeTracking;
     }
 
     public List<Version> getVersions() {
+        load(LAZY_VERSIONS);
         return versions;
     }
 
     public Votes getVotes() {
+        load(LAZY_VOTES);
         return votes;
     }
 
     public Watches getWatches() {
+        load(LAZY_WATCHES);
         return watches;
     }
 
     public List<WorkLog> getWorkLogs() {
+        load(LAZY_WORK_LOGS);
         return workLogs;
     }
 
+    /**
+     * Reads all work logs of this issue, following pages when the server
+     * returns them in parts.
+     *
+     * @return all work logs
+     *
+     * @throws JiraException when the retrieval fails
+     */
     public List<WorkLog> getAllWorkLogs() throws JiraException {
-        JSONObject obj;
         try {
-            URI uri = restclient.buildURI(getRestUri(key) + "/worklog");
-            JSON json = restclient.get(uri);
-            obj = (JSONObject) json;
+            return WorkLogBatch.readWorkLogs(restclient, key, null,
+                WorkLogBatch.DEFAULT_PAGE_SIZE, new int[1]);
         } catch (Exception ex) {
             throw new JiraException("Failed to get worklog for issue "
                     + key, ex);
         }
-
-        return Field.getWorkLogs(obj, restclient);
     }
 
     public WorkLog createWorkLog(String description, DateTime started, long timeSpentSeconds) throws JiraException {
@@ -1702,10 +2561,12 @@ public class Issue extends Resource {
     }
 
     public Date getCreatedDate() {
+        load(LAZY_CREATED_DATE);
         return createdDate;
     }
 
     public Date getUpdatedDate() {
+        load(LAZY_UPDATED_DATE);
         return updatedDate;
     }
 
@@ -19,6 +19,7 @@
 
 package net.rcarz.jiraclient;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -27,19 +28,41 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import net.rcarz.jiraclient.util.DaemonThreadFactory;
 import net.rcarz.jiraclient.util.Logger;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.params.HttpClientParams;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeSocketFactory;
 import org.apache.http.conn.ssl.AllowAllHostnameVerifier;
 import org.apache.http.conn.ssl.SSLSocketFactory;
 import org.apache.http.conn.ssl.TrustStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
 
 import net.sf.json.JSON;
 import net.sf.json.JSONArray;
@@ -55,8 +78,203 @@ public class JiraClient {
 
     private final static Logger LOGGER = Logger.getLogger(JiraClient.class);
 
+    public static final int BULK_CREATE_CHUNK_SIZE = 50;
+    public static final int DEFAULT_CHANGELOG_CONCURRENCY = 4;
+
+    /**
+     * Field list that matches no field, for requests that only want an
+     * expanded section of the issue.
+     */
+    private static final String NO_FIELDS = "none";
+
     private RestClient restclient = null;
     private String username = null;
+    private PoolingClientConnectionManager connManager = null;
+    private IdleConnectionEvictor evictor = null;
+
+    /**
+     * Configures and creates a JIRA client. The defaults match the plain
+     * constructors: 20 connections per route, 40 in total, and no timeouts.
+     */
+    public static final class Builder {
+
+        private final String uri;
+        private ICredentials creds = null;
+        private int maxConnectionsPerRoute = 20;
+        private int maxConnectionsTotal = 40;
+        private long connectionTimeToLive = -1;
+        private long idleConnectionTimeout = -1;
+        private long keepAlive = -1;
+        private int connectTimeout = 0;
+        private int socketTimeout = 0;
+        private long connectionRequestTimeout = 0;
+        private long maxResponseSize = -1;
+        private boolean trustAllCertificates = true;
+        private ResponseCache responseCache = null;
+        private RequestThrottle requestThrottle = null;
+        private RetryPolicy retryPolicy = null;
+        private RequestListener requestListener = null;
+        private boolean lazyIssueFields = false;
+
+        /**
+         * Starts configuring a client.
+         *
+         * @param uri Base URI of the JIRA server
+         */
+        public Builder(String uri) {
+            this.uri = uri;
+        }
+
+        /**
+         * Sets the credentials to authenticate with.
+         */
+        public Builder credentials(ICredentials creds) {
+            this.creds = creds;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of pooled connections per route (host).
+         */
+        public Builder maxConnectionsPerRoute(int max) {
+            if (max <= 0)
+                throw new IllegalArgumentException("max must be positive");
+
+            this.maxConnectionsPerRoute = max;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of pooled connections.
+         */
+        public Builder maxConnectionsTotal(int max) {
+            if (max <= 0)
+                throw new IllegalArgumentException("max must be positive");
+
+            this.maxConnectionsTotal = max;
+            return this;
+        }
+
+        /**
+         * Sets the maximum lifetime of a pooled connection, regardless of
+         * keep-alive.
+         */
+        public Builder connectionTimeToLive(long time, TimeUnit unit) {
+            this.connectionTimeToLive = unit.toMillis(time);
+            return this;
+        }
+
+        /**
+         * Closes pooled connections that have been idle for longer than the
+         * given time. A background thread checks for them.
+         */
+        public Builder evictIdleConnections(long time, TimeUnit unit) {
+            this.idleConnectionTimeout = unit.toMillis(time);
+            return this;
+        }
+
+        /**
+         * Sets how long a connection is kept alive when the server doesn't
+         * say, and caps how long the server may ask for.
+         */
+        public Builder keepAlive(long time, TimeUnit unit) {
+            this.keepAlive = unit.toMillis(time);
+            return this;
+        }
+
+        /**
+         * Sets the timeout for establishing a connection.
+         */
+        public Builder connectTimeout(long time, TimeUnit unit) {
+            this.connectTimeout = (int)unit.toMillis(time);
+            return this;
+        }
+
+        /**
+         * Sets the maximum time to wait for response data (socket timeout).
+         */
+        public Builder readTimeout(long time, TimeUnit unit) {
+            this.socketTimeout = (int)unit.toMillis(time);
+            return this;
+        }
+
+        /**
+         * Sets the maximum time to wait for a connection from the pool.
+         */
+        public Builder connectionRequestTimeout(long time, TimeUnit unit) {
+            this.connectionRequestTimeout = unit.toMillis(time);
+            return this;
+        }
+
+        /**
+         * Rejects response bodies larger than the given number of bytes.
+         */
+        public Builder maxResponseSize(long bytes) {
+            this.maxResponseSize = bytes;
+            return this;
+        }
+
+        /**
+         * Sets the cache used to revalidate GET responses.
+         */
+        public Builder responseCache(ResponseCache cache) {
+            this.responseCache = cache;
+            return this;
+        }
+
+        /**
+         * Sets the throttle that paces requests and backs off on 429 and 503.
+         */
+        public Builder requestThrottle(RequestThrottle throttle) {
+            this.requestThrottle = throttle;
+            return this;
+        }
+
+        /**
+         * Sets the policy that retries idempotent requests and trips
+         * circuit breakers.
+         */
+        public Builder retryPolicy(RetryPolicy policy) {
+            this.retryPolicy = policy;
+            return this;
+        }
+
+        /**
+         * Sets the listener that is told about every request.
+         */
+        public Builder requestListener(RequestListener listener) {
+            this.requestListener = listener;
+            return this;
+        }
+
+        /**
+         * Makes issues build their system fields on first access.
+         */
+        public Builder lazyIssueFields(boolean lazy) {
+            this.lazyIssueFields = lazy;
+            return this;
+        }
+
+        /**
+         * Skips TLS certificate checks. Enabled by default for
+         * compatibility with self-signed servers.
+         */
+        public Builder trustAllCertificates(boolean trust) {
+            this.trustAllCertificates = trust;
+            return this;
+        }
+
+        /**
+         * Creates the client.
+         *
+         * @return a JIRA client
+         *
+         * @throws JiraException when the credentials fail to initialise
+         */
+        public JiraClient build() throws JiraException {
+            return new JiraClient(this);
+        }
+    }
 
     /**
      * Creates a JIRA client.
@@ -76,23 +294,92 @@ public class JiraClient {
      * @throws JiraException 
      */
     public JiraClient(String uri, ICredentials creds) throws JiraException {
-    	PoolingClientConnectionManager connManager = new PoolingClientConnectionManager();
-        connManager.setDefaultMaxPerRoute(20);
-        connManager.setMaxTotal(40);
+        this(new Builder(uri).credentials(creds));
+    }
+
+    private JiraClient(Builder builder) throws JiraException {
+        connManager = builder.connectionTimeToLive > 0 ?
+            new PoolingClientConnectionManager(SchemeRegistryFactory.createDefault(),
+                builder.connectionTimeToLive, TimeUnit.MILLISECONDS) :
+            new PoolingClientConnectionManager();
+        connManager.setDefaultMaxPerRoute(builder.maxConnectionsPerRoute);
+        connManager.setMaxTotal(builder.maxConnectionsTotal);
+
+        /* keep the User-Agent, protocol version and charset defaults */
+        HttpParams params = new BasicHttpParams();
+        DefaultHttpClient.setDefaultHttpParams(params);
+        HttpConnectionParams.setConnectionTimeout(params, builder.connectTimeout);
+        HttpConnectionParams.setSoTimeout(params, builder.socketTimeout);
+        HttpClientParams.setConnectionManagerTimeout(params, builder.connectionRequestTimeout);
+
+        DefaultHttpClient httpclient = new DefaultHttpClient(connManager, params);
 
-        HttpClient httpclient = new DefaultHttpClient(connManager);
-        noSslCheck(httpclient); //TODO: workaround for self signed certificate on our server
+        if (builder.keepAlive >= 0) {
+            final long maxKeepAlive = builder.keepAlive;
+            final ConnectionKeepAliveStrategy serverStrategy = new DefaultConnectionKeepAliveStrategy();
 
+            httpclient.setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+                public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                    long duration = serverStrategy.getKeepAliveDuration(response, context);
+                    return duration > 0 ? Math.min(duration, maxKeepAlive) : maxKeepAlive;
+                }
+            });
+        }
+
+        if (builder.trustAllCertificates)
+            noSslCheck(httpclient); //TODO: workaround for self signed certificate on our server
+
+        if (builder.idleConnectionTimeout > 0) {
+            evictor = new IdleConnectionEvictor(connManager, builder.idleConnectionTimeout);
+            evictor.start();
+        }
 
-        restclient = new RestClient(httpclient, creds, URI.create(uri));
+        restclient = new RestClient(httpclient, builder.creds, URI.create(builder.uri));
+        restclient.setMaxResponseSize(builder.maxResponseSize);
+        restclient.setResponseCache(builder.responseCache);
+        restclient.setRequestThrottle(builder.requestThrottle);
+        restclient.setRetryPolicy(builder.retryPolicy);
+        restclient.setRequestListener(builder.requestListener);
+        restclient.setLazyIssueFields(builder.lazyIssueFields);
 
-        if (creds != null) {
-            username = creds.getLogonName();
+        if (builder.creds != null) {
+            username = builder.creds.getLogonName();
         	//intialize connection if required
-        	creds.initialize(restclient);
+        	builder.creds.initialize(restclient);
         }
     }
 
+    /**
+     * Gets the connection pool statistics.
+     *
+     * @return leased, pending, available and maximum connection counts
+     */
+    public PoolStats getPoolStats() {
+        return connManager.getTotalStats();
+    }
+
+    /**
+     * Gets the connection pool statistics for the JIRA server's route.
+     *
+     * @return leased, pending, available and maximum connection counts
+     */
+    public PoolStats getRoutePoolStats() {
+        URI uri = restclient.getBaseURI();
+        HttpHost host = new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme());
+        return connManager.getStats(new HttpRoute(host));
+    }
+
+    /**
+     * Stops the idle connection evictor and closes all pooled connections.
+     * The client can't be used afterwards.
+     */
+    public void close() {
+        if (evictor != null)
+            evictor.shutdown();
+
+        connManager.shutdown();
+    }
+
     private void noSslCheck(HttpClient httpclient) {
         TrustStrategy ts = new TrustStrategy() {
 
@@ -133,6 +420,44 @@ public class JiraClient {
         return Issue.create(restclient, project, issueType);
     }
 
+    /**
+     * Creates many issues with the bulk create endpoint, without re-reading
+     * them afterwards.
+     *
+     * @param issues Issues to create, built with {@link #createIssue}
+     *
+     * @return one result per issue, in the same order
+     *
+     * @throws JiraException when the bulk create is interrupted
+     */
+    public List<Issue.BulkCreateResult> createIssues(List<Issue.FluentCreate> issues)
+            throws JiraException {
+
+        return Issue.createBulk(restclient, issues, null, false, BULK_CREATE_CHUNK_SIZE, 1);
+    }
+
+    /**
+     * Creates many issues with the bulk create endpoint.
+     *
+     * @param issues Issues to create, built with {@link #createIssue}
+     * @param includedFields Fields to retrieve when re-reading the created
+     * issues, or null for all fields
+     * @param fetch Re-read the created issues
+     * @param chunkSize Number of issues sent per request (JIRA allows 50 by
+     * default)
+     * @param concurrency Number of requests sent at the same time
+     *
+     * @return one result per issue, in the same order
+     *
+     * @throws JiraException when the bulk create is interrupted
+     */
+    public List<Issue.BulkCreateResult> createIssues(List<Issue.FluentCreate> issues,
+            String includedFields, boolean fetch, int chunkSize, int concurrency)
+            throws JiraException {
+
+        return Issue.createBulk(restclient, issues, includedFields, fetch, chunkSize, concurrency);
+    }
+
     /**
      * Retreives the issue with the given key.
      *
@@ -396,6 +721,38 @@ public class JiraClient {
           startAt);
     }
 
+    /**
+     * Search for issues with the given query and fetch the following pages
+     * in the background while the results are being iterated. Issues are
+     * still returned in order, and at most <code>prefetch</code> pages are
+     * requested ahead of the iterator.
+     *
+     * @param jql JQL statement
+     *
+     * @param includedFields Specifies which issue fields will be included in
+     * the result.
+     *
+     * @param expandFields Specifies with issue fields should be expanded
+     *
+     * @param maxResults if non-<code>null</code>, defines the page size
+     *
+     * @param startAt if non-<code>null</code>, defines the first issue to
+     * return
+     *
+     * @param prefetch maximum number of pages in flight
+     *
+     * @return a search result structure with results
+     *
+     * @throws JiraException when the search fails
+     */
+    public Issue.SearchResult searchIssues(String jql, String includedFields, String expandFields,
+                                           Integer maxResults, Integer startAt, int prefetch)
+            throws JiraException {
+
+        return Issue.search(restclient, jql, includedFields, expandFields, maxResults,
+                startAt, prefetch);
+    }
+
     /**
      *
      * @return a list of all priorities available in the Jira installation
@@ -462,6 +819,167 @@ public class JiraClient {
         return componentOptions;
     }
 
+    /**
+     * Uploads attachments to several issues at once. See
+     * {@link Issue#addAttachments(RestClient, Map, int, Attachment.ProgressListener)}.
+     *
+     * @param attachments Attachments to add, by issue key
+     * @param concurrency Maximum number of uploads in flight
+     * @param listener Upload progress listener or null
+     *
+     * @return the failures by issue key, empty when every upload succeeded
+     *
+     * @throws JiraException when the uploads are interrupted
+     */
+    public Map<String, JiraException> addAttachments(Map<String, List<Issue.NewAttachment>> attachments,
+        int concurrency, Attachment.ProgressListener listener) throws JiraException {
+
+        return Issue.addAttachments(restclient, attachments, concurrency, listener);
+    }
+
+    /**
+     * Copies the attachments of all issues matching a query into a
+     * directory. See {@link AttachmentMirror}.
+     *
+     * @param jql JQL query selecting the issues
+     * @param targetDir Directory to store attachments in
+     * @param concurrency Number of parallel downloads
+     *
+     * @return counts, failures and throughput of the run
+     *
+     * @throws JiraException when the search or the manifest fails
+     */
+    public AttachmentMirror.Result mirrorAttachments(String jql, File targetDir, int concurrency)
+        throws JiraException {
+
+        return new AttachmentMirror(restclient, targetDir).concurrency(concurrency).mirror(jql);
+    }
+
+    /**
+     * Delivers the history records of a project created since the last
+     * sync. See {@link ChangeLogSync}.
+     *
+     * @param project Project key
+     * @param watermarks Where the sync position is kept between runs
+     * @param listener Receives the new records
+     *
+     * @return counts and the new watermark
+     *
+     * @throws JiraException when reading from JIRA, the listener or the
+     * watermark store fails
+     */
+    public ChangeLogSync.Result syncChangeLog(String project, WatermarkStore watermarks,
+            ChangeLogSync.Listener listener) throws JiraException {
+
+        return new ChangeLogSync(restclient, watermarks).sync(project, listener);
+    }
+
+    /**
+     * Reads the complete work logs of all issues matching a query. See
+     * {@link WorkLogBatch}.
+     *
+     * @param jql JQL query selecting the issues
+     * @param concurrency Number of issues read at once
+     * @param listener Receives the work logs per issue
+     *
+     * @return counts and per-issue failures
+     *
+     * @throws JiraException when the search or the listener fails
+     */
+    public WorkLogBatch.Result getWorkLogs(String jql, int concurrency, WorkLogBatch.Listener listener)
+            throws JiraException {
+
+        return new WorkLogBatch(restclient).concurrency(concurrency).fetch(jql, listener);
+    }
+
+    /**
+     * Reads the complete work logs of the given issues. See
+     * {@link WorkLogBatch}.
+     *
+     * @param keys Issue keys
+     * @param concurrency Number of issues read at once
+     * @param listener Receives the work logs per issue
+     *
+     * @return counts and per-issue failures
+     *
+     * @throws JiraException when the listener fails
+     */
+    public WorkLogBatch.Result getWorkLogs(Collection<String> keys, int concurrency,
+            WorkLogBatch.Listener listener) throws JiraException {
+
+        return new WorkLogBatch(restclient).concurrency(concurrency).fetch(keys, listener);
+    }
+
+    /**
+     * Caches create metadata, edit metadata and transitions so repeated
+     * creates, updates and transitions of the same kind of issue don't
+     * re-fetch them.
+     *
+     * @param cache Metadata cache or null to disable caching
+     */
+    public void setMetadataCache(MetadataCache cache) {
+        restclient.setMetadataCache(cache);
+    }
+
+    public MetadataCache getMetadataCache() {
+        return restclient.getMetadataCache();
+    }
+
+    /**
+     * Enables revalidation of GET responses with ETag and Last-Modified.
+     *
+     * @param cache Response cache or null to disable caching
+     */
+    public void setResponseCache(ResponseCache cache) {
+        restclient.setResponseCache(cache);
+    }
+
+    public ResponseCache getResponseCache() {
+        return restclient.getResponseCache();
+    }
+
+    /**
+     * Paces requests to the server and re-sends requests answered with 429
+     * or 503. See {@link RequestThrottle}.
+     *
+     * @param throttle Request throttle or null to send requests immediately
+     */
+    public void setRequestThrottle(RequestThrottle throttle) {
+        restclient.setRequestThrottle(throttle);
+    }
+
+    public RequestThrottle getRequestThrottle() {
+        return restclient.getRequestThrottle();
+    }
+
+    /**
+     * Re-sends idempotent requests after network errors and server failures.
+     * See {@link RetryPolicy}.
+     *
+     * @param policy Retry policy or null to send each request once
+     */
+    public void setRetryPolicy(RetryPolicy policy) {
+        restclient.setRetryPolicy(policy);
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return restclient.getRetryPolicy();
+    }
+
+    /**
+     * Reports every request with its endpoint, status, sizes and timings.
+     * See {@link RequestMetrics}.
+     *
+     * @param listener Request listener or null
+     */
+    public void setRequestListener(RequestListener listener) {
+        restclient.setRequestListener(listener);
+    }
+
+    public RequestListener getRequestListener() {
+        return restclient.getRequestListener();
+    }
+
     public RestClient getRestClient() {
         return restclient;
     }
@@ -557,69 +1075,220 @@ public class JiraClient {
         return Component.get(restclient, id);
     }
     
+    /**
+     * Keeps the changes to the given fields. See {@link ChangeLogFilter}
+     * for other criteria and lazy filtering.
+     *
+     * @param histoy History records
+     * @param fields Comma separated field names
+     *
+     * @return the records with changes to the given fields, holding only
+     * those changes
+     */
     public ArrayList<IssueHistory> filterChangeLog(List<IssueHistory> histoy,String fields) {
         ArrayList<IssueHistory> result = new ArrayList<IssueHistory>(histoy.size());
-        fields = "," + fields + ",";
+        ChangeLogFilter filter = new ChangeLogFilter().fields(fields.trim().split("\\s*,\\s*"));
 
         for (IssueHistory record : histoy) {
-            ArrayList<IssueHistoryItem> list = new ArrayList<IssueHistoryItem>(record.getChanges().size());
-            for (IssueHistoryItem item : record.getChanges()) {
-                if (fields.contains(item.getField())) {
-                    list.add(item);
-                }
-            }
-
-            if (list.size() > 0) {
-                result.add(new IssueHistory(record,list));
+            IssueHistory filtered = filter.apply(record);
+            if (filtered != null) {
+                result.add(filtered);
             }
         }
         return result;
     }
 
+    /**
+     * Reads the complete change history of an issue.
+     *
+     * @param issue The issue
+     *
+     * @return all history records, oldest first
+     *
+     * @throws JiraException when the changelog can't be read
+     */
     public ArrayList<IssueHistory> getIssueChangeLog(Issue issue) throws JiraException {
+        return getIssueChangeLog(issue, DEFAULT_CHANGELOG_CONCURRENCY);
+    }
+
+    /**
+     * Reads the complete change history of an issue. The first request
+     * tells how long the changelog is; the remaining pages are then fetched
+     * in parallel, without the issue fields, and merged in order.
+     *
+     * @param issue The issue
+     * @param concurrency Maximum number of pages fetched at once
+     *
+     * @return all history records, oldest first
+     *
+     * @throws JiraException when the changelog can't be read
+     */
+    public ArrayList<IssueHistory> getIssueChangeLog(Issue issue, int concurrency)
+            throws JiraException {
+
+        if (concurrency <= 0)
+            throw new IllegalArgumentException("concurrency must be positive");
+
         try {
-            ArrayList<IssueHistory> changes = null;
-            JSON response = getNextPortion(issue, 0);
-
-            while (true) {
-                JSONObject object = JSONObject.fromObject(response);
-                Object opers = object.get("changelog");
-                object = JSONObject.fromObject(opers);
-                Integer totalObj = (Integer)object.get("total");
-                JSONArray histories = JSONArray.fromObject(object.get("histories"));
-
-                if (changes == null) {
-                    changes = new ArrayList<IssueHistory>(totalObj);
-                }
+            JSONObject object = JSONObject.fromObject(getNextPortion(restclient, issue.id, 0, false));
+            return readChangeLog(restclient, issue.id,
+                JSONObject.fromObject(object.get(Field.CHANGE_LOG)), concurrency);
+        } catch (Exception ex) {
+            throw new JiraException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Reads the rest of a changelog given its first page.
+     *
+     * @param restclient REST client instance
+     * @param issueId ID of the issue
+     * @param changelog The first page, as embedded in the issue
+     * @param concurrency Maximum number of pages fetched at once
+     *
+     * @return all history records, oldest first
+     */
+    static ArrayList<IssueHistory> readChangeLog(final RestClient restclient, final String issueId,
+            JSONObject changelog, int concurrency) throws Exception {
+
+        int pageSize = JSONArray.fromObject(changelog.get(Field.CHANGE_LOG_ENTRIES)).size();
+        int total = Math.max(Field.getInteger(changelog.get("total")), pageSize);
+        ArrayList<IssueHistory> changes = new ArrayList<IssueHistory>(total);
+
+        addPortion(restclient, changes, changelog, 0, pageSize);
+        if (pageSize == 0 || changes.size() >= total)
+            return changes;
 
-                for (int i = 0; i < histories.size(); i++) {
-                    JSONObject p = histories.getJSONObject(i);
-                    changes.add(new IssueHistory(restclient, p));
+        List<Integer> offsets = new ArrayList<Integer>();
+        for (int startAt = pageSize; startAt < total; startAt += pageSize)
+            offsets.add(startAt);
+
+        if (concurrency == 1 || offsets.size() == 1)
+            return readSerially(restclient, issueId, changes, total, pageSize);
+
+        ExecutorService pool = Executors.newFixedThreadPool(
+            Math.min(concurrency, offsets.size()), new DaemonThreadFactory("jira-changelog"));
+
+        try {
+            List<Future<JSON>> pages = new ArrayList<Future<JSON>>(offsets.size());
+            for (final int startAt : offsets) {
+                pages.add(pool.submit(new Callable<JSON>() {
+                    @Override
+                    public JSON call() throws Exception {
+                        return getNextPortion(restclient, issueId, startAt, true);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < offsets.size(); i++) {
+                JSON page;
+
+                try {
+                    page = pages.get(i).get();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : ex;
                 }
 
-                if (changes.size() >= totalObj) {
+                int expected = Math.min(pageSize, total - offsets.get(i));
+                if (addPortion(restclient, changes, portionOf(page), offsets.get(i), pageSize) < expected)
                     break;
-                } else {
-                    response = getNextPortion(issue,changes.size());
-                }
-            } 
-           
-            return changes;
-        } catch (Exception ex) {
-            throw new JiraException(ex.getMessage(), ex);
+            }
+        } finally {
+            pool.shutdownNow();
         }
+
+        /* a short page means the server pages differently than the first
+         * page suggested, or the changelog moved; carry on from the gap */
+        if (changes.size() < total)
+            return readSerially(restclient, issueId, changes, total, pageSize);
+
+        return withoutDuplicates(changes);
     }
 
-    private JSON getNextPortion(Issue issue, Integer startAt)
-            throws URISyntaxException, RestException, IOException {
+    /**
+     * Pages through the changelog one request at a time from the first
+     * record missing, moving on by as many records as each page held.
+     */
+    private static ArrayList<IssueHistory> readSerially(RestClient restclient, String issueId,
+            ArrayList<IssueHistory> changes, int total, int pageSize) throws Exception {
+
+        for (int startAt = changes.size(); startAt < total; ) {
+            JSONObject page = portionOf(getNextPortion(restclient, issueId, startAt, true));
+            int added = addPortion(restclient, changes, page, startAt, pageSize);
+            if (added == 0)
+                break;
+
+            startAt += added;
+        }
+
+        return withoutDuplicates(changes);
+    }
+
+    /**
+     * Drops records seen twice because the changelog grew between pages.
+     */
+    private static ArrayList<IssueHistory> withoutDuplicates(ArrayList<IssueHistory> changes) {
+        Set<String> ids = new HashSet<String>();
+        ArrayList<IssueHistory> result = new ArrayList<IssueHistory>(changes.size());
+
+        for (IssueHistory change : changes) {
+            if (change.getId() == null || ids.add(change.getId()))
+                result.add(change);
+        }
+
+        return result.size() == changes.size() ? changes : result;
+    }
+
+    private static JSONObject portionOf(JSON response) {
+        return JSONObject.fromObject(JSONObject.fromObject(response).get(Field.CHANGE_LOG));
+    }
+
+    /**
+     * Appends the records of one changelog page that fall within the
+     * requested range. Servers that ignore startAt send the changelog from
+     * the beginning, so the page's own startAt decides which records those
+     * are.
+     *
+     * @return the number of records appended
+     */
+    private static int addPortion(RestClient restclient, List<IssueHistory> changes,
+            JSONObject changelog, int from, int count) {
+
+        JSONArray histories = JSONArray.fromObject(changelog.get(Field.CHANGE_LOG_ENTRIES));
+        int startAt = Field.getInteger(changelog.get("startAt"));
+        int added = 0;
+
+        for (int i = Math.max(0, from - startAt); i < histories.size() && startAt + i < from + count; i++) {
+            changes.add(new IssueHistory(restclient, histories.getJSONObject(i)));
+            added++;
+        }
+
+        return added;
+    }
+
+    /**
+     * Fetches an issue with a page of its changelog.
+     *
+     * @param restclient REST client instance
+     * @param issueId ID of the issue
+     * @param startAt Index of the first history record
+     * @param changeLogOnly Whether to leave out the issue fields
+     */
+    static JSON getNextPortion(RestClient restclient, String issueId, Integer startAt,
+            boolean changeLogOnly) throws URISyntaxException, RestException, IOException {
 
         Map<String, String> params = new HashMap<String, String>();
         if (startAt != null) {
             params.put("startAt", String.valueOf(startAt));
         }
 
+        if (changeLogOnly) {
+            params.put("fields", NO_FIELDS);
+        }
+
         params.put("expand","changelog.fields");
-        URI uri = restclient.buildURI(Issue.getBaseUri() + "issue/" + issue.id, params);
+        URI uri = restclient.buildURI(Issue.getBaseUri() + "issue/" + issueId, params);
         return restclient.get(uri);
     }
 }
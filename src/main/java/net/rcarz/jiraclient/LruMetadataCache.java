@@ -0,0 +1,162 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size-bounded metadata cache with a time to live. When the cache is full
+ * the least recently used entry is evicted.
+ */
+public class LruMetadataCache implements MetadataCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final class CacheEntry {
+        final Object value;
+        final long expires;
+
+        CacheEntry(Object value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+
+    private final long ttl;
+    private final Map<Key, CacheEntry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a cache with the default size and time to live.
+     */
+    public LruMetadataCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxEntries Maximum number of entries to keep
+     * @param ttl How long an entry stays valid
+     * @param unit Unit of ttl
+     */
+    public LruMetadataCache(final int maxEntries, long ttl, TimeUnit unit) {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("maxEntries must be positive");
+        if (ttl <= 0)
+            throw new IllegalArgumentException("ttl must be positive");
+
+        this.ttl = unit.toMillis(ttl);
+        this.entries = new LinkedHashMap<Key, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CacheEntry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    public synchronized Object get(Key key) {
+        CacheEntry entry = entries.get(key);
+
+        if (entry != null && entry.expires <= now()) {
+            entries.remove(key);
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    public synchronized void put(Key key, Object value) {
+        if (value == null)
+            entries.remove(key);
+        else
+            entries.put(key, new CacheEntry(value, now() + ttl));
+    }
+
+    public synchronized void invalidate(Key key) {
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateProject(String project) {
+        Iterator<Key> it = entries.keySet().iterator();
+
+        while (it.hasNext()) {
+            String p = it.next().getProject();
+            if (p == null ? project == null : p.equals(project))
+                it.remove();
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the current time. Overridable for testing.
+     *
+     * @return milliseconds since the epoch
+     */
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Resets the hit, miss and eviction counters.
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+}
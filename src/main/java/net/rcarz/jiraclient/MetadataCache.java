@@ -0,0 +1,146 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+/**
+ * A cache for issue metadata (create metadata, edit metadata and
+ * transitions) that rarely changes between calls.
+ *
+ * Entries are keyed by the kind of metadata and the project, issue type
+ * and status it was retrieved for. Note that JIRA may vary edit metadata and
+ * transitions per issue (for example through workflow conditions), so only
+ * enable caching when all issues with the same key behave alike.
+ */
+public interface MetadataCache {
+
+    /**
+     * Identifies a metadata entry.
+     */
+    final class Key {
+        public static final String CREATE_META = "createmeta";
+        public static final String EDIT_META = "editmeta";
+        public static final String TRANSITIONS = "transitions";
+
+        private final String kind;
+        private final String project;
+        private final String issueType;
+        private final String status;
+
+        /**
+         * Creates a metadata cache key.
+         *
+         * @param kind Kind of metadata (createmeta, editmeta or transitions)
+         * @param project Project key
+         * @param issueType Issue type name
+         * @param status Status ID or null when the metadata doesn't depend on it
+         */
+        public Key(String kind, String project, String issueType, String status) {
+            if (kind == null)
+                throw new NullPointerException("kind may not be null");
+
+            this.kind = kind;
+            this.project = project;
+            this.issueType = issueType;
+            this.status = status;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public String getProject() {
+            return project;
+        }
+
+        public String getIssueType() {
+            return issueType;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+
+            Key other = (Key)obj;
+            return kind.equals(other.kind) && equal(project, other.project) &&
+                equal(issueType, other.issueType) && equal(status, other.status);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = kind.hashCode();
+            result = 31 * result + (project != null ? project.hashCode() : 0);
+            result = 31 * result + (issueType != null ? issueType.hashCode() : 0);
+            result = 31 * result + (status != null ? status.hashCode() : 0);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return kind + "[" + project + ", " + issueType + ", " + status + "]";
+        }
+
+        private static boolean equal(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    /**
+     * Gets a cached value.
+     *
+     * @param key Metadata key
+     *
+     * @return the cached value or null when it's missing or expired
+     */
+    Object get(Key key);
+
+    /**
+     * Stores a value.
+     *
+     * @param key Metadata key
+     * @param value Metadata to cache
+     */
+    void put(Key key, Object value);
+
+    /**
+     * Removes a single entry.
+     *
+     * @param key Metadata key
+     */
+    void invalidate(Key key);
+
+    /**
+     * Removes all entries for the given project.
+     *
+     * @param project Project key
+     */
+    void invalidateProject(String project);
+
+    /**
+     * Removes all entries.
+     */
+    void invalidateAll();
+}
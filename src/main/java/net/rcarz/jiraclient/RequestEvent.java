@@ -0,0 +1,172 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Describes one request sent by the RestClient.
+ */
+public final class RequestEvent {
+
+    private static final Pattern ISSUE_KEY = Pattern.compile("[A-Z][A-Z0-9_]*-\\d+");
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+
+    private final String endpoint;
+    private final String method;
+    private final int status;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final long timeToFirstByte;
+    private final long totalTime;
+    private final IOException failure;
+
+    RequestEvent(String endpoint, String method, int status, long requestBytes,
+                 long responseBytes, long timeToFirstByte, long totalTime, IOException failure) {
+
+        this.endpoint = endpoint;
+        this.method = method;
+        this.status = status;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        this.timeToFirstByte = timeToFirstByte;
+        this.totalTime = totalTime;
+        this.failure = failure;
+    }
+
+    /**
+     * Turns a request path into an endpoint template by replacing issue
+     * keys with {key} and numeric ids with {id}, so
+     * /rest/api/2/issue/TEST-12/worklog becomes /rest/api/2/issue/{key}/worklog.
+     * The API version after /rest/{name}/ is kept.
+     *
+     * @param path Request path without the query string
+     *
+     * @return the endpoint template
+     */
+    public static String template(String path) {
+        if (path == null || path.isEmpty())
+            return "/";
+
+        String[] segments = path.split("/", -1);
+        StringBuilder result = new StringBuilder(path.length());
+
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0)
+                result.append('/');
+
+            String segment = segments[i];
+            boolean version = i >= 2 && segments[i - 2].equals("rest");
+
+            if (version)
+                result.append(segment);
+            else if (NUMBER.matcher(segment).matches())
+                result.append("{id}");
+            else if (ISSUE_KEY.matcher(segment).matches())
+                result.append("{key}");
+            else
+                result.append(segment);
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Gets the endpoint template, relative to the base URI of the client.
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Gets the HTTP method.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Gets the response status.
+     *
+     * @return the status code or -1 when no response was received
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the size of the request body.
+     *
+     * @return the size in bytes, 0 without a body or -1 when unknown
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * Gets the number of response body bytes read.
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * Gets the time from sending the request until the response headers
+     * arrived.
+     *
+     * @return the time in nanoseconds or -1 when no response was received
+     */
+    public long getTimeToFirstByte() {
+        return timeToFirstByte;
+    }
+
+    /**
+     * Gets the time from sending the request until the response body was
+     * read or the request failed.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * Gets the error that ended the request.
+     *
+     * @return the exception or null when a response was read
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Checks whether the request failed, either with an error status or
+     * without a response.
+     */
+    public boolean isError() {
+        return failure != null || status >= 400;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + endpoint + " " + status + " in " + totalTime / 1000000 + "ms";
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps request counts, byte counts and latency histograms per endpoint.
+ *
+ * Endpoints are keyed by method and template, e.g.
+ * "GET /rest/api/2/issue/{key}/worklog". Recording and snapshotting don't
+ * lock, so one instance can be shared by all clients.
+ */
+public class RequestMetrics implements RequestListener {
+
+    private final ConcurrentMap<String, Endpoint> endpoints =
+        new ConcurrentHashMap<String, Endpoint>();
+
+    @Override
+    public void onRequest(RequestEvent event) {
+        String name = event.getMethod() + " " + event.getEndpoint();
+        Endpoint endpoint = endpoints.get(name);
+
+        if (endpoint == null) {
+            Endpoint created = new Endpoint();
+            endpoint = endpoints.putIfAbsent(name, created);
+            if (endpoint == null)
+                endpoint = created;
+        }
+
+        endpoint.record(event);
+    }
+
+    /**
+     * Copies the metrics of every endpoint seen so far.
+     *
+     * @return snapshots keyed by method and endpoint template, in name order
+     */
+    public Map<String, Snapshot> snapshot() {
+        Map<String, Snapshot> result = new TreeMap<String, Snapshot>();
+
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet())
+            result.put(entry.getKey(), entry.getValue().snapshot());
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Copies the metrics of one endpoint.
+     *
+     * @param method HTTP method
+     * @param endpoint Endpoint template
+     *
+     * @return the snapshot or null if the endpoint hasn't been called
+     */
+    public Snapshot snapshot(String method, String endpoint) {
+        Endpoint e = endpoints.get(method + " " + endpoint);
+        return e != null ? e.snapshot() : null;
+    }
+
+    private static final class Endpoint {
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong requestBytes = new AtomicLong();
+        final AtomicLong responseBytes = new AtomicLong();
+        final LatencyHistogram timeToFirstByte = new LatencyHistogram();
+        final LatencyHistogram totalTime = new LatencyHistogram();
+
+        void record(RequestEvent event) {
+            requests.incrementAndGet();
+            if (event.isError())
+                errors.incrementAndGet();
+            if (event.getFailure() != null)
+                failures.incrementAndGet();
+            if (event.getRequestBytes() > 0)
+                requestBytes.addAndGet(event.getRequestBytes());
+
+            responseBytes.addAndGet(event.getResponseBytes());
+            if (event.getTimeToFirstByte() >= 0)
+                timeToFirstByte.record(event.getTimeToFirstByte());
+            totalTime.record(event.getTotalTime());
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(requests.get(), errors.get(), failures.get(),
+                requestBytes.get(), responseBytes.get(),
+                timeToFirstByte.snapshot(), totalTime.snapshot());
+        }
+    }
+
+    /**
+     * The metrics of one endpoint at a point in time.
+     */
+    public static final class Snapshot {
+        private final long requests;
+        private final long errors;
+        private final long failures;
+        private final long requestBytes;
+        private final long responseBytes;
+        private final LatencyHistogram.Snapshot timeToFirstByte;
+        private final LatencyHistogram.Snapshot totalTime;
+
+        private Snapshot(long requests, long errors, long failures, long requestBytes,
+                         long responseBytes, LatencyHistogram.Snapshot timeToFirstByte,
+                         LatencyHistogram.Snapshot totalTime) {
+
+            this.requests = requests;
+            this.errors = errors;
+            this.failures = failures;
+            this.requestBytes = requestBytes;
+            this.responseBytes = responseBytes;
+            this.timeToFirstByte = timeToFirstByte;
+            this.totalTime = totalTime;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        /**
+         * Gets the number of requests answered with 4xx or 5xx or that got
+         * no response.
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * Gets the number of requests that got no response.
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getRequestBytes() {
+            return requestBytes;
+        }
+
+        public long getResponseBytes() {
+            return responseBytes;
+        }
+
+        public LatencyHistogram.Snapshot getTimeToFirstByte() {
+            return timeToFirstByte;
+        }
+
+        public LatencyHistogram.Snapshot getTotalTime() {
+            return totalTime;
+        }
+
+        @Override
+        public String toString() {
+            return "requests=" + requests + " errors=" + errors +
+                " in=" + responseBytes + "B out=" + requestBytes + "B" +
+                " ttfb[" + timeToFirstByte + "] total[" + totalTime + "]";
+        }
+    }
+}
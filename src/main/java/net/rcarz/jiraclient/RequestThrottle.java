@@ -0,0 +1,326 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client-side rate limiter that backs off when JIRA signals overload.
+ *
+ * Every host and credential pair gets a token bucket. Requests wait in
+ * line for a token instead of being sent at once, so a bulk job never
+ * runs faster than the permitted rate. The rate adapts AIMD-style: each
+ * response that isn't 429 or 503 raises it a little, and a 429 or 503
+ * halves it and pauses the bucket for the Retry-After period. The
+ * RestClient then sends the throttled request again, so callers see the
+ * delay rather than an error. Requests with a body that can't be sent
+ * twice, and requests throttled more than the retry limit, fail as
+ * before. With a {@link RetryPolicy} installed, the policy decides about
+ * sending throttled requests again, within its budget and circuit
+ * breakers.
+ *
+ * Only responses to requests sent after the last decrease lower the rate
+ * again. A burst of 429s from requests that were already in flight counts
+ * once.
+ */
+public class RequestThrottle {
+
+    public static final double DEFAULT_INITIAL_RATE = 10.0;
+    public static final double DEFAULT_MIN_RATE = 0.2;
+    public static final double DEFAULT_MAX_RATE = 100.0;
+    public static final double DEFAULT_BURST = 5.0;
+    public static final double DEFAULT_ADDITIVE_INCREASE = 1.0;
+    public static final double DEFAULT_DECREASE_FACTOR = 0.5;
+    public static final int DEFAULT_MAX_RETRIES = 10;
+    public static final long DEFAULT_MAX_RETRY_AFTER = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Token bucket of one host and credential pair.
+     */
+    private final class Bucket {
+        private double rate = initialRate;
+        private long nextFree = Long.MIN_VALUE;
+        private long blockedUntil = Long.MIN_VALUE;
+        private long lastDecrease = Long.MIN_VALUE;
+        private final AtomicInteger queued = new AtomicInteger();
+
+        private long interval() {
+            return (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        }
+
+        /**
+         * Takes the next free slot and returns how long to wait for it.
+         */
+        synchronized long reserve(long now) {
+            long interval = interval();
+            long start = Math.max(nextFree, now - (long) ((burst - 1) * interval));
+            start = Math.max(start, blockedUntil);
+            nextFree = start + interval;
+            return Math.max(0, start - now);
+        }
+
+        synchronized long blockedFor(long now) {
+            return blockedUntil > now ? blockedUntil - now : 0;
+        }
+
+        synchronized void success() {
+            rate = Math.min(maxRate, rate + additiveIncrease / rate);
+        }
+
+        synchronized void throttled(long sentAt, long retryAfter, long now) {
+            if (sentAt > lastDecrease) {
+                rate = Math.max(minRate, rate * decreaseFactor);
+                lastDecrease = now;
+            }
+
+            long pause = retryAfter >= 0 ?
+                Math.min(TimeUnit.MILLISECONDS.toNanos(retryAfter),
+                         TimeUnit.MILLISECONDS.toNanos(maxRetryAfter)) :
+                interval();
+
+            blockedUntil = Math.max(blockedUntil, now + pause);
+        }
+
+        synchronized double rate() {
+            return rate;
+        }
+    }
+
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<String, Bucket>();
+    private final AtomicLong throttledCount = new AtomicLong();
+    private final double initialRate;
+    private final double minRate;
+    private final double maxRate;
+    private volatile double burst = DEFAULT_BURST;
+    private volatile double additiveIncrease = DEFAULT_ADDITIVE_INCREASE;
+    private volatile double decreaseFactor = DEFAULT_DECREASE_FACTOR;
+    private volatile int maxRetries = DEFAULT_MAX_RETRIES;
+    private volatile long maxRetryAfter = DEFAULT_MAX_RETRY_AFTER;
+
+    /**
+     * Creates a throttle starting at 10 requests per second, adapting
+     * between 0.2 and 100.
+     */
+    public RequestThrottle() {
+        this(DEFAULT_INITIAL_RATE, DEFAULT_MIN_RATE, DEFAULT_MAX_RATE);
+    }
+
+    /**
+     * Creates a throttle.
+     *
+     * @param initialRate Requests per second before any feedback
+     * @param minRate Lowest rate backing off can reach
+     * @param maxRate Highest rate successful responses can reach
+     */
+    public RequestThrottle(double initialRate, double minRate, double maxRate) {
+        if (minRate <= 0 || minRate > initialRate || initialRate > maxRate)
+            throw new IllegalArgumentException("rates must satisfy 0 < min <= initial <= max");
+
+        this.initialRate = initialRate;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+    }
+
+    /**
+     * Builds the bucket key of a host and credential pair.
+     *
+     * @param uri Any URI on the host
+     * @param username Logon name or null for anonymous access
+     *
+     * @return the key
+     */
+    public static String key(URI uri, String username) {
+        return uri.getScheme() + "://" + uri.getAuthority() + (username != null ? " " + username : "");
+    }
+
+    /**
+     * Sets how many requests may go out back to back after an idle period.
+     */
+    public void setBurst(double burst) {
+        if (burst < 1)
+            throw new IllegalArgumentException("burst must be at least 1");
+
+        this.burst = burst;
+    }
+
+    /**
+     * Sets how many requests per second the rate grows per second of
+     * unthrottled traffic.
+     */
+    public void setAdditiveIncrease(double additiveIncrease) {
+        this.additiveIncrease = additiveIncrease;
+    }
+
+    /**
+     * Sets the factor the rate is multiplied by when throttled.
+     */
+    public void setDecreaseFactor(double decreaseFactor) {
+        if (decreaseFactor <= 0 || decreaseFactor >= 1)
+            throw new IllegalArgumentException("decreaseFactor must be between 0 and 1");
+
+        this.decreaseFactor = decreaseFactor;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Sets how many times a throttled request is sent again before its
+     * 429 or 503 is reported. Not used when the RestClient has a retry
+     * policy.
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Caps the pause requested by a Retry-After header.
+     */
+    public void setMaxRetryAfter(long maxRetryAfter, TimeUnit unit) {
+        this.maxRetryAfter = unit.toMillis(maxRetryAfter);
+    }
+
+    /**
+     * Waits until the bucket lets another request through.
+     *
+     * @param key Bucket key
+     *
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public void acquire(String key) throws InterruptedException {
+        Bucket bucket = bucket(key);
+        long wait = bucket.reserve(nanoTime());
+
+        if (wait <= 0)
+            return;
+
+        bucket.queued.incrementAndGet();
+        try {
+            while (wait > 0) {
+                sleep(wait);
+                wait = bucket.blockedFor(nanoTime());
+            }
+        } finally {
+            bucket.queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * Reports a response that wasn't throttled.
+     *
+     * @param key Bucket key
+     */
+    public void onSuccess(String key) {
+        bucket(key).success();
+    }
+
+    /**
+     * Reports a 429 or 503 response.
+     *
+     * @param key Bucket key
+     * @param sentAt When the request was sent, from {@link #nanoTime()}
+     * @param retryAfter Pause requested by the server in milliseconds, or
+     * -1 if it didn't say
+     */
+    public void onThrottled(String key, long sentAt, long retryAfter) {
+        throttledCount.incrementAndGet();
+        bucket(key).throttled(sentAt, retryAfter, nanoTime());
+    }
+
+    /**
+     * Gets the rate currently permitted for a bucket.
+     *
+     * @param key Bucket key
+     *
+     * @return requests per second
+     */
+    public double getRate(String key) {
+        Bucket bucket = buckets.get(key);
+        return bucket != null ? bucket.rate() : initialRate;
+    }
+
+    /**
+     * Gets the number of requests waiting for a bucket.
+     *
+     * @param key Bucket key
+     */
+    public int getQueueDepth(String key) {
+        Bucket bucket = buckets.get(key);
+        return bucket != null ? bucket.queued.get() : 0;
+    }
+
+    /**
+     * Gets the number of requests waiting across all buckets.
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Bucket bucket : buckets.values())
+            depth += bucket.queued.get();
+        return depth;
+    }
+
+    /**
+     * Gets the number of 429 and 503 responses seen.
+     */
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    /**
+     * Gets the keys of the buckets in use.
+     */
+    public Set<String> getKeys() {
+        return buckets.keySet();
+    }
+
+    /**
+     * Current time for rate calculations, in nanoseconds.
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Waits for the given time.
+     */
+    protected void sleep(long nanos) throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(nanos);
+    }
+
+    private Bucket bucket(String key) {
+        Bucket bucket = buckets.get(key);
+
+        if (bucket == null) {
+            Bucket created = new Bucket();
+            bucket = buckets.putIfAbsent(key, created);
+            if (bucket == null)
+                bucket = created;
+        }
+
+        return bucket;
+    }
+}
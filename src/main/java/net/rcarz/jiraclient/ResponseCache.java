@@ -0,0 +1,196 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores GET responses together with their validators (ETag and
+ * Last-Modified) so that RestClient can revalidate them with a conditional
+ * request and reuse the stored body when the server answers 304.
+ *
+ * Responses are keyed by the request URI and the logon name, so a cache may
+ * be shared between clients logged on as different users.
+ */
+public abstract class ResponseCache {
+
+    /**
+     * A stored response.
+     */
+    public static final class Entry {
+        private final String etag;
+        private final String lastModified;
+        private final String body;
+        private final long size;
+
+        /**
+         * Creates a cache entry.
+         *
+         * @param etag ETag header or null
+         * @param lastModified Last-Modified header or null
+         * @param body Response body
+         */
+        public Entry(String etag, String lastModified, String body) {
+            if (body == null)
+                throw new NullPointerException("body may not be null");
+
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.body = body;
+            this.size = utf8Length(body);
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        /**
+         * Gets the size of the body in bytes when encoded as UTF-8.
+         *
+         * @return size in bytes
+         */
+        public long getSize() {
+            return size;
+        }
+
+        private static long utf8Length(String s) {
+            long len = 0;
+
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+
+                if (c < 0x80)
+                    len++;
+                else if (c < 0x800)
+                    len += 2;
+                else if (Character.isHighSurrogate(c) && i + 1 < s.length()) {
+                    len += 4;
+                    i++;
+                } else
+                    len += 3;
+            }
+
+            return len;
+        }
+    }
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    /**
+     * Gets a stored response.
+     *
+     * @param key Cache key
+     *
+     * @return the entry or null when there's none
+     */
+    public abstract Entry get(String key);
+
+    /**
+     * Stores a response, evicting the least recently used ones if the cache
+     * is full.
+     *
+     * @param key Cache key
+     * @param entry Response to store
+     */
+    public abstract void put(String key, Entry entry);
+
+    /**
+     * Removes a stored response.
+     *
+     * @param key Cache key
+     */
+    public abstract void remove(String key);
+
+    /**
+     * Removes all stored responses.
+     */
+    public abstract void clear();
+
+    /**
+     * Gets the total size of the stored bodies.
+     *
+     * @return size in bytes
+     */
+    public abstract long getSize();
+
+    /**
+     * Records a response served from the cache after a 304.
+     *
+     * @param entry The entry that was served
+     */
+    void recordHit(Entry entry) {
+        hits.incrementAndGet();
+        bytesSaved.addAndGet(entry.getSize());
+    }
+
+    /**
+     * Records a cacheable GET that had to be answered in full.
+     */
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the fraction of requests answered with 304.
+     *
+     * @return the hit ratio between 0 and 1
+     */
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double)h / total;
+    }
+
+    /**
+     * Gets the number of body bytes the server didn't have to send.
+     *
+     * @return bytes saved by 304 responses
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * Resets the hit, miss and bytes saved counters.
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        bytesSaved.set(0);
+    }
+}
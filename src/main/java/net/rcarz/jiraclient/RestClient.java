@@ -19,16 +19,22 @@
 
 package net.rcarz.jiraclient;
 
-import java.io.BufferedReader;
 import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Map;
+import java.util.logging.Level;
 
+import net.rcarz.jiraclient.util.Logger;
 import net.sf.json.JSON;
 import net.sf.json.JSONObject;
 import net.sf.json.JSONSerializer;
@@ -36,7 +42,9 @@ import net.sf.json.JSONSerializer;
 import org.apache.http.Header;
 import org.apache.http.HeaderElement;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
 import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
@@ -47,20 +55,37 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.entity.mime.MultipartEntity;
 import org.apache.http.entity.mime.content.ByteArrayBody;
 import org.apache.http.entity.mime.content.FileBody;
 import org.apache.http.entity.mime.content.InputStreamBody;
+import org.apache.http.impl.cookie.DateParseException;
+import org.apache.http.impl.cookie.DateUtils;
+import org.apache.http.util.EntityUtils;
 
 /**
  * A simple REST client that speaks JSON.
  */
 public class RestClient {
 
+    private final static Logger LOGGER = Logger.getLogger(RestClient.class);
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_PRESIZE = 1 << 20;
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
     private HttpClient httpClient = null;
     private ICredentials creds = null;
     private URI uri = null;
+    private MetadataCache metadataCache = null;
+    private ResponseCache responseCache = null;
+    private volatile boolean lazyIssueFields = false;
+    private volatile long maxResponseSize = -1;
+    private volatile RequestThrottle requestThrottle = null;
+    private volatile RetryPolicy retryPolicy = null;
+    private volatile RequestListener requestListener = null;
 
     /**
      * Creates a REST client instance with a URI.
@@ -85,6 +110,15 @@ public class RestClient {
         this.uri = uri;
     }
 
+    /**
+     * Gets the base URI of the remote REST service.
+     *
+     * @return the base URI
+     */
+    public URI getBaseURI() {
+        return uri;
+    }
+
     /**
      * Build a URI from a path.
      *
@@ -120,49 +154,390 @@ public class RestClient {
         return ub.build();
     }
 
-    private JSON request(HttpRequestBase req) throws RestException, IOException {
+    private JSON request(final HttpRequestBase req) throws RestException, IOException {
+        final RetryPolicy policy = retryPolicy;
+        prepare(req);
+
+        return retrying(req, policy, new Call() {
+            public JSON call() throws RestException, IOException {
+                Exchange exchange = exchange(req, policy == null);
+                String result = exchange.body;
+
+                StatusLine sl = exchange.response.getStatusLine();
+
+                if (sl.getStatusCode() >= 300)
+                    throw new RestException(sl.getReasonPhrase(), sl.getStatusCode(), result);
+
+                return result.length() > 0 ? JSONSerializer.toJSON(result) : null;
+            }
+        });
+    }
+
+    /**
+     * One attempt at a JSON request.
+     */
+    private interface Call {
+        JSON call() throws RestException, IOException;
+    }
+
+    /**
+     * Runs a call under the retry policy, if there is one. The request must
+     * already carry its headers, since it may be sent several times.
+     *
+     * The call must not let the request throttle re-send throttled
+     * requests itself: every re-send goes through here, so it is charged to
+     * the retry budget and seen by the circuit breaker. A 429 may be
+     * re-sent whatever the method, since the server didn't process the
+     * request.
+     */
+    private JSON retrying(HttpRequestBase req, RetryPolicy policy, Call call)
+            throws RestException, IOException {
+
+        if (policy == null)
+            return call.call();
+
+        String family = RetryPolicy.family(req.getURI());
+        CircuitBreaker breaker = policy.getCircuitBreaker(family);
+        boolean repeatable = isRepeatable(req);
+        boolean idempotent = policy.isIdempotent(req.getMethod()) && repeatable;
+        long delay = 0;
+
+        policy.requestStarted();
+
+        for (int attempt = 1; ; attempt++) {
+            if (!breaker.allowRequest()) {
+                policy.recordRejected();
+                throw new CircuitOpenException(family);
+            }
+
+            try {
+                JSON result = call.call();
+                breaker.recordSuccess();
+                if (attempt > 1)
+                    policy.recordRecovered();
+                return result;
+            } catch (RestException ex) {
+                if (!policy.isRetryable(ex.getHttpStatusCode())) {
+                    /* the server answered, it just didn't like the request */
+                    breaker.recordSuccess();
+                    throw ex;
+                }
+
+                breaker.recordFailure();
+                boolean unprocessed = ex.getHttpStatusCode() == SC_TOO_MANY_REQUESTS && repeatable;
+                if (!mayRetry(policy, idempotent || unprocessed, attempt))
+                    throw ex;
+            } catch (ResponseTooLargeException ex) {
+                breaker.recordSuccess();
+                throw ex;
+            } catch (RuntimeException ex) {
+                /* an unreadable body says nothing about the server's health,
+                 * but a half-open trial must still hand back its slot */
+                breaker.release();
+                throw ex;
+            } catch (IOException ex) {
+                if (Thread.currentThread().isInterrupted()) {
+                    breaker.release();
+                    throw ex;
+                }
+
+                breaker.recordFailure();
+                if (!mayRetry(policy, idempotent, attempt))
+                    throw ex;
+            }
+
+            delay = policy.nextDelay(delay);
+
+            try {
+                policy.sleep(delay);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry");
+            }
+
+            req.reset();
+        }
+    }
+
+    private static boolean mayRetry(RetryPolicy policy, boolean resendable, int attempt) {
+        if (!resendable)
+            return false;
+
+        if (attempt >= policy.getMaxAttempts() || !policy.withdrawRetry()) {
+            policy.recordFailed();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds the JSON and credential headers to a request.
+     */
+    private void prepare(HttpRequestBase req) {
         req.addHeader("Accept", "application/json");
+        if (creds != null)
+            creds.authenticate(req);
+    }
 
+    /**
+     * Executes a request with the client's credentials and hands back the
+     * raw response, for bodies that aren't JSON. The caller must consume the
+     * entity or abort the request.
+     *
+     * @param req HTTP request
+     *
+     * @return the HTTP response
+     *
+     * @throws IOException when the request fails
+     */
+    HttpResponse executeRaw(HttpRequestBase req) throws IOException {
         if (creds != null)
             creds.authenticate(req);
 
-        HttpResponse resp = httpClient.execute(req);
-        HttpEntity ent = resp.getEntity();
-        StringBuilder result = new StringBuilder();
+        return send(req, null, true);
+    }
 
-        if (ent != null) {
-            String encoding = null;
-            if (ent.getContentEncoding() != null) {
-            	encoding = ent.getContentEncoding().getValue();
+    /**
+     * Sends a request that already carries its headers, pacing it through
+     * the request throttle if there is one.
+     *
+     * @param resend Whether the throttle sends a throttled request again,
+     * rather than leaving it to the retry policy
+     */
+    private HttpResponse send(HttpRequestBase req, Exchange exchange, boolean resend) throws IOException {
+        RequestThrottle throttle = requestThrottle;
+        if (throttle == null)
+            return execute(req, exchange);
+
+        String key = getThrottleKey();
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                throttle.acquire(key);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the request throttle");
             }
-            
-            if (encoding == null) {
-    	        Header contentTypeHeader = resp.getFirstHeader("Content-Type");
-    	        HeaderElement[] contentTypeElements = contentTypeHeader.getElements();
-    	        for (HeaderElement he : contentTypeElements) {
-    	        	NameValuePair nvp = he.getParameterByName("charset");
-    	        	if (nvp != null) {
-    	        		encoding = nvp.getValue();
-    	        	}
-    	        }
+
+            long sentAt = throttle.nanoTime();
+            HttpResponse resp = execute(req, exchange);
+            int status = resp.getStatusLine().getStatusCode();
+
+            if (status != SC_TOO_MANY_REQUESTS && status != HttpStatus.SC_SERVICE_UNAVAILABLE) {
+                throttle.onSuccess(key);
+                return resp;
             }
-            
-            InputStreamReader isr =  encoding != null ?
-                new InputStreamReader(ent.getContent(), encoding) :
-                new InputStreamReader(ent.getContent());
-            BufferedReader br = new BufferedReader(isr);
-            String line = "";
 
-            while ((line = br.readLine()) != null)
-                result.append(line);
+            throttle.onThrottled(key, sentAt, retryAfter(resp));
+            if (!resend || attempt >= throttle.getMaxRetries() || !isRepeatable(req))
+                return resp;
+
+            EntityUtils.consumeQuietly(resp.getEntity());
+            req.reset();
         }
+    }
 
-        StatusLine sl = resp.getStatusLine();
+    private HttpResponse execute(HttpRequestBase req, Exchange exchange) throws IOException {
+        if (exchange == null)
+            return httpClient.execute(req);
+
+        exchange.sentAt = System.nanoTime();
+        HttpResponse resp = httpClient.execute(req);
+        exchange.firstByteAt = System.nanoTime();
+        exchange.received = true;
+        return resp;
+    }
 
-        if (sl.getStatusCode() >= 300)
-            throw new RestException(sl.getReasonPhrase(), sl.getStatusCode(), result.toString());
+    /**
+     * Sends a request and reads the response body, reporting the attempt to
+     * the request listener if there is one.
+     */
+    private Exchange exchange(HttpRequestBase req, boolean resend) throws IOException {
+        RequestListener listener = requestListener;
+        Exchange exchange = new Exchange();
+        IOException failure = null;
 
-        return result.length() > 0 ? JSONSerializer.toJSON(result.toString()): null;
+        try {
+            exchange.response = send(req, listener != null ? exchange : null, resend);
+            exchange.body = readEntity(req, exchange.response, listener != null ? exchange : null);
+            return exchange;
+        } catch (IOException ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            if (listener != null)
+                report(listener, req, exchange, failure);
+        }
+    }
+
+    private void report(RequestListener listener, HttpRequestBase req, Exchange exchange,
+                        IOException failure) {
+
+        long requestBytes = 0;
+        if (req instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) req).getEntity();
+            if (entity != null)
+                requestBytes = entity.getContentLength();
+        }
+
+        RequestEvent event = new RequestEvent(
+            RequestEvent.template(relativePath(req.getURI())),
+            req.getMethod(),
+            exchange.received ? exchange.response.getStatusLine().getStatusCode() : -1,
+            requestBytes,
+            exchange.responseBytes,
+            exchange.received ? exchange.firstByteAt - exchange.sentAt : -1,
+            System.nanoTime() - exchange.sentAt,
+            failure);
+
+        try {
+            listener.onRequest(event);
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Request listener failed on " + event + ": " + ex);
+        }
+    }
+
+    private String relativePath(URI target) {
+        String path = target.getPath() != null ? target.getPath() : "";
+        String base = uri.getPath();
+
+        if (base != null && base.length() > 1 && path.startsWith(base)) {
+            String relative = path.substring(base.endsWith("/") ? base.length() - 1 : base.length());
+            if (relative.isEmpty() || relative.startsWith("/"))
+                return relative;
+        }
+
+        return path;
+    }
+
+    /**
+     * One request and its response, with the timings the request listener
+     * reports.
+     */
+    private static final class Exchange {
+        long sentAt = System.nanoTime();
+        long firstByteAt;
+        boolean received = false;
+        long responseBytes = 0;
+        HttpResponse response;
+        String body;
+    }
+
+    /**
+     * Gets the pause requested by a Retry-After header.
+     *
+     * @return milliseconds to wait or -1 if the header is missing or
+     * malformed
+     */
+    static long retryAfter(HttpResponse resp) {
+        Header header = resp.getFirstHeader("Retry-After");
+        if (header == null)
+            return -1;
+
+        String value = header.getValue().trim();
+
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException ex) {
+            /* not delta-seconds, so it should be an HTTP date */
+        }
+
+        try {
+            return Math.max(0, DateUtils.parseDate(value).getTime() - System.currentTimeMillis());
+        } catch (DateParseException ex) {
+            return -1;
+        }
+    }
+
+    private static boolean isRepeatable(HttpRequestBase req) {
+        if (!(req instanceof HttpEntityEnclosingRequest))
+            return true;
+
+        HttpEntity entity = ((HttpEntityEnclosingRequest) req).getEntity();
+        return entity == null || entity.isRepeatable();
+    }
+
+    private String readEntity(HttpRequestBase req, HttpResponse resp, Exchange exchange)
+        throws IOException {
+
+        try {
+            return readEntity(resp, exchange);
+        } catch (IOException ex) {
+            /* don't drain the rest of an oversized or broken body into the pool */
+            req.abort();
+            throw ex;
+        }
+    }
+
+    /**
+     * Reads the response body into a string.
+     *
+     * The body is decoded in fixed-size blocks straight into a buffer that is
+     * pre-sized from the Content-Length header, so large responses aren't
+     * split into lines and re-assembled. json-lib can only tokenise from a
+     * String, so this is as close to the wire as parsing gets.
+     *
+     * @param resp HTTP response
+     * @param exchange Exchange to count the body bytes into, or null
+     *
+     * @return the response body or an empty string when there's no entity
+     *
+     * @throws IOException when an error reading the response occurs
+     */
+    private String readEntity(HttpResponse resp, Exchange exchange) throws IOException {
+        HttpEntity ent = resp.getEntity();
+
+        if (ent == null)
+            return "";
+
+        String encoding = null;
+        if (ent.getContentEncoding() != null) {
+            encoding = ent.getContentEncoding().getValue();
+        }
+
+        Header contentTypeHeader = resp.getFirstHeader("Content-Type");
+        if (encoding == null && contentTypeHeader != null) {
+            for (HeaderElement he : contentTypeHeader.getElements()) {
+                NameValuePair nvp = he.getParameterByName("charset");
+                if (nvp != null) {
+                    encoding = nvp.getValue();
+                }
+            }
+        }
+
+        long length = ent.getContentLength();
+        long limit = maxResponseSize;
+        if (limit >= 0 && length > limit)
+            throw new ResponseTooLargeException("Response of " + length + " bytes exceeds the limit of " + limit);
+
+        InputStream is = ent.getContent();
+        if (is == null)
+            return "";
+
+        CountingInputStream counter = null;
+        if (limit >= 0 || exchange != null)
+            is = counter = new CountingInputStream(is, limit);
+
+        StringBuilder result = new StringBuilder(
+            length > 0 ? (int)Math.min(length, MAX_PRESIZE) : BUFFER_SIZE);
+        Reader reader = encoding != null ?
+            new InputStreamReader(is, encoding) :
+            new InputStreamReader(is);
+
+        try {
+            char[] buf = new char[BUFFER_SIZE];
+            int n;
+
+            while ((n = reader.read(buf)) != -1)
+                result.append(buf, 0, n);
+        } finally {
+            reader.close();
+            if (exchange != null)
+                exchange.responseBytes = counter.getCount();
+        }
+
+        return result.toString();
     }
 
     private JSON request(HttpEntityEnclosingRequestBase req, String payload)
@@ -199,29 +574,159 @@ public class RestClient {
 
     private JSON request(HttpEntityEnclosingRequestBase req, Issue.NewAttachment... attachments)
         throws RestException, IOException {
-        if (attachments != null) {
+
+        return request(req, null, attachments);
+    }
+
+    private JSON request(HttpEntityEnclosingRequestBase req, Attachment.ProgressListener listener,
+        Issue.NewAttachment... attachments) throws RestException, IOException {
+
+        return request(req, listener, attachments != null ? multipart(attachments) : null);
+    }
+
+    private JSON request(HttpEntityEnclosingRequestBase req, Attachment.ProgressListener listener,
+        MultipartEntity ent) throws RestException, IOException {
+
+        if (ent != null) {
             req.setHeader("X-Atlassian-Token", "nocheck");
-            MultipartEntity ent = new MultipartEntity();
-            for(Issue.NewAttachment attachment : attachments) {
-                String filename = attachment.getFilename();
-                Object content = attachment.getContent();
-                if (content instanceof byte[]) {
-                    ent.addPart("file", new ByteArrayBody((byte[]) content, filename));
-                } else if (content instanceof InputStream) {
-                    ent.addPart("file", new InputStreamBody((InputStream) content, filename));
-                } else if (content instanceof File) {
-                    ent.addPart("file", new FileBody((File) content, filename));
-                } else if (content == null) {
-                    throw new IllegalArgumentException("Missing content for the file " + filename);
-                } else {
-                    throw new IllegalArgumentException(
-                        "Expected file type byte[], java.io.InputStream or java.io.File but provided " +
-                            content.getClass().getName() + " for the file " + filename);
+            req.setEntity(listener != null ? new ProgressEntity(ent, listener) : ent);
+        }
+        return request(req);
+    }
+
+    /**
+     * Builds the multipart body of an attachment upload. Its content length
+     * covers the part boundaries and headers as well as the files. A body
+     * with a stream part can be sent only once.
+     *
+     * @param attachments Files to upload
+     *
+     * @return the request body
+     *
+     * @throws IllegalArgumentException when an attachment has no usable
+     * content
+     */
+    static MultipartEntity multipart(Issue.NewAttachment... attachments) {
+        UploadEntity ent = new UploadEntity();
+        for(Issue.NewAttachment attachment : attachments) {
+            String filename = attachment.getFilename();
+            Object content = attachment.getContent();
+            if (content instanceof byte[]) {
+                ent.addPart("file", new ByteArrayBody((byte[]) content, filename));
+            } else if (content instanceof InputStream) {
+                ent.addPart("file", new SizedInputStreamBody(
+                    (InputStream) content, filename, attachment.getLength()));
+                ent.streamed = true;
+            } else if (content instanceof File) {
+                ent.addPart("file", new FileBody((File) content, filename));
+            } else if (content == null) {
+                throw new IllegalArgumentException("Missing content for the file " + filename);
+            } else {
+                throw new IllegalArgumentException(
+                    "Expected file type byte[], java.io.InputStream or java.io.File but provided " +
+                        content.getClass().getName() + " for the file " + filename);
+            }
+        }
+        return ent;
+    }
+
+    /**
+     * A multipart body that isn't repeatable once it holds a stream part.
+     * MultipartEntity only looks at the content length, which would let a
+     * throttled upload be sent again from an already consumed stream, and
+     * it chunks every body that isn't repeatable.
+     */
+    private static class UploadEntity extends MultipartEntity {
+        private boolean streamed = false;
+
+        @Override
+        public boolean isRepeatable() {
+            return !streamed && super.isRepeatable();
+        }
+
+        @Override
+        public boolean isChunked() {
+            return getContentLength() < 0;
+        }
+    }
+
+    /**
+     * A stream part that declares its length, so that a multipart body made
+     * of known-length parts is sent with a Content-Length instead of being
+     * chunked.
+     */
+    private static class SizedInputStreamBody extends InputStreamBody {
+        private final long length;
+
+        SizedInputStreamBody(InputStream in, String filename, long length) {
+            super(in, filename);
+            this.length = length;
+        }
+
+        @Override
+        public long getContentLength() {
+            return length;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            InputStream in = getInputStream();
+
+            try {
+                byte[] buf = new byte[BUFFER_SIZE];
+                long remaining = length;
+                int n;
+
+                while ((length < 0 || remaining > 0) && (n = in.read(buf)) != -1) {
+                    if (length >= 0 && n > remaining)
+                        throw new IOException("Stream is longer than the declared " + length + " bytes");
+
+                    out.write(buf, 0, n);
+                    remaining -= n;
                 }
+
+                if (length >= 0 && remaining > 0)
+                    throw new IOException("Stream ended " + remaining + " bytes short of the declared length");
+
+                out.flush();
+            } finally {
+                in.close();
             }
-            req.setEntity(ent);
         }
-        return request(req);
+    }
+
+    /**
+     * Reports the bytes of a request body as they're written.
+     */
+    private static class ProgressEntity extends HttpEntityWrapper {
+        private final Attachment.ProgressListener listener;
+
+        ProgressEntity(HttpEntity entity, Attachment.ProgressListener listener) {
+            super(entity);
+            this.listener = listener;
+        }
+
+        @Override
+        public void writeTo(final OutputStream out) throws IOException {
+            final long total = getContentLength();
+
+            wrappedEntity.writeTo(new FilterOutputStream(out) {
+                private long sent = 0;
+
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    listener.progress(++sent, total);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    sent += len;
+                    listener.progress(sent, total);
+                }
+            });
+        }
     }
 
     private JSON request(HttpEntityEnclosingRequestBase req, JSON payload)
@@ -270,9 +775,71 @@ public class RestClient {
      * @throws IOException when an error reading the response occurs
      */
     public JSON get(URI uri) throws RestException, IOException {
+        ResponseCache cache = responseCache;
+        if (cache != null)
+            return conditionalGet(cache, uri);
+
         return request(new HttpGet(uri));
     }
 
+    /**
+     * Executes a GET that revalidates a cached response with If-None-Match
+     * and If-Modified-Since, and reuses the cached body on 304.
+     */
+    private JSON conditionalGet(final ResponseCache cache, URI uri) throws RestException, IOException {
+        final String key = creds != null ? creds.getLogonName() + " " + uri : uri.toString();
+        final ResponseCache.Entry cached = cache.get(key);
+        final HttpGet req = new HttpGet(uri);
+
+        if (cached != null) {
+            if (cached.getETag() != null)
+                req.addHeader("If-None-Match", cached.getETag());
+            if (cached.getLastModified() != null)
+                req.addHeader("If-Modified-Since", cached.getLastModified());
+        }
+
+        final RetryPolicy policy = retryPolicy;
+        prepare(req);
+
+        return retrying(req, policy, new Call() {
+            public JSON call() throws RestException, IOException {
+                Exchange exchange = exchange(req, policy == null);
+                String result = exchange.body;
+                StatusLine sl = exchange.response.getStatusLine();
+
+                if (sl.getStatusCode() == HttpStatus.SC_NOT_MODIFIED && cached != null) {
+                    cache.recordHit(cached);
+                    result = cached.getBody();
+                } else if (sl.getStatusCode() >= 300) {
+                    throw new RestException(sl.getReasonPhrase(), sl.getStatusCode(), result);
+                } else {
+                    cache.recordMiss();
+                    store(cache, key, exchange.response, result);
+                }
+
+                return result.length() > 0 ? JSONSerializer.toJSON(result) : null;
+            }
+        });
+    }
+
+    private static void store(ResponseCache cache, String key, HttpResponse resp, String body) {
+        Header etag = resp.getFirstHeader("ETag");
+        Header lastModified = resp.getFirstHeader("Last-Modified");
+        Header cacheControl = resp.getFirstHeader("Cache-Control");
+
+        if ((etag == null && lastModified == null) ||
+            (cacheControl != null && cacheControl.getValue().toLowerCase().contains("no-store"))) {
+
+            cache.remove(key);
+            return;
+        }
+
+        cache.put(key, new ResponseCache.Entry(
+            etag != null ? etag.getValue() : null,
+            lastModified != null ? lastModified.getValue() : null,
+            body));
+    }
+
     /**
      * Executes an HTTP GET with the given path.
      *
@@ -411,6 +978,36 @@ public class RestClient {
         return request(new HttpPost(buildURI(path)), attachments);
     }
 
+    /**
+     * Executes an HTTP POST with the given path and file payloads, streaming
+     * each part and reporting the bytes sent.
+     *
+     * @param path Path to be appended to the URI supplied in the construtor
+     * @param listener Receives the bytes of the request body sent so far
+     * @param attachments Files to upload
+     *
+     * @return JSON-encoded result or null when there's no content returned
+     *
+     * @throws RestException when an HTTP-level error occurs
+     * @throws IOException when an error reading the response occurs
+     * @throws URISyntaxException when an error occurred appending the path to the URI
+     */
+    public JSON post(String path, Attachment.ProgressListener listener, Issue.NewAttachment... attachments)
+        throws RestException, IOException, URISyntaxException {
+
+        return request(new HttpPost(buildURI(path)), listener, attachments);
+    }
+
+    /**
+     * Executes an HTTP POST with a multipart body built by
+     * {@link #multipart(Issue.NewAttachment...)}, reporting the bytes sent.
+     */
+    JSON post(String path, Attachment.ProgressListener listener, MultipartEntity entity)
+        throws RestException, IOException, URISyntaxException {
+
+        return request(new HttpPost(buildURI(path)), listener, entity);
+    }
+
     /**
      * Executes an HTTP PUT with the given URI and payload.
      *
@@ -444,6 +1041,204 @@ public class RestClient {
         return put(buildURI(path), payload);
     }
     
+    /**
+     * Gets the cache used for issue metadata.
+     *
+     * @return the metadata cache or null when caching is disabled
+     */
+    public MetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * Sets the cache used for issue metadata.
+     *
+     * @param metadataCache Metadata cache or null to disable caching
+     */
+    public void setMetadataCache(MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    /**
+     * Gets the cache used for conditional GETs.
+     *
+     * @return the response cache or null when caching is disabled
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Sets the cache used for conditional GETs. Responses carrying an ETag
+     * or Last-Modified header are stored and revalidated on the next GET of
+     * the same URI.
+     *
+     * @param responseCache Response cache or null to disable caching
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * Gets the throttle that paces requests to the server.
+     *
+     * @return the request throttle or null when requests aren't throttled
+     */
+    public RequestThrottle getRequestThrottle() {
+        return requestThrottle;
+    }
+
+    /**
+     * Sets the throttle that paces requests to the server and re-sends
+     * requests answered with 429 or 503. A throttle can be shared by
+     * several clients; each host and user gets its own rate.
+     *
+     * @param requestThrottle Request throttle or null to send requests
+     * immediately
+     */
+    public void setRequestThrottle(RequestThrottle requestThrottle) {
+        this.requestThrottle = requestThrottle;
+    }
+
+    /**
+     * Gets the policy that re-sends failed requests.
+     *
+     * @return the retry policy or null when failed requests aren't retried
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets the policy that re-sends idempotent requests after network errors
+     * and server failures, and stops sending requests to endpoints that keep
+     * failing. A policy can be shared by several clients.
+     *
+     * @param retryPolicy Retry policy or null to send each request once
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Gets the listener that is told about every request.
+     *
+     * @return the request listener or null
+     */
+    public RequestListener getRequestListener() {
+        return requestListener;
+    }
+
+    /**
+     * Sets the listener that is told about every JSON request, including
+     * each retry, with its endpoint template, status, sizes and timings.
+     * See {@link RequestMetrics} for a listener that keeps histograms.
+     *
+     * @param requestListener Request listener or null
+     */
+    public void setRequestListener(RequestListener requestListener) {
+        this.requestListener = requestListener;
+    }
+
+    /**
+     * Gets the key of this client's bucket in the request throttle.
+     */
+    public String getThrottleKey() {
+        return RequestThrottle.key(uri, creds != null ? creds.getLogonName() : null);
+    }
+
+    /**
+     * Checks whether issues build their system fields on first access.
+     *
+     * @return true if issue fields are deserialised lazily
+     */
+    public boolean isLazyIssueFields() {
+        return lazyIssueFields;
+    }
+
+    /**
+     * Makes issues retain their raw fields and build each typed field
+     * (users, comments, worklogs and so on) the first time its getter is
+     * called, instead of all of them up front.
+     *
+     * @param lazyIssueFields true to deserialise issue fields lazily
+     */
+    public void setLazyIssueFields(boolean lazyIssueFields) {
+        this.lazyIssueFields = lazyIssueFields;
+    }
+
+    /**
+     * Gets the largest response body the client will read.
+     *
+     * @return the limit in bytes or -1 when unlimited
+     */
+    public long getMaxResponseSize() {
+        return maxResponseSize;
+    }
+
+    /**
+     * Sets the largest response body the client will read. Larger responses
+     * fail with an IOException instead of being buffered.
+     *
+     * @param maxResponseSize Limit in bytes or -1 for no limit
+     */
+    public void setMaxResponseSize(long maxResponseSize) {
+        this.maxResponseSize = maxResponseSize < 0 ? -1 : maxResponseSize;
+    }
+
+    /**
+     * Thrown when a response body is larger than the configured limit.
+     * Sending the request again would not help, so it is never retried.
+     */
+    static class ResponseTooLargeException extends IOException {
+        ResponseTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Counts the bytes read and fails once more than a given number has
+     * been read.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private final long limit;
+        private long count = 0;
+
+        /**
+         * @param limit Most bytes that may be read or -1 for no limit
+         */
+        CountingInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1)
+                count(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0)
+                count(n);
+            return n;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        private void count(int n) throws IOException {
+            count += n;
+            if (limit >= 0 && count > limit)
+                throw new ResponseTooLargeException("Response exceeds the limit of " + limit + " bytes");
+        }
+    }
+
     /**
      * Exposes the http client.
      *
@@ -0,0 +1,319 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides when the RestClient sends a failed request again.
+ *
+ * Only idempotent requests are retried (GET, HEAD, OPTIONS, PUT and DELETE
+ * by default), and only after a network error or a 408, 429, 500, 502,
+ * 503 or 504 response. A 429 is retried whatever the method, as the
+ * server didn't process the request. When a {@link RequestThrottle} is
+ * installed as well, it paces the retries but doesn't send throttled
+ * requests again itself, so every re-send is charged to the policy.
+ * Retries back off with decorrelated jitter and draw from a budget that
+ * is refilled by a fraction of each new request, so retries can't
+ * multiply the load on a server that is already failing.
+ *
+ * Every endpoint family (search, issue, greenhopper and tempo) has its
+ * own circuit breaker. While a breaker is open, requests in that family
+ * fail at once with a {@link CircuitOpenException}.
+ */
+public class RetryPolicy {
+
+    public static final String FAMILY_SEARCH = "search";
+    public static final String FAMILY_ISSUE = "issue";
+    public static final String FAMILY_GREENHOPPER = "greenhopper";
+    public static final String FAMILY_TEMPO = "tempo";
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 4;
+    public static final long DEFAULT_BASE_DELAY = 200;
+    public static final long DEFAULT_MAX_DELAY = TimeUnit.SECONDS.toMillis(10);
+    public static final double DEFAULT_RETRY_BUDGET = 10;
+    public static final double DEFAULT_BUDGET_RATIO = 0.1;
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_DURATION = TimeUnit.SECONDS.toMillis(30);
+
+    private static final Set<Integer> RETRYABLE_STATUSES =
+        new HashSet<Integer>(Arrays.asList(408, 429, 500, 502, 503, 504));
+
+    private final Set<String> idempotentMethods =
+        new HashSet<String>(Arrays.asList("GET", "HEAD", "OPTIONS", "PUT", "DELETE"));
+    private final ConcurrentMap<String, CircuitBreaker> breakers =
+        new ConcurrentHashMap<String, CircuitBreaker>();
+
+    private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private volatile long baseDelay = DEFAULT_BASE_DELAY;
+    private volatile long maxDelay = DEFAULT_MAX_DELAY;
+    private volatile double budgetRatio = DEFAULT_BUDGET_RATIO;
+    private volatile int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private volatile long openDuration = DEFAULT_OPEN_DURATION;
+
+    private double retryBudget = DEFAULT_RETRY_BUDGET;
+    private double budget = DEFAULT_RETRY_BUDGET;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Gets the endpoint family of a request URI.
+     *
+     * @param uri Request URI
+     *
+     * @return one of the FAMILY_* constants
+     */
+    public static String family(URI uri) {
+        String path = uri.getPath() != null ? uri.getPath() : "";
+
+        if (path.contains("/rest/greenhopper/") || path.contains("/rest/agile/"))
+            return FAMILY_GREENHOPPER;
+        if (path.contains("/rest/tempo"))
+            return FAMILY_TEMPO;
+        if (path.endsWith("/search"))
+            return FAMILY_SEARCH;
+
+        return FAMILY_ISSUE;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Sets how many times a request is sent at most, the first time
+     * included.
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        if (maxAttempts <= 0)
+            throw new IllegalArgumentException("maxAttempts must be positive");
+
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Sets the shortest and longest pause between attempts.
+     */
+    public void setBackoff(long baseDelay, long maxDelay, TimeUnit unit) {
+        if (baseDelay < 0 || maxDelay < baseDelay)
+            throw new IllegalArgumentException("delays must satisfy 0 <= base <= max");
+
+        this.baseDelay = unit.toMillis(baseDelay);
+        this.maxDelay = unit.toMillis(maxDelay);
+    }
+
+    /**
+     * Sets the retry budget.
+     *
+     * @param retryBudget Retries that may happen back to back; also the
+     * starting balance
+     * @param budgetRatio Retries earned per new request
+     */
+    public synchronized void setRetryBudget(double retryBudget, double budgetRatio) {
+        this.retryBudget = retryBudget;
+        this.budgetRatio = budgetRatio;
+        this.budget = Math.min(budget, retryBudget);
+    }
+
+    /**
+     * Sets when circuit breakers open and for how long. Applies to breakers
+     * created afterwards.
+     */
+    public void setCircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = unit.toMillis(openDuration);
+    }
+
+    /**
+     * Sets whether requests with the given method may be sent twice.
+     */
+    public synchronized void setIdempotent(String method, boolean idempotent) {
+        if (idempotent)
+            idempotentMethods.add(method.toUpperCase());
+        else
+            idempotentMethods.remove(method.toUpperCase());
+    }
+
+    public synchronized boolean isIdempotent(String method) {
+        return idempotentMethods.contains(method.toUpperCase());
+    }
+
+    /**
+     * Checks whether a response status is worth another attempt.
+     */
+    public boolean isRetryable(int status) {
+        return RETRYABLE_STATUSES.contains(status);
+    }
+
+    /**
+     * Gets the circuit breaker of an endpoint family.
+     *
+     * @param family One of the FAMILY_* constants
+     */
+    public CircuitBreaker getCircuitBreaker(String family) {
+        CircuitBreaker breaker = breakers.get(family);
+
+        if (breaker == null) {
+            CircuitBreaker created = createCircuitBreaker(failureThreshold, openDuration);
+            breaker = breakers.putIfAbsent(family, created);
+            if (breaker == null)
+                breaker = created;
+        }
+
+        return breaker;
+    }
+
+    /**
+     * Gets the circuit breakers created so far, by family.
+     */
+    public Map<String, CircuitBreaker> getCircuitBreakers() {
+        return breakers;
+    }
+
+    /**
+     * Creates the circuit breaker of a family.
+     */
+    protected CircuitBreaker createCircuitBreaker(int failureThreshold, long openDuration) {
+        return new CircuitBreaker(failureThreshold, openDuration, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Counts a new request and adds its share to the retry budget.
+     */
+    synchronized void requestStarted() {
+        requests.incrementAndGet();
+        budget = Math.min(retryBudget, budget + budgetRatio);
+    }
+
+    /**
+     * Takes one retry from the budget.
+     *
+     * @return false if the budget is spent
+     */
+    synchronized boolean withdrawRetry() {
+        if (budget < 1) {
+            budgetExhausted.incrementAndGet();
+            return false;
+        }
+
+        budget -= 1;
+        retries.incrementAndGet();
+        return true;
+    }
+
+    void recordRecovered() {
+        recovered.incrementAndGet();
+    }
+
+    void recordFailed() {
+        failed.incrementAndGet();
+    }
+
+    void recordRejected() {
+        rejected.incrementAndGet();
+    }
+
+    /**
+     * Picks the pause before the next attempt: a random time between the
+     * base delay and three times the previous pause, capped at the maximum
+     * delay.
+     *
+     * @param previous Previous pause in milliseconds, 0 before the first
+     * retry
+     *
+     * @return the pause in milliseconds
+     */
+    long nextDelay(long previous) {
+        long base = baseDelay;
+        long upper = Math.max(base, Math.max(previous, base) * 3);
+        long delay = upper > base ? base + ThreadLocalRandom.current().nextLong(upper - base + 1) : base;
+        return Math.min(maxDelay, delay);
+    }
+
+    /**
+     * Waits between attempts.
+     */
+    protected void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    /**
+     * Gets the number of requests sent through the policy.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Gets the number of retries sent.
+     */
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    /**
+     * Gets the number of requests that succeeded after a retry.
+     */
+    public long getRecoveredCount() {
+        return recovered.get();
+    }
+
+    /**
+     * Gets the number of retryable requests that failed in the end.
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Gets the number of retries skipped because the budget was spent.
+     */
+    public long getBudgetExhaustedCount() {
+        return budgetExhausted.get();
+    }
+
+    /**
+     * Gets the number of requests rejected by an open circuit breaker.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Gets the retries currently available.
+     */
+    public synchronized double getRetryBudget() {
+        return budget;
+    }
+}
@@ -5,6 +5,7 @@ import net.sf.json.JSON;
 import net.sf.json.JSONArray;
 
 import java.net.URI;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +42,26 @@ public class Tempo {
         }
     }
 
+    /**
+     * Exports the work logs of many users over a long date range, split
+     * into weekly requests. See {@link TempoExport}.
+     *
+     * @param restclient REST client instance
+     * @param usernames Users to export
+     * @param dateFrom First day (yyyy-MM-dd), inclusive
+     * @param dateTo Last day (yyyy-MM-dd), inclusive
+     * @param listener Receives the work logs
+     *
+     * @return counts and failed windows
+     *
+     * @throws JiraException when the dates are malformed or the listener fails
+     */
+    public static TempoExport.Result exportWorklogs(RestClient restclient, Collection<String> usernames,
+            String dateFrom, String dateTo, TempoExport.Listener listener) throws JiraException {
+
+        return new TempoExport(restclient).export(usernames, dateFrom, dateTo, listener);
+    }
+
     public static boolean deleteWorklog(RestClient restclient, String id){
         // http://{JIRA_BASE_URL}/rest/tempo-timesheets/3/worklogs/
         try {
@@ -87,12 +87,20 @@ public class TempoAuthor extends TempoResource {
 
     @Override
     public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if(obj instanceof TempoAuthor){
-            if(getSelf().equals(((TempoAuthor)obj).getSelf())){
+            if(self != null && self.equals(((TempoAuthor)obj).getSelf())){
                 return true;
             }
         }
         return false;
     }
+
+    @Override
+    public int hashCode() {
+        return self != null ? self.hashCode() : System.identityHashCode(this);
+    }
 }
 
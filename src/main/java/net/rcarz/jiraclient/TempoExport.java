@@ -0,0 +1,407 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import net.rcarz.jiraclient.util.DateCodec;
+
+/**
+ * Exports Tempo work logs of many users over a long date range.
+ *
+ * The range is split into windows of a few days, and every user and window
+ * is requested separately, several at a time, so no single request has
+ * to return a whole year. Windows are requested in date order. Work logs
+ * are passed to a listener as the windows complete, on the thread that
+ * started the export.
+ *
+ * A work log reported by more than one request for the same window is
+ * delivered once. Work logs are recognised by their URL, or their ID when
+ * the URL is missing. Turn identityOnly off to also drop a work log whose
+ * content duplicates one already delivered in its window (see
+ * {@link TempoWorkLog#isDuplicate(TempoWorkLog)}); this merges entries
+ * that were booked twice on purpose. What a window has delivered is
+ * forgotten once all of its requests are done, so memory doesn't grow
+ * with the length of the range.
+ *
+ * A window that fails is reported in the result and the export carries
+ * on.
+ */
+public class TempoExport {
+
+    public static final int DEFAULT_CONCURRENCY = 4;
+    public static final int DEFAULT_WINDOW_DAYS = 7;
+
+    /**
+     * Receives the exported work logs.
+     */
+    public interface Listener {
+
+        /**
+         * Called once for every work log.
+         *
+         * @param username User the work log was requested for
+         * @param workLog The work log
+         *
+         * @throws Exception to abort the export
+         */
+        void onWorkLog(String username, TempoWorkLog workLog) throws Exception;
+    }
+
+    /**
+     * Outcome of an export.
+     */
+    public static final class Result {
+        private final int workLogs;
+        private final int duplicates;
+        private final int requests;
+        private final Map<String, JiraException> failures;
+
+        Result(int workLogs, int duplicates, int requests, Map<String, JiraException> failures) {
+            this.workLogs = workLogs;
+            this.duplicates = duplicates;
+            this.requests = requests;
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+
+        /**
+         * Gets the number of work logs delivered.
+         */
+        public int getWorkLogs() {
+            return workLogs;
+        }
+
+        /**
+         * Gets the number of work logs dropped as already delivered.
+         */
+        public int getDuplicates() {
+            return duplicates;
+        }
+
+        /**
+         * Gets the number of requests made.
+         */
+        public int getRequests() {
+            return requests;
+        }
+
+        /**
+         * Gets the windows that failed, keyed by "username dateFrom..dateTo".
+         */
+        public Map<String, JiraException> getFailures() {
+            return failures;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d work logs, %d duplicates, %d requests, %d failed",
+                workLogs, duplicates, requests, failures.size());
+        }
+    }
+
+    /**
+     * Work logs of one user and window, or why they couldn't be read.
+     */
+    private static final class Shard {
+        final String username;
+        final int window;
+        final String name;
+        final List<TempoWorkLog> workLogs;
+        final JiraException error;
+
+        Shard(String username, int window, String name, List<TempoWorkLog> workLogs,
+                JiraException error) {
+            this.username = username;
+            this.window = window;
+            this.name = name;
+            this.workLogs = workLogs;
+            this.error = error;
+        }
+    }
+
+    private final RestClient restclient;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private int windowDays = DEFAULT_WINDOW_DAYS;
+    private boolean identityOnly = true;
+
+    /**
+     * Creates a Tempo export.
+     *
+     * @param restclient REST client instance
+     */
+    public TempoExport(RestClient restclient) {
+        this.restclient = restclient;
+    }
+
+    /**
+     * Sets how many requests run at once.
+     *
+     * @param concurrency Number of parallel requests
+     *
+     * @return this
+     */
+    public TempoExport concurrency(int concurrency) {
+        if (concurrency <= 0)
+            throw new IllegalArgumentException("concurrency must be positive");
+
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Sets how many days each request covers.
+     *
+     * @param windowDays Days per request
+     *
+     * @return this
+     */
+    public TempoExport windowDays(int windowDays) {
+        if (windowDays <= 0)
+            throw new IllegalArgumentException("windowDays must be positive");
+
+        this.windowDays = windowDays;
+        return this;
+    }
+
+    /**
+     * Sets whether duplicates are recognised by URL or ID only, rather
+     * than also by content. On by default.
+     *
+     * @param identityOnly false to drop work logs with equal content but
+     * a different URL
+     *
+     * @return this
+     */
+    public TempoExport identityOnly(boolean identityOnly) {
+        this.identityOnly = identityOnly;
+        return this;
+    }
+
+    /**
+     * Exports the work logs of the given users.
+     *
+     * @param usernames Users to export
+     * @param dateFrom First day (yyyy-MM-dd), inclusive
+     * @param dateTo Last day (yyyy-MM-dd), inclusive
+     * @param listener Receives the work logs
+     *
+     * @return counts and failed windows
+     *
+     * @throws JiraException when the dates are malformed or the listener
+     * fails
+     */
+    public Result export(Collection<String> usernames, String dateFrom, String dateTo,
+            Listener listener) throws JiraException {
+
+        final List<String[]> windows = windows(dateFrom, dateTo);
+        final List<String> users = new ArrayList<String>(usernames);
+
+        /* window by window, so each window's requests finish close together */
+        Iterator<Callable<Shard>> tasks = new Iterator<Callable<Shard>>() {
+            private int window = 0;
+            private int user = 0;
+
+            @Override
+            public boolean hasNext() {
+                return !users.isEmpty() && window < windows.size();
+            }
+
+            @Override
+            public Callable<Shard> next() {
+                Callable<Shard> task = task(users.get(user), window, windows.get(window));
+                if (++user == users.size()) {
+                    user = 0;
+                    window++;
+                }
+
+                return task;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        return run(tasks, users.size(), listener);
+    }
+
+    /**
+     * Splits a date range into consecutive, non-overlapping windows.
+     *
+     * @return pairs of first and last day
+     */
+    List<String[]> windows(String dateFrom, String dateTo) throws JiraException {
+        Date from = DateCodec.parseDate(dateFrom);
+        Date to = DateCodec.parseDate(dateTo);
+
+        if (from == null || to == null)
+            throw new JiraException("Malformed date range " + dateFrom + ".." + dateTo);
+
+        List<String[]> windows = new ArrayList<String[]>();
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(from);
+
+        while (!cal.getTime().after(to)) {
+            String first = DateCodec.formatDate(cal.getTime());
+            cal.add(Calendar.DATE, windowDays - 1);
+            String last = DateCodec.formatDate(cal.getTime().after(to) ? to : cal.getTime());
+            windows.add(new String[] { first, last });
+            cal.add(Calendar.DATE, 1);
+        }
+
+        return windows;
+    }
+
+    private Callable<Shard> task(final String username, final int number, final String[] window) {
+        return new Callable<Shard>() {
+            @Override
+            public Shard call() {
+                String name = username + " " + window[0] + ".." + window[1];
+
+                try {
+                    return new Shard(username, number, name,
+                        Tempo.getWorklogs(restclient, window[0], window[1], username), null);
+                } catch (JiraException ex) {
+                    return new Shard(username, number, name, null, ex);
+                }
+            }
+        };
+    }
+
+    /**
+     * Runs the requests with bounded concurrency and delivers their work
+     * logs as they complete, so memory stays bounded on long exports.
+     */
+    private Result run(Iterator<Callable<Shard>> tasks, int users, Listener listener)
+            throws JiraException {
+
+        Delivery delivery = new Delivery(listener, users, identityOnly);
+
+        try {
+            BoundedCompletion.run(tasks, concurrency, "jira-tempo-export", delivery);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while exporting work logs", ex);
+        } catch (ExecutionException ex) {
+            throw new JiraException("Export task failed", ex.getCause());
+        }
+
+        return new Result(delivery.workLogs, delivery.duplicates, delivery.requests, delivery.failures);
+    }
+
+    /**
+     * What a window has delivered so far.
+     */
+    private static final class Window {
+        final Set<Object> seen = new HashSet<Object>();
+        final TempoWorkLogIndex index;
+        int pending;
+
+        Window(int pending, TempoWorkLogIndex index) {
+            this.pending = pending;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Passes the work logs of each shard to the listener, dropping those
+     * already delivered in the same window, and counts them.
+     */
+    private static final class Delivery implements BoundedCompletion.Sink<Shard> {
+        final Listener listener;
+        final int users;
+        final boolean identityOnly;
+        final Map<String, JiraException> failures = new LinkedHashMap<String, JiraException>();
+        final Map<Integer, Window> open = new HashMap<Integer, Window>();
+        int workLogs = 0;
+        int duplicates = 0;
+        int requests = 0;
+
+        Delivery(Listener listener, int users, boolean identityOnly) {
+            this.listener = listener;
+            this.users = users;
+            this.identityOnly = identityOnly;
+        }
+
+        @Override
+        public void accept(Shard shard) throws JiraException {
+            requests++;
+
+            Window window = open.get(shard.window);
+            if (window == null) {
+                window = new Window(users, identityOnly ? null : new TempoWorkLogIndex());
+                open.put(shard.window, window);
+            }
+
+            if (--window.pending == 0)
+                open.remove(shard.window);
+
+            if (shard.error != null) {
+                failures.put(shard.name, shard.error);
+                return;
+            }
+
+            for (TempoWorkLog workLog : shard.workLogs) {
+                Object identity = identity(workLog);
+
+                if ((identity != null && !window.seen.add(identity)) ||
+                        (window.index != null && window.index.add(workLog) != null)) {
+                    duplicates++;
+                    continue;
+                }
+
+                try {
+                    listener.onWorkLog(shard.username, workLog);
+                } catch (Exception ex) {
+                    throw new JiraException("Listener failed on " + shard.name, ex);
+                }
+
+                workLogs++;
+            }
+        }
+    }
+
+    /**
+     * Gets what makes two work logs the same entry: the URL, as compared by
+     * TempoWorkLog.equals, or the ID if the URL is missing.
+     *
+     * @return the identity or null if the work log has neither
+     */
+    private static Object identity(TempoWorkLog workLog) {
+        if (workLog.getSelf() != null)
+            return workLog.getSelf();
+
+        return workLog.getId() >= 0 ? Integer.valueOf(workLog.getId()) : null;
+    }
+}
@@ -28,7 +28,6 @@ import org.joda.time.format.DateTimeFormatter;
 
 import java.util.Date;
 import java.util.Map;
-import java.util.logging.Level;
 
 /**
  * Represents an issue work log.
@@ -63,7 +62,6 @@ public class TempoWorkLog extends TempoResource {
     }
 
     private void deserialise(JSONObject json) {
-        LOGGER.log(Level.INFO, "deserialise");
         Map map = json;
         timeSpentSeconds = Field.getInteger(map.get("timeSpentSeconds"));
         dateStarted = Field.getTempoDateTime(map.get("dateStarted"));
@@ -73,7 +71,6 @@ public class TempoWorkLog extends TempoResource {
         author = Field.getTempoResource(TempoAuthor.class, map.get("author"), restclient);
         //issue = Field.getResource(TempoIssue.class, map.get("issue"), restclient);
         summary = Field.getString(map.get("summary"));
-        LOGGER.log(Level.INFO, "desiri done: " + this.toStringFull());
     }
 
     /**
@@ -178,6 +175,9 @@ public class TempoWorkLog extends TempoResource {
 
     @Override
     public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if (obj instanceof TempoWorkLog) {
             TempoWorkLog tempoObj = (TempoWorkLog)obj;
             if(self != null && self.equals(tempoObj.getSelf())){
@@ -188,6 +188,71 @@ public class TempoWorkLog extends TempoResource {
     }
 
 
+    @Override
+    public int hashCode() {
+        return self != null ? self.hashCode() : System.identityHashCode(this);
+    }
+
+    /**
+     * Gets a key that is equal for two work logs exactly when
+     * {@link #isDuplicate(TempoWorkLog)} holds, for finding duplicates
+     * with a hash lookup. See {@link TempoWorkLogIndex}.
+     *
+     * @return the work log's fingerprint
+     */
+    public Fingerprint getFingerprint() {
+        return new Fingerprint(this);
+    }
+
+    /**
+     * Composite of the fields compared by isDuplicate: author, start,
+     * time spent, comment and summary.
+     */
+    public static final class Fingerprint {
+        private final TempoAuthor author;
+        private final Date dateStarted;
+        private final int timeSpentSeconds;
+        private final String comment;
+        private final String summary;
+        private final int hash;
+
+        private Fingerprint(TempoWorkLog workLog) {
+            author = workLog.author;
+            dateStarted = workLog.dateStarted;
+            timeSpentSeconds = workLog.timeSpentSeconds;
+            comment = workLog.comment;
+            summary = workLog.summary;
+
+            int h = timeSpentSeconds;
+            h = 31 * h + (author != null ? author.hashCode() : 0);
+            h = 31 * h + (dateStarted != null ? dateStarted.hashCode() : 0);
+            h = 31 * h + (comment != null ? comment.hashCode() : 0);
+            h = 31 * h + (summary != null ? summary.hashCode() : 0);
+            hash = h;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this)
+                return true;
+            if (!(obj instanceof Fingerprint))
+                return false;
+
+            Fingerprint other = (Fingerprint) obj;
+            return hash == other.hash &&
+                    timeSpentSeconds == other.timeSpentSeconds &&
+                    saveEqual(dateStarted, other.dateStarted) &&
+                    saveEqual(comment, other.comment) &&
+                    saveEqual(summary, other.summary) &&
+                    saveEqual(author, other.author);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
     public boolean isDuplicate(TempoWorkLog obj) {
         if(timeSpentSeconds == obj.timeSpentSeconds &&
                 saveEqual(dateStarted, obj.dateStarted) &&
@@ -0,0 +1,146 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds duplicate Tempo work logs by hash lookup.
+ *
+ * Work logs are indexed by their {@link TempoWorkLog.Fingerprint}, so
+ * checking a work log against the index takes constant time instead of a
+ * {@link TempoWorkLog#isDuplicate(TempoWorkLog)} call per indexed entry.
+ * Deduplicating n work logs is O(n). Not thread safe.
+ */
+public class TempoWorkLogIndex {
+
+    private final Map<TempoWorkLog.Fingerprint, TempoWorkLog> entries;
+
+    /**
+     * Creates an empty index.
+     */
+    public TempoWorkLogIndex() {
+        entries = new HashMap<TempoWorkLog.Fingerprint, TempoWorkLog>();
+    }
+
+    /**
+     * Creates an index holding the given work logs, such as the entries
+     * already on a timesheet.
+     *
+     * @param workLogs Work logs to index
+     */
+    public TempoWorkLogIndex(Collection<TempoWorkLog> workLogs) {
+        entries = new HashMap<TempoWorkLog.Fingerprint, TempoWorkLog>(
+            Math.max(16, (int) (workLogs.size() / 0.75f) + 1));
+
+        for (TempoWorkLog workLog : workLogs)
+            add(workLog);
+    }
+
+    /**
+     * Adds a work log unless a duplicate is already indexed.
+     *
+     * @param workLog Work log to add
+     *
+     * @return the duplicate already indexed, or null if the work log was
+     * added
+     */
+    public TempoWorkLog add(TempoWorkLog workLog) {
+        TempoWorkLog.Fingerprint fingerprint = workLog.getFingerprint();
+        TempoWorkLog existing = entries.get(fingerprint);
+
+        if (existing == null)
+            entries.put(fingerprint, workLog);
+
+        return existing;
+    }
+
+    /**
+     * Looks up a duplicate of the given work log.
+     *
+     * @param workLog Work log to check
+     *
+     * @return the indexed duplicate or null if there is none
+     */
+    public TempoWorkLog findDuplicate(TempoWorkLog workLog) {
+        return entries.get(workLog.getFingerprint());
+    }
+
+    /**
+     * Checks whether a duplicate of the given work log is indexed.
+     *
+     * @param workLog Work log to check
+     *
+     * @return true if a duplicate is indexed
+     */
+    public boolean containsDuplicate(TempoWorkLog workLog) {
+        return entries.containsKey(workLog.getFingerprint());
+    }
+
+    /**
+     * Removes the indexed duplicate of the given work log.
+     *
+     * @param workLog Work log whose duplicate to remove
+     *
+     * @return the removed work log or null if there was none
+     */
+    public TempoWorkLog remove(TempoWorkLog workLog) {
+        return entries.remove(workLog.getFingerprint());
+    }
+
+    /**
+     * Gets the number of distinct work logs indexed.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the indexed work logs.
+     *
+     * @return the work logs, in no particular order
+     */
+    public Collection<TempoWorkLog> getWorkLogs() {
+        return entries.values();
+    }
+
+    /**
+     * Drops duplicates from a list of work logs, keeping the first of each.
+     *
+     * @param workLogs Work logs to deduplicate
+     *
+     * @return the distinct work logs in their original order
+     */
+    public static List<TempoWorkLog> distinct(Collection<TempoWorkLog> workLogs) {
+        TempoWorkLogIndex index = new TempoWorkLogIndex();
+        List<TempoWorkLog> result = new ArrayList<TempoWorkLog>(workLogs.size());
+
+        for (TempoWorkLog workLog : workLogs) {
+            if (index.add(workLog) == null)
+                result.add(workLog);
+        }
+
+        return result;
+    }
+}
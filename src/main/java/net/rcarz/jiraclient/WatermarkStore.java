@@ -0,0 +1,51 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Persists how far an incremental sync has got, so that a restarted sync
+ * resumes where the previous one stopped.
+ */
+public interface WatermarkStore {
+
+    /**
+     * Gets the watermark stored under the given key.
+     *
+     * @param key Sync key, typically a project key
+     *
+     * @return the watermark or null if nothing has been synced yet
+     *
+     * @throws IOException when the store can't be read
+     */
+    Date getWatermark(String key) throws IOException;
+
+    /**
+     * Stores the watermark for the given key.
+     *
+     * @param key Sync key, typically a project key
+     * @param watermark New watermark
+     *
+     * @throws IOException when the store can't be written
+     */
+    void setWatermark(String key, Date watermark) throws IOException;
+}
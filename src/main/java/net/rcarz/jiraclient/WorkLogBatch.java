@@ -0,0 +1,408 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Reads the complete work logs of many issues, several issues at a time.
+ *
+ * Issues can be selected with a JQL query or a list of keys. A query
+ * search asks for the worklog field, so issues whose work logs fit in the
+ * search result need no further request; the others, and all issues given
+ * by key, are read from the worklog resource page by page.
+ *
+ * Work logs are passed to a listener one issue at a time, as each issue
+ * completes, on the thread that started the run. An issue that fails is
+ * reported to the listener and in the result, and the run carries on.
+ */
+public class WorkLogBatch {
+
+    public static final int DEFAULT_CONCURRENCY = 4;
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_SEARCH_PAGE_SIZE = 100;
+
+    /**
+     * Receives the work logs of each issue.
+     */
+    public interface Listener {
+
+        /**
+         * Called with the complete work logs of an issue.
+         *
+         * @param key Issue key
+         * @param workLogs All work logs of the issue
+         *
+         * @throws Exception to abort the run
+         */
+        void onWorkLogs(String key, List<WorkLog> workLogs) throws Exception;
+
+        /**
+         * Called when the work logs of an issue couldn't be read.
+         *
+         * @param key Issue key
+         * @param error The failure
+         */
+        void onFailure(String key, JiraException error);
+    }
+
+    /**
+     * Outcome of a batch run.
+     */
+    public static final class Result {
+        private final int issues;
+        private final int workLogs;
+        private final int requests;
+        private final Map<String, JiraException> failures;
+
+        Result(int issues, int workLogs, int requests, Map<String, JiraException> failures) {
+            this.issues = issues;
+            this.workLogs = workLogs;
+            this.requests = requests;
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+
+        /**
+         * Gets the number of issues whose work logs were delivered.
+         */
+        public int getIssues() {
+            return issues;
+        }
+
+        /**
+         * Gets the number of work logs delivered.
+         */
+        public int getWorkLogs() {
+            return workLogs;
+        }
+
+        /**
+         * Gets the number of worklog resource requests made, not counting
+         * searches.
+         */
+        public int getRequests() {
+            return requests;
+        }
+
+        /**
+         * Gets the issues that failed, by key, in the order they failed.
+         */
+        public Map<String, JiraException> getFailures() {
+            return failures;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d issues, %d work logs, %d requests, %d failed",
+                issues, workLogs, requests, failures.size());
+        }
+    }
+
+    /**
+     * Work logs of one issue, or why they couldn't be read.
+     */
+    private static final class Outcome {
+        final String key;
+        final List<WorkLog> workLogs;
+        final int requests;
+        final JiraException error;
+
+        Outcome(String key, List<WorkLog> workLogs, int requests, JiraException error) {
+            this.key = key;
+            this.workLogs = workLogs;
+            this.requests = requests;
+            this.error = error;
+        }
+    }
+
+    private final RestClient restclient;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private int searchPageSize = DEFAULT_SEARCH_PAGE_SIZE;
+
+    /**
+     * Creates a work log batch.
+     *
+     * @param restclient REST client instance
+     */
+    public WorkLogBatch(RestClient restclient) {
+        this.restclient = restclient;
+    }
+
+    /**
+     * Sets how many issues are read at once.
+     *
+     * @param concurrency Number of parallel requests
+     *
+     * @return this
+     */
+    public WorkLogBatch concurrency(int concurrency) {
+        if (concurrency <= 0)
+            throw new IllegalArgumentException("concurrency must be positive");
+
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Sets how many work logs are requested per worklog page.
+     *
+     * @param pageSize Worklog page size
+     *
+     * @return this
+     */
+    public WorkLogBatch pageSize(int pageSize) {
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("pageSize must be positive");
+
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Sets how many issues are requested per search page.
+     *
+     * @param searchPageSize Search page size
+     *
+     * @return this
+     */
+    public WorkLogBatch searchPageSize(int searchPageSize) {
+        if (searchPageSize <= 0)
+            throw new IllegalArgumentException("searchPageSize must be positive");
+
+        this.searchPageSize = searchPageSize;
+        return this;
+    }
+
+    /**
+     * Reads the work logs of all issues matching a query.
+     *
+     * @param jql JQL query selecting the issues
+     * @param listener Receives the work logs per issue
+     *
+     * @return counts and failures
+     *
+     * @throws JiraException when the search or the listener fails
+     */
+    public Result fetch(String jql, Listener listener) throws JiraException {
+        final Iterator<Issue> issues = Issue.search(restclient, jql, Field.WORKLOG, null,
+            searchPageSize, null, 1).iterator();
+
+        try {
+            return run(new Iterator<Callable<Outcome>>() {
+                @Override
+                public boolean hasNext() {
+                    return issues.hasNext();
+                }
+
+                @Override
+                public Callable<Outcome> next() {
+                    Issue issue = issues.next();
+                    return task(issue.getKey(), issue.getField(Field.WORKLOG));
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            }, listener);
+        } catch (RuntimeException ex) {
+            /* the issue iterator can only report a failed page unchecked */
+            if (ex.getCause() instanceof JiraException)
+                throw new JiraException("Failed to search for issues", ex.getCause());
+
+            throw ex;
+        }
+    }
+
+    /**
+     * Reads the work logs of the given issues.
+     *
+     * @param keys Issue keys
+     * @param listener Receives the work logs per issue
+     *
+     * @return counts and failures
+     *
+     * @throws JiraException when the listener fails
+     */
+    public Result fetch(Collection<String> keys, Listener listener) throws JiraException {
+        final Iterator<String> it = keys.iterator();
+
+        return run(new Iterator<Callable<Outcome>>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Callable<Outcome> next() {
+                return task(it.next(), null);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        }, listener);
+    }
+
+    private Callable<Outcome> task(final String key, final Object embedded) {
+        return new Callable<Outcome>() {
+            @Override
+            public Outcome call() {
+                int[] requests = new int[1];
+
+                try {
+                    JSONObject first = embedded instanceof JSONObject
+                        && !((JSONObject) embedded).isNullObject() ? (JSONObject) embedded : null;
+                    List<WorkLog> workLogs = readWorkLogs(restclient, key, first, pageSize, requests);
+                    return new Outcome(key, workLogs, requests[0], null);
+                } catch (Exception ex) {
+                    return new Outcome(key, null, requests[0],
+                        new JiraException("Failed to get worklog for issue " + key, ex));
+                }
+            }
+        };
+    }
+
+    /**
+     * Runs the tasks with bounded concurrency, delivering outcomes as they
+     * complete, so results are handed over while the search is still
+     * paging.
+     */
+    private Result run(Iterator<Callable<Outcome>> tasks, Listener listener) throws JiraException {
+        Delivery delivery = new Delivery(listener);
+
+        try {
+            BoundedCompletion.run(tasks, concurrency, "jira-worklog", delivery);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while reading work logs", ex);
+        } catch (ExecutionException ex) {
+            throw new JiraException("Work log task failed", ex.getCause());
+        }
+
+        return new Result(delivery.issues, delivery.workLogs, delivery.requests, delivery.failures);
+    }
+
+    /**
+     * Passes outcomes to the listener and counts them.
+     */
+    private static final class Delivery implements BoundedCompletion.Sink<Outcome> {
+        final Listener listener;
+        final Map<String, JiraException> failures = new LinkedHashMap<String, JiraException>();
+        int issues = 0;
+        int workLogs = 0;
+        int requests = 0;
+
+        Delivery(Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void accept(Outcome outcome) throws JiraException {
+            requests += outcome.requests;
+
+            if (outcome.error != null) {
+                failures.put(outcome.key, outcome.error);
+                listener.onFailure(outcome.key, outcome.error);
+                return;
+            }
+
+            try {
+                listener.onWorkLogs(outcome.key, outcome.workLogs);
+            } catch (Exception ex) {
+                throw new JiraException("Listener failed on " + outcome.key, ex);
+            }
+
+            issues++;
+            workLogs += outcome.workLogs.size();
+        }
+    }
+
+    /**
+     * Reads all work logs of an issue, following pages while the server
+     * reports more than it returned.
+     *
+     * @param restclient REST client instance
+     * @param key Issue key
+     * @param first First page if already at hand, otherwise null
+     * @param pageSize Work logs per page
+     * @param requests Incremented per request made
+     *
+     * @return all work logs of the issue
+     */
+    static List<WorkLog> readWorkLogs(RestClient restclient, String key, JSONObject first,
+            int pageSize, int[] requests) throws Exception {
+
+        List<WorkLog> workLogs = new ArrayList<WorkLog>();
+        JSONObject page = first;
+
+        while (true) {
+            if (page == null) {
+                page = fetchPage(restclient, key, workLogs.size(), pageSize);
+                requests[0]++;
+            }
+
+            JSONArray entries = JSONArray.fromObject(page.get("worklogs"));
+            int startAt = Field.getInteger(page.get("startAt"));
+            int before = workLogs.size();
+
+            // a server that ignores startAt sends the list from the start
+            for (int i = Math.max(0, before - startAt); i < entries.size(); i++)
+                workLogs.add(new WorkLog(restclient, entries.getJSONObject(i)));
+
+            if (workLogs.size() == before || workLogs.size() >= Field.getInteger(page.get("total")))
+                return workLogs;
+
+            page = null;
+        }
+    }
+
+    private static JSONObject fetchPage(RestClient restclient, String key, int startAt, int pageSize)
+            throws Exception {
+
+        Map<String, String> params = new HashMap<String, String>();
+        params.put("startAt", String.valueOf(startAt));
+        params.put("maxResults", String.valueOf(pageSize));
+
+        URI uri = restclient.buildURI(Issue.getBaseUri() + "issue/" + key + "/worklog", params);
+        JSON json = restclient.get(uri);
+
+        if (!(json instanceof JSONObject))
+            throw new JiraException("JSON payload is malformed");
+
+        return (JSONObject) json;
+    }
+}
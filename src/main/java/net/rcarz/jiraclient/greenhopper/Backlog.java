@@ -22,9 +22,11 @@ package net.rcarz.jiraclient.greenhopper;
 import net.rcarz.jiraclient.Field;
 import net.rcarz.jiraclient.JiraException;
 import net.rcarz.jiraclient.RestClient;
+import net.rcarz.jiraclient.util.IntObjectMap;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -128,15 +130,15 @@ public class Backlog {
 
         //determining which issues are actually in the backlog vs the sprints
         //fill in the issues into the single sprints and the backlog issue list respectively
+        IntObjectMap<List<Sprint>> sprintsByIssue = indexSprints(sprints);
+
         for(SprintIssue issue : issues){
-            boolean addedToSprint = false;
-            for(Sprint sprint : sprints){
-                if(sprint.getIssuesIds().contains(issue.getId())){
+            List<Sprint> assigned = sprintsByIssue.get(issue.getId());
+
+            if(assigned != null){
+                for(Sprint sprint : assigned)
                     sprint.getIssues().add(issue);
-                    addedToSprint = true;
-                }
-            }
-            if(!addedToSprint){
+            } else {
                 if(backlogIssues == null){
                     backlogIssues = new ArrayList<SprintIssue>();
                 }
@@ -146,6 +148,36 @@ public class Backlog {
 
     }
 
+    /**
+     * Maps each issue ID to its sprints in board order. Most issues are in
+     * one sprint, so a singleton list is used until a second one shows up.
+     */
+    private static IntObjectMap<List<Sprint>> indexSprints(List<Sprint> sprints) {
+        int expected = 0;
+        for (Sprint sprint : sprints)
+            expected += sprint.issuesIdArray().length;
+
+        IntObjectMap<List<Sprint>> index = new IntObjectMap<List<Sprint>>(expected);
+
+        for (Sprint sprint : sprints) {
+            for (int id : sprint.issuesIdArray()) {
+                List<Sprint> current = index.get(id);
+
+                if (current == null) {
+                    index.put(id, Collections.singletonList(sprint));
+                } else if (current.get(current.size() - 1) != sprint) {
+                    if (current.size() == 1) {
+                        current = new ArrayList<Sprint>(current);
+                        index.put(id, current);
+                    }
+                    current.add(sprint);
+                }
+            }
+        }
+
+        return index;
+    }
+
     /**
      * Retrieves the backlog data for the given rapid view.
      *
@@ -22,6 +22,7 @@ package net.rcarz.jiraclient.greenhopper;
 import net.rcarz.jiraclient.RestClient;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import net.sf.json.JSONArray;
@@ -121,6 +122,29 @@ public final class GreenHopperField {
         return results;
     }
 
+    /**
+     * Gets an array of ints from the given object.
+     *
+     * @param ia a JSONArray instance
+     *
+     * @return an int array, empty if ia isn't a JSONArray instance
+     */
+    public static int[] getIntArray(Object ia) {
+        if (!(ia instanceof JSONArray))
+            return new int[0];
+
+        JSONArray array = (JSONArray)ia;
+        int[] results = new int[array.size()];
+        int n = 0;
+
+        for (Object v : array) {
+            if (v instanceof Number)
+                results[n++] = ((Number)v).intValue();
+        }
+
+        return n == results.length ? results : Arrays.copyOf(results, n);
+    }
+
     /**
      * Gets a GreenHopper resource from the given object.
      *
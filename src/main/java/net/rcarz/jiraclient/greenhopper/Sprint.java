@@ -22,7 +22,9 @@ package net.rcarz.jiraclient.greenhopper;
 import net.rcarz.jiraclient.Field;
 import net.rcarz.jiraclient.RestClient;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -40,7 +42,8 @@ public class Sprint extends GreenHopperResource {
     private DateTime startDate = null;
     private DateTime endDate = null;
     private DateTime completeDate = null;
-    private List<Integer> issuesIds = null;
+    private int[] issuesIds = null;
+    private int[] sortedIssuesIds = null;
     private List<SprintIssue> issues = null;
 
     /**
@@ -65,7 +68,9 @@ public class Sprint extends GreenHopperResource {
         startDate = GreenHopperField.getDateTime(map.get("startDate"));
         endDate = GreenHopperField.getDateTime(map.get("endDate"));
         completeDate = GreenHopperField.getDateTime(map.get("completeDate"));
-        issuesIds = GreenHopperField.getIntegerArray(map.get("issuesIds"));
+        issuesIds = GreenHopperField.getIntArray(map.get("issuesIds"));
+        sortedIssuesIds = issuesIds.clone();
+        Arrays.sort(sortedIssuesIds);
     }
 
     @Override
@@ -100,7 +105,53 @@ public class Sprint extends GreenHopperResource {
         return issues;
     }
 
+    /**
+     * Gets the IDs of the issues in this sprint.
+     *
+     * @return a read-only list backed by the sprint's id array
+     */
     public List<Integer> getIssuesIds() {
+        final int[] ids = issuesIds;
+
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                return ids[index];
+            }
+
+            @Override
+            public int size() {
+                return ids.length;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Integer && containsIssue((Integer)o);
+            }
+        };
+    }
+
+    /**
+     * Checks whether an issue is in this sprint.
+     *
+     * @param issueId Issue ID
+     *
+     * @return true if the sprint lists the issue
+     */
+    public boolean containsIssue(int issueId) {
+        return Arrays.binarySearch(sortedIssuesIds, issueId) >= 0;
+    }
+
+    /**
+     * Gets the IDs of the issues in this sprint.
+     *
+     * @return a copy of the id array
+     */
+    public int[] getIssuesIdArray() {
+        return issuesIds.clone();
+    }
+
+    int[] issuesIdArray() {
         return issuesIds;
     }
 }
@@ -0,0 +1,276 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient.util;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Parses and formats the date layouts used by the JIRA REST API.
+ *
+ * Dates and timestamps in JIRA's fixed layouts (2013-09-29 and
+ * 2013-09-29T20:16:19.854+0000) are decoded and encoded by hand without
+ * creating a formatter. Anything else goes through SimpleDateFormat so that
+ * lenient and prefix parsing behave exactly as before. Local dates and
+ * formatted output use the JVM's default time zone, with offsets taken from
+ * java.util.TimeZone to match SimpleDateFormat. All methods are thread safe.
+ */
+public final class DateCodec {
+
+    public static final String DATE_FORMAT = "yyyy-MM-dd";
+    public static final String DATETIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+
+    private static final int DATE_LENGTH = 10;
+    private static final int DATETIME_LENGTH = 28;
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    /* 1900-01-01T00:00:00Z, before which formatting is left to SimpleDateFormat */
+    private static final long FAST_FORMAT_MIN = -2208988800000L;
+
+    private DateCodec() { }
+
+    /**
+     * Parses a date (yyyy-MM-dd) as midnight in the default time zone.
+     * Trailing text is ignored.
+     *
+     * @param s a string representation of a date
+     *
+     * @return a Date instance or null if s can't be parsed
+     */
+    public static Date parseDate(String s) {
+        if (s.length() >= DATE_LENGTH && (s.length() == DATE_LENGTH || !isDigit(s.charAt(DATE_LENGTH)))) {
+            int year = parseDigits(s, 0, 4);
+            int month = parseDigits(s, 5, 2);
+            int day = parseDigits(s, 8, 2);
+
+            if (s.charAt(4) == '-' && s.charAt(7) == '-' && isValidDate(year, month, day)) {
+                TimeZone tz = TimeZone.getDefault();
+                long local = daysFromCivil(year, month, day) * MILLIS_PER_DAY;
+                long millis = local - tz.getOffset(local - tz.getRawOffset());
+                int offset = tz.getOffset(millis);
+
+                /* midnight falls in a daylight saving gap, so move forward like Calendar does */
+                if (millis + offset != local)
+                    millis = local - offset;
+
+                return new Date(millis);
+            }
+        }
+
+        return new SimpleDateFormat(DATE_FORMAT).parse(s, new ParsePosition(0));
+    }
+
+    /**
+     * Parses a timestamp (yyyy-MM-dd'T'HH:mm:ss.SSSZ).
+     *
+     * @param s a string representation of a timestamp
+     *
+     * @return a Date instance or null if s can't be parsed
+     */
+    public static Date parseDateTime(String s) {
+        long millis = s.length() == DATETIME_LENGTH ? parseFixedDateTime(s) : Long.MIN_VALUE;
+
+        if (millis != Long.MIN_VALUE)
+            return new Date(millis);
+
+        return new SimpleDateFormat(DATETIME_FORMAT).parse(s, new ParsePosition(0));
+    }
+
+    /**
+     * Formats a date as yyyy-MM-dd in the default time zone.
+     *
+     * @param d Date to format
+     *
+     * @return the formatted date
+     */
+    public static String formatDate(Date d) {
+        long millis = d.getTime();
+        if (millis < FAST_FORMAT_MIN)
+            return new SimpleDateFormat(DATE_FORMAT).format(d);
+
+        StringBuilder sb = new StringBuilder(DATE_LENGTH);
+        appendDate(sb, millis + TimeZone.getDefault().getOffset(millis));
+        return sb.toString();
+    }
+
+    /**
+     * Formats a timestamp as yyyy-MM-dd'T'HH:mm:ss.SSSZ in the default time
+     * zone.
+     *
+     * @param d Date to format
+     *
+     * @return the formatted timestamp
+     */
+    public static String formatDateTime(Date d) {
+        long millis = d.getTime();
+        if (millis < FAST_FORMAT_MIN)
+            return new SimpleDateFormat(DATETIME_FORMAT).format(d);
+
+        int offset = TimeZone.getDefault().getOffset(millis);
+        long local = millis + offset;
+        long timeOfDay = floorMod(local, MILLIS_PER_DAY);
+        StringBuilder sb = new StringBuilder(DATETIME_LENGTH);
+
+        appendDate(sb, local);
+        sb.append('T');
+        appendDigits(sb, (int)(timeOfDay / 3600000), 2);
+        sb.append(':');
+        appendDigits(sb, (int)(timeOfDay / 60000 % 60), 2);
+        sb.append(':');
+        appendDigits(sb, (int)(timeOfDay / 1000 % 60), 2);
+        sb.append('.');
+        appendDigits(sb, (int)(timeOfDay % 1000), 3);
+        sb.append(offset < 0 ? '-' : '+');
+        offset = Math.abs(offset) / 60000;
+        appendDigits(sb, offset / 60, 2);
+        appendDigits(sb, offset % 60, 2);
+
+        return sb.toString();
+    }
+
+    /**
+     * Appends yyyy-MM-dd for a local time in milliseconds.
+     */
+    private static void appendDate(StringBuilder sb, long local) {
+        long days = (local - floorMod(local, MILLIS_PER_DAY)) / MILLIS_PER_DAY;
+
+        /* civil from days, see daysFromCivil() */
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int)(doy - (153 * mp + 2) / 5 + 1);
+        int month = (int)(mp < 10 ? mp + 3 : mp - 9);
+        int year = (int)(yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+        appendDigits(sb, year, 4);
+        sb.append('-');
+        appendDigits(sb, month, 2);
+        sb.append('-');
+        appendDigits(sb, day, 2);
+    }
+
+    private static void appendDigits(StringBuilder sb, int value, int width) {
+        for (int w = width - 1, p = 1; w > 0; w--, p *= 10) {
+            if (value < p * 10)
+                sb.append('0');
+        }
+
+        sb.append(value);
+    }
+
+    private static long floorMod(long x, long y) {
+        long m = x % y;
+        return m < 0 ? m + y : m;
+    }
+
+    /**
+     * Decodes the fixed layout.
+     *
+     * @return milliseconds since the epoch or Long.MIN_VALUE when s doesn't
+     * strictly match the layout
+     */
+    private static long parseFixedDateTime(String s) {
+        if (s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != 'T' ||
+            s.charAt(13) != ':' || s.charAt(16) != ':' || s.charAt(19) != '.')
+            return Long.MIN_VALUE;
+
+        char sign = s.charAt(23);
+        if (sign != '+' && sign != '-')
+            return Long.MIN_VALUE;
+
+        int year = parseDigits(s, 0, 4);
+        int month = parseDigits(s, 5, 2);
+        int day = parseDigits(s, 8, 2);
+        int hour = parseDigits(s, 11, 2);
+        int minute = parseDigits(s, 14, 2);
+        int second = parseDigits(s, 17, 2);
+        int millis = parseDigits(s, 20, 3);
+        int offsetHours = parseDigits(s, 24, 2);
+        int offsetMinutes = parseDigits(s, 26, 2);
+
+        if (!isValidDate(year, month, day) || hour > 23 || minute > 59 || second > 59 ||
+            millis < 0 || offsetHours < 0 || offsetHours > 23 || offsetMinutes < 0 || offsetMinutes > 59)
+            return Long.MIN_VALUE;
+
+        long offset = (offsetHours * 60L + offsetMinutes) * 60000L;
+        if (sign == '-')
+            offset = -offset;
+
+        return daysFromCivil(year, month, day) * MILLIS_PER_DAY +
+            ((hour * 60L + minute) * 60L + second) * 1000L + millis - offset;
+    }
+
+    /**
+     * Checks a date the fast paths can handle. Years before 1900 are left to
+     * SimpleDateFormat because of its Julian calendar cutover.
+     */
+    private static boolean isValidDate(int year, int month, int day) {
+        return year >= 1900 && month >= 1 && month <= 12 && day >= 1 &&
+            day <= daysInMonth(year, month);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2)
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+
+        return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+    }
+
+    /**
+     * Counts days since 1970-01-01 in the proleptic Gregorian calendar.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+
+        return era * 146097L + doe - 719468;
+    }
+
+    /**
+     * Parses a run of ASCII digits.
+     *
+     * @return the value or -1 if a character isn't a digit
+     */
+    private static int parseDigits(String s, int start, int count) {
+        int value = 0;
+
+        for (int i = start; i < start + count; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c))
+                return -1;
+
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from primitive int keys to objects, so that large id lookups
+ * don't box every key. Uses open addressing with linear probing. Null
+ * values aren't supported.
+ *
+ * @param <V> Value type
+ */
+public class IntObjectMap<V> {
+
+    private int[] keys;
+    private Object[] values;
+    private int size = 0;
+
+    /**
+     * Creates a map.
+     *
+     * @param expectedSize Number of entries to size the table for
+     */
+    public IntObjectMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity * 3 < expectedSize * 4)
+            capacity <<= 1;
+
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * Gets the value for a key.
+     *
+     * @param key Key to look up
+     *
+     * @return the value or null if there's none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int mask = keys.length - 1;
+
+        for (int i = mix(key) & mask; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return (V)values[i];
+        }
+
+        return null;
+    }
+
+    /**
+     * Stores a value, replacing any existing one.
+     *
+     * @param key Key to store under
+     * @param value Value, not null
+     *
+     * @return the previous value or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null)
+            throw new NullPointerException("value may not be null");
+
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V old = (V)values[i];
+                values[i] = value;
+                return old;
+            }
+        }
+
+        keys[i] = key;
+        values[i] = value;
+
+        if (++size * 4 > keys.length * 3)
+            grow();
+
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        int mask = oldKeys.length * 2 - 1;
+
+        keys = new int[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] == null)
+                continue;
+
+            int i = mix(oldKeys[j]) & mask;
+            while (values[i] != null)
+                i = (i + 1) & mask;
+
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
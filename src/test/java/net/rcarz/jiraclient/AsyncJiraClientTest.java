@@ -0,0 +1,98 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class AsyncJiraClientTest {
+
+    /**
+     * Returns the requested issue after a short delay and records how many
+     * requests were in flight at once.
+     */
+    private static class SlowRestClient extends RestClient {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        SlowRestClient() {
+            super(null, URI.create("http://jira.example.com"));
+        }
+
+        @Override
+        public JSON get(URI uri) throws RestException {
+            int current = inFlight.incrementAndGet();
+            synchronized (maxInFlight) {
+                if (current > maxInFlight.get())
+                    maxInFlight.set(current);
+            }
+
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+
+            String key = uri.getPath().substring(uri.getPath().lastIndexOf('/') + 1);
+            if (key.equals("MISSING-1"))
+                throw new RestException("Not Found", 404, "");
+
+            JSONObject issue = new JSONObject();
+            issue.put("key", key);
+            issue.put("fields", new JSONObject());
+            return issue;
+        }
+    }
+
+    @Test
+    public void testConcurrencyIsLimitedPerHost() throws Exception {
+        SlowRestClient restClient = new SlowRestClient();
+        AsyncJiraClient async = new AsyncJiraClient(restClient, 3);
+        List<Future<Issue>> futures = new ArrayList<Future<Issue>>();
+
+        for (int i = 0; i < 20; i++)
+            futures.add(async.getIssue("TEST-" + i));
+
+        for (int i = 0; i < 20; i++)
+            assertEquals("TEST-" + i, futures.get(i).get().getKey());
+
+        assertTrue(restClient.maxInFlight.get() <= 3);
+        assertTrue(restClient.maxInFlight.get() > 1);
+        async.shutdown();
+    }
+
+    @Test
+    public void testFailureIsReportedThroughFuture() throws Exception {
+        AsyncJiraClient async = new AsyncJiraClient(new SlowRestClient(), 2);
+
+        try {
+            async.getIssue("MISSING-1").get();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof JiraException);
+            assertTrue(ex.getCause().getCause() instanceof RestException);
+            return;
+        } finally {
+            async.shutdown();
+        }
+
+        throw new AssertionError("expected ExecutionException");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRejectsRequestsAfterShutdown() throws Exception {
+        AsyncJiraClient async = new AsyncJiraClient(new SlowRestClient(), 2);
+        async.shutdown();
+        async.get("/rest/api/2/issue/TEST-1");
+    }
+}
@@ -0,0 +1,214 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class AttachmentMirrorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Returns three issues with five attachments between them, and serves
+     * attachment content honouring byte ranges unless told to ignore them.
+     */
+    private static class AttachmentRestClient extends RestClient {
+        final List<String> requests = new CopyOnWriteArrayList<String>();
+        volatile boolean ignoreRanges = false;
+
+        AttachmentRestClient() {
+            super(null, URI.create("http://jira.example.com"));
+        }
+
+        static byte[] content(int id) {
+            byte[] data = new byte[1000 + id * 100];
+            Arrays.fill(data, (byte)id);
+            return data;
+        }
+
+        @Override
+        public JSON get(URI uri) {
+            JSONArray issues = new JSONArray();
+            int id = 0;
+
+            for (int i = 1; i <= 3; i++) {
+                JSONArray attachments = new JSONArray();
+                for (int j = 0; j < i && id < 5; j++, id++) {
+                    JSONObject attachment = new JSONObject();
+                    attachment.put("id", String.valueOf(id));
+                    attachment.put("filename", "file/" + id + ".bin");
+                    attachment.put("size", content(id).length);
+                    attachment.put("content", "http://jira.example.com/secure/attachment/" + id);
+                    attachments.add(attachment);
+                }
+
+                JSONObject fields = new JSONObject();
+                fields.put("attachment", attachments);
+                JSONObject issue = new JSONObject();
+                issue.put("key", "TEST-" + i);
+                issue.put("fields", fields);
+                issues.add(issue);
+            }
+
+            JSONObject result = new JSONObject();
+            result.put("startAt", 0);
+            result.put("maxResults", 100);
+            result.put("total", 3);
+            result.put("issues", issues);
+            return result;
+        }
+
+        @Override
+        HttpResponse executeRaw(HttpRequestBase req) {
+            String path = req.getURI().getPath();
+            byte[] data = content(Integer.parseInt(path.substring(path.lastIndexOf('/') + 1)));
+            String range = req.getFirstHeader("Range") != null ? req.getFirstHeader("Range").getValue() : null;
+            requests.add(path + (range != null ? " " + range : ""));
+
+            HttpResponse resp;
+            if (range != null && !ignoreRanges) {
+                int from = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                resp = new BasicHttpResponse(HttpVersion.HTTP_1_1, 206, "Partial Content");
+                resp.setEntity(new ByteArrayEntity(Arrays.copyOfRange(data, from, data.length)));
+            } else {
+                resp = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+                resp.setEntity(new ByteArrayEntity(data));
+            }
+
+            return resp;
+        }
+    }
+
+    @Test
+    public void testMirrorSkipsPresentFilesAndResumes() throws Exception {
+        AttachmentRestClient restClient = new AttachmentRestClient();
+        File dir = folder.getRoot();
+
+        AttachmentMirror.Result first = new AttachmentMirror(restClient, dir).concurrency(3).mirror("project = TEST");
+        assertEquals(5, first.getDownloaded());
+        assertEquals(0, first.getSkipped());
+        assertTrue(first.getFailures().isEmpty());
+        assertEquals(1000 * 5 + 100 * (0 + 1 + 2 + 3 + 4), first.getBytes());
+
+        File file = new File(dir, "TEST-3/4-file_4.bin");
+        assertTrue(Arrays.equals(AttachmentRestClient.content(4), Files.readAllBytes(file.toPath())));
+        assertEquals(5, Files.readAllLines(new File(dir, AttachmentMirror.MANIFEST_NAME).toPath(),
+            Charset.forName("UTF-8")).size());
+
+        restClient.requests.clear();
+        AttachmentMirror.Result second = new AttachmentMirror(restClient, dir).mirror("project = TEST");
+        assertEquals(0, second.getDownloaded());
+        assertEquals(5, second.getSkipped());
+        assertTrue(restClient.requests.isEmpty());
+
+        /* simulate a crash half way through attachment 4 */
+        file.delete();
+        FileOutputStream part = new FileOutputStream(new File(dir, "TEST-3/4-file_4.bin.part"));
+        part.write(AttachmentRestClient.content(4), 0, 600);
+        part.close();
+
+        AttachmentMirror.Result third = new AttachmentMirror(restClient, dir).mirror("project = TEST");
+        assertEquals(1, third.getDownloaded());
+        assertEquals(4, third.getSkipped());
+        assertEquals(800, third.getBytes());
+        assertEquals("/secure/attachment/4 bytes=600-", restClient.requests.get(0));
+        assertTrue(Arrays.equals(AttachmentRestClient.content(4), Files.readAllBytes(file.toPath())));
+    }
+
+    @Test
+    public void testBytesCountWholeFileWhenRangeIsIgnored() throws Exception {
+        AttachmentRestClient restClient = new AttachmentRestClient();
+        File dir = folder.getRoot();
+        new AttachmentMirror(restClient, dir).mirror("project = TEST");
+
+        File file = new File(dir, "TEST-3/4-file_4.bin");
+        file.delete();
+        FileOutputStream part = new FileOutputStream(new File(dir, "TEST-3/4-file_4.bin.part"));
+        part.write(AttachmentRestClient.content(4), 0, 600);
+        part.close();
+
+        restClient.ignoreRanges = true;
+        AttachmentMirror.Result result = new AttachmentMirror(restClient, dir).mirror("project = TEST");
+        assertEquals(1, result.getDownloaded());
+        assertEquals(1400, result.getBytes());
+        assertTrue(Arrays.equals(AttachmentRestClient.content(4), Files.readAllBytes(file.toPath())));
+    }
+
+    @Test
+    public void testFailedSearchPageIsReportedAsJiraException() throws Exception {
+        AttachmentRestClient restClient = new AttachmentRestClient() {
+            @Override
+            public JSON get(URI uri) {
+                if (!uri.getQuery().contains("startAt=0"))
+                    throw new IllegalStateException("unexpected page " + uri);
+
+                /* only the first of the three issues */
+                JSONObject result = (JSONObject)super.get(uri);
+                JSONArray issues = result.getJSONArray("issues");
+                while (issues.size() > 1)
+                    issues.remove(issues.size() - 1);
+                result.put("issues", issues);
+                return result;
+            }
+        };
+
+        try {
+            new AttachmentMirror(restClient, folder.getRoot()).pageSize(1).mirror("project = TEST");
+            throw new AssertionError("expected JiraException");
+        } catch (JiraException ex) {
+            assertTrue(ex.getCause() instanceof JiraException);
+        }
+    }
+
+    @Test
+    public void testManifestDecidesWhatIsPresent() throws Exception {
+        AttachmentRestClient restClient = new AttachmentRestClient();
+        File dir = folder.getRoot();
+        File manifest = new File(dir, AttachmentMirror.MANIFEST_NAME);
+
+        /* a file of the right size that the mirror never wrote */
+        File copied = new File(dir, "TEST-1/0-file_0.bin");
+        copied.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(copied);
+        out.write(new byte[AttachmentRestClient.content(0).length]);
+        out.close();
+
+        AttachmentMirror.Result first = new AttachmentMirror(restClient, dir).mirror("project = TEST");
+        assertEquals(5, first.getDownloaded());
+        assertTrue(Arrays.equals(AttachmentRestClient.content(0), Files.readAllBytes(copied.toPath())));
+
+        /* a recorded size that no longer matches the attachment */
+        List<String> lines = Files.readAllLines(manifest.toPath(), Charset.forName("UTF-8"));
+        StringBuilder edited = new StringBuilder();
+        for (String line : lines)
+            edited.append(line.startsWith("2\t") ? line.replaceFirst("\t\\d+\t", "\t1\t") : line).append('\n');
+        Files.write(manifest.toPath(), edited.toString().getBytes("UTF-8"));
+
+        restClient.requests.clear();
+        AttachmentMirror.Result second = new AttachmentMirror(restClient, dir).mirror("project = TEST");
+        assertEquals(1, second.getDownloaded());
+        assertEquals(4, second.getSkipped());
+        assertEquals("/secure/attachment/2", restClient.requests.get(0));
+    }
+}
@@ -0,0 +1,166 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSONObject;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+public class AttachmentTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final byte[] CONTENT = new byte[300 * 1024];
+
+    static {
+        new Random(1).nextBytes(CONTENT);
+    }
+
+    /**
+     * Serves CONTENT, honouring byte ranges, and records the Range headers.
+     */
+    private static Attachment attachment(final List<String> ranges, final int status) throws Exception {
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenAnswer(new Answer<HttpResponse>() {
+            public HttpResponse answer(InvocationOnMock invocation) throws Throwable {
+                HttpUriRequest req = (HttpUriRequest)invocation.getArguments()[0];
+                String range = req.getFirstHeader("Range") != null ? req.getFirstHeader("Range").getValue() : null;
+                ranges.add(range);
+
+                if (status != 200)
+                    return response(status, "{\"errorMessages\":[\"nope\"]}".getBytes("UTF-8"));
+
+                if (range == null)
+                    return response(200, CONTENT);
+
+                int from = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                if (from >= CONTENT.length)
+                    return response(416, new byte[0]);
+
+                return response(206, Arrays.copyOfRange(CONTENT, from, CONTENT.length));
+            }
+        });
+
+        JSONObject json = new JSONObject();
+        json.put("id", "10000");
+        json.put("filename", "data.bin");
+        json.put("size", CONTENT.length);
+        json.put("content", "http://jira.example.com/secure/attachment/10000/data.bin");
+
+        return new Attachment(new RestClient(httpClient, new URI("http://jira.example.com")), json);
+    }
+
+    private static HttpResponse response(int status, byte[] body) {
+        HttpResponse resp = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "Status " + status);
+        resp.setEntity(new ByteArrayEntity(body));
+        return resp;
+    }
+
+    @Test
+    public void testDownloadToStreamWithProgressAndDigest() throws Exception {
+        final List<Long> progress = new ArrayList<Long>();
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long n = attachment(new ArrayList<String>(), 200).downloadTo(out, new Attachment.ProgressListener() {
+            public void progress(long transferred, long total) {
+                assertEquals(CONTENT.length, total);
+                progress.add(transferred);
+            }
+        }, digest);
+
+        assertEquals(CONTENT.length, n);
+        assertTrue(Arrays.equals(CONTENT, out.toByteArray()));
+        assertEquals(Long.valueOf(CONTENT.length), progress.get(progress.size() - 1));
+        assertTrue(progress.size() > 1);
+        assertTrue(Arrays.equals(MessageDigest.getInstance("SHA-256").digest(CONTENT), digest.digest()));
+    }
+
+    @Test
+    public void testDownloadToByteArray() throws Exception {
+        assertTrue(Arrays.equals(CONTENT, attachment(new ArrayList<String>(), 200).download()));
+    }
+
+    @Test
+    public void testDownloadToFile() throws Exception {
+        File file = new File(folder.getRoot(), "data.bin");
+        List<String> ranges = new ArrayList<String>();
+
+        assertEquals(CONTENT.length, attachment(ranges, 200).downloadTo(file.toPath()));
+        assertTrue(Arrays.equals(CONTENT, Files.readAllBytes(file.toPath())));
+        assertNull(ranges.get(0));
+    }
+
+    @Test
+    public void testResumedDownloadIsCompletedAndChecksummed() throws Exception {
+        File file = new File(folder.getRoot(), "data.bin");
+        FileOutputStream partial = new FileOutputStream(file);
+        partial.write(CONTENT, 0, 100000);
+        partial.close();
+
+        List<String> ranges = new ArrayList<String>();
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+        assertEquals(CONTENT.length, attachment(ranges, 200).downloadTo(file.toPath(), true, null, digest));
+        assertEquals("bytes=100000-", ranges.get(0));
+        assertTrue(Arrays.equals(CONTENT, Files.readAllBytes(file.toPath())));
+        assertTrue(Arrays.equals(MessageDigest.getInstance("SHA-256").digest(CONTENT), digest.digest()));
+
+        assertEquals(CONTENT.length, attachment(ranges, 200).downloadTo(file.toPath(), true, null, null));
+        assertEquals("bytes=" + CONTENT.length + "-", ranges.get(1));
+    }
+
+    @Test
+    public void testOversizedPartialFileIsDownloadedAgain() throws Exception {
+        File file = new File(folder.getRoot(), "data.bin");
+        FileOutputStream partial = new FileOutputStream(file);
+        partial.write(new byte[CONTENT.length + 10]);
+        partial.close();
+
+        List<String> ranges = new ArrayList<String>();
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+        assertEquals(CONTENT.length, attachment(ranges, 200).downloadTo(file.toPath(), true, null, digest));
+        assertEquals(Arrays.asList("bytes=" + (CONTENT.length + 10) + "-", null), ranges);
+        assertTrue(Arrays.equals(CONTENT, Files.readAllBytes(file.toPath())));
+        assertTrue(Arrays.equals(MessageDigest.getInstance("SHA-256").digest(CONTENT), digest.digest()));
+    }
+
+    @Test
+    public void testErrorStatusFailsDownload() throws Exception {
+        try {
+            attachment(new ArrayList<String>(), 403).downloadTo(new ByteArrayOutputStream());
+        } catch (JiraException ex) {
+            assertEquals(403, ((RestException)ex.getCause()).getHttpStatusCode());
+            return;
+        }
+
+        throw new AssertionError("expected JiraException");
+    }
+}
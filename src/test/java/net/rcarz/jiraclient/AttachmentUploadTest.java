@@ -0,0 +1,208 @@
+package net.rcarz.jiraclient;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import net.sf.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class AttachmentUploadTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private JiraClient client;
+
+    /* per request path: bytes received and the framing header */
+    private final Map<String, Long> received = new ConcurrentHashMap<String, Long>();
+    private final Map<String, String> framing = new ConcurrentHashMap<String, String>();
+    private final AtomicLong throttled = new AtomicLong();
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                String length = exchange.getRequestHeaders().getFirst("Content-Length");
+                framing.put(path, length != null ? "length " + length : "chunked");
+
+                InputStream in = exchange.getRequestBody();
+                byte[] buf = new byte[65536];
+                long total = 0;
+                int n;
+                while ((n = in.read(buf)) != -1)
+                    total += n;
+                received.put(path, total);
+
+                int status = path.contains("BROKEN") ? 404 : 200;
+                if (path.contains("THROTTLED")) {
+                    throttled.incrementAndGet();
+                    status = 429;
+                }
+                byte[] body = (status == 200 ? "[]" : "{\"errorMessages\":[\"no issue\"]}").getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+
+        client = new JiraClient("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @After
+    public void stopServer() {
+        client.close();
+        server.stop(0);
+    }
+
+    private File largeFile(String name, long size) throws IOException {
+        File file = folder.newFile(name);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(size);
+        raf.close();
+        return file;
+    }
+
+    private Issue issue(String key) {
+        JSONObject json = new JSONObject();
+        json.put("key", key);
+        json.put("fields", new JSONObject());
+        return new Issue(client.getRestClient(), json);
+    }
+
+    @Test
+    public void testLargeFileIsStreamedWithContentLength() throws Exception {
+        final long size = 48L * 1024 * 1024;
+        File file = largeFile("large.bin", size);
+        final List<Long> progress = new ArrayList<Long>();
+
+        issue("TEST-1").addAttachments(new Attachment.ProgressListener() {
+            public void progress(long transferred, long total) {
+                assertTrue(total > size);
+                progress.add(transferred);
+            }
+        }, new Issue.NewAttachment(file.toPath()));
+
+        String path = "/rest/api/latest/issue/TEST-1/attachments";
+        assertTrue(received.get(path) > size);
+        assertEquals("length " + received.get(path), framing.get(path));
+        assertEquals(received.get(path), progress.get(progress.size() - 1));
+        assertTrue(progress.size() > 100);
+    }
+
+    @Test
+    public void testStreamOfUnknownLengthIsChunked() throws Exception {
+        byte[] data = new byte[3 * 1024 * 1024];
+        issue("TEST-2").addAttachments(new Issue.NewAttachment("data.bin", new ByteArrayInputStream(data)));
+
+        String path = "/rest/api/latest/issue/TEST-2/attachments";
+        assertEquals("chunked", framing.get(path));
+        assertTrue(received.get(path) > data.length);
+    }
+
+    @Test
+    public void testStreamOfKnownLength() throws Exception {
+        byte[] data = new byte[1024 * 1024];
+        issue("TEST-3").addAttachments(
+            new Issue.NewAttachment("data.bin", new ByteArrayInputStream(data), data.length));
+
+        assertEquals("length " + received.get("/rest/api/latest/issue/TEST-3/attachments"),
+            framing.get("/rest/api/latest/issue/TEST-3/attachments"));
+    }
+
+    @Test(expected = JiraException.class)
+    public void testStreamShorterThanDeclaredFails() throws Exception {
+        issue("TEST-4").addAttachments(
+            new Issue.NewAttachment("data.bin", new ByteArrayInputStream(new byte[10]), 20));
+    }
+
+    @Test
+    public void testThrottledStreamUploadIsNotSentAgain() throws Exception {
+        client.getRestClient().setRequestThrottle(new RequestThrottle() {
+            @Override
+            protected void sleep(long nanos) {
+            }
+        });
+        client.getRestClient().setRetryPolicy(new RetryPolicy());
+
+        try {
+            issue("THROTTLED-1").addAttachments(
+                new Issue.NewAttachment("data.bin", new ByteArrayInputStream(new byte[1024]), 1024));
+            throw new AssertionError("expected JiraException");
+        } catch (JiraException ex) {
+            assertEquals(429, ((RestException)ex.getCause()).getHttpStatusCode());
+        }
+
+        assertEquals(1, throttled.get());
+    }
+
+    @Test
+    public void testConcurrentUploadsToSeveralIssues() throws Exception {
+        Map<String, List<Issue.NewAttachment>> uploads = new LinkedHashMap<String, List<Issue.NewAttachment>>();
+        long expected = 0;
+
+        for (int i = 0; i < 6; i++) {
+            File file = largeFile("file" + i + ".bin", (i + 1) * 1024 * 1024);
+            expected += file.length();
+            uploads.put("TEST-" + (10 + i), Arrays.asList(
+                new Issue.NewAttachment(file), new Issue.NewAttachment("note.txt", "hello".getBytes("UTF-8"))));
+            expected += 5;
+        }
+        uploads.put("BROKEN-1", Arrays.asList(new Issue.NewAttachment("note.txt", new byte[1])));
+        expected += 1;
+
+        final AtomicLong last = new AtomicLong();
+        final AtomicLong reportedTotal = new AtomicLong(-1);
+        Map<String, JiraException> failures = client.addAttachments(uploads, 3, new Attachment.ProgressListener() {
+            public synchronized void progress(long transferred, long t) {
+                if (reportedTotal.get() < 0)
+                    reportedTotal.set(t);
+                assertEquals(reportedTotal.get(), t);
+                assertTrue(transferred <= t);
+                last.set(Math.max(last.get(), transferred));
+            }
+        });
+
+        assertEquals(1, failures.size());
+        assertEquals(404, ((RestException)failures.get("BROKEN-1").getCause()).getHttpStatusCode());
+        for (int i = 0; i < 6; i++)
+            assertTrue(received.get("/rest/api/latest/issue/TEST-" + (10 + i) + "/attachments") > (i + 1) * 1024 * 1024);
+        assertNull(failures.get("TEST-10"));
+
+        /* multipart framing is counted in both the bytes sent and the total */
+        long sent = 0;
+        for (long bytes : received.values())
+            sent += bytes;
+        assertEquals(sent, reportedTotal.get());
+        assertEquals(sent, last.get());
+        assertTrue(sent > expected);
+    }
+}
@@ -0,0 +1,217 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static org.junit.Assert.assertNotNull;
+
+public class BulkCreateTest {
+
+    private static final String CREATE_META = "{\"projects\": [{\"key\": \"TEST\", \"issuetypes\": [{" +
+        "\"name\": \"Bug\", \"fields\": {" +
+        "\"project\": {\"required\": true, \"name\": \"Project\", \"schema\": {\"type\": \"project\", \"system\": \"project\"}}," +
+        "\"issuetype\": {\"required\": true, \"name\": \"Issue Type\", \"schema\": {\"type\": \"issuetype\", \"system\": \"issuetype\"}}," +
+        "\"summary\": {\"required\": true, \"name\": \"Summary\", \"schema\": {\"type\": \"string\", \"system\": \"summary\"}}," +
+        "\"duedate\": {\"required\": false, \"name\": \"Due Date\", \"schema\": {\"type\": \"date\", \"system\": \"duedate\"}}" +
+        "}}]}]}";
+
+    /**
+     * Answers bulk creates, rejecting issues whose summary starts with "bad".
+     */
+    private static class BulkRestClient extends RestClient {
+        final AtomicInteger bulkPosts = new AtomicInteger();
+        final AtomicInteger searches = new AtomicInteger();
+        final AtomicInteger nextId = new AtomicInteger(100);
+
+        BulkRestClient() {
+            super(null, URI.create("http://jira.example.com"));
+        }
+
+        @Override
+        public JSON get(URI uri) {
+            if (uri.getPath().endsWith("/createmeta"))
+                return JSONSerializer.toJSON(CREATE_META);
+
+            searches.incrementAndGet();
+            JSONArray issues = new JSONArray();
+            String query = uri.getQuery();
+            for (String key : query.substring(query.indexOf('(') + 1, query.indexOf(')')).split(",")) {
+                JSONObject fields = new JSONObject();
+                fields.put("summary", "read back " + key);
+                JSONObject issue = new JSONObject();
+                issue.put("key", key);
+                issue.put("fields", fields);
+                issues.add(issue);
+            }
+
+            JSONObject result = new JSONObject();
+            result.put("issues", issues);
+            return result;
+        }
+
+        @Override
+        public JSON post(String path, JSON payload) throws RestException {
+            assertEquals("/rest/api/latest/issue/bulk", path);
+            bulkPosts.incrementAndGet();
+
+            JSONArray updates = ((JSONObject)payload).getJSONArray("issueUpdates");
+            JSONArray issues = new JSONArray();
+            JSONArray errors = new JSONArray();
+
+            for (int i = 0; i < updates.size(); i++) {
+                String summary = updates.getJSONObject(i).getJSONObject("fields").getString("summary");
+
+                if (summary.startsWith("bad")) {
+                    JSONObject error = new JSONObject();
+                    error.put("status", 400);
+                    error.put("failedElementNumber", i);
+                    error.put("elementErrors", "{\"errors\": {\"summary\": \"rejected\"}}");
+                    errors.add(error);
+                } else {
+                    int id = nextId.incrementAndGet();
+                    JSONObject issue = new JSONObject();
+                    issue.put("id", String.valueOf(id));
+                    issue.put("key", "TEST-" + id);
+                    issues.add(issue);
+                }
+            }
+
+            JSONObject result = new JSONObject();
+            result.put("issues", issues);
+            result.put("errors", errors);
+
+            if (issues.isEmpty())
+                throw new RestException("Bad Request", 400, result.toString());
+
+            return result;
+        }
+    }
+
+    private static List<Issue.FluentCreate> issues(RestClient restClient, String... summaries)
+            throws JiraException {
+
+        List<Issue.FluentCreate> issues = new ArrayList<Issue.FluentCreate>();
+        for (String summary : summaries)
+            issues.add(Issue.create(restClient, "TEST", "Bug").field(Field.SUMMARY, summary));
+        return issues;
+    }
+
+    @Test
+    public void testPartialFailureIsReportedPerIssue() throws JiraException {
+        BulkRestClient restClient = new BulkRestClient();
+        List<Issue.FluentCreate> issues = issues(restClient, "one", "bad two", "three", "four", "five");
+        issues.get(3).field(Field.DUE_DATE, new Object() {
+            public String toString() {
+                return "not a date";
+            }
+        });
+
+        List<Issue.BulkCreateResult> results =
+            Issue.createBulk(restClient, issues, null, false, 2, 1);
+
+        assertEquals(5, results.size());
+        for (int i = 0; i < results.size(); i++)
+            assertEquals(i, results.get(i).getIndex());
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("TEST-101", results.get(0).getKey());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(1).getError().contains("rejected"));
+        assertEquals("TEST-102", results.get(2).getKey());
+        assertFalse(results.get(3).isSuccess());
+        assertEquals("TEST-103", results.get(4).getKey());
+        assertNull(results.get(0).getIssue());
+        assertEquals(3, restClient.bulkPosts.get());
+        assertEquals(0, restClient.searches.get());
+    }
+
+    @Test
+    public void testChunkWhereEveryIssueFails() throws JiraException {
+        BulkRestClient restClient = new BulkRestClient();
+        List<Issue.BulkCreateResult> results =
+            Issue.createBulk(restClient, issues(restClient, "bad one", "bad two", "three"), null, false, 2, 1);
+
+        assertFalse(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+    }
+
+    @Test
+    public void testConcurrentChunksWithReRead() throws JiraException {
+        BulkRestClient restClient = new BulkRestClient();
+        String[] summaries = new String[23];
+        for (int i = 0; i < summaries.length; i++)
+            summaries[i] = "issue " + i;
+
+        List<Issue.BulkCreateResult> results =
+            Issue.createBulk(restClient, issues(restClient, summaries), "summary", true, 5, 3);
+
+        assertEquals(23, results.size());
+        assertEquals(5, restClient.bulkPosts.get());
+        assertEquals(5, restClient.searches.get());
+
+        for (int i = 0; i < results.size(); i++) {
+            Issue.BulkCreateResult result = results.get(i);
+            assertEquals(i, result.getIndex());
+            assertTrue(result.isSuccess());
+            assertNotNull(result.getIssue());
+            assertEquals("read back " + result.getKey(), result.getIssue().getSummary());
+        }
+    }
+
+    @Test
+    public void testServerErrorIsReportedForEveryIssue() throws JiraException {
+        BulkRestClient restClient = new BulkRestClient() {
+            @Override
+            public JSON post(String path, JSON payload) throws RestException {
+                bulkPosts.incrementAndGet();
+                throw new RestException("Internal Server Error", 500,
+                    "{\"errorMessages\":[\"Database unavailable\"],\"errors\":{}}");
+            }
+        };
+
+        List<Issue.BulkCreateResult> results =
+            Issue.createBulk(restClient, issues(restClient, "one", "two", "three"), null, false, 2, 1);
+
+        assertEquals(3, results.size());
+        assertEquals(2, restClient.bulkPosts.get());
+
+        for (Issue.BulkCreateResult result : results) {
+            assertFalse(result.isSuccess());
+            assertEquals("500 Database unavailable", result.getError());
+        }
+    }
+
+    @Test
+    public void testRejectedRequestIsReportedForEveryIssue() throws JiraException {
+        BulkRestClient restClient = new BulkRestClient() {
+            @Override
+            public JSON post(String path, JSON payload) throws RestException {
+                bulkPosts.incrementAndGet();
+                throw new RestException("Bad Request", 400,
+                    "{\"errorMessages\":[\"Field 'issueUpdates' is required\"],\"errors\":{}}");
+            }
+        };
+
+        List<Issue.BulkCreateResult> results =
+            Issue.createBulk(restClient, issues(restClient, "one", "two"), null, false, 2, 1);
+
+        assertEquals(2, results.size());
+        for (Issue.BulkCreateResult result : results) {
+            assertFalse(result.isSuccess());
+            assertEquals("400 Field 'issueUpdates' is required", result.getError());
+        }
+    }
+}
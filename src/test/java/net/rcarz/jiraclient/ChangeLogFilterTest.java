@@ -0,0 +1,140 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class ChangeLogFilterTest {
+
+    private static JSONObject item(String field, String from, String to) {
+        JSONObject item = new JSONObject();
+        item.put("field", field);
+        item.put("from", from.toLowerCase());
+        item.put("fromString", from);
+        item.put("to", to.toLowerCase());
+        item.put("toString", to);
+        return item;
+    }
+
+    private static IssueHistory history(String id, String author, String created, JSONObject... items) {
+        JSONObject user = new JSONObject();
+        user.put("name", author);
+
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("author", user);
+        json.put("created", created);
+        json.put("items", JSONArray.fromObject(Arrays.asList(items)));
+        return new IssueHistory(null, json);
+    }
+
+    private static List<IssueHistory> histories() {
+        return Arrays.asList(
+            history("1", "alice", "2014-03-01T10:00:00.000+0000",
+                item("status", "Open", "In Progress"), item("assignee", "Nobody", "Alice")),
+            history("2", "bob", "2014-03-02T10:00:00.000+0000",
+                item("customstatus", "Open", "Closed")),
+            history("3", "alice", "2014-03-03T10:00:00.000+0000",
+                item("status", "In Progress", "Closed")),
+            history("4", "carol", "2014-03-04T10:00:00.000+0000",
+                item("resolution", "None", "Fixed"), item("status", "Closed", "Reopened")));
+    }
+
+    private static List<String> ids(Iterable<IssueHistory> records) {
+        List<String> ids = new ArrayList<String>();
+        for (IssueHistory record : records)
+            ids.add(record.getId() + ":" + record.getChanges().size());
+        return ids;
+    }
+
+    @Test
+    public void testFieldNamesMatchExactly() throws JiraException {
+        JiraClient client = new JiraClient("http://jira.example.com");
+        List<IssueHistory> result = client.filterChangeLog(histories(), "status");
+        assertEquals("[1:1, 3:1, 4:1]", ids(result).toString());
+        assertEquals("status", result.get(0).getChanges().get(0).getField());
+
+        result = client.filterChangeLog(histories(), "stat");
+        assertTrue(result.isEmpty());
+
+        result = client.filterChangeLog(histories(), "status, resolution");
+        assertEquals("[1:1, 3:1, 4:2]", ids(result).toString());
+        client.close();
+    }
+
+    @Test
+    public void testRecordPredicates() {
+        ChangeLogFilter filter = new ChangeLogFilter()
+            .authors("alice", "carol")
+            .since(Field.getDateTime("2014-03-01T12:00:00.000+0000"))
+            .until(Field.getDateTime("2014-03-04T10:00:00.000+0000"));
+
+        assertEquals("[3:1]", ids(filter.filter(histories())).toString());
+    }
+
+    @Test
+    public void testValuePredicates() {
+        ChangeLogFilter filter = new ChangeLogFilter().fields("status", "customstatus").to("Closed");
+        assertEquals("[2:1, 3:1]", ids(filter.filter(histories())).toString());
+
+        filter = new ChangeLogFilter().from("closed");
+        assertEquals("[4:1]", ids(filter.filter(histories())).toString());
+    }
+
+    @Test
+    public void testUnchangedRecordsAreNotCopied() {
+        List<IssueHistory> records = histories();
+        ChangeLogFilter filter = new ChangeLogFilter().fields("status", "resolution");
+
+        assertSame(records.get(3), filter.apply(records.get(3)));
+        assertSame(records.get(1), new ChangeLogFilter().apply(records.get(1)));
+        assertNull(filter.apply(records.get(1)));
+    }
+
+    @Test
+    public void testIteratorIsLazy() {
+        final int[] consumed = new int[1];
+        final Iterator<IssueHistory> source = histories().iterator();
+        Iterator<IssueHistory> it = new ChangeLogFilter().fields("status").filter(new Iterator<IssueHistory>() {
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            public IssueHistory next() {
+                consumed[0]++;
+                return source.next();
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        });
+
+        assertEquals("1", it.next().getId());
+        assertEquals(1, consumed[0]);
+        assertEquals("3", it.next().getId());
+        assertEquals(3, consumed[0]);
+        assertTrue(it.hasNext());
+        assertEquals("4", it.next().getId());
+        assertFalse(it.hasNext());
+
+        try {
+            it.next();
+            throw new AssertionError("expected NoSuchElementException");
+        } catch (NoSuchElementException ex) {
+            // expected
+        }
+    }
+}
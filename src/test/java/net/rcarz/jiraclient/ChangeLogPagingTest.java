@@ -0,0 +1,149 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class ChangeLogPagingTest {
+
+    /**
+     * Serves an issue whose changelog is split into pages of 100 records,
+     * or fewer after the first page if laterPageSize says so.
+     */
+    private static class PagedRestClient extends RestClient {
+        final int total;
+        final boolean honourStartAt;
+        volatile int laterPageSize = 100;
+        final List<String> queries = new CopyOnWriteArrayList<String>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        PagedRestClient(int total, boolean honourStartAt) {
+            super(null, URI.create("http://jira.example.com"));
+            this.total = total;
+            this.honourStartAt = honourStartAt;
+        }
+
+        @Override
+        public JSON get(URI uri) {
+            String query = uri.getQuery();
+            queries.add(query);
+
+            int current = inFlight.incrementAndGet();
+            synchronized (maxInFlight) {
+                if (current > maxInFlight.get())
+                    maxInFlight.set(current);
+            }
+
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+
+            int startAt = 0;
+            if (honourStartAt) {
+                String param = query.substring(query.indexOf("startAt=") + 8);
+                startAt = Integer.parseInt(param.replaceAll("&.*", ""));
+            }
+
+            JSONArray histories = new JSONArray();
+            int end = honourStartAt ? Math.min(total, startAt + (startAt == 0 ? 100 : laterPageSize)) : total;
+            for (int i = startAt; i < end; i++) {
+                JSONObject history = new JSONObject();
+                history.put("id", String.valueOf(i));
+                history.put("created", "2014-03-01T10:00:00.000+0000");
+                history.put("items", new JSONArray());
+                histories.add(history);
+            }
+
+            JSONObject changelog = new JSONObject();
+            changelog.put("startAt", startAt);
+            changelog.put("maxResults", 100);
+            changelog.put("total", total);
+            changelog.put("histories", histories);
+
+            JSONObject fields = new JSONObject();
+            if (!query.contains("fields=none"))
+                fields.put("summary", "a summary");
+
+            JSONObject issue = new JSONObject();
+            issue.put("id", "10");
+            issue.put("key", "TEST-10");
+            issue.put("fields", fields);
+            issue.put("changelog", changelog);
+            return issue;
+        }
+    }
+
+    private static List<IssueHistory> read(RestClient restClient, int concurrency) throws Exception {
+        JSON first = JiraClient.getNextPortion(restClient, "10", 0, false);
+        JSONObject changelog = ((JSONObject) first).getJSONObject("changelog");
+        return JiraClient.readChangeLog(restClient, "10", changelog, concurrency);
+    }
+
+    private static void assertInOrder(List<IssueHistory> histories, int total) {
+        assertEquals(total, histories.size());
+        for (int i = 0; i < total; i++)
+            assertEquals(String.valueOf(i), histories.get(i).getId());
+    }
+
+    @Test
+    public void testPagesAreFetchedConcurrentlyAndMergedInOrder() throws Exception {
+        PagedRestClient restClient = new PagedRestClient(1050, true);
+
+        assertInOrder(read(restClient, 4), 1050);
+        assertEquals(11, restClient.queries.size());
+        assertTrue(restClient.maxInFlight.get() > 1);
+        assertTrue(restClient.maxInFlight.get() <= 4);
+
+        assertTrue(!restClient.queries.get(0).contains("fields=none"));
+        for (String query : restClient.queries.subList(1, restClient.queries.size()))
+            assertTrue(query, query.contains("fields=none"));
+    }
+
+    @Test
+    public void testShortPagesAreFilledInSerially() throws Exception {
+        PagedRestClient restClient = new PagedRestClient(450, true);
+        restClient.laterPageSize = 60;
+
+        assertInOrder(read(restClient, 4), 450);
+    }
+
+    @Test
+    public void testSequentialPagingWithShortPages() throws Exception {
+        PagedRestClient restClient = new PagedRestClient(250, true);
+        restClient.laterPageSize = 60;
+
+        assertInOrder(read(restClient, 1), 250);
+        assertEquals(1 + 3, restClient.queries.size());
+    }
+
+    @Test
+    public void testSequentialPaging() throws Exception {
+        PagedRestClient restClient = new PagedRestClient(250, true);
+
+        assertInOrder(read(restClient, 1), 250);
+        assertEquals(3, restClient.queries.size());
+        assertEquals(1, restClient.maxInFlight.get());
+    }
+
+    @Test
+    public void testServerThatReturnsWholeChangeLog() throws Exception {
+        PagedRestClient restClient = new PagedRestClient(250, false);
+
+        assertInOrder(read(restClient, 4), 250);
+        assertEquals(1, restClient.queries.size());
+    }
+}
@@ -0,0 +1,310 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class ChangeLogSyncTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Answers searches with every issue it knows, embedding only the first
+     * two history records of each changelog the way a truncated search
+     * result does. The issue resource ignores startAt and returns the full
+     * changelog.
+     */
+    private static class HistoryRestClient extends RestClient {
+        final Map<String, JSONArray> histories = new LinkedHashMap<String, JSONArray>();
+        final List<String> queries = new ArrayList<String>();
+        int issueGets = 0;
+
+        HistoryRestClient() {
+            super(null, URI.create("http://jira.example.com"));
+        }
+
+        void addHistory(String key, String id, String created) {
+            if (!histories.containsKey(key))
+                histories.put(key, new JSONArray());
+
+            JSONObject item = new JSONObject();
+            item.put("field", "status");
+            item.put("fromString", "Open");
+            item.put("toString", "Closed");
+            JSONArray items = new JSONArray();
+            items.add(item);
+
+            JSONObject history = new JSONObject();
+            history.put("id", id);
+            history.put("created", created);
+            history.put("items", items);
+            histories.get(key).add(history);
+        }
+
+        static JSONObject changelog(JSONArray entries, int total) {
+            JSONObject changelog = new JSONObject();
+            changelog.put("startAt", 0);
+            changelog.put("maxResults", entries.size());
+            changelog.put("total", total);
+            changelog.put("histories", entries);
+            return changelog;
+        }
+
+        static JSONObject issue(String key, JSONObject changelog) {
+            JSONObject issue = new JSONObject();
+            issue.put("id", key.substring(key.indexOf('-') + 1));
+            issue.put("key", key);
+            issue.put("fields", new JSONObject());
+            issue.put("changelog", changelog);
+            return issue;
+        }
+
+        @Override
+        public JSON get(URI uri) throws RestException, IOException {
+            if (uri.getPath().endsWith("/search")) {
+                String query = uri.getQuery();
+                queries.add(URLDecoder.decode(
+                    query.substring(query.indexOf("jql=") + 4).replaceAll("&.*", ""), "UTF-8"));
+
+                JSONArray issues = new JSONArray();
+                for (Map.Entry<String, JSONArray> e : histories.entrySet()) {
+                    JSONArray embedded = new JSONArray();
+                    for (int i = 0; i < e.getValue().size() && i < 2; i++)
+                        embedded.add(e.getValue().get(i));
+
+                    issues.add(issue(e.getKey(), changelog(embedded, e.getValue().size())));
+                }
+
+                JSONObject result = new JSONObject();
+                result.put("startAt", 0);
+                result.put("maxResults", 50);
+                result.put("total", issues.size());
+                result.put("issues", issues);
+                return result;
+            }
+
+            issueGets++;
+            String id = uri.getPath().substring(uri.getPath().lastIndexOf('/') + 1);
+            JSONArray entries = histories.get("TEST-" + id);
+            return issue("TEST-" + id, changelog(entries, entries.size()));
+        }
+    }
+
+    /**
+     * Pages searches the way JIRA does, ordered by the ORDER BY clause, and
+     * runs a hook between the first and the second page.
+     */
+    private static class PagingHistoryRestClient extends HistoryRestClient {
+        final Map<String, Long> updated = new LinkedHashMap<String, Long>();
+        Runnable betweenPages = null;
+
+        @Override
+        void addHistory(String key, String id, String created) {
+            super.addHistory(key, id, created);
+            updated.put(key, Field.getDateTime(created).getTime());
+        }
+
+        @Override
+        public JSON get(URI uri) throws RestException, IOException {
+            if (!uri.getPath().endsWith("/search"))
+                return super.get(uri);
+
+            String query = URLDecoder.decode(uri.getQuery(), "UTF-8");
+            int startAt = Integer.parseInt(query.replaceAll(".*startAt=", "").replaceAll("&.*", ""));
+            int maxResults = Integer.parseInt(query.replaceAll(".*maxResults=", "").replaceAll("&.*", ""));
+            if (startAt > 0 && betweenPages != null) {
+                betweenPages.run();
+                betweenPages = null;
+            }
+
+            List<String> keys = new ArrayList<String>(histories.keySet());
+            if (query.contains("ORDER BY updated")) {
+                Collections.sort(keys, new Comparator<String>() {
+                    @Override
+                    public int compare(String a, String b) {
+                        return updated.get(a).compareTo(updated.get(b));
+                    }
+                });
+            }
+
+            JSONArray issues = new JSONArray();
+            for (String key : keys.subList(Math.min(startAt, keys.size()), Math.min(startAt + maxResults, keys.size())))
+                issues.add(issue(key, changelog(histories.get(key), histories.get(key).size())));
+
+            JSONObject result = new JSONObject();
+            result.put("startAt", startAt);
+            result.put("maxResults", maxResults);
+            result.put("total", keys.size());
+            result.put("issues", issues);
+            return result;
+        }
+    }
+
+    private static class CollectingListener implements ChangeLogSync.Listener {
+        final List<String> ids = new ArrayList<String>();
+
+        @Override
+        public void onHistory(Issue issue, IssueHistory history) {
+            ids.add(issue.getKey() + "/" + history.getId());
+        }
+    }
+
+    private ChangeLogSync sync(RestClient restClient, File file) {
+        return new ChangeLogSync(restClient, new FileWatermarkStore(file))
+            .timeZone(TimeZone.getTimeZone("UTC"))
+            .overlap(0, TimeUnit.MINUTES);
+    }
+
+    @Test
+    public void testOnlyNewHistoryIsDeliveredAfterRestart() throws Exception {
+        File file = new File(folder.getRoot(), "watermarks.properties");
+        HistoryRestClient restClient = new HistoryRestClient();
+        restClient.addHistory("TEST-1", "10", "2014-03-01T10:00:00.000+0000");
+        restClient.addHistory("TEST-1", "11", "2014-03-02T10:00:00.000+0000");
+        restClient.addHistory("TEST-1", "12", "2014-03-03T10:00:00.000+0000");
+        restClient.addHistory("TEST-2", "20", "2014-03-02T12:30:15.000+0000");
+
+        CollectingListener first = new CollectingListener();
+        ChangeLogSync.Result result = sync(restClient, file).sync("TEST", first);
+
+        assertEquals("[TEST-1/10, TEST-1/11, TEST-1/12, TEST-2/20]", first.ids.toString());
+        assertEquals(2, result.getIssues());
+        assertEquals(4, result.getHistories());
+        assertEquals(1, restClient.issueGets);
+        assertEquals("project = \"TEST\" ORDER BY created ASC", restClient.queries.get(0));
+        assertEquals(Field.getDateTime("2014-03-03T10:00:00.000+0000"), result.getWatermark());
+
+        restClient.addHistory("TEST-2", "21", "2014-03-04T08:00:00.000+0000");
+
+        CollectingListener second = new CollectingListener();
+        result = sync(restClient, file).sync("TEST", second);
+
+        assertEquals("[TEST-2/21]", second.ids.toString());
+        assertEquals("project = \"TEST\" AND updated >= \"2014/03/03 10:00\" ORDER BY created ASC",
+            restClient.queries.get(1));
+        assertEquals(Field.getDateTime("2014-03-04T08:00:00.000+0000"),
+            new FileWatermarkStore(file).getWatermark("TEST"));
+
+        CollectingListener third = new CollectingListener();
+        result = sync(restClient, file).sync("TEST", third);
+
+        assertTrue(third.ids.isEmpty());
+        assertEquals(Field.getDateTime("2014-03-04T08:00:00.000+0000"), result.getWatermark());
+    }
+
+    @Test
+    public void testFailedListenerDoesNotMoveWatermark() throws Exception {
+        File file = new File(folder.getRoot(), "watermarks.properties");
+        HistoryRestClient restClient = new HistoryRestClient();
+        restClient.addHistory("TEST-1", "10", "2014-03-01T10:00:00.000+0000");
+        restClient.addHistory("TEST-2", "20", "2014-03-02T10:00:00.000+0000");
+
+        try {
+            sync(restClient, file).sync("TEST", new ChangeLogSync.Listener() {
+                @Override
+                public void onHistory(Issue issue, IssueHistory history) throws Exception {
+                    if (history.getId().equals("20"))
+                        throw new IllegalStateException("downstream unavailable");
+                }
+            });
+            throw new AssertionError("expected JiraException");
+        } catch (JiraException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+
+        assertNull(new FileWatermarkStore(file).getWatermark("TEST"));
+
+        CollectingListener retry = new CollectingListener();
+        sync(restClient, file).sync("TEST", retry);
+        assertEquals("[TEST-1/10, TEST-2/20]", retry.ids.toString());
+    }
+
+    @Test
+    public void testIssueUpdatedBetweenPagesDoesNotHideOthers() throws Exception {
+        File file = new File(folder.getRoot(), "watermarks.properties");
+        final PagingHistoryRestClient restClient = new PagingHistoryRestClient();
+        restClient.addHistory("TEST-1", "10", "2014-03-01T10:00:00.000+0000");
+        restClient.addHistory("TEST-2", "20", "2014-03-02T10:00:00.000+0000");
+        restClient.addHistory("TEST-3", "30", "2014-03-03T10:00:00.000+0000");
+        restClient.addHistory("TEST-4", "40", "2014-03-04T10:00:00.000+0000");
+        restClient.betweenPages = new Runnable() {
+            @Override
+            public void run() {
+                restClient.addHistory("TEST-1", "11", "2014-03-05T10:00:00.000+0000");
+            }
+        };
+
+        CollectingListener first = new CollectingListener();
+        sync(restClient, file).pageSize(2).sync("TEST", first);
+        assertEquals("[TEST-1/10, TEST-2/20, TEST-3/30, TEST-4/40]", first.ids.toString());
+
+        CollectingListener second = new CollectingListener();
+        sync(restClient, file).pageSize(2).sync("TEST", second);
+        assertEquals("[TEST-1/11]", second.ids.toString());
+    }
+
+    @Test
+    public void testWatermarkStaysBehindTheStartOfTheRun() throws Exception {
+        File file = new File(folder.getRoot(), "watermarks.properties");
+        HistoryRestClient restClient = new HistoryRestClient();
+        restClient.addHistory("TEST-1", "10", "2014-03-01T10:00:00.000+0000");
+        restClient.addHistory("TEST-1", "11", "2014-03-01T11:59:00.000+0000");
+
+        final Date start = Field.getDateTime("2014-03-01T12:00:00.000+0000");
+        ChangeLogSync sync = new ChangeLogSync(restClient, new FileWatermarkStore(file)) {
+            @Override
+            protected long now() {
+                return start.getTime();
+            }
+        }.timeZone(TimeZone.getTimeZone("UTC")).overlap(5, TimeUnit.MINUTES);
+
+        CollectingListener first = new CollectingListener();
+        ChangeLogSync.Result result = sync.sync("TEST", first);
+        assertEquals("[TEST-1/10, TEST-1/11]", first.ids.toString());
+        assertEquals(Field.getDateTime("2014-03-01T11:55:00.000+0000"), result.getWatermark());
+
+        /* created before the first run ended but only visible now */
+        restClient.addHistory("TEST-2", "20", "2014-03-01T11:58:00.000+0000");
+
+        CollectingListener second = new CollectingListener();
+        sync.sync("TEST", second);
+        assertEquals("[TEST-2/20]", second.ids.toString());
+    }
+
+    @Test
+    public void testWatermarksAreKeptPerKey() throws Exception {
+        File file = new File(folder.newFolder("state"), "watermarks.properties");
+        FileWatermarkStore store = new FileWatermarkStore(file);
+
+        store.setWatermark("ONE", new Date(1000));
+        store.setWatermark("TWO", new Date(2000));
+        store.setWatermark("ONE", new Date(3000));
+
+        FileWatermarkStore reopened = new FileWatermarkStore(file);
+        assertEquals(new Date(3000), reopened.getWatermark("ONE"));
+        assertEquals(new Date(2000), reopened.getWatermark("TWO"));
+        assertNull(reopened.getWatermark("THREE"));
+    }
+}
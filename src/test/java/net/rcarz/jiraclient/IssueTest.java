@@ -5,11 +5,16 @@ import static junit.framework.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 
+import java.net.URI;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.sf.json.JSON;
+import net.sf.json.JSONArray;
 import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -181,6 +186,194 @@ public class IssueTest {
     }
 
 
+    @Test
+    public void testSearchIteratesAllPages() throws JiraException {
+        PagedSearchRestClient restClient = new PagedSearchRestClient(23);
+        Issue.SearchResult result = Issue.search(restClient, "project = X", null, null, 5, null);
+
+        assertEquals(23, result.total);
+        assertEquals(5, result.issues.size());
+        assertIssueKeysInOrder(result, 23);
+    }
+
+    @Test
+    public void testSearchPrefetchKeepsOrderAndBoundsInFlightPages() throws JiraException {
+        PagedSearchRestClient restClient = new PagedSearchRestClient(103);
+        Issue.SearchResult result = Issue.search(restClient, "project = X", null, null, 5, null, 3);
+
+        assertEquals(103, result.total);
+        assertIssueKeysInOrder(result, 103);
+        assertEquals(21, restClient.requests.get());
+        assertTrue(restClient.maxInFlight.get() <= 3);
+    }
+
+    @Test
+    public void testSearchPrefetchWithSinglePage() throws JiraException {
+        PagedSearchRestClient restClient = new PagedSearchRestClient(4);
+        Issue.SearchResult result = Issue.search(restClient, "project = X", null, null, 5, null, 3);
+
+        assertIssueKeysInOrder(result, 4);
+        assertEquals(1, restClient.requests.get());
+    }
+
+    @Test
+    public void testAbandonedPrefetchThreadsExit() throws Exception {
+        PagedSearchRestClient restClient = new PagedSearchRestClient(103);
+        Issue.SearchResult result = Issue.search(restClient, "project = X", null, null, 5, null, 3);
+
+        Iterator<Issue> it = result.iterator();
+        for (int i = 0; i < 7; i++)
+            it.next();
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (prefetchThreads() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(100);
+
+        assertEquals(0, prefetchThreads());
+        assertTrue(restClient.requests.get() <= 5);
+    }
+
+    private static int prefetchThreads() {
+        int count = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.isAlive() && t.getName().startsWith("jira-search-prefetch"))
+                count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testSearchWithNoResults() throws JiraException {
+        PagedSearchRestClient restClient = new PagedSearchRestClient(0);
+        Issue.SearchResult result = Issue.search(restClient, "project = X", null, null, 5, null, 3);
+
+        Iterator<Issue> it = result.iterator();
+        assertEquals(0, result.total);
+        assertFalse(it.hasNext());
+    }
+
+    private static void assertIssueKeysInOrder(Issue.SearchResult result, int total) {
+        Iterator<Issue> it = result.iterator();
+        for (int i = 0; i < total; i++) {
+            assertTrue(it.hasNext());
+            assertEquals("X-" + i, it.next().getKey());
+        }
+        assertFalse(it.hasNext());
+    }
+
+    /**
+     * Serves a search result of the given size in pages, slowly.
+     */
+    private static class PagedSearchRestClient extends RestClient {
+
+        private final int total;
+        public final AtomicInteger requests = new AtomicInteger();
+        public final AtomicInteger inFlight = new AtomicInteger();
+        public final AtomicInteger maxInFlight = new AtomicInteger();
+
+        public PagedSearchRestClient(int total) {
+            super(null, URI.create("http://jira.example.com"));
+            this.total = total;
+        }
+
+        @Override
+        public JSON get(URI uri) {
+            requests.incrementAndGet();
+            int current = inFlight.incrementAndGet();
+            if (current > maxInFlight.get())
+                maxInFlight.set(current);
+
+            try {
+                Thread.sleep(5);
+
+                int startAt = 0;
+                int maxResults = 50;
+                for (String param : uri.getQuery().split("&")) {
+                    String[] kv = param.split("=");
+                    if (kv[0].equals("startAt"))
+                        startAt = Integer.parseInt(kv[1]);
+                    else if (kv[0].equals("maxResults"))
+                        maxResults = Integer.parseInt(kv[1]);
+                }
+
+                JSONArray issues = new JSONArray();
+                for (int i = startAt; i < Math.min(total, startAt + maxResults); i++) {
+                    JSONObject issue = new JSONObject();
+                    issue.put("id", String.valueOf(i));
+                    issue.put("key", "X-" + i);
+                    issue.put("fields", new JSONObject());
+                    issues.add(issue);
+                }
+
+                JSONObject page = new JSONObject();
+                page.put("startAt", startAt);
+                page.put("maxResults", maxResults);
+                page.put("total", total);
+                page.put("issues", issues);
+                return page;
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    @Test
+    public void testLazyFieldsMatchEagerFields() {
+        RestClient lazyClient = new RestClient(null, URI.create("http://jira.example.com"));
+        lazyClient.setLazyIssueFields(true);
+        RestClient eagerClient = new RestClient(null, URI.create("http://jira.example.com"));
+
+        Issue lazy = new Issue(lazyClient, Utils.getTestIssue());
+        Issue eager = new Issue(eagerClient, Utils.getTestIssue());
+
+        assertEquals(eager.getKey(), lazy.getKey());
+        assertEquals(eager.getSummary(), lazy.getSummary());
+        assertEquals(eager.getStatus().getId(), lazy.getStatus().getId());
+        assertEquals(eager.getIssueType().getName(), lazy.getIssueType().getName());
+        assertEquals(eager.getProject().getKey(), lazy.getProject().getKey());
+        assertEquals(eager.getAssignee(), lazy.getAssignee());
+        assertEquals(eager.getReporter().getName(), lazy.getReporter().getName());
+        assertEquals(eager.getPriority().getName(), lazy.getPriority().getName());
+        assertEquals(eager.getVotes().getVotes(), lazy.getVotes().getVotes());
+        assertEquals(eager.getWatches().getWatchCount(), lazy.getWatches().getWatchCount());
+        assertEquals(eager.getFixVersions().size(), lazy.getFixVersions().size());
+        assertEquals(eager.getVersions().size(), lazy.getVersions().size());
+        assertEquals(eager.getComponents().size(), lazy.getComponents().size());
+        assertEquals(eager.getLabels(), lazy.getLabels());
+        assertEquals(eager.getCreatedDate(), lazy.getCreatedDate());
+        assertEquals(eager.getUpdatedDate(), lazy.getUpdatedDate());
+        assertEquals(eager.getDueDate(), lazy.getDueDate());
+        assertEquals(eager.getTimeTracking().getTimeSpentSeconds(),
+            lazy.getTimeTracking().getTimeSpentSeconds());
+    }
+
+    @Test
+    public void testLazyFieldIsMaterialisedOnce() throws Exception {
+        RestClient restClient = new RestClient(null, URI.create("http://jira.example.com"));
+        restClient.setLazyIssueFields(true);
+        final Issue issue = new Issue(restClient, Utils.getTestIssue());
+        final Object[] seen = new Object[8];
+
+        Thread[] threads = new Thread[seen.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int n = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    seen[n] = issue.getReporter();
+                }
+            };
+            threads[i].start();
+        }
+
+        for (Thread t : threads)
+            t.join();
+
+        for (Object reporter : seen)
+            Assert.assertSame(issue.getReporter(), reporter);
+    }
+
     private static class TestableRestClient extends RestClient {
 
         public String postPath = "not called";
@@ -0,0 +1,132 @@
+package net.rcarz.jiraclient;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.params.HttpClientParams;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.BasicHttpContext;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+
+public class JiraClientTest {
+
+    private static DefaultHttpClient httpClient(JiraClient client) {
+        return (DefaultHttpClient)client.getRestClient().getHttpClient();
+    }
+
+    private static HttpResponse keepAliveResponse(String header) {
+        HttpResponse resp = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        if (header != null)
+            resp.setHeader("Keep-Alive", header);
+        return resp;
+    }
+
+    @Test
+    public void testDefaultPool() throws JiraException {
+        JiraClient client = new JiraClient("http://jira.example.com");
+        PoolStats stats = client.getPoolStats();
+
+        assertEquals(40, stats.getMax());
+        assertEquals(0, stats.getLeased());
+        assertEquals(20, client.getRoutePoolStats().getMax());
+        assertEquals(-1, client.getRestClient().getMaxResponseSize());
+        client.close();
+    }
+
+    @Test
+    public void testKeepsHttpClientDefaults() throws JiraException {
+        JiraClient client = new JiraClient("http://jira.example.com");
+        HttpParams params = httpClient(client).getParams();
+
+        assertNotNull(HttpProtocolParams.getUserAgent(params));
+        assertTrue(HttpProtocolParams.getUserAgent(params).startsWith("Apache-HttpClient/"));
+        assertEquals(HttpVersion.HTTP_1_1, HttpProtocolParams.getVersion(params));
+        client.close();
+    }
+
+    @Test
+    public void testBuilderSettings() throws JiraException {
+        JiraClient client = new JiraClient.Builder("http://jira.example.com")
+            .maxConnectionsPerRoute(5)
+            .maxConnectionsTotal(10)
+            .connectTimeout(2, TimeUnit.SECONDS)
+            .readTimeout(30, TimeUnit.SECONDS)
+            .connectionRequestTimeout(500, TimeUnit.MILLISECONDS)
+            .connectionTimeToLive(5, TimeUnit.MINUTES)
+            .evictIdleConnections(30, TimeUnit.SECONDS)
+            .keepAlive(1, TimeUnit.MINUTES)
+            .maxResponseSize(1024 * 1024)
+            .build();
+
+        assertEquals(10, client.getPoolStats().getMax());
+        assertEquals(5, client.getRoutePoolStats().getMax());
+        assertEquals(1024 * 1024, client.getRestClient().getMaxResponseSize());
+
+        HttpParams params = httpClient(client).getParams();
+        assertEquals(2000, HttpConnectionParams.getConnectionTimeout(params));
+        assertEquals(30000, HttpConnectionParams.getSoTimeout(params));
+        assertEquals(500, HttpClientParams.getConnectionManagerTimeout(params));
+        assertNotNull(HttpProtocolParams.getUserAgent(params));
+
+        /* the server's keep-alive hint is honoured up to the configured maximum */
+        ConnectionKeepAliveStrategy keepAlive = httpClient(client).getConnectionKeepAliveStrategy();
+        assertEquals(60000, keepAlive.getKeepAliveDuration(keepAliveResponse(null), new BasicHttpContext()));
+        assertEquals(10000, keepAlive.getKeepAliveDuration(keepAliveResponse("timeout=10"), new BasicHttpContext()));
+        assertEquals(60000, keepAlive.getKeepAliveDuration(keepAliveResponse("timeout=300"), new BasicHttpContext()));
+        client.close();
+    }
+
+    @Test
+    public void testRouteStatsTrackPooledConnections() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = "{\"id\": \"1\"}".getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+
+        JiraClient client = new JiraClient.Builder("http://127.0.0.1:" + server.getAddress().getPort())
+            .maxConnectionsPerRoute(3)
+            .build();
+
+        try {
+            client.getRestClient().get("/rest/api/2/issue/TEST-1");
+
+            PoolStats stats = client.getRoutePoolStats();
+            assertEquals(3, stats.getMax());
+            assertEquals(0, stats.getLeased());
+            assertEquals(1, stats.getAvailable());
+        } finally {
+            client.close();
+            server.stop(0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsEmptyPool() {
+        new JiraClient.Builder("http://jira.example.com").maxConnectionsTotal(0);
+    }
+}
@@ -0,0 +1,213 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static org.junit.Assert.assertNotNull;
+
+public class MetadataCacheTest {
+
+    private static final MetadataCache.Key CREATE_BUG =
+        new MetadataCache.Key(MetadataCache.Key.CREATE_META, "TEST", "Bug", null);
+    private static final MetadataCache.Key CREATE_TASK =
+        new MetadataCache.Key(MetadataCache.Key.CREATE_META, "TEST", "Task", null);
+    private static final MetadataCache.Key CREATE_OTHER =
+        new MetadataCache.Key(MetadataCache.Key.CREATE_META, "OTHER", "Bug", null);
+
+    private static class ManualClockCache extends LruMetadataCache {
+        long time = 1000;
+
+        ManualClockCache(int maxEntries, long ttl) {
+            super(maxEntries, ttl, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        protected long now() {
+            return time;
+        }
+    }
+
+    @Test
+    public void testKeyEquality() {
+        assertEquals(CREATE_BUG, new MetadataCache.Key(MetadataCache.Key.CREATE_META, "TEST", "Bug", null));
+        assertEquals(CREATE_BUG.hashCode(),
+            new MetadataCache.Key(MetadataCache.Key.CREATE_META, "TEST", "Bug", null).hashCode());
+        assertEquals(false, CREATE_BUG.equals(
+            new MetadataCache.Key(MetadataCache.Key.EDIT_META, "TEST", "Bug", null)));
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        ManualClockCache cache = new ManualClockCache(10, 100);
+
+        assertNull(cache.get(CREATE_BUG));
+        cache.put(CREATE_BUG, "meta");
+        assertEquals("meta", cache.get(CREATE_BUG));
+        assertEquals("meta", cache.get(CREATE_BUG));
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testEntriesExpire() {
+        ManualClockCache cache = new ManualClockCache(10, 100);
+
+        cache.put(CREATE_BUG, "meta");
+        cache.time += 99;
+        assertEquals("meta", cache.get(CREATE_BUG));
+        cache.time += 1;
+        assertNull(cache.get(CREATE_BUG));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        ManualClockCache cache = new ManualClockCache(2, 100);
+
+        cache.put(CREATE_BUG, "bug");
+        cache.put(CREATE_TASK, "task");
+        cache.get(CREATE_BUG);
+        cache.put(CREATE_OTHER, "other");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals("bug", cache.get(CREATE_BUG));
+        assertNull(cache.get(CREATE_TASK));
+    }
+
+    @Test
+    public void testInvalidation() {
+        ManualClockCache cache = new ManualClockCache(10, 100);
+
+        cache.put(CREATE_BUG, "bug");
+        cache.put(CREATE_TASK, "task");
+        cache.put(CREATE_OTHER, "other");
+
+        cache.invalidate(CREATE_BUG);
+        assertNull(cache.get(CREATE_BUG));
+
+        cache.invalidateProject("TEST");
+        assertNull(cache.get(CREATE_TASK));
+        assertEquals("other", cache.get(CREATE_OTHER));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testTransitionsAreCachedPerProjectTypeAndStatus() throws JiraException {
+        CountingRestClient restClient = new CountingRestClient();
+        LruMetadataCache cache = new LruMetadataCache();
+        restClient.setMetadataCache(cache);
+
+        Issue issue = new Issue(restClient, Utils.getTestIssue());
+        Issue sameKind = new Issue(restClient, Utils.getTestIssue());
+
+        List<Transition> transitions = issue.getTransitions();
+        assertEquals(1, transitions.size());
+        assertEquals("Done", sameKind.getTransitions().get(0).getName());
+
+        assertEquals(1, restClient.gets);
+        assertEquals(1, cache.getHitCount());
+
+        cache.invalidateProject(issue.getProject().getKey());
+        assertNotNull(issue.getTransitions());
+        assertEquals(2, restClient.gets);
+    }
+
+    @Test
+    public void testTransitionsAreNotCachedByDefault() throws JiraException {
+        CountingRestClient restClient = new CountingRestClient();
+        Issue issue = new Issue(restClient, Utils.getTestIssue());
+
+        issue.getTransitions();
+        issue.getTransitions();
+
+        assertEquals(2, restClient.gets);
+    }
+
+    @Test
+    public void testTransitionsFollowTheIssueThroughTheWorkflow() throws JiraException {
+        WorkflowRestClient restClient = new WorkflowRestClient();
+        restClient.setMetadataCache(new LruMetadataCache());
+        Issue issue = new Issue(restClient, Utils.getTestIssue());
+
+        issue.transition().execute("Done");
+        assertEquals("10001", issue.getStatus().getId());
+
+        issue.transition().execute("Reopen");
+        assertEquals("10004", issue.getStatus().getId());
+        assertEquals("10004", restClient.status);
+
+        /* back in the first status, its transitions come from the cache */
+        assertEquals("Done", issue.getTransitions().get(0).getName());
+        assertEquals(2, restClient.gets);
+    }
+
+    private static class CountingRestClient extends RestClient {
+        int gets = 0;
+
+        CountingRestClient() {
+            super(null, URI.create("http://jira.example.com"));
+        }
+
+        @Override
+        public JSON get(URI uri) {
+            gets++;
+            JSONArray transitions = new JSONArray();
+            transitions.add(TransitionTest.getTestJson());
+            JSONObject result = new JSONObject();
+            result.put("transitions", transitions);
+            return result;
+        }
+    }
+
+    /**
+     * Moves a single issue between To Do (10004) and Done (10001).
+     */
+    private static class WorkflowRestClient extends RestClient {
+        String status = "10004";
+        int gets = 0;
+
+        WorkflowRestClient() {
+            super(null, URI.create("http://jira.example.com"));
+        }
+
+        @Override
+        public JSON get(URI uri) {
+            gets++;
+            JSONObject transition = TransitionTest.getTestJson();
+            if (status.equals("10001")) {
+                JSONObject to = transition.getJSONObject("to");
+                to.put("id", "10004");
+                to.put("name", "To Do");
+                to.put("self", "https://jira-client.atlassian.net/rest/api/2/status/10004");
+                transition.put("id", "31");
+                transition.put("name", "Reopen");
+                transition.put("to", to);
+            }
+
+            JSONArray transitions = new JSONArray();
+            transitions.add(transition);
+            JSONObject result = new JSONObject();
+            result.put("transitions", transitions);
+            return result;
+        }
+
+        @Override
+        public JSON post(String path, JSON payload) {
+            String id = ((JSONObject)payload).getJSONObject("transition").getString("id");
+            status = id.equals("21") ? "10001" : "10004";
+            return null;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSONObject;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+import org.powermock.api.mockito.PowerMockito;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+public class RequestMetricsTest {
+
+    private static class RecordingListener implements RequestListener {
+        final List<RequestEvent> events = new ArrayList<RequestEvent>();
+
+        @Override
+        public void onRequest(RequestEvent event) {
+            events.add(event);
+        }
+    }
+
+    private static final byte[] BODY = "{\"id\": \"10000\"}".getBytes();
+
+    private static RestClient client(String base, int status) throws Exception {
+        HttpResponse resp = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "Status " + status);
+        resp.setEntity(new ByteArrayEntity(BODY));
+
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(resp);
+
+        return new RestClient(httpClient, new URI(base));
+    }
+
+    @Test
+    public void testTemplates() {
+        assertEquals("/rest/api/2/issue/{key}/worklog", RequestEvent.template("/rest/api/2/issue/TEST-12/worklog"));
+        assertEquals("/rest/api/2/issue/{id}/comment/{id}", RequestEvent.template("/rest/api/2/issue/10001/comment/42"));
+        assertEquals("/rest/greenhopper/1.0/xboard/work/allData.json",
+            RequestEvent.template("/rest/greenhopper/1.0/xboard/work/allData.json"));
+        assertEquals("/rest/api/2/project/TEST", RequestEvent.template("/rest/api/2/project/TEST"));
+        assertEquals("/", RequestEvent.template(""));
+    }
+
+    @Test
+    public void testEventDescribesRequest() throws Exception {
+        RestClient restClient = client("http://jira.example.com/jira", 200);
+        RecordingListener listener = new RecordingListener();
+        restClient.setRequestListener(listener);
+
+        restClient.put(restClient.buildURI("/rest/api/2/issue/TEST-1"), JSONObject.fromObject("{\"a\": 1}"));
+
+        assertEquals(1, listener.events.size());
+        RequestEvent event = listener.events.get(0);
+        assertEquals("/rest/api/2/issue/{key}", event.getEndpoint());
+        assertEquals("PUT", event.getMethod());
+        assertEquals(200, event.getStatus());
+        assertEquals("{\"a\":1}".length(), event.getRequestBytes());
+        assertEquals(BODY.length, event.getResponseBytes());
+        assertTrue(event.getTimeToFirstByte() >= 0);
+        assertTrue(event.getTotalTime() >= event.getTimeToFirstByte());
+        assertNull(event.getFailure());
+    }
+
+    @Test
+    public void testErrorsAndFailuresAreReported() throws Exception {
+        RestClient restClient = client("http://jira.example.com", 404);
+        RequestMetrics metrics = new RequestMetrics();
+        restClient.setRequestListener(metrics);
+
+        try {
+            restClient.get("/rest/api/2/issue/TEST-1");
+        } catch (RestException ex) {
+            /* expected */
+        }
+
+        HttpClient broken = PowerMockito.mock(HttpClient.class);
+        when(broken.execute(any(HttpUriRequest.class))).thenThrow(new ConnectException("refused"));
+        RestClient brokenClient = new RestClient(broken, new URI("http://jira.example.com"));
+        brokenClient.setRequestListener(metrics);
+
+        try {
+            brokenClient.get("/rest/api/2/issue/TEST-2");
+        } catch (IOException ex) {
+            /* expected */
+        }
+
+        RequestMetrics.Snapshot snapshot = metrics.snapshot("GET", "/rest/api/2/issue/{key}");
+        assertEquals(2, snapshot.getRequests());
+        assertEquals(2, snapshot.getErrors());
+        assertEquals(1, snapshot.getFailures());
+        assertEquals(1, snapshot.getTimeToFirstByte().getCount());
+        assertEquals(2, snapshot.getTotalTime().getCount());
+    }
+
+    @Test
+    public void testFailingListenerDoesNotBreakRequests() throws Exception {
+        RestClient restClient = client("http://jira.example.com", 200);
+        restClient.setRequestListener(new RequestListener() {
+            @Override
+            public void onRequest(RequestEvent event) {
+                throw new IllegalStateException("broken listener");
+            }
+        });
+
+        assertEquals("10000", ((JSONObject)restClient.get("/rest/api/2/issue/TEST-1")).getString("id"));
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10000; i++)
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10000, snapshot.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(10000), snapshot.getMax());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(10000), snapshot.getPercentile(100));
+        assertWithin(TimeUnit.MICROSECONDS.toNanos(5000), snapshot.getPercentile(50));
+        assertWithin(TimeUnit.MICROSECONDS.toNanos(9900), snapshot.getPercentile(99));
+        assertWithin(TimeUnit.MICROSECONDS.toNanos(5000), (long)snapshot.getMean());
+        assertEquals(0, new LatencyHistogram().snapshot().getPercentile(99));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(expected + " vs " + actual, Math.abs(actual - expected) <= expected / 16);
+    }
+
+    @Test
+    public void testBucketsCoverTheWholeRange() {
+        int previous = -1;
+        for (long value = 0; value > 0 || value == 0; value = value * 2 + 1) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(bucket >= previous);
+            assertTrue(LatencyHistogram.highestValue(bucket) >= value);
+            previous = bucket;
+            if (value == Long.MAX_VALUE)
+                break;
+        }
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final RequestMetrics metrics = new RequestMetrics();
+        List<Thread> threads = new ArrayList<Thread>();
+
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread() {
+                public void run() {
+                    for (int i = 0; i < 10000; i++)
+                        metrics.onRequest(new RequestEvent("/rest/api/2/search", "GET", 200, 0, 10, 1000, 2000, null));
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads)
+            thread.join();
+
+        RequestMetrics.Snapshot snapshot = metrics.snapshot().get("GET /rest/api/2/search");
+        assertEquals(40000, snapshot.getRequests());
+        assertEquals(400000, snapshot.getResponseBytes());
+        assertEquals(40000, snapshot.getTotalTime().getCount());
+    }
+}
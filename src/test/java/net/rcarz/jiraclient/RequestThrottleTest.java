@@ -0,0 +1,232 @@
+package net.rcarz.jiraclient;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.impl.cookie.DateUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class RequestThrottleTest {
+
+    private static final String KEY = "http://jira.example.com";
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Throttle on a manual clock; sleeping advances the clock.
+     */
+    private static class ManualClockThrottle extends RequestThrottle {
+        long time = 1000000 * MS;
+        final List<Long> sleeps = new ArrayList<Long>();
+
+        ManualClockThrottle(double initialRate, double minRate, double maxRate) {
+            super(initialRate, minRate, maxRate);
+        }
+
+        @Override
+        protected long nanoTime() {
+            return time;
+        }
+
+        @Override
+        protected void sleep(long nanos) {
+            sleeps.add(nanos / MS);
+            time += nanos;
+        }
+    }
+
+    @Test
+    public void testRequestsAreSpacedAfterBurst() throws InterruptedException {
+        ManualClockThrottle throttle = new ManualClockThrottle(10, 1, 100);
+        throttle.setBurst(2);
+
+        for (int i = 0; i < 5; i++)
+            throttle.acquire(KEY);
+
+        // two requests go out at once, then one every 100ms
+        assertEquals("[100, 100, 100]", throttle.sleeps.toString());
+    }
+
+    @Test
+    public void testRateAdaptsAdditiveIncreaseMultiplicativeDecrease() {
+        ManualClockThrottle throttle = new ManualClockThrottle(10, 1, 12);
+
+        for (int i = 0; i < 10; i++)
+            throttle.onSuccess(KEY);
+        assertTrue(throttle.getRate(KEY) > 10.9 && throttle.getRate(KEY) < 11.0);
+
+        for (int i = 0; i < 100; i++)
+            throttle.onSuccess(KEY);
+        assertEquals(12.0, throttle.getRate(KEY));
+
+        long sentAt = throttle.nanoTime();
+        throttle.time += 5 * MS;
+        throttle.onThrottled(KEY, sentAt, -1);
+        assertEquals(6.0, throttle.getRate(KEY));
+
+        // responses to requests already in flight don't count again
+        throttle.onThrottled(KEY, sentAt, -1);
+        throttle.onThrottled(KEY, sentAt + MS, -1);
+        assertEquals(6.0, throttle.getRate(KEY));
+
+        for (int i = 0; i < 10; i++) {
+            throttle.time += 5 * MS;
+            throttle.onThrottled(KEY, throttle.nanoTime(), -1);
+        }
+        assertEquals(1.0, throttle.getRate(KEY));
+        assertEquals(13, throttle.getThrottledCount());
+    }
+
+    @Test
+    public void testRetryAfterPausesTheBucket() throws InterruptedException {
+        ManualClockThrottle throttle = new ManualClockThrottle(10, 1, 100);
+        throttle.setBurst(1);
+
+        throttle.acquire(KEY);
+        throttle.onThrottled(KEY, throttle.nanoTime(), 2000);
+        throttle.acquire(KEY);
+        throttle.acquire(KEY);
+
+        // the pause, then the halved rate
+        assertEquals("[2000, 200]", throttle.sleeps.toString());
+        assertEquals(0, throttle.getQueueDepth());
+
+        throttle.acquire("http://other.example.com");
+        assertEquals(2, throttle.sleeps.size());
+        assertEquals(10.0, throttle.getRate("http://other.example.com"));
+    }
+
+    @Test
+    public void testRetryAfterHeader() {
+        HttpResponse resp = new BasicHttpResponse(HttpVersion.HTTP_1_1, 429, "Too Many Requests");
+        assertEquals(-1, RestClient.retryAfter(resp));
+
+        resp.setHeader("Retry-After", " 3 ");
+        assertEquals(3000, RestClient.retryAfter(resp));
+
+        resp.setHeader("Retry-After", DateUtils.formatDate(new Date(System.currentTimeMillis() + 60000)));
+        long millis = RestClient.retryAfter(resp);
+        assertTrue(millis > 55000 && millis <= 60000);
+
+        resp.setHeader("Retry-After", "soon");
+        assertEquals(-1, RestClient.retryAfter(resp));
+    }
+
+    @Test
+    public void testThrottledServerIsNotOverrun() throws Exception {
+        final AtomicInteger served = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+
+        /* admits 40 requests per second with a burst of 2, answers 429 otherwise */
+        server.createContext("/", new HttpHandler() {
+            private double tokens = 2;
+            private long last = System.nanoTime();
+
+            public void handle(HttpExchange exchange) throws IOException {
+                long now = System.nanoTime();
+                tokens = Math.min(2, tokens + (now - last) / 1e9 * 40);
+                last = now;
+
+                byte[] body;
+                int status;
+                if (exchange.getRequestURI().getPath().endsWith("/upload")) {
+                    status = 503;
+                    body = "{}".getBytes("UTF-8");
+                } else if (tokens >= 1) {
+                    tokens -= 1;
+                    served.incrementAndGet();
+                    status = 200;
+                    body = "{\"ok\": true}".getBytes("UTF-8");
+                } else {
+                    if (rejected.incrementAndGet() == 1)
+                        exchange.getResponseHeaders().set("Retry-After", "1");
+                    status = 429;
+                    body = "{\"errorMessages\":[\"slow down\"]}".getBytes("UTF-8");
+                }
+
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+
+        final RequestThrottle throttle = new RequestThrottle(100, 20, 200);
+        final JiraClient client = new JiraClient.Builder("http://127.0.0.1:" + server.getAddress().getPort())
+            .requestThrottle(throttle)
+            .build();
+        final AtomicInteger failures = new AtomicInteger();
+
+        try {
+            List<Thread> threads = new ArrayList<Thread>();
+            for (int t = 0; t < 6; t++) {
+                Thread thread = new Thread() {
+                    public void run() {
+                        for (int i = 0; i < 10; i++) {
+                            try {
+                                client.getRestClient().get("/rest/api/2/serverInfo");
+                            } catch (Exception ex) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    }
+                };
+                threads.add(thread);
+                thread.start();
+            }
+
+            for (Thread thread : threads)
+                thread.join();
+
+            assertEquals(0, failures.get());
+            assertEquals(60, served.get());
+            assertTrue(rejected.get() > 0);
+            assertEquals(rejected.get(), throttle.getThrottledCount());
+            assertTrue(throttle.getRate(client.getRestClient().getThrottleKey()) < 100);
+            assertEquals(0, throttle.getQueueDepth());
+
+            /* a streamed upload can't be sent twice, so its 503 is reported */
+            try {
+                client.getRestClient().post("/rest/api/2/upload",
+                    new Issue.NewAttachment("data.bin", new ByteArrayInputStream(new byte[10])));
+                throw new AssertionError("expected RestException");
+            } catch (RestException ex) {
+                assertEquals(503, ex.getHttpStatusCode());
+            }
+        } finally {
+            client.close();
+            server.stop(0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsInconsistentRates() {
+        new RequestThrottle(10, 20, 100);
+    }
+
+    @Test
+    public void testKeysSeparateHostsAndUsers() {
+        URI uri = URI.create("https://jira.example.com:8443/rest/api/2/issue/X-1");
+        assertEquals("https://jira.example.com:8443 bob", RequestThrottle.key(uri, "bob"));
+        assertEquals("https://jira.example.com:8443", RequestThrottle.key(uri, null));
+    }
+}
@@ -0,0 +1,68 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static org.junit.Assert.assertNotNull;
+
+public class ResourceFactoryTest {
+
+    /**
+     * A resource type the library doesn't know about.
+     */
+    public static class Sprintlet extends Resource {
+        final String name;
+
+        Sprintlet(RestClient restclient, JSONObject json) {
+            super(restclient);
+            name = Field.getString(json.get("name"));
+        }
+    }
+
+    @Test
+    public void testBuiltInTypesAreRegistered() {
+        JSONObject json = new JSONObject();
+        json.put("id", "10004");
+        json.put("name", "To Do");
+
+        Status status = Field.getResource(Status.class, json, null);
+        assertEquals("To Do", status.getName());
+        assertTrue(Field.getResource(User.class, json, null) instanceof User);
+        assertNotNull(Field.getResourceFactory(TempoWorkLog.class));
+    }
+
+    @Test
+    public void testNullAndUnknownInputs() {
+        assertNull(Field.getResource(Status.class, JSONNull.getInstance(), null));
+        assertNull(Field.getResource(Status.class, "not an object", null));
+        assertNull(Field.getResource(IssueHistory.class, new JSONObject(), null));
+    }
+
+    @Test
+    public void testCustomTypeCanBeRegistered() {
+        Field.registerResourceFactory(Sprintlet.class, new ResourceFactory<Sprintlet>() {
+            public Sprintlet create(RestClient restclient, JSONObject json) {
+                return new Sprintlet(restclient, json);
+            }
+        });
+
+        JSONArray array = new JSONArray();
+        for (String name : new String[] { "one", "two" }) {
+            JSONObject json = new JSONObject();
+            json.put("name", name);
+            array.add(json);
+        }
+        array.add(JSONNull.getInstance());
+
+        List<Sprintlet> sprints = Field.getResourceArray(Sprintlet.class, array, null);
+        assertEquals(2, sprints.size());
+        assertEquals("two", sprints.get(1).name);
+    }
+}
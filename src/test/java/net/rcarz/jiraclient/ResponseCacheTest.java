@@ -0,0 +1,150 @@
+package net.rcarz.jiraclient;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.any;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+public class ResponseCacheTest {
+
+    private static final String BODY = "{\"id\":\"10000\",\"name\":\"Major\"}";
+    private static final String ETAG = "\"v1\"";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Creates a client whose server answers 304 when the request carries
+     * the current ETag and records the conditional headers it saw.
+     */
+    private static RestClient clientWithServer(final List<String> seen, final String etag)
+            throws Exception {
+
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenAnswer(new Answer<HttpResponse>() {
+            public HttpResponse answer(InvocationOnMock invocation) throws Throwable {
+                HttpUriRequest req = (HttpUriRequest)invocation.getArguments()[0];
+                String ifNoneMatch = req.getFirstHeader("If-None-Match") != null ?
+                    req.getFirstHeader("If-None-Match").getValue() : null;
+                seen.add(ifNoneMatch);
+
+                if (etag.equals(ifNoneMatch))
+                    return new BasicHttpResponse(HttpVersion.HTTP_1_1, 304, "Not Modified");
+
+                HttpResponse resp = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+                resp.setEntity(new ByteArrayEntity(BODY.getBytes("UTF-8")));
+                resp.setHeader("Content-Type", "application/json;charset=UTF-8");
+                resp.setHeader("ETag", etag);
+                resp.setHeader("Last-Modified", "Tue, 15 Nov 1994 12:45:26 GMT");
+                return resp;
+            }
+        });
+
+        return new RestClient(httpClient, new URI("http://jira.example.com"));
+    }
+
+    @Test
+    public void testNotModifiedIsServedFromCache() throws Exception {
+        List<String> seen = new ArrayList<String>();
+        RestClient restClient = clientWithServer(seen, ETAG);
+        MemoryResponseCache cache = new MemoryResponseCache();
+        restClient.setResponseCache(cache);
+
+        assertEquals(BODY, restClient.get("/rest/api/2/priority/1").toString());
+        assertEquals(BODY, restClient.get("/rest/api/2/priority/1").toString());
+        assertEquals(BODY, restClient.get("/rest/api/2/priority/1").toString());
+
+        assertNull(seen.get(0));
+        assertEquals(ETAG, seen.get(1));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2 * BODY.length(), cache.getBytesSaved());
+        assertEquals(2.0 / 3, cache.getHitRatio(), 0.0001);
+    }
+
+    @Test
+    public void testChangedResourceReplacesEntry() throws Exception {
+        MemoryResponseCache cache = new MemoryResponseCache();
+        cache.put("http://jira.example.com/rest/api/2/priority/1",
+            new ResponseCache.Entry("\"v0\"", null, "{\"stale\":true}"));
+
+        RestClient restClient = clientWithServer(new ArrayList<String>(), ETAG);
+        restClient.setResponseCache(cache);
+
+        assertEquals(BODY, restClient.get("/rest/api/2/priority/1").toString());
+        assertEquals(ETAG, cache.get("http://jira.example.com/rest/api/2/priority/1").getETag());
+    }
+
+    @Test
+    public void testMemoryCacheEvictsLeastRecentlyUsedByBytes() {
+        MemoryResponseCache cache = new MemoryResponseCache(25);
+
+        cache.put("a", new ResponseCache.Entry("1", null, "0123456789"));
+        cache.put("b", new ResponseCache.Entry("1", null, "0123456789"));
+        cache.get("a");
+        cache.put("c", new ResponseCache.Entry("1", null, "0123456789"));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(20, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+
+        cache.put("d", new ResponseCache.Entry("1", null, "this body is larger than the cache"));
+        assertNull(cache.get("d"));
+    }
+
+    @Test
+    public void testEntrySizeIsUtf8Length() {
+        assertEquals(10, new ResponseCache.Entry(null, null, "aé東😀").getSize());
+    }
+
+    @Test
+    public void testDiskCacheSurvivesRestart() throws Exception {
+        DiskResponseCache cache = new DiskResponseCache(folder.getRoot(), 1024);
+        cache.put("http://jira.example.com/a", new ResponseCache.Entry(ETAG, null, BODY));
+        cache.put("http://jira.example.com/b", new ResponseCache.Entry(null, "yesterday", "{\"b\":\"été\"}"));
+
+        DiskResponseCache reopened = new DiskResponseCache(folder.getRoot(), 1024);
+        assertEquals(2, reopened.getEntryCount());
+        assertEquals(cache.getSize(), reopened.getSize());
+        assertEquals(BODY, reopened.get("http://jira.example.com/a").getBody());
+        assertEquals(ETAG, reopened.get("http://jira.example.com/a").getETag());
+        assertNull(reopened.get("http://jira.example.com/b").getETag());
+        assertEquals("{\"b\":\"été\"}", reopened.get("http://jira.example.com/b").getBody());
+
+        reopened.clear();
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testDiskCacheEvictsByBytes() throws Exception {
+        DiskResponseCache cache = new DiskResponseCache(folder.getRoot(), 25);
+
+        cache.put("a", new ResponseCache.Entry("1", null, "0123456789"));
+        cache.put("b", new ResponseCache.Entry("1", null, "0123456789"));
+        cache.put("c", new ResponseCache.Entry("1", null, "0123456789"));
+
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(2, folder.getRoot().list().length);
+    }
+}
@@ -0,0 +1,159 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONSerializer;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+import org.powermock.api.mockito.PowerMockito;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+public class RestClientTest {
+
+    private static RestClient clientReturning(byte[] body, String contentType, int status) throws Exception {
+        HttpResponse resp = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "Status " + status);
+        if (body != null)
+            resp.setEntity(new ByteArrayEntity(body));
+        if (contentType != null)
+            resp.setHeader("Content-Type", contentType);
+
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(resp);
+
+        return new RestClient(httpClient, new URI("http://jira.example.com"));
+    }
+
+    /**
+     * Decodes a payload the way the client used to: line by line.
+     */
+    private static JSON lineBuffered(String payload) throws Exception {
+        BufferedReader br = new BufferedReader(new StringReader(payload));
+        StringBuilder result = new StringBuilder();
+        String line;
+
+        while ((line = br.readLine()) != null)
+            result.append(line);
+
+        return JSONSerializer.toJSON(result.toString());
+    }
+
+    private static void assertEquivalent(String payload, String charset) throws Exception {
+        RestClient restClient = clientReturning(
+            payload.getBytes(charset), "application/json;charset=" + charset, 200);
+
+        assertEquals(lineBuffered(payload).toString(), restClient.get("/rest/api/2/issue/X-1").toString());
+    }
+
+    @Test
+    public void testCompactPayloadIsEquivalent() throws Exception {
+        assertEquivalent(Utils.getTestIssue().toString(), "UTF-8");
+    }
+
+    @Test
+    public void testPrettyPrintedPayloadIsEquivalent() throws Exception {
+        assertEquivalent(Utils.getTestIssue().toString(2), "UTF-8");
+        assertEquivalent(Utils.getTestIssue().toString(2).replace("\n", "\r\n"), "UTF-8");
+    }
+
+    @Test
+    public void testArrayPayloadIsEquivalent() throws Exception {
+        assertEquivalent(Utils.getTestIssueWorklogs().getJSONArray("worklogs").toString(2), "UTF-8");
+    }
+
+    @Test
+    public void testNonAsciiPayloadIsEquivalent() throws Exception {
+        String payload = "{\"summary\": \"Grüße aus 東京\",\n \"labels\": [\"été\"]}";
+        assertEquivalent(payload, "UTF-8");
+        assertEquivalent(payload, "UTF-16");
+    }
+
+    @Test
+    public void testPayloadLargerThanBuffer() throws Exception {
+        StringBuilder sb = new StringBuilder("{\"issues\": [");
+        for (int i = 0; i < 100; i++) {
+            if (i > 0)
+                sb.append(",\n");
+            sb.append(Utils.getTestIssue().toString());
+        }
+        sb.append("]}");
+
+        assertEquivalent(sb.toString(), "UTF-8");
+    }
+
+    @Test
+    public void testEmptyBodyReturnsNull() throws Exception {
+        assertNull(clientReturning(new byte[0], "application/json", 204).get("/rest/api/2/issue/X-1"));
+        assertNull(clientReturning(null, null, 204).get("/rest/api/2/issue/X-1"));
+    }
+
+    @Test
+    public void testMissingContentTypeHeader() throws Exception {
+        RestClient restClient = clientReturning("{\"id\": \"1\"}".getBytes("UTF-8"), null, 200);
+        assertEquals("{\"id\":\"1\"}", restClient.get("/rest/api/2/issue/X-1").toString());
+    }
+
+    @Test
+    public void testErrorStatusCarriesBody() throws Exception {
+        String body = "{\"errorMessages\":[\"Issue Does Not Exist\"],\"errors\":{}}";
+        RestClient restClient = clientReturning(body.getBytes("UTF-8"), "application/json", 404);
+
+        try {
+            restClient.get("/rest/api/2/issue/X-1");
+        } catch (RestException ex) {
+            assertEquals(404, ex.getHttpStatusCode());
+            assertEquals(body, ex.getHttpResult());
+            return;
+        }
+
+        throw new AssertionError("expected RestException");
+    }
+
+    @Test
+    public void testResponseWithinLimitIsRead() throws Exception {
+        byte[] body = "{\"id\": \"1\"}".getBytes("UTF-8");
+        RestClient restClient = clientReturning(body, "application/json", 200);
+        restClient.setMaxResponseSize(body.length);
+
+        assertEquals("{\"id\":\"1\"}", restClient.get("/rest/api/2/issue/X-1").toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void testDeclaredLengthOverLimitIsRejected() throws Exception {
+        RestClient restClient = clientReturning(
+            Utils.getTestIssue().toString().getBytes("UTF-8"), "application/json", 200);
+        restClient.setMaxResponseSize(100);
+
+        restClient.get("/rest/api/2/issue/X-1");
+    }
+
+    @Test(expected = IOException.class)
+    public void testUndeclaredLengthOverLimitIsRejected() throws Exception {
+        byte[] body = Utils.getTestIssue().toString().getBytes("UTF-8");
+        HttpResponse resp = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        BasicHttpEntity entity = new BasicHttpEntity();
+        entity.setContent(new ByteArrayInputStream(body));
+        resp.setEntity(entity);
+
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(resp);
+
+        RestClient restClient = new RestClient(httpClient, new URI("http://jira.example.com"));
+        restClient.setMaxResponseSize(100);
+        restClient.get("/rest/api/2/issue/X-1");
+    }
+}
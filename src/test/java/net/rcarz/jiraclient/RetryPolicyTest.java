@@ -0,0 +1,397 @@
+package net.rcarz.jiraclient;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+import org.powermock.api.mockito.PowerMockito;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+public class RetryPolicyTest {
+
+    /**
+     * Records pauses instead of sleeping and runs its breakers on a manual
+     * clock.
+     */
+    private static class ManualPolicy extends RetryPolicy {
+        final List<Long> delays = new ArrayList<Long>();
+        long time = 1000;
+
+        @Override
+        protected void sleep(long millis) {
+            delays.add(millis);
+        }
+
+        @Override
+        protected CircuitBreaker createCircuitBreaker(int failureThreshold, long openDuration) {
+            return new CircuitBreaker(failureThreshold, openDuration, TimeUnit.MILLISECONDS) {
+                @Override
+                protected long now() {
+                    return time;
+                }
+            };
+        }
+    }
+
+    private static HttpResponse response(int status) throws Exception {
+        HttpResponse resp = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "Status " + status);
+        resp.setEntity(new ByteArrayEntity("{\"id\": \"1\"}".getBytes("UTF-8")));
+        resp.setHeader("Content-Type", "application/json");
+        return resp;
+    }
+
+    /**
+     * Throttle that never waits.
+     */
+    private static class InstantThrottle extends RequestThrottle {
+        @Override
+        protected void sleep(long nanos) {
+        }
+    }
+
+    private static RestClient client(HttpClient httpClient, RetryPolicy policy, RequestThrottle throttle)
+            throws Exception {
+
+        RestClient restClient = client(httpClient, policy);
+        restClient.setRequestThrottle(throttle);
+        return restClient;
+    }
+
+    private static RestClient client(HttpClient httpClient, RetryPolicy policy) throws Exception {
+        RestClient restClient = new RestClient(httpClient, new URI("http://jira.example.com"));
+        restClient.setRetryPolicy(policy);
+        return restClient;
+    }
+
+    @Test
+    public void testGetRecoversAfterServerErrors() throws Exception {
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class)))
+            .thenReturn(response(503), response(502), response(200));
+        ManualPolicy policy = new ManualPolicy();
+
+        assertEquals("{\"id\":\"1\"}", client(httpClient, policy).get("/rest/api/2/issue/X-1").toString());
+        assertEquals(2, policy.getRetryCount());
+        assertEquals(1, policy.getRecoveredCount());
+        assertEquals(2, policy.delays.size());
+        verify(httpClient, times(3)).execute(any(HttpUriRequest.class));
+    }
+
+    @Test
+    public void testNetworkErrorIsRetried() throws Exception {
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class)))
+            .thenThrow(new SocketTimeoutException("read timed out"))
+            .thenReturn(response(200));
+        ManualPolicy policy = new ManualPolicy();
+
+        client(httpClient, policy).get("/rest/api/2/issue/X-1");
+        assertEquals(1, policy.getRetryCount());
+        assertEquals(1, policy.getRecoveredCount());
+    }
+
+    @Test
+    public void testPostIsNotRetried() throws Exception {
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class)))
+            .thenReturn(response(503), response(200));
+        ManualPolicy policy = new ManualPolicy();
+
+        try {
+            client(httpClient, policy).post("/rest/api/2/issue", new net.sf.json.JSONObject());
+        } catch (RestException ex) {
+            assertEquals(503, ex.getHttpStatusCode());
+            assertEquals(0, policy.getRetryCount());
+            verify(httpClient, times(1)).execute(any(HttpUriRequest.class));
+            return;
+        }
+
+        throw new AssertionError("expected RestException");
+    }
+
+    @Test
+    public void testClientErrorIsNotRetried() throws Exception {
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(response(404));
+        ManualPolicy policy = new ManualPolicy();
+
+        try {
+            client(httpClient, policy).get("/rest/api/2/issue/X-1");
+        } catch (RestException ex) {
+            assertEquals(0, policy.getRetryCount());
+            assertEquals(CircuitBreaker.State.CLOSED,
+                policy.getCircuitBreaker(RetryPolicy.FAMILY_ISSUE).getState());
+            return;
+        }
+
+        throw new AssertionError("expected RestException");
+    }
+
+    @Test
+    public void testAttemptsAreLimited() throws Exception {
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(response(500));
+        ManualPolicy policy = new ManualPolicy();
+        policy.setMaxAttempts(3);
+
+        try {
+            client(httpClient, policy).get("/rest/api/2/issue/X-1");
+        } catch (RestException ex) {
+            verify(httpClient, times(3)).execute(any(HttpUriRequest.class));
+            assertEquals(1, policy.getFailedCount());
+            return;
+        }
+
+        throw new AssertionError("expected RestException");
+    }
+
+    @Test
+    public void testRetryBudgetCapsRetries() throws Exception {
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(response(500));
+        ManualPolicy policy = new ManualPolicy();
+        policy.setRetryBudget(2, 0.1);
+        policy.setCircuitBreaker(1000, 1, TimeUnit.SECONDS);
+        RestClient restClient = client(httpClient, policy);
+
+        int failures = 0;
+        for (int i = 0; i < 5; i++) {
+            try {
+                restClient.get("/rest/api/2/issue/X-1");
+            } catch (RestException ex) {
+                failures++;
+            }
+        }
+
+        assertEquals(5, failures);
+        assertEquals(2, policy.getRetryCount());
+        assertTrue(policy.getBudgetExhaustedCount() > 0);
+        verify(httpClient, times(7)).execute(any(HttpUriRequest.class));
+    }
+
+    @Test
+    public void testBreakerOpensAndRecovers() throws Exception {
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(response(503));
+        ManualPolicy policy = new ManualPolicy();
+        policy.setMaxAttempts(1);
+        policy.setCircuitBreaker(3, 10, TimeUnit.SECONDS);
+        RestClient restClient = client(httpClient, policy);
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                restClient.get("/rest/api/2/issue/X-1");
+            } catch (RestException ex) {
+                /* expected */
+            }
+        }
+
+        CircuitBreaker breaker = policy.getCircuitBreaker(RetryPolicy.FAMILY_ISSUE);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        try {
+            restClient.get("/rest/api/2/issue/X-1");
+            throw new AssertionError("expected CircuitOpenException");
+        } catch (CircuitOpenException ex) {
+            assertEquals(RetryPolicy.FAMILY_ISSUE, ex.getFamily());
+        }
+
+        /* other families are unaffected */
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(response(200));
+        restClient.get("/rest/api/2/search");
+        assertEquals(1, policy.getRejectedCount());
+
+        policy.time += TimeUnit.SECONDS.toMillis(10);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        restClient.get("/rest/api/2/issue/X-1");
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1, breaker.getOpenCount());
+    }
+
+    @Test
+    public void testHalfOpenAllowsSingleTrial() {
+        final long[] time = {0};
+        CircuitBreaker breaker = new CircuitBreaker(1, 100, TimeUnit.MILLISECONDS) {
+            @Override
+            protected long now() {
+                return time[0];
+            }
+        };
+
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+        assertEquals(false, breaker.allowRequest());
+
+        time[0] = 100;
+        assertTrue(breaker.allowRequest());
+        assertEquals(false, breaker.allowRequest());
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getOpenCount());
+    }
+
+    @Test
+    public void testHalfOpenTrialThatThrowsReleasesTheBreaker() throws Exception {
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(response(503));
+        ManualPolicy policy = new ManualPolicy();
+        policy.setMaxAttempts(1);
+        policy.setCircuitBreaker(1, 10, TimeUnit.SECONDS);
+        RestClient restClient = client(httpClient, policy);
+
+        try {
+            restClient.get("/rest/api/2/issue/X-1");
+        } catch (RestException ex) {
+            /* expected */
+        }
+
+        policy.time += TimeUnit.SECONDS.toMillis(10);
+        HttpResponse html = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        html.setEntity(new ByteArrayEntity("<html>maintenance</html>".getBytes("UTF-8")));
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(html);
+
+        try {
+            restClient.get("/rest/api/2/issue/X-1");
+            throw new AssertionError("expected a RuntimeException");
+        } catch (RuntimeException ex) {
+            /* expected */
+        }
+
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(response(200));
+        restClient.get("/rest/api/2/issue/X-1");
+        CircuitBreaker breaker = policy.getCircuitBreaker(RetryPolicy.FAMILY_ISSUE);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, policy.getRejectedCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void testOversizedResponseIsNotRetried() throws Exception {
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(response(200));
+        ManualPolicy policy = new ManualPolicy();
+        RestClient restClient = client(httpClient, policy);
+        restClient.setMaxResponseSize(2);
+
+        try {
+            restClient.get("/rest/api/2/issue/X-1");
+        } finally {
+            assertEquals(0, policy.getRetryCount());
+        }
+    }
+
+    @Test
+    public void testFamilies() {
+        assertEquals(RetryPolicy.FAMILY_SEARCH,
+            RetryPolicy.family(URI.create("http://jira.example.com/rest/api/2/search?jql=x")));
+        assertEquals(RetryPolicy.FAMILY_ISSUE,
+            RetryPolicy.family(URI.create("http://jira.example.com/rest/api/2/issue/X-1")));
+        assertEquals(RetryPolicy.FAMILY_GREENHOPPER,
+            RetryPolicy.family(URI.create("http://jira.example.com/rest/greenhopper/1.0/rapidviews/list")));
+        assertEquals(RetryPolicy.FAMILY_GREENHOPPER,
+            RetryPolicy.family(URI.create("http://jira.example.com/rest/agile/1.0/board")));
+        assertEquals(RetryPolicy.FAMILY_TEMPO,
+            RetryPolicy.family(URI.create("http://jira.example.com/rest/tempo-timesheets/3/worklogs")));
+    }
+
+    @Test
+    public void testJitterStaysWithinBounds() {
+        RetryPolicy policy = new RetryPolicy();
+        policy.setBackoff(100, 1000, TimeUnit.MILLISECONDS);
+
+        long delay = 0;
+        for (int i = 0; i < 1000; i++) {
+            long previous = delay;
+            delay = policy.nextDelay(previous);
+            assertTrue(delay >= 100);
+            assertTrue(delay <= Math.min(1000, Math.max(100, previous) * 3));
+        }
+    }
+
+    @Test
+    public void testThrottledRequestsAreRetriedByThePolicyOnly() throws Exception {
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(response(503));
+        ManualPolicy policy = new ManualPolicy();
+        policy.setCircuitBreaker(1000, 1, TimeUnit.SECONDS);
+        InstantThrottle throttle = new InstantThrottle();
+
+        try {
+            client(httpClient, policy, throttle).get("/rest/api/2/issue/X-1");
+            throw new AssertionError("expected RestException");
+        } catch (RestException ex) {
+            assertEquals(503, ex.getHttpStatusCode());
+        }
+
+        /* one request and three retries, not eleven sends per attempt */
+        verify(httpClient, times(RetryPolicy.DEFAULT_MAX_ATTEMPTS)).execute(any(HttpUriRequest.class));
+        assertEquals(3, policy.getRetryCount());
+        assertEquals(RetryPolicy.DEFAULT_MAX_ATTEMPTS, throttle.getThrottledCount());
+    }
+
+    @Test
+    public void testThrottledRetriesDrawFromTheBudget() throws Exception {
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(response(429));
+        ManualPolicy policy = new ManualPolicy();
+        policy.setRetryBudget(2, 0.1);
+        policy.setCircuitBreaker(1000, 1, TimeUnit.SECONDS);
+        RestClient restClient = client(httpClient, policy, new InstantThrottle());
+
+        for (int i = 0; i < 5; i++) {
+            try {
+                restClient.get("/rest/api/2/issue/X-1");
+            } catch (RestException ex) {
+                assertEquals(429, ex.getHttpStatusCode());
+            }
+        }
+
+        assertEquals(2, policy.getRetryCount());
+        verify(httpClient, times(7)).execute(any(HttpUriRequest.class));
+    }
+
+    @Test
+    public void testThrottledRequestsOpenTheBreaker() throws Exception {
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(response(503));
+        ManualPolicy policy = new ManualPolicy();
+        policy.setMaxAttempts(10);
+        policy.setCircuitBreaker(3, 10, TimeUnit.SECONDS);
+
+        try {
+            client(httpClient, policy, new InstantThrottle()).get("/rest/api/2/issue/X-1");
+            throw new AssertionError("expected CircuitOpenException");
+        } catch (CircuitOpenException ex) {
+            assertEquals(RetryPolicy.FAMILY_ISSUE, ex.getFamily());
+        }
+
+        verify(httpClient, times(3)).execute(any(HttpUriRequest.class));
+    }
+
+    @Test
+    public void testThrottledPostIsSentAgain() throws Exception {
+        HttpClient httpClient = PowerMockito.mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class)))
+            .thenReturn(response(429), response(200));
+        ManualPolicy policy = new ManualPolicy();
+
+        client(httpClient, policy, new InstantThrottle()).post("/rest/api/2/issue", new net.sf.json.JSONObject());
+        assertEquals(1, policy.getRetryCount());
+        verify(httpClient, times(2)).execute(any(HttpUriRequest.class));
+    }
+}
@@ -0,0 +1,193 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class TempoExportTest {
+
+    /**
+     * Reports one work log per user and day, plus a work log that the
+     * server repeats for every user in the first window. Requests for
+     * "broken" in January's second week fail.
+     */
+    private static class TempoRestClient extends RestClient {
+        final List<String> requests = new CopyOnWriteArrayList<String>();
+
+        TempoRestClient() {
+            super(null, URI.create("http://jira.example.com"));
+        }
+
+        static JSONObject workLog(int id, String username, String day) {
+            JSONObject author = new JSONObject();
+            author.put("name", username);
+            author.put("self", "http://jira.example.com/rest/api/2/user?username=" + username);
+
+            JSONObject workLog = new JSONObject();
+            workLog.put("id", id);
+            workLog.put("self", "http://jira.example.com/rest/tempo-timesheets/3/worklogs/" + id);
+            workLog.put("timeSpentSeconds", 3600);
+            workLog.put("dateStarted", day + "T09:00:00.000+0000");
+            workLog.put("author", author);
+            return workLog;
+        }
+
+        @Override
+        public JSON get(URI uri) throws RestException {
+            Map<String, String> params = new HashMap<String, String>();
+            try {
+                for (String param : uri.getRawQuery().split("&")) {
+                    String[] pair = param.split("=");
+                    params.put(pair[0], URLDecoder.decode(pair[1], "UTF-8"));
+                }
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+
+            String username = params.get("username");
+            String from = params.get("dateFrom");
+            String to = params.get("dateTo");
+            requests.add(username + " " + from + ".." + to);
+
+            if (username.equals("broken") && from.equals("2016-01-08"))
+                throw new RestException("Gateway Timeout", 504, "");
+
+            JSONArray workLogs = new JSONArray();
+            int user = Math.abs(username.hashCode() % 1000) * 100;
+            int first = Integer.parseInt(from.substring(8));
+            int last = Integer.parseInt(to.substring(8));
+
+            for (int day = first; day <= last; day++)
+                workLogs.add(workLog(user + day, username, String.format("2016-01-%02d", day)));
+
+            if (from.equals("2016-01-01"))
+                workLogs.add(workLog(99999, "shared", "2016-01-01"));
+            return workLogs;
+        }
+    }
+
+    private static class CollectingListener implements TempoExport.Listener {
+        final List<Integer> ids = new ArrayList<Integer>();
+        final List<Thread> threads = new ArrayList<Thread>();
+
+        @Override
+        public void onWorkLog(String username, TempoWorkLog workLog) {
+            threads.add(Thread.currentThread());
+            ids.add(workLog.getId());
+        }
+    }
+
+    @Test
+    public void testRangeIsSplitIntoWindows() throws JiraException {
+        TempoExport export = new TempoExport(null).windowDays(7);
+
+        List<String[]> windows = export.windows("2016-01-01", "2016-01-20");
+        assertEquals(3, windows.size());
+        assertEquals("[2016-01-01, 2016-01-07]", Arrays.toString(windows.get(0)));
+        assertEquals("[2016-01-08, 2016-01-14]", Arrays.toString(windows.get(1)));
+        assertEquals("[2016-01-15, 2016-01-20]", Arrays.toString(windows.get(2)));
+
+        assertEquals(1, export.windows("2016-03-26", "2016-03-28").size());
+        assertEquals(0, export.windows("2016-03-28", "2016-03-26").size());
+    }
+
+    @Test(expected = JiraException.class)
+    public void testMalformedRangeIsRejected() throws JiraException {
+        new TempoExport(null).windows("2016-01-01", "January 20th");
+    }
+
+    @Test
+    public void testUsersAndWindowsAreExportedOnceEach() throws JiraException {
+        TempoRestClient restClient = new TempoRestClient();
+        CollectingListener listener = new CollectingListener();
+
+        TempoExport.Result result = new TempoExport(restClient)
+            .concurrency(3)
+            .windowDays(7)
+            .export(Arrays.asList("alice", "bob", "broken"), "2016-01-01", "2016-01-20", listener);
+
+        assertEquals(9, restClient.requests.size());
+        assertEquals(9, result.getRequests());
+        assertEquals(1, result.getFailures().size());
+        assertTrue(result.getFailures().containsKey("broken 2016-01-08..2016-01-14"));
+
+        // 20 days for two users, 13 for the broken one, and the shared entry once
+        assertEquals(20 + 20 + 13 + 1, result.getWorkLogs());
+        assertEquals(result.getWorkLogs(), listener.ids.size());
+        assertEquals(3 - 1, result.getDuplicates());
+        assertEquals(listener.ids.size(), new HashSet<Integer>(listener.ids).size());
+
+        for (Thread thread : listener.threads)
+            assertTrue(thread == Thread.currentThread());
+    }
+
+    /**
+     * Also reports a copy of the shared work log under a new ID with every
+     * request in the first window, like an entry logged twice.
+     */
+    private static class CopyingTempoRestClient extends TempoRestClient {
+        @Override
+        public JSON get(URI uri) throws RestException {
+            JSONArray workLogs = (JSONArray) super.get(uri);
+            if (uri.getRawQuery().contains("dateFrom=2016-01-01"))
+                workLogs.add(workLog(80000 + requests.size(), "shared", "2016-01-01"));
+            return workLogs;
+        }
+    }
+
+    @Test
+    public void testContentDuplicatesAreKeptByDefault() throws JiraException {
+        CollectingListener listener = new CollectingListener();
+
+        TempoExport.Result result = new TempoExport(new CopyingTempoRestClient())
+            .concurrency(1)
+            .windowDays(7)
+            .export(Arrays.asList("alice", "bob"), "2016-01-01", "2016-01-20", listener);
+
+        assertEquals(20 + 20 + 1 + 2, result.getWorkLogs());
+        assertEquals(1, result.getDuplicates());
+    }
+
+    @Test
+    public void testContentDuplicatesAreDroppedOnRequest() throws JiraException {
+        CollectingListener listener = new CollectingListener();
+
+        TempoExport.Result result = new TempoExport(new CopyingTempoRestClient())
+            .concurrency(1)
+            .windowDays(7)
+            .identityOnly(false)
+            .export(Arrays.asList("alice", "bob"), "2016-01-01", "2016-01-20", listener);
+
+        // 20 days for each user and the shared entry once, in either form
+        assertEquals(20 + 20 + 1, result.getWorkLogs());
+        assertEquals(3, result.getDuplicates());
+        assertEquals(listener.ids.size(), new HashSet<Integer>(listener.ids).size());
+    }
+
+    @Test
+    public void testWindowsAreRequestedInDateOrder() throws JiraException {
+        TempoRestClient restClient = new TempoRestClient();
+
+        new TempoExport(restClient)
+            .concurrency(1)
+            .windowDays(7)
+            .export(Arrays.asList("alice", "bob"), "2016-01-01", "2016-01-14", new CollectingListener());
+
+        assertEquals(Arrays.asList("alice 2016-01-01..2016-01-07", "bob 2016-01-01..2016-01-07",
+            "alice 2016-01-08..2016-01-14", "bob 2016-01-08..2016-01-14"), restClient.requests);
+    }
+}
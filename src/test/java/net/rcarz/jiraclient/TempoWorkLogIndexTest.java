@@ -0,0 +1,145 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class TempoWorkLogIndexTest {
+
+    private static TempoWorkLog workLog(int id, String author, String started, int seconds,
+            String comment, String summary) {
+
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("self", "http://jira.example.com/rest/tempo-timesheets/3/worklogs/" + id);
+        json.put("timeSpentSeconds", seconds);
+        json.put("dateStarted", started);
+        if (comment != null)
+            json.put("comment", comment);
+        json.put("summary", summary);
+
+        if (author != null) {
+            JSONObject user = new JSONObject();
+            user.put("self", "http://jira.example.com/rest/api/2/user?username=" + author);
+            user.put("name", author);
+            json.put("author", user);
+        }
+
+        return new TempoWorkLog(null, json);
+    }
+
+    /**
+     * Builds work logs from small value ranges so that many of them are
+     * duplicates of each other.
+     */
+    private static List<TempoWorkLog> randomWorkLogs(int count, long seed) {
+        Random random = new Random(seed);
+        List<TempoWorkLog> workLogs = new ArrayList<TempoWorkLog>(count);
+
+        for (int i = 0; i < count; i++) {
+            workLogs.add(workLog(i,
+                random.nextInt(5) == 0 ? null : "user" + random.nextInt(4),
+                String.format("2016-07-%02dT09:00:00.000+0000", 1 + random.nextInt(5)),
+                1800 * (1 + random.nextInt(3)),
+                random.nextBoolean() ? null : "comment " + random.nextInt(3),
+                "summary " + random.nextInt(2)));
+        }
+
+        return workLogs;
+    }
+
+    @Test
+    public void testEqualsAndHashCodeAgree() {
+        TempoWorkLog a = workLog(1, "alice", "2016-07-04T09:35:03.000+0000", 3600, "x", "s");
+        TempoWorkLog sameSelf = workLog(1, "bob", "2016-07-05T09:35:03.000+0000", 60, "y", "t");
+        TempoWorkLog other = workLog(2, "alice", "2016-07-04T09:35:03.000+0000", 3600, "x", "s");
+
+        assertTrue(a.equals(sameSelf));
+        assertEquals(a.hashCode(), sameSelf.hashCode());
+        assertFalse(a.equals(other));
+        assertTrue(a.isDuplicate(other));
+        assertEquals(a.getFingerprint(), other.getFingerprint());
+        assertEquals(a.getFingerprint().hashCode(), other.getFingerprint().hashCode());
+        assertFalse(a.getFingerprint().equals(sameSelf.getFingerprint()));
+
+        TempoWorkLog anonymous = new TempoWorkLog(null, new JSONObject());
+        assertTrue(anonymous.equals(anonymous));
+        assertEquals(1, new HashSet<TempoWorkLog>(Arrays.asList(a, sameSelf)).size());
+    }
+
+    @Test
+    public void testIndexAgreesWithPairwiseComparison() {
+        List<TempoWorkLog> workLogs = randomWorkLogs(2000, 42);
+
+        List<TempoWorkLog> expected = new ArrayList<TempoWorkLog>();
+        for (TempoWorkLog candidate : workLogs) {
+            boolean duplicate = false;
+            for (TempoWorkLog kept : expected) {
+                if (kept.isDuplicate(candidate)) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate)
+                expected.add(candidate);
+        }
+
+        List<TempoWorkLog> actual = TempoWorkLogIndex.distinct(workLogs);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++)
+            assertSame(expected.get(i), actual.get(i));
+
+        assertTrue(actual.size() < workLogs.size());
+    }
+
+    @Test
+    public void testIndexLookups() {
+        TempoWorkLog existing = workLog(1, "alice", "2016-07-04T09:00:00.000+0000", 3600, null, "s");
+        TempoWorkLog imported = workLog(2, "alice", "2016-07-04T09:00:00.000+0000", 3600, null, "s");
+        TempoWorkLog differentComment = workLog(3, "alice", "2016-07-04T09:00:00.000+0000", 3600, "c", "s");
+
+        List<TempoWorkLog> timesheet = new ArrayList<TempoWorkLog>();
+        timesheet.add(existing);
+        TempoWorkLogIndex index = new TempoWorkLogIndex(timesheet);
+
+        assertSame(existing, index.findDuplicate(imported));
+        assertTrue(index.containsDuplicate(imported));
+        assertFalse(index.containsDuplicate(differentComment));
+        assertSame(existing, index.add(imported));
+        assertNull(index.add(differentComment));
+        assertEquals(2, index.size());
+
+        assertSame(existing, index.remove(imported));
+        assertNull(index.findDuplicate(existing));
+    }
+
+    @Test
+    public void testLargeTimesheet() {
+        List<TempoWorkLog> workLogs = new ArrayList<TempoWorkLog>(300000);
+        for (int i = 0; i < 300000; i++) {
+            workLogs.add(workLog(i, "user" + (i % 100),
+                String.format("2016-%02d-%02dT09:00:00.000+0000", 1 + i % 12, 1 + i % 28),
+                60 * (i % 480 + 1), "comment " + (i % 1000), "summary"));
+        }
+
+        TempoWorkLogIndex index = new TempoWorkLogIndex(workLogs);
+        int duplicates = 0;
+        for (TempoWorkLog workLog : workLogs) {
+            if (index.findDuplicate(workLog) != workLog)
+                duplicates++;
+        }
+
+        assertEquals(workLogs.size() - index.size(), duplicates);
+    }
+}
@@ -0,0 +1,226 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class WorkLogBatchTest {
+
+    /**
+     * Knows how many work logs each issue has. Searches embed at most 20
+     * work logs per issue; the worklog resource pages by startAt and
+     * maxResults. TEST-13 doesn't exist.
+     */
+    private static class WorkLogRestClient extends RestClient {
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        final AtomicInteger worklogGets = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        WorkLogRestClient() {
+            super(null, URI.create("http://jira.example.com"));
+            for (int i = 1; i <= 30; i++)
+                counts.put("TEST-" + i, i % 7 == 0 ? 250 : i % 5);
+        }
+
+        static JSONObject page(String key, int total, int startAt, int maxResults) {
+            JSONArray worklogs = new JSONArray();
+            for (int i = startAt; i < Math.min(total, startAt + maxResults); i++) {
+                JSONObject worklog = new JSONObject();
+                worklog.put("id", key + "#" + i);
+                worklog.put("timeSpentSeconds", 60);
+                worklogs.add(worklog);
+            }
+
+            JSONObject page = new JSONObject();
+            page.put("startAt", startAt);
+            page.put("maxResults", maxResults);
+            page.put("total", total);
+            page.put("worklogs", worklogs);
+            return page;
+        }
+
+        static int param(String query, String name) {
+            String value = query.substring(query.indexOf(name + "=") + name.length() + 1);
+            return Integer.parseInt(value.replaceAll("&.*", ""));
+        }
+
+        @Override
+        public JSON get(URI uri) throws RestException {
+            String path = uri.getPath();
+
+            if (path.endsWith("/search")) {
+                JSONArray issues = new JSONArray();
+                for (int i = 1; i <= 30; i++) {
+                    String key = "TEST-" + i;
+                    JSONObject fields = new JSONObject();
+                    fields.put("worklog", page(key, counts.get(key), 0, 20));
+
+                    JSONObject issue = new JSONObject();
+                    issue.put("key", key);
+                    issue.put("fields", fields);
+                    issues.add(issue);
+                }
+
+                JSONObject result = new JSONObject();
+                result.put("startAt", 0);
+                result.put("maxResults", 50);
+                result.put("total", issues.size());
+                result.put("issues", issues);
+                return result;
+            }
+
+            worklogGets.incrementAndGet();
+            int current = inFlight.incrementAndGet();
+            synchronized (maxInFlight) {
+                if (current > maxInFlight.get())
+                    maxInFlight.set(current);
+            }
+
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+
+            String key = path.substring(0, path.lastIndexOf('/'));
+            key = key.substring(key.lastIndexOf('/') + 1);
+            if (key.equals("TEST-13"))
+                throw new RestException("Not Found", 404, "");
+
+            return page(key, counts.get(key), param(uri.getQuery(), "startAt"),
+                param(uri.getQuery(), "maxResults"));
+        }
+    }
+
+    private static class CollectingListener implements WorkLogBatch.Listener {
+        final Map<String, List<WorkLog>> workLogs = new HashMap<String, List<WorkLog>>();
+        final List<String> failed = new ArrayList<String>();
+        final List<Thread> threads = new ArrayList<Thread>();
+
+        @Override
+        public void onWorkLogs(String key, List<WorkLog> list) {
+            threads.add(Thread.currentThread());
+            assertTrue(workLogs.put(key, list) == null);
+        }
+
+        @Override
+        public void onFailure(String key, JiraException error) {
+            threads.add(Thread.currentThread());
+            failed.add(key);
+        }
+    }
+
+    private static void assertComplete(CollectingListener listener, String key, int count) {
+        List<WorkLog> list = listener.workLogs.get(key);
+        assertEquals(key, count, list.size());
+        for (int i = 0; i < count; i++)
+            assertEquals(key + "#" + i, list.get(i).getId());
+    }
+
+    @Test
+    public void testQueryUsesEmbeddedWorkLogsAndPagesTheRest() throws JiraException {
+        WorkLogRestClient restClient = new WorkLogRestClient();
+        restClient.counts.put("TEST-13", 3);
+        CollectingListener listener = new CollectingListener();
+
+        WorkLogBatch.Result result = new WorkLogBatch(restClient)
+            .concurrency(3)
+            .fetch("project = TEST", listener);
+
+        assertEquals(30, result.getIssues());
+        assertTrue(result.getFailures().isEmpty());
+        for (int i = 1; i <= 30; i++)
+            assertComplete(listener, "TEST-" + i, restClient.counts.get("TEST-" + i));
+
+        // TEST-7, 14, 21 and 28 have 250 work logs: 20 embedded, 3 pages more
+        assertEquals(12, result.getRequests());
+        assertEquals(12, restClient.worklogGets.get());
+        for (Thread thread : listener.threads)
+            assertTrue(thread == Thread.currentThread());
+    }
+
+    @Test
+    public void testKeysWithFailureReportedPerIssue() throws JiraException {
+        WorkLogRestClient restClient = new WorkLogRestClient();
+        CollectingListener listener = new CollectingListener();
+        List<String> keys = new ArrayList<String>();
+        for (int i = 1; i <= 30; i++)
+            keys.add("TEST-" + i);
+
+        WorkLogBatch.Result result = new WorkLogBatch(restClient)
+            .concurrency(4)
+            .pageSize(100)
+            .fetch(keys, listener);
+
+        assertEquals(29, result.getIssues());
+        assertEquals(Arrays.asList("TEST-13"), listener.failed);
+        assertEquals(1, result.getFailures().size());
+        assertTrue(result.getFailures().get("TEST-13").getCause() instanceof RestException);
+        assertComplete(listener, "TEST-7", 250);
+        assertComplete(listener, "TEST-12", 2);
+
+        assertEquals(30 + 4 * 2, restClient.worklogGets.get());
+        assertTrue(restClient.maxInFlight.get() > 1);
+        assertTrue(restClient.maxInFlight.get() <= 4);
+    }
+
+    @Test
+    public void testListenerFailureAbortsRun() {
+        WorkLogRestClient restClient = new WorkLogRestClient();
+
+        try {
+            new WorkLogBatch(restClient).fetch(Arrays.asList("TEST-1", "TEST-2"), new CollectingListener() {
+                @Override
+                public void onWorkLogs(String key, List<WorkLog> list) {
+                    throw new IllegalStateException("sink closed");
+                }
+            });
+            throw new AssertionError("expected JiraException");
+        } catch (JiraException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testFailedSearchPageIsReportedAsJiraException() {
+        WorkLogRestClient restClient = new WorkLogRestClient() {
+            @Override
+            public JSON get(URI uri) throws RestException {
+                if (!uri.getPath().endsWith("/search"))
+                    return super.get(uri);
+                if (!uri.getQuery().contains("startAt=0"))
+                    throw new RestException("Internal Server Error", 500, "");
+
+                /* the first page has 10 of the 30 issues */
+                JSONObject result = (JSONObject)super.get(uri);
+                JSONArray issues = result.getJSONArray("issues");
+                while (issues.size() > 10)
+                    issues.remove(issues.size() - 1);
+                result.put("issues", issues);
+                return result;
+            }
+        };
+
+        try {
+            new WorkLogBatch(restClient).searchPageSize(10).fetch("project = TEST", new CollectingListener());
+            throw new AssertionError("expected JiraException");
+        } catch (JiraException ex) {
+            assertTrue(ex.getCause() instanceof JiraException);
+        }
+    }
+}
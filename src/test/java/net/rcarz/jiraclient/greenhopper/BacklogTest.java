@@ -0,0 +1,74 @@
+package net.rcarz.jiraclient.greenhopper;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class BacklogTest {
+
+    private static JSONObject issue(int id) {
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("key", "TEST-" + id);
+        return json;
+    }
+
+    private static JSONObject sprint(int id, int... issueIds) {
+        JSONArray ids = new JSONArray();
+        for (int i : issueIds)
+            ids.add(i);
+
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("name", "Sprint " + id);
+        json.put("issuesIds", ids);
+        return json;
+    }
+
+    @Test
+    public void testIssuesAreAssignedToSprints() {
+        JSONArray issues = new JSONArray();
+        for (int i = 1; i <= 6; i++)
+            issues.add(issue(i));
+
+        JSONArray sprints = new JSONArray();
+        sprints.add(sprint(100, 5, 1, 1));
+        sprints.add(sprint(101, 2, 5));
+        sprints.add(sprint(102, 5));
+
+        JSONObject json = new JSONObject();
+        json.put("issues", issues);
+        json.put("sprints", sprints);
+
+        Backlog backlog = new Backlog(null, json);
+        List<Sprint> result = backlog.getSprints();
+
+        assertEquals(2, result.get(0).getIssues().size());
+        assertEquals(1, result.get(0).getIssues().get(0).getId());
+        assertEquals(5, result.get(0).getIssues().get(1).getId());
+        assertEquals(2, result.get(1).getIssues().size());
+        assertEquals(1, result.get(2).getIssues().size());
+
+        assertEquals(3, backlog.getBacklogIssues().size());
+        assertEquals(3, backlog.getBacklogIssues().get(0).getId());
+        assertEquals(6, backlog.getBacklogIssues().get(2).getId());
+    }
+
+    @Test
+    public void testSprintIssueIds() {
+        Sprint sprint = new Sprint(null, sprint(100, 30, 10, 20));
+
+        assertEquals(3, sprint.getIssuesIds().size());
+        assertEquals(Integer.valueOf(30), sprint.getIssuesIds().get(0));
+        assertTrue(sprint.getIssuesIds().contains(10));
+        assertTrue(sprint.containsIssue(20));
+        assertFalse(sprint.containsIssue(40));
+        assertFalse(sprint.getIssuesIds().contains("10"));
+    }
+}
@@ -0,0 +1,92 @@
+package net.rcarz.jiraclient.util;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+public class DateCodecTest {
+
+    private static final String[] ZONES = {
+        "UTC", "America/New_York", "America/Sao_Paulo", "Europe/Berlin", "Europe/Moscow",
+        "Asia/Kolkata", "Australia/Lord_Howe", "Pacific/Chatham", "America/St_Johns"
+    };
+
+    private final TimeZone original = TimeZone.getDefault();
+
+    @After
+    public void restoreTimeZone() {
+        TimeZone.setDefault(original);
+    }
+
+    private static Date legacyParse(String format, String s) {
+        return new SimpleDateFormat(format).parse(s, new ParsePosition(0));
+    }
+
+    @Test
+    public void testMatchesSimpleDateFormat() {
+        Random random = new Random(42);
+        long min = -631152000000L; /* 1950 */
+        long max = 2208988800000L; /* 2040 */
+
+        for (String zone : ZONES) {
+            TimeZone.setDefault(TimeZone.getTimeZone(zone));
+            SimpleDateFormat dateFormat = new SimpleDateFormat(DateCodec.DATE_FORMAT);
+            SimpleDateFormat dateTimeFormat = new SimpleDateFormat(DateCodec.DATETIME_FORMAT);
+
+            for (int i = 0; i < 2000; i++) {
+                Date d = new Date(min + (long)(random.nextDouble() * (max - min)));
+                String date = dateFormat.format(d);
+                String dateTime = dateTimeFormat.format(d);
+
+                assertEquals(zone, date, DateCodec.formatDate(d));
+                assertEquals(zone, dateTime, DateCodec.formatDateTime(d));
+                assertEquals(zone + " " + date, legacyParse(DateCodec.DATE_FORMAT, date), DateCodec.parseDate(date));
+                assertEquals(zone + " " + dateTime, d, DateCodec.parseDateTime(dateTime));
+            }
+        }
+    }
+
+    @Test
+    public void testDaylightSavingTransitions() {
+        String[][] cases = {
+            { "America/Sao_Paulo", "2018-11-04" },
+            { "America/Sao_Paulo", "2019-02-16" },
+            { "America/New_York", "2016-03-13" },
+            { "Europe/Berlin", "2016-10-30" },
+            { "Asia/Beirut", "2016-03-27" }
+        };
+
+        for (String[] c : cases) {
+            TimeZone.setDefault(TimeZone.getTimeZone(c[0]));
+            assertEquals(c[0] + " " + c[1], legacyParse(DateCodec.DATE_FORMAT, c[1]), DateCodec.parseDate(c[1]));
+        }
+    }
+
+    @Test
+    public void testOtherInputsFallBack() {
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+        String[] dates = { "2013-13-40", "2013-09-29T10:00:00.000+0000", "2013-9-29", "1850-01-01", "2013-09-291" };
+        String[] dateTimes = {
+            "2013-09-29T20:16:19.854-0530", "2013-02-30T20:16:19.854+0000", "2013-09-29T20:16:19.8+0000",
+            "2013-09-29T20:16:19.854+0000 trailing", "2013-09-29T24:16:19.854+0000", "1800-09-29T20:16:19.854+0000"
+        };
+
+        for (String s : dates)
+            assertEquals(s, legacyParse(DateCodec.DATE_FORMAT, s), DateCodec.parseDate(s));
+
+        for (String s : dateTimes)
+            assertEquals(s, legacyParse(DateCodec.DATETIME_FORMAT, s), DateCodec.parseDateTime(s));
+
+        assertNull(DateCodec.parseDate(""));
+        assertNull(DateCodec.parseDate("not a date"));
+        assertNull(DateCodec.parseDateTime("2013-09-29Tnope"));
+    }
+}
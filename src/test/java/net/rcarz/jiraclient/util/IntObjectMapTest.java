@@ -0,0 +1,42 @@
+package net.rcarz.jiraclient.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+public class IntObjectMapTest {
+
+    @Test
+    public void testMatchesHashMap() {
+        Random random = new Random(7);
+        IntObjectMap<String> map = new IntObjectMap<String>(0);
+        Map<Integer, String> expected = new HashMap<Integer, String>();
+
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(5000) - 2500;
+            String value = "v" + i;
+            assertEquals(expected.put(key, value), map.put(key, value));
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int key = -2600; key < 2600; key++)
+            assertEquals(expected.get(key), map.get(key));
+    }
+
+    @Test
+    public void testClear() {
+        IntObjectMap<String> map = new IntObjectMap<String>(4);
+        map.put(0, "zero");
+        map.put(Integer.MIN_VALUE, "min");
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertNull(map.get(0));
+        assertNull(map.get(Integer.MIN_VALUE));
+    }
+}